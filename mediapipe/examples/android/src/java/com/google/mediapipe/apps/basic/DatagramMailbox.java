@@ -0,0 +1,106 @@
+// Copyright 2023 Hiroaki Yaguchi, 947D-Tech.
+//
+// Licensed under the Apache License, Version 2.0 (the "License");
+// you may not use this file except in compliance with the License.
+// You may obtain a copy of the License at
+//
+//      http://www.apache.org/licenses/LICENSE-2.0
+//
+// Unless required by applicable law or agreed to in writing, software
+// distributed under the License is distributed on an "AS IS" BASIS,
+// WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+// See the License for the specific language governing permissions and
+// limitations under the License.
+
+package com.google.mediapipe.apps.basic;
+
+import java.nio.ByteBuffer;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Single-slot mailbox holding the latest datagram, implemented as a triple buffer over three
+ * preallocated direct buffers.
+ *
+ * <p>The producer fills its private back buffer and swaps it into the shared slot with a single
+ * atomic exchange; the consumer swaps the shared slot with its private front buffer. Neither side
+ * ever blocks or waits for the other. A datagram that is replaced before the consumer took it is
+ * counted as overwritten.
+ *
+ * <p>There must be at most one producer thread and one consumer thread at a time. Calls from
+ * several producer threads must be serialized by the caller.
+ */
+final class DatagramMailbox {
+  private static final int INDEX_MASK = 0x3;
+  private static final int FRESH = 0x4;
+
+  private final ByteBuffer[] buffers = new ByteBuffer[3];
+  // Index of the shared buffer, or'ed with FRESH while it holds an untaken datagram.
+  private final AtomicInteger shared = new AtomicInteger(1);
+  // Owned by the producer.
+  private int back = 0;
+  // Owned by the consumer.
+  private int front = 2;
+
+  // Each counter is written by a single thread only.
+  private volatile long publishedCount;
+  private volatile long overwrittenCount;
+  private volatile long takenCount;
+
+  DatagramMailbox(int capacity) {
+    for (int i = 0; i < buffers.length; ++i) {
+      buffers[i] = ByteBuffer.allocateDirect(capacity);
+    }
+  }
+
+  /**
+   * Copies the remaining bytes of {@code datagram} into the mailbox, replacing any datagram that
+   * has not been taken yet. The position of {@code datagram} is left unchanged.
+   *
+   * @return false if a previous datagram was overwritten before it was taken.
+   */
+  boolean publish(ByteBuffer datagram) {
+    ByteBuffer buffer = buffers[back];
+    buffer.clear();
+    buffer.put(datagram.duplicate());
+    buffer.flip();
+    int previous = shared.getAndSet(back | FRESH);
+    back = previous & INDEX_MASK;
+    publishedCount++;
+    if ((previous & FRESH) != 0) {
+      overwrittenCount++;
+      return false;
+    }
+    return true;
+  }
+
+  /**
+   * Returns the latest datagram if one was published since the last call, or null otherwise. The
+   * returned buffer stays valid until the next call to {@code take}.
+   */
+  ByteBuffer take() {
+    if ((shared.get() & FRESH) == 0) {
+      return null;
+    }
+    int previous = shared.getAndSet(front);
+    front = previous & INDEX_MASK;
+    takenCount++;
+    return buffers[front];
+  }
+
+  /** Returns whether a datagram is waiting to be taken. */
+  boolean hasFresh() {
+    return (shared.get() & FRESH) != 0;
+  }
+
+  long getPublishedCount() {
+    return publishedCount;
+  }
+
+  long getOverwrittenCount() {
+    return overwrittenCount;
+  }
+
+  long getTakenCount() {
+    return takenCount;
+  }
+}
@@ -0,0 +1,248 @@
+// Copyright 2023 Hiroaki Yaguchi, 947D-Tech.
+//
+// Licensed under the Apache License, Version 2.0 (the "License");
+// you may not use this file except in compliance with the License.
+// You may obtain a copy of the License at
+//
+//      http://www.apache.org/licenses/LICENSE-2.0
+//
+// Unless required by applicable law or agreed to in writing, software
+// distributed under the License is distributed on an "AS IS" BASIS,
+// WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+// See the License for the specific language governing permissions and
+// limitations under the License.
+
+package com.google.mediapipe.apps.basic;
+
+import java.nio.BufferUnderflowException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+
+/**
+ * Decodes datagrams in the {@link LandmarkWireFormat} on the receiving side.
+ *
+ * <p>Depends on plain Java only, so it can be used by desktop receivers as well. Decoded streams
+ * are stored in {@link LandmarkStream} holders that are reused across calls; they are only
+ * reallocated when a stream grows beyond its previous capacity or changes its layout.
+ *
+ * <p>Delta frames can only be decoded if the datagram they refer to was decoded as well; after a
+ * loss {@link #decode} rejects them until the next keyframe and counts them in {@link
+ * #getUndecodableFrameCount}.
+ */
+public final class LandmarkDecoder {
+  private static final int MAX_STREAM_ID = 256;
+
+  private final LandmarkStream[] streamsById = new LandmarkStream[MAX_STREAM_ID];
+  private final LandmarkStream[] decodedStreams = new LandmarkStream[MAX_STREAM_ID];
+  private int streamCount;
+  private int sequence;
+  private float focalLength;
+  private int frameWidth;
+  private int frameHeight;
+  private boolean isKeyframe;
+
+  // Last quantized values of each stream since the last keyframe, indexed by stream id. Only
+  // valid while hasReference is true.
+  private final int[][] referenceValues = new int[MAX_STREAM_ID][];
+  private final int[] referenceCounts = new int[MAX_STREAM_ID];
+  private boolean hasReference;
+
+  private boolean hasSequence;
+  private long lostFrameCount;
+  private long undecodableFrameCount;
+
+  /**
+   * Decodes one datagram. The buffer is read from its position to its limit; its byte order is
+   * restored before returning.
+   *
+   * @return false if the datagram is not a well-formed landmark datagram. In that case the
+   *     previously decoded frame is discarded.
+   */
+  public boolean decode(ByteBuffer datagram) {
+    ByteOrder originalOrder = datagram.order();
+    datagram.order(LandmarkWireFormat.BYTE_ORDER);
+    try {
+      return decodeInternal(datagram);
+    } catch (BufferUnderflowException e) {
+      streamCount = 0;
+      hasReference = false;
+      return false;
+    } finally {
+      datagram.order(originalOrder);
+    }
+  }
+
+  /** Convenience overload for datagrams received into a byte array. */
+  public boolean decode(byte[] data, int offset, int length) {
+    return decode(ByteBuffer.wrap(data, offset, length));
+  }
+
+  public int sequence() {
+    return sequence;
+  }
+
+  public float focalLength() {
+    return focalLength;
+  }
+
+  public int frameWidth() {
+    return frameWidth;
+  }
+
+  public int frameHeight() {
+    return frameHeight;
+  }
+
+  /** Whether the last decoded datagram was a keyframe. */
+  public boolean isKeyframe() {
+    return isKeyframe;
+  }
+
+  /** Number of datagrams missing from the sequence, as far as observed so far. */
+  public long getLostFrameCount() {
+    return lostFrameCount;
+  }
+
+  /** Number of delta frames rejected because the datagram they refer to was not decoded. */
+  public long getUndecodableFrameCount() {
+    return undecodableFrameCount;
+  }
+
+  /** Number of streams contained in the last decoded datagram. */
+  public int streamCount() {
+    return streamCount;
+  }
+
+  /** Returns the {@code index}-th stream of the last decoded datagram. */
+  public LandmarkStream stream(int index) {
+    if (index < 0 || index >= streamCount) {
+      throw new IndexOutOfBoundsException("Stream index " + index + " out of " + streamCount);
+    }
+    return decodedStreams[index];
+  }
+
+  /** Returns the stream with the given id in the last decoded datagram, or null if absent. */
+  public LandmarkStream findStream(int id) {
+    for (int i = 0; i < streamCount; ++i) {
+      if (decodedStreams[i].id == id) {
+        return decodedStreams[i];
+      }
+    }
+    return null;
+  }
+
+  private boolean decodeInternal(ByteBuffer buffer) {
+    streamCount = 0;
+    if (buffer.getShort() != LandmarkWireFormat.MAGIC
+        || buffer.get() != LandmarkWireFormat.VERSION) {
+      return false;
+    }
+    int frameFlags = buffer.get() & 0xff;
+    int frameSequence = buffer.getInt();
+    int previousSequence = sequence;
+    if (hasSequence) {
+      int gap = frameSequence - previousSequence - 1;
+      if (gap > 0) {
+        lostFrameCount += gap;
+      }
+    }
+    hasSequence = true;
+    sequence = frameSequence;
+    isKeyframe = (frameFlags & LandmarkWireFormat.FRAME_FLAG_DELTA) == 0;
+    focalLength = buffer.getFloat();
+    frameWidth = buffer.getShort() & 0xffff;
+    frameHeight = buffer.getShort() & 0xffff;
+    int numStreams = buffer.get() & 0xff;
+    boolean canReference = hasReference;
+    // Cleared until the datagram is fully decoded, since reference values are updated in place.
+    hasReference = false;
+    if (isKeyframe) {
+      for (int i = 0; i < MAX_STREAM_ID; ++i) {
+        referenceCounts[i] = 0;
+      }
+    } else if (!canReference || buffer.getInt() != previousSequence) {
+      ++undecodableFrameCount;
+      return false;
+    }
+    for (int i = 0; i < numStreams; ++i) {
+      int id = buffer.get() & 0xff;
+      int flags = buffer.get() & 0xff;
+      int count = buffer.getShort() & 0xffff;
+      long timestamp = buffer.getLong();
+      LandmarkStream stream = obtainStream(id, flags, count);
+      stream.count = count;
+      stream.timestamp = timestamp;
+      int numValues = count * stream.components();
+      float[] values = stream.values;
+      if ((flags & LandmarkWireFormat.STREAM_FLAG_DELTA) != 0) {
+        int[] reference = referenceValues[id];
+        if (referenceCounts[id] != count || reference == null || reference.length < numValues) {
+          streamCount = 0;
+          ++undecodableFrameCount;
+          return false;
+        }
+        float scale = buffer.getFloat();
+        stream.scale = scale;
+        for (int j = 0; j < numValues; ++j) {
+          int q = reference[j] + LandmarkWireFormat.zigzagDecode(getVarint(buffer));
+          reference[j] = q;
+          values[j] = q * scale;
+        }
+      } else if ((flags & LandmarkWireFormat.STREAM_FLAG_QUANTIZED) != 0) {
+        float scale = buffer.getFloat();
+        stream.scale = scale;
+        int[] reference = obtainReferenceValues(id, numValues);
+        for (int j = 0; j < numValues; ++j) {
+          short q = buffer.getShort();
+          reference[j] = q;
+          values[j] = q * scale;
+        }
+        referenceCounts[id] = count;
+      } else {
+        for (int j = 0; j < numValues; ++j) {
+          values[j] = buffer.getFloat();
+        }
+      }
+      decodedStreams[streamCount++] = stream;
+    }
+    hasReference = true;
+    return true;
+  }
+
+  private int[] obtainReferenceValues(int id, int numValues) {
+    int[] values = referenceValues[id];
+    if (values == null || values.length < numValues) {
+      values = new int[numValues];
+      referenceValues[id] = values;
+    }
+    return values;
+  }
+
+  private static int getVarint(ByteBuffer buffer) {
+    int value = 0;
+    int shift = 0;
+    while (true) {
+      byte b = buffer.get();
+      value |= (b & 0x7f) << shift;
+      if ((b & 0x80) == 0) {
+        return value;
+      }
+      shift += 7;
+      if (shift > 28) {
+        throw new BufferUnderflowException();
+      }
+    }
+  }
+
+  private LandmarkStream obtainStream(int id, int flags, int count) {
+    int layoutFlags =
+        flags
+            & (LandmarkWireFormat.STREAM_FLAG_VISIBILITY | LandmarkWireFormat.STREAM_FLAG_PRESENCE);
+    LandmarkStream stream = streamsById[id];
+    if (stream == null || stream.flags != layoutFlags || stream.capacity() < count) {
+      stream = new LandmarkStream(id, layoutFlags, count);
+      streamsById[id] = stream;
+    }
+    return stream;
+  }
+}
@@ -0,0 +1,211 @@
+// Copyright 2023 Hiroaki Yaguchi, 947D-Tech.
+//
+// Licensed under the Apache License, Version 2.0 (the "License");
+// you may not use this file except in compliance with the License.
+// You may obtain a copy of the License at
+//
+//      http://www.apache.org/licenses/LICENSE-2.0
+//
+// Unless required by applicable law or agreed to in writing, software
+// distributed under the License is distributed on an "AS IS" BASIS,
+// WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+// See the License for the specific language governing permissions and
+// limitations under the License.
+
+package com.google.mediapipe.apps.basic;
+
+import java.nio.ByteBuffer;
+
+/**
+ * Encodes landmark streams into a reused direct {@link ByteBuffer} using the {@link
+ * LandmarkWireFormat}. No allocation happens after the first keyframe of each stream.
+ *
+ * <p>By default every datagram is a self-contained keyframe. With {@link #setKeyframeInterval},
+ * quantized streams are sent as varint-coded deltas to the previous datagram in between
+ * keyframes.
+ *
+ * <p>Not thread-safe; callers encoding from several threads must synchronize externally.
+ */
+public final class LandmarkEncoder {
+  private static final int MAX_STREAM_ID = 256;
+  // Worst case size of a zigzag varint of the difference of two int16 values.
+  private static final int MAX_DELTA_VARINT_SIZE = 3;
+
+  private final ByteBuffer buffer;
+  private int sequence;
+  private int streamCount;
+
+  private int keyframeInterval = 1;
+  private int framesSinceKeyframe;
+  private boolean keyframeRequested = true;
+  private boolean isKeyframe;
+  // Last quantized values written for each stream since the last keyframe, indexed by stream id.
+  private final short[][] referenceValues = new short[MAX_STREAM_ID][];
+  private final int[] referenceCounts = new int[MAX_STREAM_ID];
+  private final int[] referenceFlags = new int[MAX_STREAM_ID];
+  private final float[] referenceScales = new float[MAX_STREAM_ID];
+
+  public LandmarkEncoder() {
+    buffer =
+        ByteBuffer.allocateDirect(LandmarkWireFormat.MAX_DATAGRAM_SIZE)
+            .order(LandmarkWireFormat.BYTE_ORDER);
+  }
+
+  /**
+   * Sets how often a keyframe is sent. An interval of {@code n} sends one keyframe followed by
+   * {@code n - 1} delta frames. 1, the default, disables delta encoding.
+   */
+  public void setKeyframeInterval(int interval) {
+    if (interval < 1) {
+      throw new IllegalArgumentException("Keyframe interval must be positive.");
+    }
+    keyframeInterval = interval;
+  }
+
+  /**
+   * Forces the next datagram to be a keyframe, e.g. when a receiver (re)connects or when an
+   * encoded datagram was dropped before it was sent and the delta chain is broken.
+   */
+  public void requestKeyframe() {
+    keyframeRequested = true;
+  }
+
+  /** Starts a new datagram, discarding anything written since the last {@link #finish}. */
+  public void begin(float focalLength, int frameWidth, int frameHeight) {
+    isKeyframe = keyframeRequested || framesSinceKeyframe + 1 >= keyframeInterval;
+    if (isKeyframe) {
+      keyframeRequested = false;
+      framesSinceKeyframe = 0;
+      for (int i = 0; i < MAX_STREAM_ID; ++i) {
+        referenceCounts[i] = 0;
+      }
+    } else {
+      ++framesSinceKeyframe;
+    }
+    buffer.clear();
+    buffer.putShort(LandmarkWireFormat.MAGIC);
+    buffer.put(LandmarkWireFormat.VERSION);
+    int frameFlags =
+        isKeyframe ? LandmarkWireFormat.FRAME_FLAG_KEYFRAME : LandmarkWireFormat.FRAME_FLAG_DELTA;
+    buffer.put((byte) frameFlags);
+    int frameSequence = sequence++;
+    buffer.putInt(frameSequence);
+    buffer.putFloat(focalLength);
+    buffer.putShort((short) frameWidth);
+    buffer.putShort((short) frameHeight);
+    buffer.put((byte) 0);
+    if (!isKeyframe) {
+      buffer.putInt(frameSequence - 1);
+    }
+    streamCount = 0;
+  }
+
+  /**
+   * Appends a stream block.
+   *
+   * @param stream the landmarks to write; its first {@code count} landmarks are encoded.
+   * @param quantize whether to write values as int16 multiples of {@code stream.scale} instead of
+   *     float32. Values outside the representable range are clamped. Only quantized streams are
+   *     delta encoded.
+   * @throws IllegalStateException if the stream does not fit into a single datagram.
+   */
+  public void addStream(LandmarkStream stream, boolean quantize) {
+    int numValues = stream.count * stream.components();
+    boolean delta = quantize && !isKeyframe && hasReference(stream);
+    int valueSize = delta ? MAX_DELTA_VARINT_SIZE : (quantize ? 2 : 4);
+    int size = LandmarkWireFormat.STREAM_HEADER_SIZE + (quantize ? 4 : 0) + numValues * valueSize;
+    if (size > buffer.remaining()) {
+      throw new IllegalStateException(
+          "Landmark stream " + stream.id + " does not fit into the datagram.");
+    }
+    int flags =
+        stream.flags
+            & ~(LandmarkWireFormat.STREAM_FLAG_QUANTIZED | LandmarkWireFormat.STREAM_FLAG_DELTA);
+    if (quantize) {
+      flags |= LandmarkWireFormat.STREAM_FLAG_QUANTIZED;
+    }
+    if (delta) {
+      flags |= LandmarkWireFormat.STREAM_FLAG_DELTA;
+    }
+    buffer.put((byte) stream.id);
+    buffer.put((byte) flags);
+    buffer.putShort((short) stream.count);
+    buffer.putLong(stream.timestamp);
+    float[] values = stream.values;
+    if (quantize) {
+      float scale = stream.scale;
+      float inverseScale = 1.0f / scale;
+      buffer.putFloat(scale);
+      if (delta) {
+        short[] reference = referenceValues[stream.id];
+        for (int i = 0; i < numValues; ++i) {
+          short q = quantize(values[i], inverseScale);
+          putVarint(LandmarkWireFormat.zigzagEncode(q - reference[i]));
+          reference[i] = q;
+        }
+      } else {
+        short[] reference = obtainReferenceValues(stream.id, numValues);
+        for (int i = 0; i < numValues; ++i) {
+          short q = quantize(values[i], inverseScale);
+          reference[i] = q;
+          buffer.putShort(q);
+        }
+        referenceCounts[stream.id] = stream.count;
+        referenceFlags[stream.id] = stream.flags;
+        referenceScales[stream.id] = scale;
+      }
+    } else {
+      for (int i = 0; i < numValues; ++i) {
+        buffer.putFloat(values[i]);
+      }
+    }
+    ++streamCount;
+  }
+
+  /**
+   * Completes the datagram and returns the encoder's buffer, positioned at 0 with the limit set to
+   * the encoded size. The buffer is overwritten by the next {@link #begin}.
+   */
+  public ByteBuffer finish() {
+    buffer.put(LandmarkWireFormat.FRAME_HEADER_SIZE - 1, (byte) streamCount);
+    buffer.flip();
+    return buffer;
+  }
+
+  /** Returns whether the stream can be delta encoded against its reference values. */
+  private boolean hasReference(LandmarkStream stream) {
+    int id = stream.id;
+    return referenceCounts[id] > 0
+        && referenceCounts[id] == stream.count
+        && referenceFlags[id] == stream.flags
+        && referenceScales[id] == stream.scale;
+  }
+
+  private short[] obtainReferenceValues(int id, int numValues) {
+    short[] values = referenceValues[id];
+    if (values == null || values.length < numValues) {
+      values = new short[numValues];
+      referenceValues[id] = values;
+    }
+    return values;
+  }
+
+  private void putVarint(int value) {
+    while ((value & ~0x7f) != 0) {
+      buffer.put((byte) ((value & 0x7f) | 0x80));
+      value >>>= 7;
+    }
+    buffer.put((byte) value);
+  }
+
+  static short quantize(float value, float inverseScale) {
+    float q = value * inverseScale;
+    if (q >= Short.MAX_VALUE) {
+      return Short.MAX_VALUE;
+    }
+    if (q <= Short.MIN_VALUE) {
+      return Short.MIN_VALUE;
+    }
+    return (short) Math.round(q);
+  }
+}
@@ -0,0 +1,77 @@
+// Copyright 2023 Hiroaki Yaguchi, 947D-Tech.
+//
+// Licensed under the Apache License, Version 2.0 (the "License");
+// you may not use this file except in compliance with the License.
+// You may obtain a copy of the License at
+//
+//      http://www.apache.org/licenses/LICENSE-2.0
+//
+// Unless required by applicable law or agreed to in writing, software
+// distributed under the License is distributed on an "AS IS" BASIS,
+// WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+// See the License for the specific language governing permissions and
+// limitations under the License.
+
+package com.google.mediapipe.apps.basic;
+
+/**
+ * Reusable holder of one landmark stream in the {@link LandmarkWireFormat}.
+ *
+ * <p>Values are packed per landmark as x, y, z followed by visibility and presence when the
+ * corresponding flags are set. The backing array is allocated once for the maximum landmark count
+ * and reused for every frame.
+ */
+public final class LandmarkStream {
+  public final int id;
+  public final int flags;
+  public final float[] values;
+
+  public int count;
+  public long timestamp;
+  public float scale = LandmarkWireFormat.DEFAULT_QUANTIZATION_SCALE;
+
+  public LandmarkStream(int id, int flags, int maxLandmarks) {
+    this.id = id;
+    this.flags = flags;
+    this.values = new float[maxLandmarks * LandmarkWireFormat.componentCount(flags)];
+  }
+
+  /** Number of values stored per landmark. */
+  public int components() {
+    return LandmarkWireFormat.componentCount(flags);
+  }
+
+  /** Maximum number of landmarks the stream can hold. */
+  public int capacity() {
+    return values.length / components();
+  }
+
+  public float x(int index) {
+    return values[index * components()];
+  }
+
+  public float y(int index) {
+    return values[index * components() + 1];
+  }
+
+  public float z(int index) {
+    return values[index * components() + 2];
+  }
+
+  /** Returns the visibility of the landmark, or 0 if the stream carries no visibility. */
+  public float visibility(int index) {
+    if ((flags & LandmarkWireFormat.STREAM_FLAG_VISIBILITY) == 0) {
+      return 0;
+    }
+    return values[index * components() + 3];
+  }
+
+  /** Returns the presence of the landmark, or 0 if the stream carries no presence. */
+  public float presence(int index) {
+    if ((flags & LandmarkWireFormat.STREAM_FLAG_PRESENCE) == 0) {
+      return 0;
+    }
+    int offset = (flags & LandmarkWireFormat.STREAM_FLAG_VISIBILITY) != 0 ? 4 : 3;
+    return values[index * components() + offset];
+  }
+}
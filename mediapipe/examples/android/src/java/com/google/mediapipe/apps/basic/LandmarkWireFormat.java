@@ -0,0 +1,110 @@
+// Copyright 2023 Hiroaki Yaguchi, 947D-Tech.
+//
+// Licensed under the Apache License, Version 2.0 (the "License");
+// you may not use this file except in compliance with the License.
+// You may obtain a copy of the License at
+//
+//      http://www.apache.org/licenses/LICENSE-2.0
+//
+// Unless required by applicable law or agreed to in writing, software
+// distributed under the License is distributed on an "AS IS" BASIS,
+// WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+// See the License for the specific language governing permissions and
+// limitations under the License.
+
+package com.google.mediapipe.apps.basic;
+
+import java.nio.ByteOrder;
+
+/**
+ * Constants of the binary landmark wire format sent by {@link UDPSender}.
+ *
+ * <p>All values are little-endian. A datagram consists of a frame header followed by {@code
+ * stream_count} stream blocks:
+ *
+ * <pre>
+ * frame header:
+ *   u16  magic          (0x947d)
+ *   u8   version        (2)
+ *   u8   frame_flags    (FRAME_FLAG_*)
+ *   u32  sequence       (incremented per datagram)
+ *   f32  focal_length   (pixels)
+ *   u16  frame_width
+ *   u16  frame_height
+ *   u8   stream_count
+ *   u32  reference      (only present if FRAME_FLAG_DELTA is set: sequence of the datagram
+ *                        the deltas refer to, i.e. the previous one)
+ *
+ * stream block:
+ *   u8   stream_id      (one of STREAM_*)
+ *   u8   stream_flags   (STREAM_FLAG_*)
+ *   u16  landmark_count
+ *   i64  timestamp      (microseconds, graph or sensor clock)
+ *   f32  scale          (only present if STREAM_FLAG_QUANTIZED is set)
+ *   landmark_count * components values, where components is 3 (x, y, z) plus one for each of
+ *   visibility and presence if the corresponding flag is set. Values are f32, or i16 to be
+ *   multiplied by scale if STREAM_FLAG_QUANTIZED is set. If STREAM_FLAG_DELTA is set (only
+ *   together with STREAM_FLAG_QUANTIZED), each value is instead the difference to the last quantized
+ *   value of the same stream up to the reference datagram, zigzag-encoded as an unsigned LEB128
+ *   varint.
+ * </pre>
+ *
+ * <p>Delta frames form a chain starting at a keyframe, so consecutive deltas stay within one or two
+ * varint bytes. Once a datagram of the chain is lost, which a gap in {@code sequence} reveals,
+ * the following delta frames cannot be decoded until the next keyframe arrives; the keyframe
+ * interval bounds that recovery time.
+ */
+public final class LandmarkWireFormat {
+  public static final ByteOrder BYTE_ORDER = ByteOrder.LITTLE_ENDIAN;
+
+  public static final short MAGIC = (short) 0x947d;
+  public static final byte VERSION = 2;
+
+  public static final int FRAME_FLAG_KEYFRAME = 0x01;
+  public static final int FRAME_FLAG_DELTA = 0x02;
+
+  public static final int STREAM_POSE = 0;
+  public static final int STREAM_POSE_WORLD = 1;
+  public static final int STREAM_FACE = 2;
+  public static final int STREAM_LEFT_HAND = 3;
+  public static final int STREAM_RIGHT_HAND = 4;
+  public static final int STREAM_GRAVITY = 5;
+
+  public static final int STREAM_FLAG_VISIBILITY = 0x01;
+  public static final int STREAM_FLAG_PRESENCE = 0x02;
+  public static final int STREAM_FLAG_QUANTIZED = 0x04;
+  public static final int STREAM_FLAG_DELTA = 0x08;
+
+  /** Quantization step used by default: 1e-4 covers [-3.2768, 3.2767] for int16. */
+  public static final float DEFAULT_QUANTIZATION_SCALE = 1e-4f;
+
+  public static final int FRAME_HEADER_SIZE = 17;
+  public static final int FRAME_REFERENCE_SIZE = 4;
+  public static final int STREAM_HEADER_SIZE = 12;
+
+  /** Maximum payload of a single UDP datagram over IPv4. */
+  public static final int MAX_DATAGRAM_SIZE = 65507;
+
+  /** Returns the number of values stored per landmark for the given stream flags. */
+  public static int componentCount(int streamFlags) {
+    int components = 3;
+    if ((streamFlags & STREAM_FLAG_VISIBILITY) != 0) {
+      ++components;
+    }
+    if ((streamFlags & STREAM_FLAG_PRESENCE) != 0) {
+      ++components;
+    }
+    return components;
+  }
+
+  /** Maps a signed delta to an unsigned value so that small magnitudes yield short varints. */
+  public static int zigzagEncode(int value) {
+    return (value << 1) ^ (value >> 31);
+  }
+
+  public static int zigzagDecode(int value) {
+    return (value >>> 1) ^ -(value & 1);
+  }
+
+  private LandmarkWireFormat() {}
+}
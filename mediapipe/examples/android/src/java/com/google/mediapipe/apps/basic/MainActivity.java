@@ -188,7 +188,16 @@ public class MainActivity extends AppCompatActivity {
     super.onPause();
     converter.close();
     sender.setRunning(false);
-    Log.v(TAG, "UDP Sender stopped.");
+    Log.v(
+        TAG,
+        "UDP Sender stopped. published: "
+            + sender.getPublishedFrameCount()
+            + ", sent: "
+            + sender.getSentFrameCount()
+            + ", dropped: "
+            + sender.getDroppedFrameCount()
+            + ", failed: "
+            + sender.getFailedFrameCount());
 
     // Hide preview display until we re-open the camera again.
     previewDisplayView.setVisibility(View.GONE);
@@ -16,28 +16,29 @@ package com.google.mediapipe.apps.basic;
 
 import android.util.Log;
 
-import java.net.DatagramPacket;
-import java.net.DatagramSocket;
-import java.net.InetAddress;
-import org.json.JSONObject;
-
 import java.io.IOException;
-import java.io.UnsupportedEncodingException;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
 import java.net.UnknownHostException;
-import java.net.SocketException;
-import org.json.JSONException;
+import java.nio.ByteBuffer;
+import java.nio.channels.DatagramChannel;
+import java.util.concurrent.locks.LockSupport;
 
 public class UDPSender extends Thread {
   private static final String TAG = "MainActivity";
 
-  JSONObject json_obj;
-  boolean updated;
-  boolean running;
+  // Latest encoded datagram. setData never blocks; the sender thread parks until a new datagram
+  // is published and only ever sends the newest one.
+  final DatagramMailbox mailbox;
+  volatile boolean running;
   InetAddress address;
   int port;
 
+  private volatile long sentCount;
+  private volatile long failedCount;
+
   UDPSender() {
-    updated = false;
+    mailbox = new DatagramMailbox(LandmarkWireFormat.MAX_DATAGRAM_SIZE);
     running = true;
   }
 
@@ -55,49 +56,61 @@ public class UDPSender extends Thread {
 
   public void setRunning(boolean r) {
     running = r;
+    LockSupport.unpark(this);
   }
 
-  public void setJsonData(JSONObject json_data) {
-    // Log.v(TAG, "get json data");
-    synchronized(this) {
-      json_obj = json_data;
-      updated = true;
-    }
+  // Copies the remaining bytes of the given datagram, e.g. the result of
+  // LandmarkEncoder.finish(), and wakes up the sender thread. The position of the given buffer
+  // is left unchanged. Must not be called from several threads concurrently. Returns false if
+  // the previous datagram was dropped without being sent.
+  public boolean setData(ByteBuffer datagram) {
+    boolean previousTaken = mailbox.publish(datagram);
+    LockSupport.unpark(this);
+    return previousTaken;
+  }
+
+  // Number of datagrams handed to setData.
+  public long getPublishedFrameCount() {
+    return mailbox.getPublishedCount();
+  }
+
+  // Number of datagrams replaced by a newer one before the sender thread picked them up, i.e.
+  // how often the producer outran the network.
+  public long getDroppedFrameCount() {
+    return mailbox.getOverwrittenCount();
+  }
+
+  // Number of datagrams successfully sent.
+  public long getSentFrameCount() {
+    return sentCount;
+  }
+
+  // Number of datagrams whose send failed.
+  public long getFailedFrameCount() {
+    return failedCount;
   }
 
   public void run() {
     try {
-      DatagramSocket socket = new DatagramSocket();
+      DatagramChannel channel = DatagramChannel.open();
+      InetSocketAddress target = new InetSocketAddress(address, port);
       while (running) {
-        long t0 = System.currentTimeMillis();
-        synchronized(this) {
-          if (updated) {
-            try {
-              String json_str = json_obj.toString();
-              byte[] buffer = json_str.getBytes("UTF-8");
-              DatagramPacket packet = new DatagramPacket(buffer, buffer.length, address, port);
-              try {
-                socket.send(packet);
-              } catch (IOException e) {
-                Log.w(TAG, e.getMessage());
-              }
-            } catch (UnsupportedEncodingException e) {
-              Log.w(TAG, e.getMessage());
-            }
-            updated = false;
-          }
+        ByteBuffer data = mailbox.take();
+        if (data == null) {
+          // Spurious wake-ups are fine, the mailbox is checked again.
+          LockSupport.park(this);
+          continue;
         }
-        long t1 = System.currentTimeMillis();
-        if ((t1 - t0) < 16) {
-          try {
-            Thread.sleep(16 - (t1 - t0));
-          } catch (InterruptedException e) {
-            Log.w(TAG, e.getMessage());
-          }
+        try {
+          channel.send(data, target);
+          sentCount++;
+        } catch (IOException e) {
+          failedCount++;
+          Log.w(TAG, e.getMessage());
         }
       }
-      socket.close();
-    } catch (SocketException e) {
+      channel.close();
+    } catch (IOException e) {
       Log.w(TAG, e.getMessage());
     }
   }
@@ -17,12 +17,7 @@
 
 package com.google.mediapipe.apps.holistictrackinggpu;
 
-import org.json.JSONObject;
-import org.json.JSONArray;
-import org.json.JSONException;
-
 import android.os.Bundle;
-import android.util.Log;
 import android.util.Size;
 import android.view.WindowManager;
 import android.content.Context;
@@ -30,197 +25,106 @@ import android.hardware.Sensor;
 import android.hardware.SensorManager;
 import android.hardware.SensorEvent;
 import android.hardware.SensorEventListener;
-import com.google.mediapipe.formats.proto.LandmarkProto.NormalizedLandmark;
-import com.google.mediapipe.formats.proto.LandmarkProto.NormalizedLandmarkList;
-import com.google.mediapipe.formats.proto.LandmarkProto.Landmark;
-import com.google.mediapipe.formats.proto.LandmarkProto.LandmarkList;
+import com.google.mediapipe.apps.basic.LandmarkEncoder;
+import com.google.mediapipe.apps.basic.LandmarkStream;
+import com.google.mediapipe.apps.basic.LandmarkWireFormat;
+import com.google.mediapipe.framework.LandmarkBuffer;
+import com.google.mediapipe.framework.Packet;
 import com.google.mediapipe.framework.PacketGetter;
-import com.google.protobuf.InvalidProtocolBufferException;
+import java.util.Arrays;
 
 /** Main activity of MediaPipe hlistic tracking app. */
 public class MainActivity extends com.google.mediapipe.apps.basic.MainActivity implements SensorEventListener {
   private static final String TAG = "MainActivity";
 
-  private JSONArray jsonGravityArr;
-  private JSONArray jsonPoseArr;
-  private JSONArray jsonPoseWorldArr;
-  private JSONArray jsonFaceArr;
-  private JSONArray jsonRHandArr;
-  private JSONArray jsonLHandArr;
-
-  private long gravity_stamp;
-  private long pose_stamp;
-  private long pose_world_stamp;
-  private long face_stamp;
-  private long left_hand_stamp;
-  private long right_hand_stamp;
+  private static final String POSE_STREAM = "pose_landmarks";
+  private static final String POSE_WORLD_STREAM = "pose_world_landmarks";
+  private static final String FACE_STREAM = "face_landmarks";
+  private static final String LEFT_HAND_STREAM = "left_hand_landmarks";
+  private static final String RIGHT_HAND_STREAM = "right_hand_landmarks";
+  // Indices of the streams above in the packet batch.
+  private static final int POSE_STREAM_INDEX = 0;
+  private static final int POSE_WORLD_STREAM_INDEX = 1;
+  private static final int FACE_STREAM_INDEX = 2;
+  private static final int LEFT_HAND_STREAM_INDEX = 3;
+  private static final int RIGHT_HAND_STREAM_INDEX = 4;
+
+  private static final int NUM_POSE_LANDMARKS = 33;
+  // 468 face mesh landmarks plus 10 iris landmarks when refinement is enabled.
+  private static final int NUM_FACE_LANDMARKS = 478;
+  private static final int NUM_HAND_LANDMARKS = 21;
+
+  // A keyframe every 15 datagrams (0.5 s at 30 fps) bounds the time a receiver needs to recover
+  // from a lost datagram; the datagrams in between carry deltas only.
+  private static final int KEYFRAME_INTERVAL = 15;
+
+  private static final int VISIBILITY_AND_PRESENCE =
+      LandmarkWireFormat.STREAM_FLAG_VISIBILITY | LandmarkWireFormat.STREAM_FLAG_PRESENCE;
+
+  // Latest landmarks of each stream, reused for every frame. Timestamps are stored in the
+  // streams themselves.
+  private final LandmarkStream gravityStream =
+      new LandmarkStream(LandmarkWireFormat.STREAM_GRAVITY, 0, 1);
+  private final LandmarkStream poseStream =
+      new LandmarkStream(
+          LandmarkWireFormat.STREAM_POSE, VISIBILITY_AND_PRESENCE, NUM_POSE_LANDMARKS);
+  private final LandmarkStream poseWorldStream =
+      new LandmarkStream(
+          LandmarkWireFormat.STREAM_POSE_WORLD, VISIBILITY_AND_PRESENCE, NUM_POSE_LANDMARKS);
+  private final LandmarkStream faceStream =
+      new LandmarkStream(LandmarkWireFormat.STREAM_FACE, 0, NUM_FACE_LANDMARKS);
+  private final LandmarkStream leftHandStream =
+      new LandmarkStream(
+          LandmarkWireFormat.STREAM_LEFT_HAND, VISIBILITY_AND_PRESENCE, NUM_HAND_LANDMARKS);
+  private final LandmarkStream rightHandStream =
+      new LandmarkStream(
+          LandmarkWireFormat.STREAM_RIGHT_HAND, VISIBILITY_AND_PRESENCE, NUM_HAND_LANDMARKS);
+
+  private final LandmarkEncoder encoder = new LandmarkEncoder();
+  // Landmarks of the packet being copied, reused for every stream and frame.
+  private final LandmarkBuffer landmarkBuffer = new LandmarkBuffer();
 
   private SensorManager sensorManager;
   private Sensor sensor;
 
-  private boolean is_sent;
-
   @Override
   protected void onCreate(Bundle savedInstanceState) {
     super.onCreate(savedInstanceState);
     getWindow().addFlags(WindowManager.LayoutParams.FLAG_KEEP_SCREEN_ON);
 
-    jsonGravityArr = new JSONArray();
-    jsonPoseArr = new JSONArray();
-    jsonPoseWorldArr = new JSONArray();
-    jsonFaceArr = new JSONArray();
-    jsonRHandArr = new JSONArray();
-    jsonLHandArr = new JSONArray();
-
-    gravity_stamp = 0;
-    pose_stamp = 0;
-    pose_world_stamp = 0;
-    face_stamp = 0;
-    left_hand_stamp = 0;
-    right_hand_stamp = 0;
-
     sensorManager = (SensorManager) getSystemService(Context.SENSOR_SERVICE);
     sensor = sensorManager.getDefaultSensor(Sensor.TYPE_GRAVITY);
 
-    is_sent = true;
-
-    // pose
-    processor.addPacketCallback(
-      "pose_landmarks",
-      (packet) -> {
-        // Log.v(TAG, "Received pose landmarks packet.");
-        try {
-          byte[] landmarksRaw = PacketGetter.getProtoBytes(packet);
-          NormalizedLandmarkList landmarks =
-            NormalizedLandmarkList.parseFrom(landmarksRaw);
-          // Log.v(TAG,
-          //   "[TS:" + packet.getTimestamp() + "] "
-          //   + getLandmarksDebugString(landmarks, "pose"));
-          if (landmarks.getLandmarkCount() > 0) {
-            synchronized(this) {
-              jsonPoseArr = convertLandmarksToJson(landmarks);
-              pose_stamp = packet.getTimestamp();
-              if (is_sent) {
-                is_sent = false;
-              } else {
-                if ((pose_stamp - pose_world_stamp) < 16000) {
-                  sendJsonData(pose_stamp);
-                  is_sent = true;
-                }
-              }
-            }
-          }
-        } catch (InvalidProtocolBufferException exception) {
-          Log.e(TAG, "Pose: Failed to get proto.", exception);
-        }
-      });
-
-    // pose_world
-    processor.addPacketCallback(
-      "pose_world_landmarks",
-      (packet) -> {
-        // Log.v(TAG, "Received pose world landmarks packet.");
-        try {
-          byte[] landmarksRaw = PacketGetter.getProtoBytes(packet);
-          LandmarkList landmarks =
-            LandmarkList.parseFrom(landmarksRaw);
-          // Log.v(TAG,
-          //   "[TS:" + packet.getTimestamp() + "] "
-          //   + getLandmarksDebugString(landmarks, "face"));
-          if (landmarks.getLandmarkCount() > 0) {
-            synchronized(this) {
-              jsonPoseWorldArr = convertLandmarksToJson(landmarks);
-              pose_world_stamp = packet.getTimestamp();
-              if (is_sent) {
-                is_sent = false;
-              } else {
-                if ((pose_world_stamp - pose_stamp) < 16000) {
-                  sendJsonData(pose_world_stamp);
-                  is_sent = true;
-                }
-              }
-            }
-          }
-        } catch (InvalidProtocolBufferException exception) {
-          Log.e(TAG, "Pose World: Failed to get proto.", exception);
-        }
-      });
-
-    // face
-    processor.addPacketCallback(
-      "face_landmarks",
-      (packet) -> {
-        // Log.v(TAG, "Received face landmarks packet.");
-        try {
-          byte[] landmarksRaw = PacketGetter.getProtoBytes(packet);
-          NormalizedLandmarkList landmarks =
-            NormalizedLandmarkList.parseFrom(landmarksRaw);
-          // Log.v(TAG,
-          //   "[TS:" + packet.getTimestamp() + "] "
-          //   + getLandmarksDebugString(landmarks, "face"));
-          if (landmarks.getLandmarkCount() > 0) {
-            synchronized(this) {
-              jsonFaceArr = convertLandmarksToJson(landmarks, false, false);
-              face_stamp = packet.getTimestamp();
-            }
-          }
-        } catch (InvalidProtocolBufferException exception) {
-          Log.e(TAG, "Face: Failed to get proto.", exception);
-        }
-      });
-
-    // left hand
-    processor.addPacketCallback(
-      "left_hand_landmarks",
-      (packet) -> {
-        // Log.v(TAG, "Received left hand landmarks packet.");
-        try {
-          byte[] landmarksRaw = PacketGetter.getProtoBytes(packet);
-          NormalizedLandmarkList landmarks =
-            NormalizedLandmarkList.parseFrom(landmarksRaw);
-          // Log.v(TAG,
-          //   "[TS:" + packet.getTimestamp() + "] "
-          //   + getLandmarksDebugString(landmarks, "left_hand"));
-          if (landmarks.getLandmarkCount() > 0) {
-            synchronized(this) {
-              jsonLHandArr = convertLandmarksToJson(landmarks);
-              left_hand_stamp = packet.getTimestamp();
-            }
-          }
-        } catch (InvalidProtocolBufferException exception) {
-          Log.e(TAG, "Left hand: Failed to get proto.", exception);
-        }
-      });
-
-    // right hand
-    processor.addPacketCallback(
-      "right_hand_landmarks",
-      (packet) -> {
-        // Log.v(TAG, "Received right hand landmarks packet.");
-        try {
-          byte[] landmarksRaw = PacketGetter.getProtoBytes(packet);
-          NormalizedLandmarkList landmarks =
-            NormalizedLandmarkList.parseFrom(landmarksRaw);
-          // Log.v(TAG,
-          //   "[TS:" + packet.getTimestamp() + "] "
-          //   + getLandmarksDebugString(landmarks, "right_hand"));
-          if (landmarks.getLandmarkCount() > 0) {
-            synchronized(this) {
-              jsonRHandArr = convertLandmarksToJson(landmarks);
-              right_hand_stamp = packet.getTimestamp();
-            }
+    encoder.setKeyframeInterval(KEYFRAME_INTERVAL);
+
+    // All landmark streams of a frame are delivered together in one callback.
+    processor.addPacketBatchCallback(
+      Arrays.asList(
+        POSE_STREAM, POSE_WORLD_STREAM, FACE_STREAM, LEFT_HAND_STREAM, RIGHT_HAND_STREAM),
+      (batch) -> {
+        synchronized(this) {
+          copyLandmarks(batch.get(POSE_STREAM_INDEX), poseStream);
+          copyLandmarks(batch.get(POSE_WORLD_STREAM_INDEX), poseWorldStream);
+          copyLandmarks(batch.get(FACE_STREAM_INDEX), faceStream);
+          copyLandmarks(batch.get(LEFT_HAND_STREAM_INDEX), leftHandStream);
+          copyLandmarks(batch.get(RIGHT_HAND_STREAM_INDEX), rightHandStream);
+          // Pose drives the send rate, the other streams are attached if recent enough.
+          if (batch.hasPacket(POSE_STREAM_INDEX) && poseStream.timestamp == batch.getTimestamp()) {
+            sendLandmarkData(batch.getTimestamp());
           }
-        } catch (InvalidProtocolBufferException exception) {
-          Log.e(TAG, "Right hand: Failed to get proto.", exception);
         }
-      });
-
+      },
+      /* observeTimestampBounds= */ false);
   }
 
 
   @Override
   protected void onResume() {
     super.onResume();
+    // A new sender was started, begin its stream with a keyframe.
+    synchronized(this) {
+      encoder.requestKeyframe();
+    }
     sensorManager.registerListener(this, sensor, SensorManager.SENSOR_DELAY_NORMAL);
   }
 
@@ -237,175 +141,72 @@ public class MainActivity extends com.google.mediapipe.apps.basic.MainActivity i
   @Override
   public final void onSensorChanged(SensorEvent event) {
     synchronized(this) {
-      try {
-        jsonGravityArr = new JSONArray();
-        for (int i = 0; i < 3; i++) {
-          jsonGravityArr.put(event.values[i]);
-        }
-        gravity_stamp = event.timestamp;
-      } catch (JSONException e) {
-        Log.e(TAG, "Gravity: " + e.getMessage());
+      for (int i = 0; i < 3; i++) {
+        gravityStream.values[i] = event.values[i];
       }
+      gravityStream.count = 1;
+      gravityStream.timestamp = event.timestamp;
     }
   }
 
 
-  private void sendJsonData(long base_stamp) {
-    JSONObject jsonObj = new JSONObject();
-
-    // camera params
-    JSONObject cameraParams = new JSONObject();
-    try {
-      cameraParams.put("focal_length", cameraHelper.getFocalLengthPixels());
-      cameraParams.put("frame_width", cameraHelper.getFrameSize().getWidth());
-      cameraParams.put("frame_height", cameraHelper.getFrameSize().getHeight());
-      jsonObj.put("camera_params", cameraParams);
-    } catch (JSONException e) {
-      Log.e(TAG, "CameraParams: " + e.getMessage());
-    }
-
-    try {
-      // check timestamp for each landmarks
-      if ((pose_stamp - base_stamp) > -3e5) {
-        jsonObj.put("pose_landmarks", jsonPoseArr);
-        jsonObj.put("pose_landmarks_stamp", pose_stamp);
-      }
-
-      if ((pose_world_stamp - base_stamp) > -3e5) {
-        jsonObj.put("pose_world_landmarks", jsonPoseWorldArr);
-        jsonObj.put("pose_world_landmarks_stamp", pose_world_stamp);
-      }
-
-      if ((face_stamp - base_stamp) > -3e5) {
-        jsonObj.put("face_landmarks", jsonFaceArr);
-        jsonObj.put("face_landmarks_stamp", face_stamp);
-      }
-
-      if ((right_hand_stamp - base_stamp) > -3e5) {
-        jsonObj.put("right_hand_landmarks", jsonRHandArr);
-        jsonObj.put("right_hand_landmarks_stamp", right_hand_stamp);
-      }
-
-      if ((left_hand_stamp - base_stamp) > -3e5) {
-        jsonObj.put("left_hand_landmarks", jsonLHandArr);
-        jsonObj.put("left_hand_landmarks_stamp", left_hand_stamp);
-      }
-
-      if ((gravity_stamp - base_stamp) > -3e5) {
-        jsonObj.put("gravity", jsonGravityArr);
-        jsonObj.put("gravity_stamp", gravity_stamp);
-      }
-
-      // call setJsonData ONLY in this function
-      sender.setJsonData(jsonObj);
-    } catch (JSONException e) {
-      Log.e(TAG, "Pose: " + e.getMessage());
+  // Must be called while holding the lock on this activity.
+  private void sendLandmarkData(long base_stamp) {
+    encoder.begin(
+        cameraHelper.getFocalLengthPixels(),
+        cameraHelper.getFrameSize().getWidth(),
+        cameraHelper.getFrameSize().getHeight());
+
+    // check timestamp for each landmarks
+    addStreamIfRecent(poseStream, base_stamp, true);
+    addStreamIfRecent(poseWorldStream, base_stamp, true);
+    addStreamIfRecent(faceStream, base_stamp, true);
+    addStreamIfRecent(rightHandStream, base_stamp, true);
+    addStreamIfRecent(leftHandStream, base_stamp, true);
+    // Gravity is in m/s^2 and exceeds the int16 quantization range.
+    addStreamIfRecent(gravityStream, base_stamp, false);
+
+    // call setData ONLY in this function
+    if (!sender.setData(encoder.finish())) {
+      // The previous datagram was never sent, so the receiver cannot resolve the next deltas.
+      encoder.requestKeyframe();
     }
   }
 
-  private static String getLandmarksDebugString(NormalizedLandmarkList landmarks, String streamName) {
-    String landmarkStr = streamName + " landmarks: " + landmarks.getLandmarkCount() + "\n";
-    int landmarkIndex = 0;
-    for (NormalizedLandmark landmark : landmarks.getLandmarkList()) {
-      landmarkStr +=
-          "\tLandmark ["
-              + landmarkIndex
-              + "]: ("
-              + landmark.getX()
-              + ", "
-              + landmark.getY()
-              + ", "
-              + landmark.getZ()
-              + ")\n";
-      ++landmarkIndex;
+  private void addStreamIfRecent(LandmarkStream stream, long base_stamp, boolean quantize) {
+    if (stream.count > 0 && (stream.timestamp - base_stamp) > -3e5) {
+      encoder.addStream(stream, quantize);
     }
-    return landmarkStr;
-  }
-
-  private static double truncateNumber(double vi) {
-    return ((int)(0.5 + vi * 1e3)) * 1e-3;
   }
 
-  private static JSONArray convertLandmarksToJson(
-    NormalizedLandmarkList landmarks
-  ) {
-    return convertLandmarksToJson(landmarks, true, true);
-  }
-
-  private static JSONArray convertLandmarksToJson(
-    NormalizedLandmarkList landmarks,
-    boolean visibility,
-    boolean presence
-  ) {
-    JSONArray json_arr = new JSONArray();
-    try {
-      if (landmarks.getLandmarkCount() > 0) {
-        int landmarkIndex = 0;
-        for (NormalizedLandmark landmark : landmarks.getLandmarkList()) {
-          JSONObject json_pt = new JSONObject();
-          // json_pt.put("x", landmark.getX());
-          // json_pt.put("y", landmark.getY());
-          // json_pt.put("z", landmark.getZ());
-          json_pt.put("x", truncateNumber(landmark.getX()));
-          json_pt.put("y", truncateNumber(landmark.getY()));
-          json_pt.put("z", truncateNumber(landmark.getZ()));
-          if (visibility) {
-            // json_pt.put("visibility", landmark.getVisibility());
-            json_pt.put("visibility", truncateNumber(landmark.getVisibility()));
-          }
-          if (presence) {
-            // json_pt.put("presence", landmark.getPresence());
-            json_pt.put("presence", truncateNumber(landmark.getPresence()));
-          }
-          json_arr.put(json_pt);
-          ++landmarkIndex;
-        }
-      }
-    } catch (JSONException e) {
-      Log.w(TAG, e.getMessage());
+  // Copies the landmarks of a non-empty list into the stream; missing packets and empty lists
+  // keep the previous landmarks. Must be called while holding the lock on this activity.
+  private void copyLandmarks(Packet packet, LandmarkStream stream) {
+    if (packet == null) {
+      return;
     }
-    return json_arr;
-  }
-
-  private static JSONArray convertLandmarksToJson(
-    LandmarkList landmarks
-  ) {
-    return convertLandmarksToJson(landmarks, true, true);
-  }
-
-  private static JSONArray convertLandmarksToJson(
-    LandmarkList landmarks,
-    boolean visibility,
-    boolean presence
-  ) {
-    JSONArray json_arr = new JSONArray();
-    try {
-      if (landmarks.getLandmarkCount() > 0) {
-        int landmarkIndex = 0;
-        for (Landmark landmark : landmarks.getLandmarkList()) {
-          JSONObject json_pt = new JSONObject();
-          // json_pt.put("x", landmark.getX());
-          // json_pt.put("y", landmark.getY());
-          // json_pt.put("z", landmark.getZ());
-          json_pt.put("x", truncateNumber(landmark.getX()));
-          json_pt.put("y", truncateNumber(landmark.getY()));
-          json_pt.put("z", truncateNumber(landmark.getZ()));
-          if (visibility) {
-            // json_pt.put("visibility", landmark.getVisibility());
-            json_pt.put("visibility", truncateNumber(landmark.getVisibility()));
-          }
-          if (presence) {
-            // json_pt.put("presence", landmark.getPresence());
-            json_pt.put("presence", truncateNumber(landmark.getPresence()));
-          }
-          json_arr.put(json_pt);
-          ++landmarkIndex;
-        }
+    // Read natively into the reused buffer, without parsing the landmark protos.
+    PacketGetter.getLandmarks(packet, landmarkBuffer);
+    if (landmarkBuffer.listCount() == 0 || landmarkBuffer.size(0) == 0) {
+      return;
+    }
+    stream.timestamp = packet.getTimestamp();
+    int count = Math.min(landmarkBuffer.size(0), stream.capacity());
+    boolean visibility = (stream.flags & LandmarkWireFormat.STREAM_FLAG_VISIBILITY) != 0;
+    boolean presence = (stream.flags & LandmarkWireFormat.STREAM_FLAG_PRESENCE) != 0;
+    float[] values = stream.values;
+    int offset = 0;
+    for (int i = 0; i < count; ++i) {
+      values[offset++] = landmarkBuffer.x(0, i);
+      values[offset++] = landmarkBuffer.y(0, i);
+      values[offset++] = landmarkBuffer.z(0, i);
+      if (visibility) {
+        values[offset++] = landmarkBuffer.visibility(0, i);
+      }
+      if (presence) {
+        values[offset++] = landmarkBuffer.presence(0, i);
       }
-    } catch (JSONException e) {
-      Log.w(TAG, e.getMessage());
     }
-    return json_arr;
+    stream.count = count;
   }
-
 }
@@ -24,6 +24,10 @@ public interface AudioDataConsumer {
    * AudioDataConsumer has to use AudioFormat.ENCODING_PCM_16BIT, 2 bytes per sample, FILLED with
    * ByteOrder.LITTLE_ENDIAN, which is ByteOrder.nativeOrder() on Android
    * (https://developer.android.com/ndk/guides/abis.html).
+   *
+   * <p>Producers may reuse the ByteBuffer for their next audio data, e.g. {@code
+   * MicrophoneHelper.setReuseAudioBuffers}, so consumers should copy the data they keep after this
+   * call returns.
    */
   public abstract void onNewAudioData(
       ByteBuffer audioData, long timestampMicros, AudioFormat audioFormat);
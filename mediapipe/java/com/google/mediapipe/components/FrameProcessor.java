@@ -27,6 +27,7 @@ import com.google.mediapipe.framework.Graph;
 import com.google.mediapipe.framework.GraphService;
 import com.google.mediapipe.framework.MediaPipeException;
 import com.google.mediapipe.framework.Packet;
+import com.google.mediapipe.framework.PacketBatchCallback;
 import com.google.mediapipe.framework.PacketCallback;
 import com.google.mediapipe.framework.PacketGetter;
 import com.google.mediapipe.framework.SurfaceOutput;
@@ -40,6 +41,7 @@ import java.util.List;
 import java.util.Map;
 import java.util.Queue;
 import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
 import javax.annotation.Nullable;
 
 /**
@@ -61,8 +63,16 @@ public class FrameProcessor implements TextureFrameProcessor, AudioDataProcessor
   private String videoInputStream;
   private String videoInputStreamCpu;
   private String videoOutputStream;
+  // Graph handles of the input streams, so that no stream name is passed for every frame. -1 until
+  // the input stream is set.
+  private int videoInputStreamHandle = -1;
+  private int videoInputStreamCpuHandle = -1;
+  private int audioInputStreamHandle = -1;
   private SurfaceOutput videoSurfaceOutput;
   private final AtomicBoolean started = new AtomicBoolean(false);
+  // Number of audio buffers and bytes copied into audio packets by onNewAudioData.
+  private final AtomicLong audioCopyCount = new AtomicLong();
+  private final AtomicLong audioBytesCopied = new AtomicLong();
   // Input stream of audio data. Can be null.
   private String audioInputStream;
   // Output stream of audio data. Can be null.
@@ -206,6 +216,7 @@ public class FrameProcessor implements TextureFrameProcessor, AudioDataProcessor
 
     videoInputStream = inputStream;
     videoOutputStream = outputStream;
+    videoInputStreamHandle = getInputStreamHandle(inputStream);
 
     mediapipeGraph.setParentGlContext(parentNativeContext);
 
@@ -257,6 +268,7 @@ public class FrameProcessor implements TextureFrameProcessor, AudioDataProcessor
       double audioSampleRateInHz) {
     audioInputStream = inputStream;
     audioOutputStream = outputStream;
+    audioInputStreamHandle = getInputStreamHandle(inputStream);
     numAudioChannels = numInputChannels;
     audioSampleRate = audioSampleRateInHz;
 
@@ -327,6 +339,7 @@ public class FrameProcessor implements TextureFrameProcessor, AudioDataProcessor
 
   public void setVideoInputStreamCpu(String inputStream) {
     videoInputStreamCpu = inputStream;
+    videoInputStreamCpuHandle = getInputStreamHandle(inputStream);
   }
 
   /** Adds a callback to the graph to process packets from the specified output stream. */
@@ -334,6 +347,15 @@ public class FrameProcessor implements TextureFrameProcessor, AudioDataProcessor
     mediapipeGraph.addPacketCallback(outputStream, callback);
   }
 
+  /**
+   * Adds a callback to the graph to process the packets of several output streams together, one
+   * call per timestamp. See {@link Graph#addPacketBatchCallback}.
+   */
+  public void addPacketBatchCallback(
+      List<String> outputStreams, PacketBatchCallback callback, boolean observeTimestampBounds) {
+    mediapipeGraph.addPacketBatchCallback(outputStreams, callback, observeTimestampBounds);
+  }
+
   public void addConsumer(TextureFrameConsumer consumer) {
     synchronized (this) {
       List<TextureFrameConsumer> newConsumers = new ArrayList<>(videoConsumers);
@@ -455,7 +477,8 @@ public class FrameProcessor implements TextureFrameProcessor, AudioDataProcessor
       try {
         // addConsumablePacketToInputStream allows the graph to take exclusive ownership of the
         // packet, which may allow for more memory optimizations.
-        mediapipeGraph.addConsumablePacketToInputStream(videoInputStream, imagePacket, timestamp);
+        mediapipeGraph.addConsumablePacketToInputStream(
+            videoInputStreamHandle, imagePacket, timestamp);
         // If addConsumablePacket succeeded, we don't need to release the packet ourselves.
         imagePacket = null;
       } catch (MediaPipeException e) {
@@ -508,7 +531,8 @@ public class FrameProcessor implements TextureFrameProcessor, AudioDataProcessor
       try {
         // addConsumablePacketToInputStream allows the graph to take exclusive ownership of the
         // packet, which may allow for more memory optimizations.
-        mediapipeGraph.addConsumablePacketToInputStream(videoInputStreamCpu, packet, timestamp);
+        mediapipeGraph.addConsumablePacketToInputStream(
+            videoInputStreamCpuHandle, packet, timestamp);
         packet = null;
       } catch (MediaPipeException e) {
         // TODO: do not suppress exceptions here!
@@ -553,6 +577,11 @@ public class FrameProcessor implements TextureFrameProcessor, AudioDataProcessor
     mediapipeGraph.startRunningGraph();
   }
 
+  // Returns the graph handle of an input stream, or -1 if there is no input stream.
+  private int getInputStreamHandle(@Nullable String streamName) {
+    return streamName == null ? -1 : mediapipeGraph.getInputStreamHandle(streamName);
+  }
+
   @Override
   public void onNewAudioData(ByteBuffer audioData, long timestampMicros, AudioFormat audioFormat) {
     Packet audioPacket = null;
@@ -571,11 +600,13 @@ public class FrameProcessor implements TextureFrameProcessor, AudioDataProcessor
 
       int numSamples = audioData.limit() / BYTES_PER_MONO_SAMPLE / numAudioChannels;
       audioPacket = packetCreator.createAudioPacket(audioData, numAudioChannels, numSamples);
+      audioCopyCount.incrementAndGet();
+      audioBytesCopied.addAndGet(audioData.remaining());
       try {
         // addConsumablePacketToInputStream allows the graph to take exclusive ownership of the
         // packet, which may allow for more memory optimizations.
         mediapipeGraph.addConsumablePacketToInputStream(
-            audioInputStream, audioPacket, timestampMicros);
+            audioInputStreamHandle, audioPacket, timestampMicros);
         audioPacket = null;
       } catch (MediaPipeException e) {
         // TODO: do not suppress exceptions here!
@@ -600,6 +631,19 @@ public class FrameProcessor implements TextureFrameProcessor, AudioDataProcessor
     }
   }
 
+  /**
+   * Returns the number of audio buffers copied into audio packets by {@link #onNewAudioData}, i.e.
+   * one per audio packet sent to the graph.
+   */
+  public long getAudioCopyCount() {
+    return audioCopyCount.get();
+  }
+
+  /** Returns the number of bytes of audio data copied into audio packets. */
+  public long getAudioBytesCopied() {
+    return audioBytesCopied.get();
+  }
+
   public void addAudioConsumer(AudioDataConsumer consumer) {
     synchronized (this) {
       List<AudioDataConsumer> newConsumers = new ArrayList<>(audioConsumers);
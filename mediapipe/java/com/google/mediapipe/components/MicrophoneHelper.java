@@ -23,6 +23,7 @@ import android.media.MediaRecorder.AudioSource;
 import android.os.Build.VERSION;
 import android.os.Build.VERSION_CODES;
 import android.util.Log;
+import com.google.auto.value.AutoValue;
 import com.google.common.base.Preconditions;
 import java.io.IOException;
 import java.nio.ByteBuffer;
@@ -91,6 +92,21 @@ public class MicrophoneHelper implements AudioDataProducer {
   // sent to the listener of this class.
   private boolean recording = false;
 
+  // If set, the audio data buffer is read into again once all the consumers returned, instead of
+  // allocating a new direct buffer for every AudioRecord.read() call.
+  private boolean reuseAudioBuffers = false;
+  // The buffer to read into next, owned by the recording thread.
+  private ByteBuffer reusableAudioBuffer;
+
+  // Capture statistics, guarded by statsLock.
+  private final Object statsLock = new Object();
+  private long packetCount = 0;
+  private long bufferAllocationCount = 0;
+  private long bufferReuseCount = 0;
+  private long lastLatencyNanos = 0;
+  private long totalLatencyNanos = 0;
+  private long maxLatencyNanos = 0;
+
   // The consumers are provided with the data read on every AudioRecord.read() call. If the consumer
   // called stopMicrophone() while a call to AudioRecord.read() was blocked, the class will discard
   // the data read after recording stopped.
@@ -181,14 +197,14 @@ public class MicrophoneHelper implements AudioDataProducer {
                   break;
                 }
 
-                // TODO: Fix audio data cloning.
-                ByteBuffer audioData = ByteBuffer.allocateDirect(audioPacketBufferSize);
+                ByteBuffer audioData = acquireAudioBuffer();
                 try {
                   readAudioPacket(audioData);
                 } catch (IOException ioException) {
                   // Reading audio data failed in this loop iteration, continue to next iteration if
                   // recording is still enabled.
                   Log.e(TAG, ioException.getMessage());
+                  releaseAudioBuffer(audioData);
                   continue;
                 }
 
@@ -216,12 +232,55 @@ public class MicrophoneHelper implements AudioDataProducer {
                   for (AudioDataConsumer consumer : consumers) {
                     consumer.onNewAudioData(audioData, timestampMicros, audioFormat);
                   }
+                  recordCaptureLatency(
+                      timestampNanos + numFramesRead * NANOS_PER_SECOND / sampleRateInHz);
                 }
+                releaseAudioBuffer(audioData);
               }
             },
             "microphoneHelperRecordingThread");
   }
 
+  /** Returns the buffer to read the next audio packet into. */
+  private ByteBuffer acquireAudioBuffer() {
+    ByteBuffer audioData = reusableAudioBuffer;
+    reusableAudioBuffer = null;
+    boolean reused = audioData != null && audioData.capacity() == audioPacketBufferSize;
+    synchronized (statsLock) {
+      if (reused) {
+        ++bufferReuseCount;
+      } else {
+        ++bufferAllocationCount;
+      }
+    }
+    if (reused) {
+      audioData.clear();
+      return audioData;
+    }
+    return ByteBuffer.allocateDirect(audioPacketBufferSize);
+  }
+
+  /** Keeps the buffer of an audio packet for the next read if buffers are reused. */
+  private void releaseAudioBuffer(ByteBuffer audioData) {
+    if (reuseAudioBuffers) {
+      reusableAudioBuffer = audioData;
+    }
+  }
+
+  /**
+   * Records the latency from the capture of the last audio frame of a packet, at {@code
+   * captureEndNanos}, to the return of the consumers.
+   */
+  private void recordCaptureLatency(long captureEndNanos) {
+    long latencyNanos = max(0, System.nanoTime() - captureEndNanos);
+    synchronized (statsLock) {
+      ++packetCount;
+      lastLatencyNanos = latencyNanos;
+      totalLatencyNanos += latencyNanos;
+      maxLatencyNanos = max(maxLatencyNanos, latencyNanos);
+    }
+  }
+
   /**
    * Reads audio data into a packet.
    *
@@ -317,6 +376,74 @@ public class MicrophoneHelper implements AudioDataProducer {
     return audioPacketBufferSize;
   }
 
+  /**
+   * Sets whether the recording thread reads every audio packet into the same direct buffer instead
+   * of allocating a new one per packet. This should be set before calling {@link
+   * #startMicrophone()}.
+   *
+   * <p>When set, the ByteBuffer passed to {@link AudioDataConsumer#onNewAudioData} is only valid
+   * until the call returns, so consumers must copy the data they keep, e.g. by creating a packet
+   * from it like {@code FrameProcessor} does.
+   */
+  public void setReuseAudioBuffers(boolean reuseAudioBuffers) {
+    this.reuseAudioBuffers = reuseAudioBuffers;
+  }
+
+  /** Statistics of the audio packets read by a {@link MicrophoneHelper}. */
+  @AutoValue
+  public abstract static class CaptureStats {
+
+    static CaptureStats create(
+        long packetCount,
+        long bufferAllocationCount,
+        long bufferReuseCount,
+        long lastLatencyMicros,
+        long averageLatencyMicros,
+        long maxLatencyMicros) {
+      return new AutoValue_MicrophoneHelper_CaptureStats(
+          packetCount,
+          bufferAllocationCount,
+          bufferReuseCount,
+          lastLatencyMicros,
+          averageLatencyMicros,
+          maxLatencyMicros);
+    }
+
+    /** The number of audio packets sent to the consumers. */
+    public abstract long packetCount();
+
+    /** The number of direct buffers allocated to read audio packets into. */
+    public abstract long bufferAllocationCount();
+
+    /** The number of audio packets read into a reused buffer. */
+    public abstract long bufferReuseCount();
+
+    /**
+     * The latency of the latest audio packet, from the capture of its last frame to the return of
+     * the consumers, e.g. once {@code FrameProcessor} added it to the graph, in microseconds.
+     */
+    public abstract long lastLatencyMicros();
+
+    /** The average latency of the audio packets, in microseconds. */
+    public abstract long averageLatencyMicros();
+
+    /** The highest latency of the audio packets, in microseconds. */
+    public abstract long maxLatencyMicros();
+  }
+
+  /** Returns the statistics of the audio packets read since this MicrophoneHelper was created. */
+  public CaptureStats getCaptureStats() {
+    synchronized (statsLock) {
+      return CaptureStats.create(
+          packetCount,
+          bufferAllocationCount,
+          bufferReuseCount,
+          lastLatencyNanos / NANOS_PER_MICROS,
+          packetCount == 0 ? 0 : totalLatencyNanos / packetCount / NANOS_PER_MICROS,
+          maxLatencyNanos / NANOS_PER_MICROS);
+    }
+  }
+
   /**
    * Sets initialTimestampNanos. Overrides the use of system time as the first timestamp for audio
    * packets. Not recommended. Provided to maintain compatibility with existing usage by
@@ -43,7 +43,7 @@ public class AndroidPacketCreator extends PacketCreator {
     if (bitmap.getConfig() != Bitmap.Config.ARGB_8888) {
       throw new RuntimeException("bitmap must use ARGB_8888 config.");
     }
-    return Packet.create(nativeCreateRgbImageFrame(mediapipeGraph.getNativeHandle(), bitmap));
+    return Packet.createOwned(nativeCreateRgbImageFrame(mediapipeGraph.getNativeHandle(), bitmap));
   }
 
   /** Creates a 4 channel RGBA ImageFrame packet from a {@link Bitmap}. */
@@ -51,7 +51,7 @@ public class AndroidPacketCreator extends PacketCreator {
     if (bitmap.getConfig() != Bitmap.Config.ARGB_8888) {
       throw new RuntimeException("bitmap must use ARGB_8888 config.");
     }
-    return Packet.create(nativeCreateRgbaImageFrame(mediapipeGraph.getNativeHandle(), bitmap));
+    return Packet.createOwned(nativeCreateRgbaImageFrame(mediapipeGraph.getNativeHandle(), bitmap));
   }
 
   /** Creates a 4 channel RGBA Image packet from a {@link Bitmap}. */
@@ -59,7 +59,7 @@ public class AndroidPacketCreator extends PacketCreator {
     if (bitmap.getConfig() != Bitmap.Config.ARGB_8888) {
       throw new RuntimeException("bitmap must use ARGB_8888 config.");
     }
-    return Packet.create(nativeCreateRgbaImage(mediapipeGraph.getNativeHandle(), bitmap));
+    return Packet.createOwned(nativeCreateRgbaImage(mediapipeGraph.getNativeHandle(), bitmap));
   }
 
   /**
@@ -98,7 +98,7 @@ public class AndroidPacketCreator extends PacketCreator {
       if (bitmap.getConfig() != Bitmap.Config.ARGB_8888) {
         throw new UnsupportedOperationException("bitmap must use ARGB_8888 config.");
       }
-      return Packet.create(nativeCreateRgbaImage(mediapipeGraph.getNativeHandle(), bitmap));
+      return Packet.createOwned(nativeCreateRgbaImage(mediapipeGraph.getNativeHandle(), bitmap));
     }
     if (properties.getStorageType() == MPImage.STORAGE_TYPE_MEDIA_IMAGE) {
       Image mediaImage = MediaImageExtractor.extract(image);
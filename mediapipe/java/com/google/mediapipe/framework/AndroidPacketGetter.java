@@ -28,8 +28,14 @@ import java.nio.ByteOrder;
  * <p>See {@link PacketGetter} for general information.
  *
  * <p>This class contains methods that are Android-specific.
+ *
+ * <p>The pixels of the packets are written straight into the locked pixels of the bitmaps through
+ * the NDK Bitmap API. If a bitmap cannot be locked, they are staged in a direct buffer cached per
+ * thread and sized for the latest image, so repeated copies of same-sized frames allocate nothing.
  */
 public final class AndroidPacketGetter {
+  private static final ThreadLocal<ByteBuffer> stagingBuffer = new ThreadLocal<>();
+
   /**
    * Gets an {@code ARGB_8888} bitmap from an RGB mediapipe image frame packet.
    *
@@ -62,8 +68,10 @@ public final class AndroidPacketGetter {
   }
 
   private static void copyRgbToBitmap(Packet packet, Bitmap mutableBitmap, int width, int height) {
-    // TODO: use NDK Bitmap access instead of copyPixelsToBuffer.
-    ByteBuffer buffer = ByteBuffer.allocateDirect(width * height * 4);
+    if (nativeCopyToBitmap(packet.getNativeHandle(), mutableBitmap)) {
+      return;
+    }
+    ByteBuffer buffer = getStagingBuffer(width * height * 4);
     PacketGetter.getRgbaFromRgb(packet, buffer);
     mutableBitmap.copyPixelsFromBuffer(buffer);
   }
@@ -102,9 +110,10 @@ public final class AndroidPacketGetter {
 
   private static void copyRgbaToBitmap(Packet packet, Bitmap mutableBitmap, int width, int height) {
     // TODO: unify into a single getBitmap call.
-    // TODO: use NDK Bitmap access instead of copyPixelsToBuffer.
-    ByteBuffer buffer = ByteBuffer.allocateDirect(width * height * 4);
-    buffer.order(ByteOrder.nativeOrder());
+    if (nativeCopyToBitmap(packet.getNativeHandle(), mutableBitmap)) {
+      return;
+    }
+    ByteBuffer buffer = getStagingBuffer(width * height * 4);
     // Note: even though the Android Bitmap config is named ARGB_8888, the data
     // is stored as RGBA internally.
     boolean status = PacketGetter.getImageData(packet, buffer);
@@ -116,5 +125,19 @@ public final class AndroidPacketGetter {
     mutableBitmap.copyPixelsFromBuffer(buffer);
   }
 
+  /** Returns the staging buffer of the calling thread, reallocated if its size differs. */
+  private static ByteBuffer getStagingBuffer(int size) {
+    ByteBuffer buffer = stagingBuffer.get();
+    if (buffer == null || buffer.capacity() != size) {
+      buffer = ByteBuffer.allocateDirect(size);
+      buffer.order(ByteOrder.nativeOrder());
+      stagingBuffer.set(buffer);
+    }
+    buffer.clear();
+    return buffer;
+  }
+
+  private static native boolean nativeCopyToBitmap(long packet, Bitmap bitmap);
+
   private AndroidPacketGetter() {}
 }
@@ -0,0 +1,162 @@
+// Copyright 2023 The MediaPipe Authors.
+//
+// Licensed under the Apache License, Version 2.0 (the "License");
+// you may not use this file except in compliance with the License.
+// You may obtain a copy of the License at
+//
+//      http://www.apache.org/licenses/LICENSE-2.0
+//
+// Unless required by applicable law or agreed to in writing, software
+// distributed under the License is distributed on an "AS IS" BASIS,
+// WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+// See the License for the specific language governing permissions and
+// limitations under the License.
+
+package com.google.mediapipe.framework;
+
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.FloatBuffer;
+import java.nio.IntBuffer;
+
+/**
+ * Reusable flat view of one or more classification lists, filled by {@link
+ * PacketGetter#getClassifications}.
+ *
+ * <p>Scores and indices of all lists are stored back to back in direct buffers. Labels and display
+ * names are kept as strings per slot; a slot whose label did not change since the previous fill
+ * keeps its {@link String} instance, so steady results such as handedness do not allocate. Each
+ * slot also records the native id of its strings, so that unchanged labels are detected without
+ * reading the Java strings. Unset
+ * labels read as the empty string and unset indices as 0, like the proto getters.
+ *
+ * <p>Not thread-safe; the contents are overwritten by the next call to {@link
+ * PacketGetter#getClassifications}.
+ */
+public final class ClassificationBuffer {
+  private FloatBuffer scores;
+  private IntBuffer indices;
+  private String[] labels;
+  private String[] displayNames;
+  // Native ids of the strings in labels and displayNames, 0 for strings not set natively.
+  private IntBuffer labelIds;
+  private IntBuffer displayNameIds;
+  // offsets[i] is the index of the first entry of the i-th list, offsets[listCount] the total.
+  private int[] offsets;
+  private int listCount;
+
+  public ClassificationBuffer() {
+    this(/* listCapacity= */ 2, /* classificationCapacity= */ 8);
+  }
+
+  /** Creates a buffer with room for the given number of lists and classifications in total. */
+  public ClassificationBuffer(int listCapacity, int classificationCapacity) {
+    offsets = new int[listCapacity + 1];
+    allocate(classificationCapacity);
+  }
+
+  /** Returns the number of classification lists. */
+  public int listCount() {
+    return listCount;
+  }
+
+  /** Returns the number of classifications in the {@code list}-th list. */
+  public int size(int list) {
+    checkList(list);
+    return offsets[list + 1] - offsets[list];
+  }
+
+  public float score(int list, int classification) {
+    return scores.get(slot(list, classification));
+  }
+
+  public int index(int list, int classification) {
+    return indices.get(slot(list, classification));
+  }
+
+  public String label(int list, int classification) {
+    return labels[slot(list, classification)];
+  }
+
+  public String displayName(int list, int classification) {
+    return displayNames[slot(list, classification)];
+  }
+
+  /** Empties the view without releasing its storage. */
+  public void clear() {
+    listCount = 0;
+    offsets[0] = 0;
+  }
+
+  private int slot(int list, int classification) {
+    checkList(list);
+    int slot = offsets[list] + classification;
+    if (classification < 0 || slot >= offsets[list + 1]) {
+      throw new IndexOutOfBoundsException(
+          "Classification " + classification + " out of " + (offsets[list + 1] - offsets[list]));
+    }
+    return slot;
+  }
+
+  private void checkList(int list) {
+    if (list < 0 || list >= listCount) {
+      throw new IndexOutOfBoundsException("List " + list + " out of " + listCount);
+    }
+  }
+
+  FloatBuffer getScores() {
+    return scores;
+  }
+
+  IntBuffer getIndices() {
+    return indices;
+  }
+
+  String[] getLabels() {
+    return labels;
+  }
+
+  String[] getDisplayNames() {
+    return displayNames;
+  }
+
+  IntBuffer getLabelIds() {
+    return labelIds;
+  }
+
+  IntBuffer getDisplayNameIds() {
+    return displayNameIds;
+  }
+
+  int[] getOffsets() {
+    return offsets;
+  }
+
+  /** Returns whether the buffer can hold the given number of lists and classifications. */
+  boolean hasCapacity(int lists, int classifications) {
+    return lists < offsets.length && classifications <= labels.length;
+  }
+
+  void ensureCapacity(int lists, int classifications) {
+    if (lists >= offsets.length) {
+      offsets = new int[Math.max(lists + 1, offsets.length * 2)];
+    }
+    if (classifications > labels.length) {
+      allocate(Math.max(classifications, labels.length * 2));
+    }
+  }
+
+  void setListCount(int listCount) {
+    this.listCount = listCount;
+  }
+
+  private void allocate(int capacity) {
+    scores = ByteBuffer.allocateDirect(capacity * 4).order(ByteOrder.nativeOrder()).asFloatBuffer();
+    indices = ByteBuffer.allocateDirect(capacity * 4).order(ByteOrder.nativeOrder()).asIntBuffer();
+    labels = new String[capacity];
+    displayNames = new String[capacity];
+    labelIds = ByteBuffer.allocateDirect(capacity * 4).order(ByteOrder.nativeOrder()).asIntBuffer();
+    displayNameIds =
+        ByteBuffer.allocateDirect(capacity * 4).order(ByteOrder.nativeOrder()).asIntBuffer();
+  }
+}
@@ -61,6 +61,13 @@ public class Graph {
 
   private Map<String, ArrayList<PacketBufferItem>> packetBuffers = new HashMap<>();
 
+  // Handles of the input streams by name and names by handle, see getInputStreamHandle.
+  private final Map<String, Integer> inputStreamHandles = new HashMap<>();
+  private final List<String> inputStreamNames = new ArrayList<>();
+  // Reused by addPacketsToInputStreams.
+  private int[] streamHandleScratch = new int[0];
+  private long[] packetHandleScratch = new long[0];
+
   // This is used for methods that need to ensure the native context is alive
   // while still allowing other methods of this class to execute concurrently.
   // Note: if a method needs to acquire both this lock and the Graph intrinsic monitor,
@@ -202,6 +209,34 @@ public class Graph {
     nativeAddMultiStreamCallback(nativeGraphHandle, streamNames, callback, observeTimestampBounds);
   }
 
+  /**
+   * Adds a {@link PacketBatchCallback} to the context for callback during graph running.
+   *
+   * <p>Unlike {@link #addMultiStreamCallback}, packets of all streams are delivered through a
+   * single JNI upcall into a {@link PacketBatch} that is reused for every timestamp, so no
+   * per-timestamp list or packet wrappers are allocated.
+   *
+   * @param streamNames The output stream names in the graph for callback.
+   * @param callback The callback for handling the call when the output streams listed in
+   *     streamNames are settled at a timestamp.
+   * @param observeTimestampBounds Whether to invoke the callback when a timestamp bound change is
+   *     observed with no output data. In that case the batch contains no packets.
+   * @throws MediaPipeException for any error status.
+   */
+  public synchronized void addPacketBatchCallback(
+      List<String> streamNames, PacketBatchCallback callback, boolean observeTimestampBounds) {
+    Preconditions.checkState(
+        nativeGraphHandle != 0, "Invalid context, tearDown() might have been called already.");
+    Preconditions.checkNotNull(streamNames);
+    Preconditions.checkArgument(!streamNames.isEmpty(), "streamNames must not be empty.");
+    Preconditions.checkNotNull(callback);
+    Preconditions.checkState(!graphRunning && !startRunningGraphCalled);
+    PacketBatch batch = new PacketBatch(streamNames, callback);
+    callbacks.add(batch);
+    nativeAddPacketBatchCallback(
+        nativeGraphHandle, streamNames, batch, batch.getNativeHandles(), observeTimestampBounds);
+  }
+
   /**
    * Adds a {@link SurfaceOutput} for a stream producing GpuBuffers.
    *
@@ -406,9 +441,117 @@ public class Graph {
       // We move the packet here into native, allowing it to take full control.
       nativeMovePacketToInputStream(
           nativeGraphHandle, streamName, packet.getNativeHandle(), timestamp);
-      // The Java handle is released now if the packet was successfully moved. Otherwise the Java
-      // handle continues to own the packet contents.
+      // The native handle is released along with the move if the packet was successfully moved.
+      // Otherwise an exception was thrown and the Java handle continues to own the packet contents.
+      packet.detachNativeHandle();
+    }
+  }
+
+  /**
+   * Returns a handle of an input stream, which can be passed instead of the stream name to the
+   * methods adding packets to the input stream or closing it. This saves converting the name from
+   * Java on every call, e.g. for every frame. The handle is valid for the lifetime of the graph.
+   *
+   * @param streamName the name of the input stream.
+   */
+  public synchronized int getInputStreamHandle(String streamName) {
+    Preconditions.checkState(
+        nativeGraphHandle != 0, "Invalid context, tearDown() might have been called.");
+    Integer streamHandle = inputStreamHandles.get(streamName);
+    if (streamHandle == null) {
+      // Handles are the native ids of the names, numbered from 0 in the order they are interned.
+      streamHandle = nativeInternInputStreamName(nativeGraphHandle, streamName);
+      inputStreamHandles.put(streamName, streamHandle);
+      inputStreamNames.add(streamName);
+    }
+    return streamHandle;
+  }
+
+  /**
+   * Same as {@link #addPacketToInputStream(String, Packet, long)}, for the input stream of a
+   * handle returned by {@link #getInputStreamHandle}.
+   *
+   * @throws MediaPipeException for any error status.
+   */
+  public synchronized void addPacketToInputStream(
+      int streamHandle, Packet packet, long timestamp) {
+    Preconditions.checkState(
+        nativeGraphHandle != 0, "Invalid context, tearDown() might have been called.");
+    if (!graphRunning) {
+      addPacketToBuffer(getInputStreamName(streamHandle), packet.copy(), timestamp);
+    } else {
+      nativeAddPacketToInputStreamByHandle(
+          nativeGraphHandle, streamHandle, packet.getNativeHandle(), timestamp);
+    }
+  }
+
+  /**
+   * Same as {@link #addConsumablePacketToInputStream(String, Packet, long)}, for the input stream
+   * of a handle returned by {@link #getInputStreamHandle}.
+   *
+   * @throws MediaPipeException for any error status.
+   */
+  public synchronized void addConsumablePacketToInputStream(
+      int streamHandle, Packet packet, long timestamp) {
+    Preconditions.checkState(
+        nativeGraphHandle != 0, "Invalid context, tearDown() might have been called.");
+    if (!graphRunning) {
+      addPacketToBuffer(getInputStreamName(streamHandle), packet.copy(), timestamp);
+      // Release current packet to honor move semantics.
       packet.release();
+    } else {
+      nativeMovePacketToInputStreamByHandle(
+          nativeGraphHandle, streamHandle, packet.getNativeHandle(), timestamp);
+      // The native handle is released along with the move if the packet was successfully moved.
+      packet.detachNativeHandle();
+    }
+  }
+
+  /**
+   * Adds packets into graph input streams at the same timestamp, yielding ownership over to the
+   * graph streams as {@link #addConsumablePacketToInputStream} does, in a single native call.
+   *
+   * <p>When the function ends normally, all the packets are consumed and should no longer be
+   * referenced. When the function ends with MediaPipeException, the packets before the one that
+   * failed are consumed, and the others remain unaffected.
+   *
+   * @param streamNames the names of the input streams.
+   * @param packets the mediapipe packets, one for each input stream.
+   * @param timestamp the timestamp of the packets, although not enforced, the unit is normally
+   *     microsecond.
+   * @throws MediaPipeException for any error status.
+   */
+  public synchronized void addPacketsToInputStreams(
+      String[] streamNames, Packet[] packets, long timestamp) {
+    Preconditions.checkState(
+        nativeGraphHandle != 0, "Invalid context, tearDown() might have been called.");
+    Preconditions.checkArgument(
+        streamNames.length == packets.length, "Number of streams and packets doesn't match!");
+    if (!graphRunning) {
+      for (int i = 0; i < packets.length; ++i) {
+        addConsumablePacketToInputStream(streamNames[i], packets[i], timestamp);
+      }
+      return;
+    }
+    int count = packets.length;
+    if (streamHandleScratch.length < count) {
+      streamHandleScratch = new int[count];
+      packetHandleScratch = new long[count];
+    }
+    for (int i = 0; i < count; ++i) {
+      streamHandleScratch[i] = getInputStreamHandle(streamNames[i]);
+      packetHandleScratch[i] = packets[i].getNativeHandle();
+    }
+    try {
+      nativeMovePacketsToInputStreams(
+          nativeGraphHandle, streamHandleScratch, packetHandleScratch, count, timestamp);
+    } finally {
+      // The native code released the moved packets and set their handles to 0.
+      for (int i = 0; i < count; ++i) {
+        if (packetHandleScratch[i] == 0) {
+          packets[i].detachNativeHandle();
+        }
+      }
     }
   }
 
@@ -422,6 +565,17 @@ public class Graph {
     nativeCloseInputStream(nativeGraphHandle, streamName);
   }
 
+  /**
+   * Closes the input stream of a handle returned by {@link #getInputStreamHandle}.
+   *
+   * @throws MediaPipeException for any error status.
+   */
+  public synchronized void closeInputStream(int streamHandle) {
+    Preconditions.checkState(
+        nativeGraphHandle != 0, "Invalid context, tearDown() might have been called.");
+    nativeCloseInputStreamByHandle(nativeGraphHandle, streamHandle);
+  }
+
   /**
    * Closes all the input streams in the mediapipe graph.
    * @throws MediaPipeException for any error status.
@@ -486,6 +640,8 @@ public class Graph {
     packetBuffers.clear();
     synchronized (terminationLock) {
       if (nativeGraphHandle != 0) {
+        // The native graph releases the packets left in its context.
+        PacketTracker.untrackGraph(nativeGraphHandle);
         nativeReleaseGraph(nativeGraphHandle);
         nativeGraphHandle = 0;
       }
@@ -590,14 +746,22 @@ public class Graph {
                 "AddPacket for stream: %s failed: %s.", entry.getKey(), e.getMessage());
             throw e;
           }
-          // Need to release successfully moved packets
-          item.packet.release();
+          // Successfully moved packets are released by the native code.
+          item.packet.detachNativeHandle();
         }
       }
       packetBuffers.clear();
     }
   }
 
+  private String getInputStreamName(int streamHandle) {
+    Preconditions.checkArgument(
+        streamHandle >= 0 && streamHandle < inputStreamNames.size(),
+        "Unknown input stream handle: %s",
+        streamHandle);
+    return inputStreamNames.get(streamHandle);
+  }
+
   private static void splitStreamNamePacketMap(
       Map<String, Packet> namePacketMap, String[] streamNames, long[] packets) {
     if (namePacketMap.size() != streamNames.length || namePacketMap.size() != packets.length) {
@@ -633,6 +797,13 @@ public class Graph {
       PacketListCallback callback,
       boolean observeTimestampBounds);
 
+  private native void nativeAddPacketBatchCallback(
+      long context,
+      List<String> streamNames,
+      PacketBatch batch,
+      long[] nativeHandles,
+      boolean observeTimestampBounds);
+
   private native long nativeAddSurfaceOutput(long context, String streamName);
 
   private native void nativeLoadBinaryGraph(long context, String path);
@@ -662,10 +833,23 @@ public class Graph {
   private native void nativeMovePacketToInputStream(
       long context, String streamName, long packet, long timestamp);
 
+  private native int nativeInternInputStreamName(long context, String streamName);
+
+  private native void nativeAddPacketToInputStreamByHandle(
+      long context, int streamHandle, long packet, long timestamp);
+
+  private native void nativeMovePacketToInputStreamByHandle(
+      long context, int streamHandle, long packet, long timestamp);
+
+  private native void nativeMovePacketsToInputStreams(
+      long context, int[] streamIds, long[] packets, int count, long timestamp);
+
   private native void nativeSetGraphInputStreamBlockingMode(long context, boolean mode);
 
   private native void nativeCloseInputStream(long context, String streamName);
 
+  private native void nativeCloseInputStreamByHandle(long context, int streamHandle);
+
   private native void nativeCloseAllInputStreams(long context);
 
   private native void nativeCloseAllPacketSources(long context);
@@ -0,0 +1,156 @@
+// Copyright 2023 The MediaPipe Authors.
+//
+// Licensed under the Apache License, Version 2.0 (the "License");
+// you may not use this file except in compliance with the License.
+// You may obtain a copy of the License at
+//
+//      http://www.apache.org/licenses/LICENSE-2.0
+//
+// Unless required by applicable law or agreed to in writing, software
+// distributed under the License is distributed on an "AS IS" BASIS,
+// WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+// See the License for the specific language governing permissions and
+// limitations under the License.
+
+package com.google.mediapipe.framework;
+
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.FloatBuffer;
+
+/**
+ * Reusable flat view of one or more landmark lists, filled by {@link PacketGetter#getLandmarks}.
+ *
+ * <p>The landmarks of all lists are stored back to back in a direct {@link FloatBuffer}, {@link
+ * #COMPONENTS} floats per landmark: x, y, z, visibility and presence. Fields that are not set in the
+ * proto read as 0, like the proto getters. The buffer only grows, so once it is large enough no
+ * allocation happens per packet.
+ *
+ * <p>Not thread-safe; the contents are overwritten by the next call to {@link
+ * PacketGetter#getLandmarks}.
+ */
+public final class LandmarkBuffer {
+  /** Number of floats stored per landmark. */
+  public static final int COMPONENTS = 5;
+
+  private static final int X = 0;
+  private static final int Y = 1;
+  private static final int Z = 2;
+  private static final int VISIBILITY = 3;
+  private static final int PRESENCE = 4;
+
+  private FloatBuffer values;
+  // offsets[i] is the index of the first landmark of the i-th list, offsets[listCount] the total.
+  private int[] offsets;
+  private int listCount;
+
+  public LandmarkBuffer() {
+    this(/* listCapacity= */ 2, /* landmarkCapacity= */ 2 * 21);
+  }
+
+  /** Creates a buffer with room for the given number of lists and landmarks in total. */
+  public LandmarkBuffer(int listCapacity, int landmarkCapacity) {
+    offsets = new int[listCapacity + 1];
+    values = allocate(landmarkCapacity);
+  }
+
+  /** Returns the number of landmark lists. */
+  public int listCount() {
+    return listCount;
+  }
+
+  /** Returns the number of landmarks in the {@code list}-th list. */
+  public int size(int list) {
+    checkList(list);
+    return offsets[list + 1] - offsets[list];
+  }
+
+  /** Returns the total number of landmarks in all lists. */
+  public int totalSize() {
+    return offsets[listCount];
+  }
+
+  public float x(int list, int landmark) {
+    return get(list, landmark, X);
+  }
+
+  public float y(int list, int landmark) {
+    return get(list, landmark, Y);
+  }
+
+  public float z(int list, int landmark) {
+    return get(list, landmark, Z);
+  }
+
+  public float visibility(int list, int landmark) {
+    return get(list, landmark, VISIBILITY);
+  }
+
+  public float presence(int list, int landmark) {
+    return get(list, landmark, PRESENCE);
+  }
+
+  /**
+   * Returns the underlying buffer. Landmark {@code i} of list {@code l} starts at float index
+   * {@code (offset(l) + i) * COMPONENTS}. Only valid until the next fill.
+   */
+  public FloatBuffer values() {
+    return values;
+  }
+
+  /** Returns the index of the first landmark of the {@code list}-th list in {@link #values}. */
+  public int offset(int list) {
+    checkList(list);
+    return offsets[list];
+  }
+
+  /** Empties the view without releasing its storage. */
+  public void clear() {
+    listCount = 0;
+    offsets[0] = 0;
+  }
+
+  private float get(int list, int landmark, int component) {
+    checkList(list);
+    int index = offsets[list] + landmark;
+    if (landmark < 0 || index >= offsets[list + 1]) {
+      throw new IndexOutOfBoundsException(
+          "Landmark " + landmark + " out of " + (offsets[list + 1] - offsets[list]));
+    }
+    return values.get(index * COMPONENTS + component);
+  }
+
+  private void checkList(int list) {
+    if (list < 0 || list >= listCount) {
+      throw new IndexOutOfBoundsException("List " + list + " out of " + listCount);
+    }
+  }
+
+  int[] getOffsets() {
+    return offsets;
+  }
+
+  /** Returns whether the buffer can hold the given number of lists and landmarks. */
+  boolean hasCapacity(int lists, int landmarks) {
+    return lists < offsets.length && landmarks * COMPONENTS <= values.capacity();
+  }
+
+  void ensureCapacity(int lists, int landmarks) {
+    if (lists >= offsets.length) {
+      offsets = new int[Math.max(lists + 1, offsets.length * 2)];
+    }
+    if (landmarks * COMPONENTS > values.capacity()) {
+      values = allocate(Math.max(landmarks, values.capacity() / COMPONENTS * 2));
+    }
+  }
+
+  void setListCount(int listCount) {
+    this.listCount = listCount;
+  }
+
+  private static FloatBuffer allocate(int landmarkCapacity) {
+    return ByteBuffer.allocateDirect(landmarkCapacity * COMPONENTS * 4)
+        .order(ByteOrder.nativeOrder())
+        .asFloatBuffer();
+  }
+}
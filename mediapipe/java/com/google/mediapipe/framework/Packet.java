@@ -23,10 +23,15 @@ package com.google.mediapipe.framework;
  * <p>{@link Packet} can also be managed by {@link Graph}, which automatically releases all the
  * packets in the context, however, we still need to be careful of the memory, and release them as
  * soon as not needed.
+ *
+ * <p>The packets created by {@link PacketCreator} and {@link PacketGetter}, and their copies, can
+ * be tracked to find the ones that are never released, see {@link PacketStats}.
  */
 public class Packet {
   // Points to a native Packet.
   private long nativePacketHandle;
+  // Set while the packet is tracked by PacketTracker.
+  private PacketTracker.Record trackingRecord;
 
   /**
    * Creates a Java packet from a native mediapipe packet handle.
@@ -37,6 +42,25 @@ public class Packet {
     return new Packet(nativeHandle);
   }
 
+  /**
+   * Creates a Java packet owning a native handle, which is tracked when tracking is enabled.
+   *
+   * <p>Used for the packets that the caller must release, not for the packets passed to callbacks,
+   * which are released by the native code when the callback returns.
+   */
+  static Packet createOwned(long nativeHandle) {
+    Packet packet = new Packet(nativeHandle);
+    if (nativeHandle != 0 && PacketTracker.isEnabled()) {
+      packet.trackingRecord =
+          PacketTracker.track(
+              packet,
+              nativeHandle,
+              packet.nativeGetGraphHandle(nativeHandle),
+              packet.nativeGetTypeName(nativeHandle));
+    }
+    return packet;
+  }
+
   /**
    * Returns the native handle of the packet.
    */
@@ -60,7 +84,7 @@ public class Packet {
    *     native mediapipe packet.
    */
   public Packet copy() {
-    return new Packet(nativeCopyPacket(nativePacketHandle));
+    return createOwned(nativeCopyPacket(nativePacketHandle));
   }
 
   /**
@@ -71,22 +95,59 @@ public class Packet {
    */
   public void release() {
     if (nativePacketHandle != 0) {
+      if (trackingRecord != null) {
+        PacketTracker.untrack(trackingRecord);
+        trackingRecord = null;
+      }
       nativeReleasePacket(nativePacketHandle);
       nativePacketHandle = 0;
     }
   }
 
+  /**
+   * Gives up the native handle without releasing it, for a native packet released by other means,
+   * and returns it.
+   */
+  long detachNativeHandle() {
+    if (trackingRecord != null) {
+      PacketTracker.untrack(trackingRecord);
+      trackingRecord = null;
+    }
+    long handle = nativePacketHandle;
+    nativePacketHandle = 0;
+    return handle;
+  }
+
+  /** Releases the native packets of the first {@code count} handles in one native call. */
+  static void releaseNativeHandles(long[] handles, int count) {
+    if (count > 0) {
+      nativeReleasePackets(handles, count);
+    }
+  }
+
   // Packet is not intended to be constructed directly.
   private Packet(long handle) {
     nativePacketHandle = handle;
   }
 
+  // Rebinds a reused wrapper to another native packet, see PacketBatch.
+  void setNativeHandle(long handle) {
+    nativePacketHandle = handle;
+  }
+
   // Releases the native memeory.
   private native void nativeReleasePacket(long packetHandle);
 
+  private static native void nativeReleasePackets(long[] packetHandles, int count);
+
   private native long nativeCopyPacket(long packetHandle);
 
   private native long nativeGetTimestamp(long packetHandle);
 
   private native boolean nativeIsEmpty(long packetHandle);
+
+  private native String nativeGetTypeName(long packetHandle);
+
+  // Returns the native handle of the graph whose context holds the packet.
+  private native long nativeGetGraphHandle(long packetHandle);
 }
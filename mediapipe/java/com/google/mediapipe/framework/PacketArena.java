@@ -0,0 +1,72 @@
+// Copyright 2023 The MediaPipe Authors.
+//
+// Licensed under the Apache License, Version 2.0 (the "License");
+// you may not use this file except in compliance with the License.
+// You may obtain a copy of the License at
+//
+//      http://www.apache.org/licenses/LICENSE-2.0
+//
+// Unless required by applicable law or agreed to in writing, software
+// distributed under the License is distributed on an "AS IS" BASIS,
+// WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+// See the License for the specific language governing permissions and
+// limitations under the License.
+
+package com.google.mediapipe.framework;
+
+import java.util.Arrays;
+
+/**
+ * Scope for the packets created for one call, e.g. the input packets of a frame, released together
+ * in a single native call when the arena is closed.
+ *
+ * <pre>{@code
+ * try (PacketArena arena = packetArena) {
+ *   Packet image = arena.add(packetCreator.createRgbaImage(bitmap));
+ *   Packet rect = arena.add(packetCreator.createProto(normalizedRect));
+ *   graph.addConsumablePacketToInputStream("image", image, timestamp);
+ *   graph.addConsumablePacketToInputStream("norm_rect", rect, timestamp);
+ * }
+ * }</pre>
+ *
+ * <p>The packets consumed by the graph, or released individually, before the arena is closed are
+ * skipped. The arena can be reused after it is closed, with the arrays holding its packets kept
+ * across calls. This class is not thread-safe.
+ */
+public final class PacketArena implements AutoCloseable {
+  private static final int INITIAL_CAPACITY = 4;
+
+  private Packet[] packets = new Packet[INITIAL_CAPACITY];
+  private long[] nativeHandles = new long[INITIAL_CAPACITY];
+  private int size = 0;
+
+  /** Adds {@code packet} to the arena, which releases it on {@link #close()}, and returns it. */
+  public Packet add(Packet packet) {
+    if (size == packets.length) {
+      packets = Arrays.copyOf(packets, size * 2);
+      nativeHandles = Arrays.copyOf(nativeHandles, size * 2);
+    }
+    packets[size++] = packet;
+    return packet;
+  }
+
+  /** Returns the number of packets added since the arena was last closed. */
+  public int size() {
+    return size;
+  }
+
+  /** Releases the packets of the arena that were not consumed or released yet. */
+  @Override
+  public void close() {
+    int count = 0;
+    for (int i = 0; i < size; ++i) {
+      long handle = packets[i].detachNativeHandle();
+      if (handle != 0) {
+        nativeHandles[count++] = handle;
+      }
+      packets[i] = null;
+    }
+    size = 0;
+    Packet.releaseNativeHandles(nativeHandles, count);
+  }
+}
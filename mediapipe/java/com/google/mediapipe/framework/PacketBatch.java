@@ -0,0 +1,105 @@
+// Copyright 2023 The MediaPipe Authors.
+//
+// Licensed under the Apache License, Version 2.0 (the "License");
+// you may not use this file except in compliance with the License.
+// You may obtain a copy of the License at
+//
+//      http://www.apache.org/licenses/LICENSE-2.0
+//
+// Unless required by applicable law or agreed to in writing, software
+// distributed under the License is distributed on an "AS IS" BASIS,
+// WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+// See the License for the specific language governing permissions and
+// limitations under the License.
+
+package com.google.mediapipe.framework;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * Reusable holder of the packets of several output streams at one timestamp, delivered to a
+ * {@link PacketBatchCallback}.
+ *
+ * <p>The native graph writes the packet handles of all streams into this holder and invokes the
+ * callback once per timestamp, so there is a single JNI upcall for all streams and no per-call
+ * allocation of lists or {@link Packet} wrappers. The same instance and the same {@link Packet}
+ * objects are reused for every call: they are only valid during {@link
+ * PacketBatchCallback#process}. Use {@link Packet#copy} to keep a packet beyond the callback.
+ */
+public final class PacketBatch {
+  private final List<String> streamNames;
+  private final PacketBatchCallback callback;
+  // Written by native code before each call to dispatch. 0 means no packet for the stream.
+  private final long[] nativeHandles;
+  private final Packet[] packets;
+  private long timestamp;
+
+  PacketBatch(List<String> streamNames, PacketBatchCallback callback) {
+    this.streamNames = Collections.unmodifiableList(new ArrayList<>(streamNames));
+    this.callback = callback;
+    this.nativeHandles = new long[streamNames.size()];
+    this.packets = new Packet[streamNames.size()];
+    for (int i = 0; i < packets.length; ++i) {
+      packets[i] = Packet.create(0);
+    }
+  }
+
+  /**
+   * Returns the timestamp of the batch. If no stream has a packet, which happens when timestamp
+   * bounds are observed, this is the timestamp up to which all streams are settled.
+   */
+  public long getTimestamp() {
+    return timestamp;
+  }
+
+  /** Returns the number of streams, in the order they were registered. */
+  public int size() {
+    return packets.length;
+  }
+
+  /** Returns the name of the {@code index}-th stream. */
+  public String getStreamName(int index) {
+    return streamNames.get(index);
+  }
+
+  /** Returns the index of the stream with the given name, or -1 if it is not part of the batch. */
+  public int indexOf(String streamName) {
+    return streamNames.indexOf(streamName);
+  }
+
+  /** Returns true if the {@code index}-th stream has a packet at this timestamp. */
+  public boolean hasPacket(int index) {
+    return nativeHandles[index] != 0;
+  }
+
+  /**
+   * Returns the packet of the {@code index}-th stream, or null if the stream has no packet at this
+   * timestamp.
+   */
+  public Packet get(int index) {
+    return nativeHandles[index] != 0 ? packets[index] : null;
+  }
+
+  long[] getNativeHandles() {
+    return nativeHandles;
+  }
+
+  // Called by native code after the handles have been written.
+  void dispatch(long timestamp) {
+    this.timestamp = timestamp;
+    for (int i = 0; i < packets.length; ++i) {
+      packets[i].setNativeHandle(nativeHandles[i]);
+    }
+    try {
+      callback.process(this);
+    } finally {
+      // The native packets are released once this returns.
+      for (int i = 0; i < packets.length; ++i) {
+        packets[i].setNativeHandle(0);
+        nativeHandles[i] = 0;
+      }
+    }
+  }
+}
@@ -17,6 +17,7 @@ package com.google.mediapipe.framework;
 import com.google.mediapipe.framework.ProtoUtil.SerializedMessage;
 import com.google.protobuf.MessageLite;
 import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
 import java.nio.FloatBuffer;
 
 // TODO: use Preconditions in this file.
@@ -42,7 +43,7 @@ public class PacketCreator {
    * holds a reference to it in the native object.
    */
   public Packet createReferencePacket(Packet packet) {
-    return Packet.create(
+    return Packet.createOwned(
         nativeCreateReferencePacket(mediapipeGraph.getNativeHandle(), packet.getNativeHandle()));
   }
 
@@ -61,7 +62,7 @@ public class PacketCreator {
               + " but is "
               + buffer.capacity());
     }
-    return Packet.create(
+    return Packet.createOwned(
         nativeCreateRgbImage(mediapipeGraph.getNativeHandle(), buffer, width, height));
   }
 
@@ -74,7 +75,7 @@ public class PacketCreator {
    */
   public Packet createAudioPacket(byte[] data, int numChannels, int numSamples) {
     checkAudioDataSize(data.length, numChannels, numSamples);
-    return Packet.create(
+    return Packet.createOwned(
         nativeCreateAudioPacket(
             mediapipeGraph.getNativeHandle(), data, /*offset=*/ 0, numChannels, numSamples));
   }
@@ -82,6 +83,9 @@ public class PacketCreator {
   /**
    * Create a MediaPipe audio packet that is used by most of the audio calculators.
    *
+   * <p>The samples are converted to float once, straight into the native matrix of the packet, so
+   * the buffer can be reused as soon as this method returns.
+   *
    * @param data the raw audio data, bytes per sample is 2(only AudioFormat.ENCODING_PCM_16BIT is
    *     supported). Must either be a direct byte buffer or have an array, and the data has to be
    *     FILLED with ByteOrder.LITTLE_ENDIAN byte order, which is ByteOrder.nativeOrder() on Android
@@ -92,11 +96,11 @@ public class PacketCreator {
   public Packet createAudioPacket(ByteBuffer data, int numChannels, int numSamples) {
     checkAudioDataSize(data.remaining(), numChannels, numSamples);
     if (data.isDirect()) {
-      return Packet.create(
+      return Packet.createOwned(
           nativeCreateAudioPacketDirect(
-              mediapipeGraph.getNativeHandle(), data.slice(), numChannels, numSamples));
+              mediapipeGraph.getNativeHandle(), data, data.position(), numChannels, numSamples));
     } else if (data.hasArray()) {
-      return Packet.create(
+      return Packet.createOwned(
           nativeCreateAudioPacket(
               mediapipeGraph.getNativeHandle(),
               data.array(),
@@ -133,7 +137,7 @@ public class PacketCreator {
               + " but is "
               + buffer.capacity());
     }
-    return Packet.create(
+    return Packet.createOwned(
         nativeCreateRgbImageFromRgba(mediapipeGraph.getNativeHandle(), buffer, width, height));
   }
 
@@ -147,7 +151,7 @@ public class PacketCreator {
       throw new IllegalArgumentException(
           "The size of the buffer should be: " + width * height + " but is " + buffer.capacity());
     }
-    return Packet.create(
+    return Packet.createOwned(
         nativeCreateGrayscaleImage(mediapipeGraph.getNativeHandle(), buffer, width, height));
   }
 
@@ -164,7 +168,7 @@ public class PacketCreator {
               + " but is "
               + buffer.capacity());
     }
-    return Packet.create(
+    return Packet.createOwned(
         nativeCreateRgbaImageFrame(mediapipeGraph.getNativeHandle(), buffer, width, height));
   }
 
@@ -181,36 +185,36 @@ public class PacketCreator {
               + " but is "
               + buffer.capacity());
     }
-    return Packet.create(
+    return Packet.createOwned(
         nativeCreateFloatImageFrame(mediapipeGraph.getNativeHandle(), buffer, width, height));
   }
 
   public Packet createInt16(short value) {
-    return Packet.create(nativeCreateInt16(mediapipeGraph.getNativeHandle(), value));
+    return Packet.createOwned(nativeCreateInt16(mediapipeGraph.getNativeHandle(), value));
   }
 
   public Packet createInt32(int value) {
-    return Packet.create(nativeCreateInt32(mediapipeGraph.getNativeHandle(), value));
+    return Packet.createOwned(nativeCreateInt32(mediapipeGraph.getNativeHandle(), value));
   }
 
   public Packet createInt64(long value) {
-    return Packet.create(nativeCreateInt64(mediapipeGraph.getNativeHandle(), value));
+    return Packet.createOwned(nativeCreateInt64(mediapipeGraph.getNativeHandle(), value));
   }
 
   public Packet createFloat32(float value) {
-    return Packet.create(nativeCreateFloat32(mediapipeGraph.getNativeHandle(), value));
+    return Packet.createOwned(nativeCreateFloat32(mediapipeGraph.getNativeHandle(), value));
   }
 
   public Packet createFloat64(double value) {
-    return Packet.create(nativeCreateFloat64(mediapipeGraph.getNativeHandle(), value));
+    return Packet.createOwned(nativeCreateFloat64(mediapipeGraph.getNativeHandle(), value));
   }
 
   public Packet createBool(boolean value) {
-    return Packet.create(nativeCreateBool(mediapipeGraph.getNativeHandle(), value));
+    return Packet.createOwned(nativeCreateBool(mediapipeGraph.getNativeHandle(), value));
   }
 
   public Packet createString(String value) {
-    return Packet.create(nativeCreateString(mediapipeGraph.getNativeHandle(), value));
+    return Packet.createOwned(nativeCreateString(mediapipeGraph.getNativeHandle(), value));
   }
 
   public Packet createInt16Vector(short[] data) {
@@ -226,7 +230,7 @@ public class PacketCreator {
   }
 
   public Packet createFloat32Vector(float[] data) {
-    return Packet.create(nativeCreateFloat32Vector(mediapipeGraph.getNativeHandle(), data));
+    return Packet.createOwned(nativeCreateFloat32Vector(mediapipeGraph.getNativeHandle(), data));
   }
 
   public Packet createFloat64Vector(double[] data) {
@@ -234,15 +238,16 @@ public class PacketCreator {
   }
 
   public Packet createInt32Array(int[] data) {
-    return Packet.create(nativeCreateInt32Array(mediapipeGraph.getNativeHandle(), data));
+    return Packet.createOwned(nativeCreateInt32Array(mediapipeGraph.getNativeHandle(), data));
   }
 
   public Packet createFloat32Array(float[] data) {
-    return Packet.create(nativeCreateFloat32Array(mediapipeGraph.getNativeHandle(), data));
+    return Packet.createOwned(nativeCreateFloat32Array(mediapipeGraph.getNativeHandle(), data));
   }
 
   public Packet createByteArray(byte[] data) {
-    return Packet.create(nativeCreateStringFromByteArray(mediapipeGraph.getNativeHandle(), data));
+    return Packet.createOwned(
+        nativeCreateStringFromByteArray(mediapipeGraph.getNativeHandle(), data));
   }
 
   /**
@@ -252,7 +257,8 @@ public class PacketCreator {
    * the calculator is not suitable here. Modify the calculator to not require those values to work.
    */
   public Packet createVideoHeader(int width, int height) {
-    return Packet.create(nativeCreateVideoHeader(mediapipeGraph.getNativeHandle(), width, height));
+    return Packet.createOwned(
+        nativeCreateVideoHeader(mediapipeGraph.getNativeHandle(), width, height));
   }
 
   /**
@@ -262,36 +268,64 @@ public class PacketCreator {
    * @param sampleRate sampling rate in Hertz.
    */
   public Packet createTimeSeriesHeader(int numChannels, double sampleRate) {
-    return Packet.create(
+    return Packet.createOwned(
         nativeCreateTimeSeriesHeader(mediapipeGraph.getNativeHandle(), numChannels, sampleRate));
   }
 
   public Packet createMatrix(int rows, int cols, float[] data) {
-    return Packet.create(nativeCreateMatrix(mediapipeGraph.getNativeHandle(), rows, cols, data));
+    return Packet.createOwned(
+        nativeCreateMatrix(mediapipeGraph.getNativeHandle(), rows, cols, data));
+  }
+
+  /**
+   * Creates a mediapipe::Matrix packet from the {@code rows * cols} floats of {@code data} starting
+   * at its position, in column major order. The buffer is copied once, so it can be reused as soon
+   * as this method returns.
+   *
+   * <p>Use {@link ByteBuffer#allocateDirect} when allocating the buffer, and view it as a {@link
+   * FloatBuffer} in {@link ByteOrder#nativeOrder()}, since the floats are read as native floats.
+   */
+  public Packet createMatrix(int rows, int cols, FloatBuffer data) {
+    if (!data.isDirect()) {
+      throw new IllegalArgumentException("The matrix data should be a direct buffer.");
+    }
+    if (data.order() != ByteOrder.nativeOrder()) {
+      throw new IllegalArgumentException("The matrix data should be in native byte order.");
+    }
+    if (data.remaining() < rows * cols) {
+      throw new IllegalArgumentException(
+          "The matrix data should have at least "
+              + rows * cols
+              + " floats remaining but has "
+              + data.remaining());
+    }
+    return Packet.createOwned(
+        nativeCreateMatrixFromBuffer(
+            mediapipeGraph.getNativeHandle(), rows, cols, data, data.position()));
   }
 
   /** Creates a {@link Packet} containing the serialized proto string. */
   public Packet createSerializedProto(MessageLite message) {
-    return Packet.create(
+    return Packet.createOwned(
         nativeCreateStringFromByteArray(mediapipeGraph.getNativeHandle(), message.toByteArray()));
   }
 
   /** Creates a {@link Packet} containing a {@code CalculatorOptions} proto message. */
   public Packet createCalculatorOptions(MessageLite message) {
-    return Packet.create(
+    return Packet.createOwned(
         nativeCreateCalculatorOptions(mediapipeGraph.getNativeHandle(), message.toByteArray()));
   }
 
   /** Creates a {@link Packet} containing a protobuf MessageLite. */
   public Packet createProto(MessageLite message) {
     SerializedMessage serialized = ProtoUtil.pack(message);
-    return Packet.create(nativeCreateProto(mediapipeGraph.getNativeHandle(), serialized));
+    return Packet.createOwned(nativeCreateProto(mediapipeGraph.getNativeHandle(), serialized));
   }
 
   /** Creates a {@link Packet} containing the given camera intrinsics. */
   public Packet createCameraIntrinsics(
       float fx, float fy, float cx, float cy, float width, float height) {
-    return Packet.create(
+    return Packet.createOwned(
         nativeCreateCameraIntrinsics(
             mediapipeGraph.getNativeHandle(), fx, fy, cx, cy, width, height));
   }
@@ -307,7 +341,7 @@ public class PacketCreator {
    */
   public Packet createGpuBuffer(
       int name, int width, int height, TextureReleaseCallback releaseCallback) {
-    return Packet.create(
+    return Packet.createOwned(
         nativeCreateGpuBuffer(
             mediapipeGraph.getNativeHandle(), name, width, height, releaseCallback));
   }
@@ -322,7 +356,7 @@ public class PacketCreator {
    */
   @Deprecated
   public Packet createGpuBuffer(int name, int width, int height) {
-    return Packet.create(
+    return Packet.createOwned(
         nativeCreateGpuBuffer(mediapipeGraph.getNativeHandle(), name, width, height, null));
   }
 
@@ -335,7 +369,7 @@ public class PacketCreator {
    * the second argument.
    */
   public Packet createGpuBuffer(TextureFrame frame) {
-    return Packet.create(
+    return Packet.createOwned(
         nativeCreateGpuBuffer(
             mediapipeGraph.getNativeHandle(),
             frame.getTextureName(),
@@ -353,7 +387,7 @@ public class PacketCreator {
    * the second argument.
    */
   public Packet createImage(TextureFrame frame) {
-    return Packet.create(
+    return Packet.createOwned(
         nativeCreateGpuImage(
             mediapipeGraph.getNativeHandle(),
             frame.getTextureName(),
@@ -385,7 +419,7 @@ public class PacketCreator {
       throw new IllegalArgumentException(
           "The size of the buffer should be: " + expectedSize + " but is " + buffer.capacity());
     }
-    return Packet.create(
+    return Packet.createOwned(
         nativeCreateCpuImage(
             mediapipeGraph.getNativeHandle(), buffer, width, height, widthStep, numChannels));
   }
@@ -401,7 +435,7 @@ public class PacketCreator {
       long context, byte[] data, int offset, int numChannels, int numSamples);
 
   private native long nativeCreateAudioPacketDirect(
-      long context, ByteBuffer data, int numChannels, int numSamples);
+      long context, ByteBuffer data, int offset, int numChannels, int numSamples);
 
   private native long nativeCreateRgbImageFromRgba(
       long context, ByteBuffer buffer, int width, int height);
@@ -438,6 +472,9 @@ public class PacketCreator {
 
   private native long nativeCreateMatrix(long context, int rows, int cols, float[] data);
 
+  private native long nativeCreateMatrixFromBuffer(
+      long context, int rows, int cols, FloatBuffer data, int offset);
+
   private native long nativeCreateGpuBuffer(
       long context, int name, int width, int height, TextureReleaseCallback releaseCallback);
 
@@ -22,6 +22,8 @@ import com.google.protobuf.InvalidProtocolBufferException;
 import com.google.protobuf.MessageLite;
 import com.google.protobuf.Parser;
 import java.nio.ByteBuffer;
+import java.nio.FloatBuffer;
+import java.nio.IntBuffer;
 import java.util.ArrayList;
 import java.util.List;
 
@@ -53,7 +55,7 @@ public final class PacketGetter {
    * <p>Note: release the returned packet after use.
    */
   public static Packet getPacketFromReference(final Packet referencePacket) {
-    return Packet.create(nativeGetPacketFromReference(referencePacket.getNativeHandle()));
+    return Packet.createOwned(nativeGetPacketFromReference(referencePacket.getNativeHandle()));
   }
 
   /**
@@ -65,7 +67,7 @@ public final class PacketGetter {
    */
   public static PacketPair getPairOfPackets(final Packet packet) {
     long[] handles = nativeGetPairPackets(packet.getNativeHandle());
-    return new PacketPair(Packet.create(handles[0]), Packet.create(handles[1]));
+    return new PacketPair(Packet.createOwned(handles[0]), Packet.createOwned(handles[1]));
   }
 
   /**
@@ -79,7 +81,7 @@ public final class PacketGetter {
     long[] handles = nativeGetVectorPackets(packet.getNativeHandle());
     List<Packet> packets = new ArrayList<>(handles.length);
     for (long handle : handles) {
-      packets.add(Packet.create(handle));
+      packets.add(Packet.createOwned(handle));
     }
     return packets;
   }
@@ -179,6 +181,55 @@ public final class PacketGetter {
     return getProtoVector(packet, parser);
   }
 
+  /**
+   * Copies the landmarks of a packet holding a {@code NormalizedLandmarkList}, a {@code
+   * LandmarkList} or a {@code std::vector} of either into {@code buffer}.
+   *
+   * <p>Unlike {@link #getProto} and {@link #getProtoVector}, the landmarks are written straight
+   * into the direct buffer of {@code buffer} on the native side, so no proto bytes are copied or
+   * parsed and no per-landmark objects are created.
+   */
+  public static void getLandmarks(final Packet packet, LandmarkBuffer buffer) {
+    long counts =
+        nativeGetLandmarks(packet.getNativeHandle(), buffer.values(), buffer.getOffsets());
+    int lists = (int) (counts >>> 32);
+    int landmarks = (int) counts;
+    if (!buffer.hasCapacity(lists, landmarks)) {
+      // Nothing was written; grow the buffer and fetch again.
+      buffer.ensureCapacity(lists, landmarks);
+      nativeGetLandmarks(packet.getNativeHandle(), buffer.values(), buffer.getOffsets());
+    }
+    buffer.setListCount(lists);
+  }
+
+  /**
+   * Copies the classifications of a packet holding a {@code ClassificationList} or a {@code
+   * std::vector<ClassificationList>} into {@code buffer}, without parsing protos in Java.
+   */
+  public static void getClassifications(final Packet packet, ClassificationBuffer buffer) {
+    long counts = nativeGetClassifications(packet.getNativeHandle(), buffer);
+    int lists = (int) (counts >>> 32);
+    int classifications = (int) counts;
+    if (!buffer.hasCapacity(lists, classifications)) {
+      buffer.ensureCapacity(lists, classifications);
+      nativeGetClassifications(packet.getNativeHandle(), buffer);
+    }
+    buffer.setListCount(lists);
+  }
+
+  private static long nativeGetClassifications(
+      long nativePacketHandle, ClassificationBuffer buffer) {
+    return nativeGetClassifications(
+        nativePacketHandle,
+        buffer.getScores(),
+        buffer.getIndices(),
+        buffer.getLabels(),
+        buffer.getDisplayNames(),
+        buffer.getLabelIds(),
+        buffer.getDisplayNameIds(),
+        buffer.getOffsets());
+  }
+
   public static int getImageWidth(final Packet packet) {
     return nativeGetImageWidth(packet.getNativeHandle());
   }
@@ -380,6 +431,19 @@ public final class PacketGetter {
 
   private static native byte[][] nativeGetProtoVector(long nativePacketHandle);
 
+  private static native long nativeGetLandmarks(
+      long nativePacketHandle, FloatBuffer values, int[] offsets);
+
+  private static native long nativeGetClassifications(
+      long nativePacketHandle,
+      FloatBuffer scores,
+      IntBuffer indices,
+      String[] labels,
+      String[] displayNames,
+      IntBuffer labelIds,
+      IntBuffer displayNameIds,
+      int[] offsets);
+
   private static native int nativeGetImageWidth(long nativePacketHandle);
 
   private static native int nativeGetImageHeight(long nativePacketHandle);
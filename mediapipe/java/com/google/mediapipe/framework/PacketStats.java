@@ -0,0 +1,153 @@
+// Copyright 2023 The MediaPipe Authors.
+//
+// Licensed under the Apache License, Version 2.0 (the "License");
+// you may not use this file except in compliance with the License.
+// You may obtain a copy of the License at
+//
+//      http://www.apache.org/licenses/LICENSE-2.0
+//
+// Unless required by applicable law or agreed to in writing, software
+// distributed under the License is distributed on an "AS IS" BASIS,
+// WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+// See the License for the specific language governing permissions and
+// limitations under the License.
+
+package com.google.mediapipe.framework;
+
+import com.google.common.collect.ImmutableMap;
+import java.util.Map;
+
+/**
+ * Snapshot of the native packet handles owned by Java {@link Packet}s, to find the packets that are
+ * never released.
+ *
+ * <p>Tracking is off by default. Once enabled with {@link #setTrackingEnabled}, the packets created
+ * by {@link PacketCreator} and {@link PacketGetter}, and their copies made by {@link
+ * Packet#copy()}, are counted by type until they are released, either by {@link Packet#release()}
+ * or by {@link Graph#tearDown()}. The packets passed to callbacks are owned by the native code and
+ * not tracked.
+ *
+ * <p>A tracked packet that is garbage collected before being released is a leak: it is logged and
+ * counted, and its native handle is released. The creation site of one in {@link
+ * #setCreationSiteSamplingInterval} tracked packets is recorded, and included in the leak logs.
+ */
+public final class PacketStats {
+
+  private final long liveCount;
+  private final long createdCount;
+  private final long releasedCount;
+  private final long leakedCount;
+  private final ImmutableMap<String, Long> liveCountByType;
+  private final ImmutableMap<String, Long> leakedCountByType;
+  private final ImmutableMap<String, Long> liveCountByCreationSite;
+
+  /** Enables or disables tracking of the packets created from now on. */
+  public static void setTrackingEnabled(boolean enabled) {
+    PacketTracker.setEnabled(enabled);
+  }
+
+  /** Returns true if the packets created from now on are tracked. */
+  public static boolean isTrackingEnabled() {
+    return PacketTracker.isEnabled();
+  }
+
+  /**
+   * Records the creation site of one in {@code interval} tracked packets, 100 by default. An
+   * interval of 1 records all of them, and 0 none.
+   *
+   * @throws IllegalArgumentException if the interval is negative.
+   */
+  public static void setCreationSiteSamplingInterval(int interval) {
+    PacketTracker.setSamplingInterval(interval);
+  }
+
+  /** Returns the statistics of the tracked packets, after processing the leaked ones. */
+  public static PacketStats getSnapshot() {
+    return PacketTracker.getSnapshot();
+  }
+
+  /** Returns the number of tracked packets not released yet. */
+  public long getLiveCount() {
+    return liveCount;
+  }
+
+  /** Returns the number of tracked packets created. */
+  public long getCreatedCount() {
+    return createdCount;
+  }
+
+  /** Returns the number of tracked packets released. */
+  public long getReleasedCount() {
+    return releasedCount;
+  }
+
+  /** Returns the number of tracked packets garbage collected without being released. */
+  public long getLeakedCount() {
+    return leakedCount;
+  }
+
+  /** Returns the number of live packets by packet type name, for the types with live packets. */
+  public Map<String, Long> getLiveCountByType() {
+    return liveCountByType;
+  }
+
+  /** Returns the number of leaked packets by packet type name, for the types with leaks. */
+  public Map<String, Long> getLeakedCountByType() {
+    return leakedCountByType;
+  }
+
+  /**
+   * Returns the number of sampled live packets by creation site, i.e. the first caller outside of
+   * this package.
+   */
+  public Map<String, Long> getLiveCountByCreationSite() {
+    return liveCountByCreationSite;
+  }
+
+  @Override
+  public String toString() {
+    return "PacketStats{live="
+        + liveCount
+        + ", created="
+        + createdCount
+        + ", released="
+        + releasedCount
+        + ", leaked="
+        + leakedCount
+        + ", liveByType="
+        + liveCountByType
+        + ", leakedByType="
+        + leakedCountByType
+        + "}";
+  }
+
+  PacketStats(
+      Map<String, PacketTracker.TypeCounts> countsByType, Map<String, Long> liveByCreationSite) {
+    long live = 0;
+    long created = 0;
+    long released = 0;
+    long leaked = 0;
+    ImmutableMap.Builder<String, Long> liveByType = ImmutableMap.builder();
+    ImmutableMap.Builder<String, Long> leakedByType = ImmutableMap.builder();
+    for (Map.Entry<String, PacketTracker.TypeCounts> entry : countsByType.entrySet()) {
+      PacketTracker.TypeCounts counts = entry.getValue();
+      live += counts.live();
+      created += counts.created;
+      released += counts.released;
+      leaked += counts.leaked;
+      if (counts.live() > 0) {
+        liveByType.put(entry.getKey(), counts.live());
+      }
+      if (counts.leaked > 0) {
+        leakedByType.put(entry.getKey(), counts.leaked);
+      }
+    }
+    this.liveCount = live;
+    this.createdCount = created;
+    this.releasedCount = released;
+    this.leakedCount = leaked;
+    this.liveCountByType = liveByType.build();
+    this.leakedCountByType = leakedByType.build();
+    this.liveCountByCreationSite = ImmutableMap.copyOf(liveByCreationSite);
+  }
+}
@@ -0,0 +1,183 @@
+// Copyright 2023 The MediaPipe Authors.
+//
+// Licensed under the Apache License, Version 2.0 (the "License");
+// you may not use this file except in compliance with the License.
+// You may obtain a copy of the License at
+//
+//      http://www.apache.org/licenses/LICENSE-2.0
+//
+// Unless required by applicable law or agreed to in writing, software
+// distributed under the License is distributed on an "AS IS" BASIS,
+// WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+// See the License for the specific language governing permissions and
+// limitations under the License.
+
+package com.google.mediapipe.framework;
+
+import com.google.common.flogger.FluentLogger;
+import java.lang.ref.PhantomReference;
+import java.lang.ref.ReferenceQueue;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.Set;
+import javax.annotation.Nullable;
+
+/**
+ * Tracks the native handles owned by Java {@link Packet}s, see {@link PacketStats}.
+ *
+ * <p>Each tracked packet has a {@link PhantomReference}, enqueued once the packet is garbage
+ * collected. A packet collected before it was released is a leak: it is logged with its creation
+ * site if sampled, and its native handle is released. The queue is drained whenever a packet is
+ * tracked or untracked and when a snapshot is taken, so no thread is needed.
+ */
+final class PacketTracker {
+  private static final FluentLogger logger = FluentLogger.forEnclosingClass();
+  private static final String FRAMEWORK_PACKAGE_PREFIX = "com.google.mediapipe.framework.";
+  static final int DEFAULT_SAMPLING_INTERVAL = 100;
+
+  /** A tracked native handle, kept reachable until its packet is released or leaked. */
+  static final class Record extends PhantomReference<Packet> {
+    final long handle;
+    final long graphHandle;
+    final String typeName;
+    // The caller that created the packet, null if the packet was not sampled.
+    @Nullable final String creationSite;
+
+    Record(
+        Packet packet,
+        ReferenceQueue<Packet> queue,
+        long handle,
+        long graphHandle,
+        String typeName,
+        @Nullable String creationSite) {
+      super(packet, queue);
+      this.handle = handle;
+      this.graphHandle = graphHandle;
+      this.typeName = typeName;
+      this.creationSite = creationSite;
+    }
+  }
+
+  /** Packet counts of a type. */
+  static final class TypeCounts {
+    long created = 0;
+    long released = 0;
+    long leaked = 0;
+
+    long live() {
+      return created - released - leaked;
+    }
+  }
+
+  private static volatile boolean enabled = false;
+  private static int samplingInterval = DEFAULT_SAMPLING_INTERVAL;
+  private static long trackedCount = 0;
+  private static final ReferenceQueue<Packet> queue = new ReferenceQueue<>();
+  private static final Set<Record> records = new HashSet<>();
+  private static final Map<String, TypeCounts> countsByType = new HashMap<>();
+
+  static boolean isEnabled() {
+    return enabled;
+  }
+
+  static void setEnabled(boolean enabled) {
+    PacketTracker.enabled = enabled;
+  }
+
+  static synchronized int getSamplingInterval() {
+    return samplingInterval;
+  }
+
+  static synchronized void setSamplingInterval(int samplingInterval) {
+    if (samplingInterval < 0) {
+      throw new IllegalArgumentException("Sampling interval must be >= 0.");
+    }
+    PacketTracker.samplingInterval = samplingInterval;
+  }
+
+  /** Starts tracking the native handle of {@code packet}. */
+  static synchronized Record track(Packet packet, long handle, long graphHandle, String typeName) {
+    drainLeaks();
+    String creationSite =
+        samplingInterval > 0 && trackedCount % samplingInterval == 0 ? findCreationSite() : null;
+    ++trackedCount;
+    Record record = new Record(packet, queue, handle, graphHandle, typeName, creationSite);
+    records.add(record);
+    countsFor(typeName).created++;
+    return record;
+  }
+
+  /** Stops tracking a packet being released. */
+  static synchronized void untrack(Record record) {
+    if (records.remove(record)) {
+      record.clear();
+      countsFor(record.typeName).released++;
+    }
+    drainLeaks();
+  }
+
+  /**
+   * Stops tracking the packets in the context of a graph being torn down, which releases them, so
+   * that their handles are not released again once the packets are collected.
+   */
+  static synchronized void untrackGraph(long graphHandle) {
+    for (Iterator<Record> it = records.iterator(); it.hasNext(); ) {
+      Record record = it.next();
+      if (record.graphHandle == graphHandle) {
+        it.remove();
+        record.clear();
+        countsFor(record.typeName).released++;
+      }
+    }
+  }
+
+  static synchronized PacketStats getSnapshot() {
+    drainLeaks();
+    Map<String, Long> liveBySite = new HashMap<>();
+    for (Record record : records) {
+      if (record.creationSite != null) {
+        Long count = liveBySite.get(record.creationSite);
+        liveBySite.put(record.creationSite, count == null ? 1 : count + 1);
+      }
+    }
+    return new PacketStats(countsByType, liveBySite);
+  }
+
+  // Must be called with the class lock held, which also keeps the graphs from being torn down while
+  // the leaked handles are released.
+  private static void drainLeaks() {
+    Record record;
+    while ((record = (Record) queue.poll()) != null) {
+      if (!records.remove(record)) {
+        continue;
+      }
+      countsFor(record.typeName).leaked++;
+      logger.atWarning().log(
+          "Packet of type %s was not released before being garbage collected, created at %s.",
+          record.typeName, record.creationSite == null ? "(not sampled)" : record.creationSite);
+      Packet.create(record.handle).release();
+    }
+  }
+
+  private static TypeCounts countsFor(String typeName) {
+    TypeCounts counts = countsByType.get(typeName);
+    if (counts == null) {
+      counts = new TypeCounts();
+      countsByType.put(typeName, counts);
+    }
+    return counts;
+  }
+
+  private static String findCreationSite() {
+    for (StackTraceElement element : new Throwable().getStackTrace()) {
+      if (!element.getClassName().startsWith(FRAMEWORK_PACKAGE_PREFIX)) {
+        return element.toString();
+      }
+    }
+    return "(unknown)";
+  }
+
+  private PacketTracker() {}
+}
@@ -19,6 +19,7 @@ import android.content.Context;
 import android.graphics.Bitmap;
 import android.net.Uri;
 import android.provider.MediaStore;
+import androidx.annotation.Nullable;
 import java.io.IOException;
 
 /**
@@ -37,6 +38,7 @@ public class BitmapImageBuilder {
 
   // Optional fields.
   private long timestamp;
+  @Nullable private Runnable releaseCallback;
 
   /**
    * Creates the builder with a mandatory {@link android.graphics.Bitmap}.
@@ -64,9 +66,22 @@ public class BitmapImageBuilder {
     return this;
   }
 
+  /**
+   * Sets a callback to run once the reference count of the built {@link MPImage} drops to zero,
+   * instead of recycling the {@link android.graphics.Bitmap}, so that the bitmap can be reused,
+   * e.g. given back to a {@link MPImageBufferPool}.
+   */
+  public BitmapImageBuilder setReleaseCallback(Runnable releaseCallback) {
+    this.releaseCallback = releaseCallback;
+    return this;
+  }
+
   /** Builds a {@link MPImage} instance. */
   public MPImage build() {
     return new MPImage(
-        new BitmapImageContainer(bitmap), timestamp, bitmap.getWidth(), bitmap.getHeight());
+        new BitmapImageContainer(bitmap, releaseCallback),
+        timestamp,
+        bitmap.getWidth(),
+        bitmap.getHeight());
   }
 }
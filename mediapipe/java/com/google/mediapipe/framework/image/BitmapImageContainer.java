@@ -16,15 +16,26 @@ limitations under the License.
 package com.google.mediapipe.framework.image;
 
 import android.graphics.Bitmap;
+import androidx.annotation.Nullable;
 import com.google.mediapipe.framework.image.MPImage.MPImageFormat;
 
 class BitmapImageContainer implements MPImageContainer {
 
   private final Bitmap bitmap;
   private final MPImageProperties properties;
+  @Nullable private Runnable releaseCallback;
 
   public BitmapImageContainer(Bitmap bitmap) {
+    this(bitmap, /*releaseCallback=*/ null);
+  }
+
+  /**
+   * Creates a container that runs {@code releaseCallback} instead of recycling the bitmap when it
+   * is closed, e.g. to give the bitmap back to a pool.
+   */
+  BitmapImageContainer(Bitmap bitmap, @Nullable Runnable releaseCallback) {
     this.bitmap = bitmap;
+    this.releaseCallback = releaseCallback;
     this.properties =
         MPImageProperties.builder()
             .setImageFormat(convertFormatCode(bitmap.getConfig()))
@@ -43,6 +54,12 @@ class BitmapImageContainer implements MPImageContainer {
 
   @Override
   public void close() {
+    if (releaseCallback != null) {
+      Runnable callback = releaseCallback;
+      releaseCallback = null;
+      callback.run();
+      return;
+    }
     bitmap.recycle();
   }
 
@@ -18,8 +18,11 @@ package com.google.mediapipe.framework.image;
 import android.annotation.SuppressLint;
 import android.graphics.Bitmap;
 import android.graphics.Bitmap.Config;
+import android.media.Image;
 import android.os.Build.VERSION;
 import android.os.Build.VERSION_CODES;
+import androidx.annotation.Nullable;
+import androidx.annotation.RequiresApi;
 import com.google.auto.value.AutoValue;
 import com.google.mediapipe.framework.image.MPImage.MPImageFormat;
 import java.nio.ByteBuffer;
@@ -34,6 +37,9 @@ import java.util.Locale;
  */
 public class ByteBufferExtractor {
 
+  // The A channel of a little endian RGBA word.
+  private static final int OPAQUE = 0xff000000;
+
   /**
    * Extracts a {@link ByteBuffer} from a {@link MPImage}.
    *
@@ -69,8 +75,16 @@ public class ByteBufferExtractor {
    * <ul>
    *   <li>When extracting RGB images to RGBA format, A channel will always set to 255.
    *   <li>When extracting RGBA images to RGB format, A channel will be dropped.
+   *   <li>NV21 {@link ByteBuffer} images and YUV_420_888 {@link android.media.Image} images are
+   *       converted to RGB or RGBA with the full range BT.601 (JFIF) equations used by Android
+   *       cameras, and A channel will always set to 255.
    * </ul>
    *
+   * <p>Converted buffers are cached in {@code image}, so that extracting the same format again
+   * doesn't convert again. They are allocated for the image and left to the garbage collector, so a
+   * converted {@link ByteBuffer} stays valid after {@code image} is closed. See {@link
+   * #extractPooled} to reuse the memory of the converted buffers instead.
+   *
    * @param image the image to extract buffer from.
    * @param targetFormat the image format of the result bytebuffer.
    * @return the readonly {@link ByteBuffer} stored in {@link MPImage}
@@ -78,38 +92,93 @@ public class ByteBufferExtractor {
    *     conversions.
    */
   public static ByteBuffer extract(MPImage image, @MPImageFormat int targetFormat) {
-    MPImageContainer container;
-    MPImageProperties byteBufferProperties =
-        MPImageProperties.builder()
-            .setStorageType(MPImage.STORAGE_TYPE_BYTEBUFFER)
-            .setImageFormat(targetFormat)
-            .build();
-    if ((container = image.getContainer(byteBufferProperties)) != null) {
-      ByteBufferImageContainer byteBufferImageContainer = (ByteBufferImageContainer) container;
-      return byteBufferImageContainer
+    MPImageContainer container = image.getContainer(byteBufferProperties(targetFormat));
+    if (container != null) {
+      return ((ByteBufferImageContainer) container)
           .getByteBuffer()
           .asReadOnlyBuffer()
           .order(ByteOrder.nativeOrder());
-    } else if ((container = image.getContainer(MPImage.STORAGE_TYPE_BYTEBUFFER)) != null) {
+    }
+    ByteBuffer byteBuffer = convert(image, targetFormat, /*pool=*/ null);
+    boolean unused = image.addContainer(new ByteBufferImageContainer(byteBuffer, targetFormat));
+    return byteBuffer.asReadOnlyBuffer().order(ByteOrder.nativeOrder());
+  }
+
+  /**
+   * Extracts a {@link ByteBuffer} in given {@code targetFormat} from a {@link MPImage} into a
+   * buffer of {@code pool}, e.g. to convert camera frames without allocating a buffer per frame.
+   *
+   * <p>Unlike {@link #extract(MPImage, int)}, the result is not cached in {@code image}, and is
+   * always a new copy, even if {@code image} already holds the format. The returned buffer belongs
+   * to the caller, independently of {@code image}, until the caller gives it back with {@link
+   * MPImageBufferPool#release}; it must not be used afterwards. The conversions follow {@link
+   * #extract(MPImage, int)}.
+   *
+   * @param image the image to extract buffer from.
+   * @param targetFormat the image format of the result bytebuffer.
+   * @param pool the pool to take the result buffer from.
+   * @return a writable direct {@link ByteBuffer} of {@code pool}, in native byte order.
+   * @throws IllegalArgumentException when the extraction requires unsupported format or data type
+   *     conversions.
+   */
+  public static ByteBuffer extractPooled(
+      MPImage image, @MPImageFormat int targetFormat, MPImageBufferPool pool) {
+    MPImageContainer container = image.getContainer(byteBufferProperties(targetFormat));
+    ByteBuffer byteBuffer;
+    if (container != null) {
+      ByteBuffer source = ((ByteBufferImageContainer) container).getByteBuffer().duplicate();
+      source.clear();
+      byteBuffer = pool.acquire(source.capacity());
+      byteBuffer.put(source);
+      byteBuffer.rewind();
+    } else {
+      byteBuffer = convert(image, targetFormat, pool);
+    }
+    return byteBuffer.order(ByteOrder.nativeOrder());
+  }
+
+  private static MPImageProperties byteBufferProperties(@MPImageFormat int imageFormat) {
+    return MPImageProperties.builder()
+        .setStorageType(MPImage.STORAGE_TYPE_BYTEBUFFER)
+        .setImageFormat(imageFormat)
+        .build();
+  }
+
+  /**
+   * Converts the storage of {@code image} to a new buffer in {@code targetFormat}, taken from
+   * {@code pool}, or allocated if {@code pool} is null.
+   */
+  private static ByteBuffer convert(
+      MPImage image, @MPImageFormat int targetFormat, @Nullable MPImageBufferPool pool) {
+    MPImageContainer container;
+    if ((container = image.getContainer(MPImage.STORAGE_TYPE_BYTEBUFFER)) != null) {
       ByteBufferImageContainer byteBufferImageContainer = (ByteBufferImageContainer) container;
-      @MPImageFormat int sourceFormat = byteBufferImageContainer.getImageFormat();
-      return convertByteBuffer(byteBufferImageContainer.getByteBuffer(), sourceFormat, targetFormat)
-          .asReadOnlyBuffer()
-          .order(ByteOrder.nativeOrder());
+      return convertByteBuffer(
+          byteBufferImageContainer.getByteBuffer(),
+          byteBufferImageContainer.getImageFormat(),
+          targetFormat,
+          image.getWidth(),
+          image.getHeight(),
+          pool);
     } else if ((container = image.getContainer(MPImage.STORAGE_TYPE_BITMAP)) != null) {
       BitmapImageContainer bitmapImageContainer = (BitmapImageContainer) container;
-      ByteBuffer byteBuffer =
-          extractByteBufferFromBitmap(bitmapImageContainer.getBitmap(), targetFormat)
-              .asReadOnlyBuffer();
-      boolean unused = image.addContainer(new ByteBufferImageContainer(byteBuffer, targetFormat));
-      return byteBuffer;
+      return extractByteBufferFromBitmap(bitmapImageContainer.getBitmap(), targetFormat, pool);
+    } else if (VERSION.SDK_INT >= VERSION_CODES.KITKAT
+        && (container = image.getContainer(MPImage.STORAGE_TYPE_MEDIA_IMAGE)) != null) {
+      MediaImageContainer mediaImageContainer = (MediaImageContainer) container;
+      return extractByteBufferFromMediaImage(mediaImageContainer.getImage(), targetFormat, pool);
     } else {
       throw new IllegalArgumentException(
-          "Extracting ByteBuffer from a MPImage created by objects other than Bitmap or"
-              + " Bytebuffer is not supported");
+          "Extracting ByteBuffer from a MPImage created by objects other than Bitmap, Bytebuffer"
+              + " or Media Image is not supported");
     }
   }
 
+  /** Returns a direct buffer of {@code capacity} bytes from {@code pool}, or a new one if null. */
+  private static ByteBuffer allocate(@Nullable MPImageBufferPool pool, int capacity) {
+    return pool == null ? ByteBuffer.allocateDirect(capacity) : pool.acquire(capacity);
+  }
+
   /** A wrapper for a {@link ByteBuffer} and its {@link MPImageFormat}. */
   @AutoValue
   abstract static class Result {
@@ -143,12 +212,10 @@ public class ByteBufferExtractor {
     if ((container = image.getContainer(MPImage.STORAGE_TYPE_BITMAP)) != null) {
       Bitmap bitmap = ((BitmapImageContainer) container).getBitmap();
       @MPImageFormat int format = adviseImageFormat(bitmap);
-      Result result =
-          Result.create(extractByteBufferFromBitmap(bitmap, format).asReadOnlyBuffer(), format);
+      ByteBuffer buffer = extractByteBufferFromBitmap(bitmap, format, /*pool=*/ null);
 
-      boolean unused =
-          image.addContainer(new ByteBufferImageContainer(result.buffer(), result.format()));
-      return result;
+      boolean unused = image.addContainer(new ByteBufferImageContainer(buffer, format));
+      return Result.create(buffer.asReadOnlyBuffer(), format);
     } else if ((container = image.getContainer(MPImage.STORAGE_TYPE_BYTEBUFFER)) != null) {
       ByteBufferImageContainer byteBufferImageContainer = (ByteBufferImageContainer) container;
       return Result.create(
@@ -175,26 +242,34 @@ public class ByteBufferExtractor {
   }
 
   private static ByteBuffer extractByteBufferFromBitmap(
-      Bitmap bitmap, @MPImageFormat int imageFormat) {
+      Bitmap bitmap, @MPImageFormat int imageFormat, @Nullable MPImageBufferPool pool) {
     if (VERSION.SDK_INT >= VERSION_CODES.JELLY_BEAN_MR1 && bitmap.isPremultiplied()) {
       throw new IllegalArgumentException(
           "Extracting ByteBuffer from a MPImage created by a premultiplied Bitmap is not"
               + " supported");
     }
     if (bitmap.getConfig() == Config.ARGB_8888) {
+      int w = bitmap.getWidth();
+      int h = bitmap.getHeight();
       if (imageFormat == MPImage.IMAGE_FORMAT_RGBA) {
-        ByteBuffer buffer = ByteBuffer.allocateDirect(bitmap.getByteCount());
+        ByteBuffer buffer = allocate(pool, bitmap.getByteCount());
         bitmap.copyPixelsToBuffer(buffer);
         buffer.rewind();
         return buffer;
+      } else if (imageFormat == MPImage.IMAGE_FORMAT_RGB && bitmap.getRowBytes() == w * 4) {
+        // Copies the RGBA pixels to a temporary buffer of the shared pool, which never escapes, and
+        // drops their A channel a word at a time.
+        MPImageBufferPool sharedPool = MPImageBufferPool.getSharedInstance();
+        ByteBuffer rgba = sharedPool.acquire(bitmap.getByteCount());
+        bitmap.copyPixelsToBuffer(rgba);
+        ByteBuffer buffer = allocate(pool, w * h * 3);
+        convertRgbaToRgb(rgba, buffer, w * h);
+        sharedPool.release(rgba);
+        return buffer;
       } else if (imageFormat == MPImage.IMAGE_FORMAT_RGB) {
-        // TODO: Try Use RGBA buffer to create RGB buffer which might be faster.
-        int w = bitmap.getWidth();
-        int h = bitmap.getHeight();
         int[] pixels = new int[w * h];
         bitmap.getPixels(pixels, 0, w, 0, 0, w, h);
-        ByteBuffer buffer = ByteBuffer.allocateDirect(w * h * 3);
-        buffer.order(ByteOrder.nativeOrder());
+        ByteBuffer buffer = allocate(pool, w * h * 3);
         for (int pixel : pixels) {
           // getPixels returns Color in ARGB rather than copyPixelsToBuffer which returns RGBA
           buffer.put((byte) ((pixel >> 16) & 0xff));
@@ -212,44 +287,92 @@ public class ByteBufferExtractor {
             bitmap.getConfig(), imageFormat));
   }
 
+  @RequiresApi(VERSION_CODES.KITKAT)
+  private static ByteBuffer extractByteBufferFromMediaImage(
+      Image mediaImage, @MPImageFormat int imageFormat, @Nullable MPImageBufferPool pool) {
+    if (mediaImage.getFormat() != android.graphics.ImageFormat.YUV_420_888
+        || (imageFormat != MPImage.IMAGE_FORMAT_RGB && imageFormat != MPImage.IMAGE_FORMAT_RGBA)) {
+      throw new IllegalArgumentException(
+          String.format(
+              Locale.ENGLISH,
+              "Extracting ByteBuffer from a MPImage created by Media Image and convert from"
+                  + " graphics format %d to format %d is not supported",
+              mediaImage.getFormat(),
+              imageFormat));
+    }
+    int width = mediaImage.getWidth();
+    int height = mediaImage.getHeight();
+    Image.Plane[] planes = mediaImage.getPlanes();
+    ByteBuffer target =
+        allocate(pool, width * height * (imageFormat == MPImage.IMAGE_FORMAT_RGBA ? 4 : 3));
+    convertYuvToRgb(
+        planes[0].getBuffer(),
+        planes[0].getRowStride(),
+        planes[0].getPixelStride(),
+        planes[1].getBuffer(),
+        planes[2].getBuffer(),
+        planes[1].getRowStride(),
+        planes[1].getPixelStride(),
+        width,
+        height,
+        target,
+        imageFormat == MPImage.IMAGE_FORMAT_RGBA);
+    return target;
+  }
+
   private static ByteBuffer convertByteBuffer(
-      ByteBuffer source, @MPImageFormat int sourceFormat, @MPImageFormat int targetFormat) {
+      ByteBuffer source,
+      @MPImageFormat int sourceFormat,
+      @MPImageFormat int targetFormat,
+      int width,
+      int height,
+      @Nullable MPImageBufferPool pool) {
     if (sourceFormat == MPImage.IMAGE_FORMAT_RGB && targetFormat == MPImage.IMAGE_FORMAT_RGBA) {
-      ByteBuffer target = ByteBuffer.allocateDirect(source.capacity() / 3 * 4);
-      // Extend the buffer when the target is longer than the source. Use two cursors and sweep the
-      // array reversely to convert in-place.
-      byte[] array = new byte[target.capacity()];
-      source.get(array, 0, source.capacity());
-      source.rewind();
-      int rgbCursor = source.capacity();
-      int rgbaCursor = target.capacity();
-      while (rgbCursor != rgbaCursor) {
-        array[--rgbaCursor] = (byte) 0xff; // A
-        array[--rgbaCursor] = array[--rgbCursor]; // B
-        array[--rgbaCursor] = array[--rgbCursor]; // G
-        array[--rgbaCursor] = array[--rgbCursor]; // R
-      }
-      target.put(array, 0, target.capacity());
-      target.rewind();
+      int pixelCount = source.capacity() / 3;
+      ByteBuffer target = allocate(pool, pixelCount * 4);
+      convertRgbToRgba(source, target, pixelCount);
       return target;
     } else if (sourceFormat == MPImage.IMAGE_FORMAT_RGBA
         && targetFormat == MPImage.IMAGE_FORMAT_RGB) {
-      ByteBuffer target = ByteBuffer.allocateDirect(source.capacity() / 4 * 3);
-      // Shrink the buffer when the target is shorter than the source. Use two cursors and sweep the
-      // array to convert in-place.
-      byte[] array = new byte[source.capacity()];
-      source.get(array, 0, source.capacity());
-      source.rewind();
-      int rgbaCursor = 0;
-      int rgbCursor = 0;
-      while (rgbaCursor < array.length) {
-        array[rgbCursor++] = array[rgbaCursor++]; // R
-        array[rgbCursor++] = array[rgbaCursor++]; // G
-        array[rgbCursor++] = array[rgbaCursor++]; // B
-        rgbaCursor++;
+      int pixelCount = source.capacity() / 4;
+      ByteBuffer target = allocate(pool, pixelCount * 3);
+      convertRgbaToRgb(source, target, pixelCount);
+      return target;
+    } else if (sourceFormat == MPImage.IMAGE_FORMAT_NV21
+        && (targetFormat == MPImage.IMAGE_FORMAT_RGB
+            || targetFormat == MPImage.IMAGE_FORMAT_RGBA)) {
+      // The Y plane is followed by the interleaved V and U planes at half resolution.
+      int uvRowStride = (width + 1) / 2 * 2;
+      int vOffset = width * height;
+      if (source.capacity() < vOffset + uvRowStride * ((height + 1) / 2)) {
+        throw new IllegalArgumentException(
+            String.format(
+                Locale.ENGLISH,
+                "The NV21 bytebuffer of %d bytes is too small for a %dx%d image",
+                source.capacity(),
+                width,
+                height));
       }
-      target.put(array, 0, target.capacity());
-      target.rewind();
+      boolean rgba = targetFormat == MPImage.IMAGE_FORMAT_RGBA;
+      ByteBuffer target = allocate(pool, width * height * (rgba ? 4 : 3));
+      ByteBuffer y = source.duplicate();
+      y.position(0);
+      ByteBuffer v = source.duplicate();
+      v.position(vOffset);
+      ByteBuffer u = source.duplicate();
+      u.position(vOffset + 1);
+      convertYuvToRgb(
+          y,
+          width,
+          /*yPixelStride=*/ 1,
+          u.slice(),
+          v.slice(),
+          uvRowStride,
+          /*uvPixelStride=*/ 2,
+          width,
+          height,
+          target,
+          rgba);
       return target;
     } else {
       throw new IllegalArgumentException(
@@ -261,6 +384,110 @@ public class ByteBufferExtractor {
     }
   }
 
+  /**
+   * Converts {@code pixelCount} RGB pixels to RGBA, four pixels at a time as three source words and
+   * four target words.
+   */
+  private static void convertRgbToRgba(ByteBuffer source, ByteBuffer target, int pixelCount) {
+    ByteBuffer rgb = source.duplicate().order(ByteOrder.LITTLE_ENDIAN);
+    ByteBuffer rgba = target.duplicate().order(ByteOrder.LITTLE_ENDIAN);
+    int pixel = 0;
+    for (; pixel + 3 < pixelCount; pixel += 4) {
+      int rgbOffset = pixel * 3;
+      int rgbaOffset = pixel * 4;
+      // Little endian words of RGBR, GBRG and BRGB.
+      int word0 = rgb.getInt(rgbOffset);
+      int word1 = rgb.getInt(rgbOffset + 4);
+      int word2 = rgb.getInt(rgbOffset + 8);
+      rgba.putInt(rgbaOffset, word0 | OPAQUE);
+      rgba.putInt(rgbaOffset + 4, (word0 >>> 24) | (word1 << 8) | OPAQUE);
+      rgba.putInt(rgbaOffset + 8, (word1 >>> 16) | (word2 << 16) | OPAQUE);
+      rgba.putInt(rgbaOffset + 12, (word2 >>> 8) | OPAQUE);
+    }
+    for (; pixel < pixelCount; ++pixel) {
+      rgba.put(pixel * 4, rgb.get(pixel * 3)); // R
+      rgba.put(pixel * 4 + 1, rgb.get(pixel * 3 + 1)); // G
+      rgba.put(pixel * 4 + 2, rgb.get(pixel * 3 + 2)); // B
+      rgba.put(pixel * 4 + 3, (byte) 0xff); // A
+    }
+  }
+
+  /**
+   * Converts {@code pixelCount} RGBA pixels to RGB, four pixels at a time as four source words and
+   * three target words.
+   */
+  private static void convertRgbaToRgb(ByteBuffer source, ByteBuffer target, int pixelCount) {
+    ByteBuffer rgba = source.duplicate().order(ByteOrder.LITTLE_ENDIAN);
+    ByteBuffer rgb = target.duplicate().order(ByteOrder.LITTLE_ENDIAN);
+    int pixel = 0;
+    for (; pixel + 3 < pixelCount; pixel += 4) {
+      int rgbaOffset = pixel * 4;
+      int rgbOffset = pixel * 3;
+      int pixel0 = rgba.getInt(rgbaOffset);
+      int pixel1 = rgba.getInt(rgbaOffset + 4);
+      int pixel2 = rgba.getInt(rgbaOffset + 8);
+      int pixel3 = rgba.getInt(rgbaOffset + 12);
+      rgb.putInt(rgbOffset, (pixel0 & 0xffffff) | (pixel1 << 24));
+      rgb.putInt(rgbOffset + 4, ((pixel1 >>> 8) & 0xffff) | (pixel2 << 16));
+      rgb.putInt(rgbOffset + 8, ((pixel2 >>> 16) & 0xff) | (pixel3 << 8));
+    }
+    for (; pixel < pixelCount; ++pixel) {
+      rgb.put(pixel * 3, rgba.get(pixel * 4)); // R
+      rgb.put(pixel * 3 + 1, rgba.get(pixel * 4 + 1)); // G
+      rgb.put(pixel * 3 + 2, rgba.get(pixel * 4 + 2)); // B
+    }
+  }
+
+  /**
+   * Converts YUV 4:2:0 planes to RGB or RGBA with the full range BT.601 equations, in 10 bit fixed
+   * point. The U and V planes share their strides, and the indices of all planes start at their
+   * position.
+   */
+  private static void convertYuvToRgb(
+      ByteBuffer y,
+      int yRowStride,
+      int yPixelStride,
+      ByteBuffer u,
+      ByteBuffer v,
+      int uvRowStride,
+      int uvPixelStride,
+      int width,
+      int height,
+      ByteBuffer target,
+      boolean rgba) {
+    ByteBuffer output = target.duplicate().order(ByteOrder.LITTLE_ENDIAN);
+    int yBase = y.position();
+    int uBase = u.position();
+    int vBase = v.position();
+    int outputOffset = 0;
+    for (int row = 0; row < height; ++row) {
+      int yRow = yBase + row * yRowStride;
+      int uvRow = (row >> 1) * uvRowStride;
+      for (int column = 0; column < width; ++column) {
+        int luma = y.get(yRow + column * yPixelStride) & 0xff;
+        int uvOffset = uvRow + (column >> 1) * uvPixelStride;
+        int cb = (u.get(uBase + uvOffset) & 0xff) - 128;
+        int cr = (v.get(vBase + uvOffset) & 0xff) - 128;
+        int r = clamp(luma + ((1436 * cr) >> 10));
+        int g = clamp(luma - ((352 * cb + 731 * cr) >> 10));
+        int b = clamp(luma + ((1815 * cb) >> 10));
+        if (rgba) {
+          output.putInt(outputOffset, r | (g << 8) | (b << 16) | OPAQUE);
+          outputOffset += 4;
+        } else {
+          output.put(outputOffset, (byte) r);
+          output.put(outputOffset + 1, (byte) g);
+          output.put(outputOffset + 2, (byte) b);
+          outputOffset += 3;
+        }
+      }
+    }
+  }
+
+  private static int clamp(int value) {
+    return value < 0 ? 0 : (value > 255 ? 255 : value);
+  }
+
   // ByteBuffer is not able to be instantiated.
   private ByteBufferExtractor() {}
 }
@@ -15,6 +15,7 @@ limitations under the License.
 
 package com.google.mediapipe.framework.image;
 
+import androidx.annotation.Nullable;
 import com.google.mediapipe.framework.image.MPImage.MPImageFormat;
 import java.nio.ByteBuffer;
 
@@ -36,6 +37,7 @@ public class ByteBufferImageBuilder {
 
   // Optional fields.
   private long timestamp;
+  @Nullable private Runnable releaseCallback;
 
   /**
    * Creates the builder with mandatory {@link ByteBuffer} and the represented image.
@@ -64,8 +66,22 @@ public class ByteBufferImageBuilder {
     return this;
   }
 
+  /**
+   * Sets a callback to run once the reference count of the built {@link MPImage} drops to zero, so
+   * that the {@link ByteBuffer} can be reused, e.g. given back to a pool. The buffer must not be
+   * read through the image afterwards.
+   */
+  public ByteBufferImageBuilder setReleaseCallback(Runnable releaseCallback) {
+    this.releaseCallback = releaseCallback;
+    return this;
+  }
+
   /** Builds a {@link MPImage} instance. */
   public MPImage build() {
-    return new MPImage(new ByteBufferImageContainer(buffer, imageFormat), timestamp, width, height);
+    return new MPImage(
+        new ByteBufferImageContainer(buffer, imageFormat, releaseCallback),
+        timestamp,
+        width,
+        height);
   }
 }
@@ -15,6 +15,7 @@ limitations under the License.
 
 package com.google.mediapipe.framework.image;
 
+import androidx.annotation.Nullable;
 import com.google.mediapipe.framework.image.MPImage.MPImageFormat;
 import java.nio.ByteBuffer;
 
@@ -22,9 +23,20 @@ class ByteBufferImageContainer implements MPImageContainer {
 
   private final ByteBuffer buffer;
   private final MPImageProperties properties;
+  @Nullable private Runnable releaseCallback;
 
   public ByteBufferImageContainer(ByteBuffer buffer, @MPImageFormat int imageFormat) {
+    this(buffer, imageFormat, /*releaseCallback=*/ null);
+  }
+
+  /**
+   * Creates a container that runs {@code releaseCallback} when it is closed, e.g. to give the
+   * buffer back to a pool.
+   */
+  ByteBufferImageContainer(
+      ByteBuffer buffer, @MPImageFormat int imageFormat, @Nullable Runnable releaseCallback) {
     this.buffer = buffer;
+    this.releaseCallback = releaseCallback;
     this.properties =
         MPImageProperties.builder()
             .setStorageType(MPImage.STORAGE_TYPE_BYTEBUFFER)
@@ -49,6 +61,12 @@ class ByteBufferImageContainer implements MPImageContainer {
 
   @Override
   public void close() {
-    // No op for ByteBuffer.
+    // The release callback runs at most once. Buffers without one are left to the garbage
+    // collector.
+    if (releaseCallback != null) {
+      Runnable callback = releaseCallback;
+      releaseCallback = null;
+      callback.run();
+    }
   }
 }
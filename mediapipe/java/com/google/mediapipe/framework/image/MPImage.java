@@ -43,6 +43,8 @@ import java.util.Map.Entry;
  * <p>{@link MPImage} uses reference counting to maintain internal storage. When it is created the
  * reference count is 1. Developer can call {@link #close()} to reduce reference count to release
  * internal storage earlier, otherwise Java garbage collection will release the storage eventually.
+ * Image producers can set a release callback on the builders, or use {@link MPImageBufferPool}, to
+ * reuse the storage once the last holder closes the image.
  *
  * <p>To extract concrete image, first check {@link StorageType} and then use the provided
  * extractors:
@@ -138,11 +140,14 @@ public class MPImage implements Closeable {
    *
    * <p>When {@link MPImage} is created, it has 1 reference count.
    *
-   * <p>When the reference count becomes 0, it will release the resource under the hood.
+   * <p>When the reference count becomes 0, it will release the resource under the hood, running
+   * the release callbacks of its containers. Closing a released image has no effect.
    */
   @Override
-  // TODO: Create an internal flag to indicate image is closed, or use referenceCount
   public synchronized void close() {
+    if (referenceCount == 0) {
+      return;
+    }
     referenceCount -= 1;
     if (referenceCount == 0) {
       for (MPImageContainer imageContainer : containerMap.values()) {
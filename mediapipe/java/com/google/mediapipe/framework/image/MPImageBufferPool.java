@@ -0,0 +1,256 @@
+/* Copyright 2023 The MediaPipe Authors. All Rights Reserved.
+
+Licensed under the Apache License, Version 2.0 (the "License");
+you may not use this file except in compliance with the License.
+You may obtain a copy of the License at
+
+    http://www.apache.org/licenses/LICENSE-2.0
+
+Unless required by applicable law or agreed to in writing, software
+distributed under the License is distributed on an "AS IS" BASIS,
+WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+See the License for the specific language governing permissions and
+limitations under the License.
+==============================================================================*/
+
+package com.google.mediapipe.framework.image;
+
+import android.graphics.Bitmap;
+import com.google.mediapipe.framework.image.MPImage.MPImageFormat;
+import java.nio.ByteBuffer;
+import java.util.ArrayDeque;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+
+/**
+ * Pool of image memory, so that image producers such as cameras, decoders and task outputs reuse
+ * the memory of the frames that are done with instead of allocating it per frame.
+ *
+ * <p>Direct {@link ByteBuffer}s are pooled by capacity, and mutable {@link Bitmap}s by size and
+ * config. The {@link MPImage}s built by {@link #createImage(ByteBuffer, int, int, int)} and {@link
+ * #createImage(Bitmap)} give their memory back to the pool when their reference count drops to
+ * zero, i.e. when the last holder calls {@link MPImage#close()}. Images that are never closed are
+ * left to the garbage collector as usual. The buffers returned by {@link
+ * ByteBufferExtractor#extractPooled} are given back by their caller with {@link #release}.
+ *
+ * <p>Released memory is kept until the pool holds {@link #getMaxPooledBytes()} bytes, beyond which
+ * it is left to the garbage collector. All the methods are thread-safe.
+ */
+public final class MPImageBufferPool {
+
+  private static final long DEFAULT_MAX_POOLED_BYTES = 32L << 20;
+  private static final MPImageBufferPool sharedInstance =
+      new MPImageBufferPool(DEFAULT_MAX_POOLED_BYTES);
+
+  private final Map<Integer, ArrayDeque<ByteBuffer>> freeBuffers = new HashMap<>();
+  private final Map<List<Object>, ArrayDeque<Bitmap>> freeBitmaps = new HashMap<>();
+  private long maxPooledBytes;
+  private long pooledBytes = 0;
+  private int pooledBufferCount = 0;
+  private long bufferAllocationCount = 0;
+  private long bufferReuseCount = 0;
+
+  /**
+   * Returns the shared pool, holding up to 32 MiB by default. {@link ByteBufferExtractor} also
+   * takes its temporary conversion buffers from it.
+   *
+   * <p>Frames of the same size are best served by the same pool, so producers should use this pool
+   * unless they need a separate budget.
+   */
+  public static MPImageBufferPool getSharedInstance() {
+    return sharedInstance;
+  }
+
+  /** Creates a pool that holds up to {@code maxPooledBytes} bytes of released memory. */
+  public MPImageBufferPool(long maxPooledBytes) {
+    this.maxPooledBytes = maxPooledBytes;
+  }
+
+  /** Returns the maximum number of bytes held by the pool. */
+  public synchronized long getMaxPooledBytes() {
+    return maxPooledBytes;
+  }
+
+  /** Sets the maximum number of bytes held by the pool, dropping the memory beyond it. */
+  public synchronized void setMaxPooledBytes(long maxPooledBytes) {
+    this.maxPooledBytes = maxPooledBytes;
+    for (ArrayDeque<ByteBuffer> buffers : freeBuffers.values()) {
+      while (pooledBytes > maxPooledBytes && !buffers.isEmpty()) {
+        pooledBytes -= buffers.pop().capacity();
+        --pooledBufferCount;
+      }
+    }
+    for (ArrayDeque<Bitmap> bitmaps : freeBitmaps.values()) {
+      while (pooledBytes > maxPooledBytes && !bitmaps.isEmpty()) {
+        Bitmap bitmap = bitmaps.pop();
+        pooledBytes -= bitmap.getByteCount();
+        bitmap.recycle();
+      }
+    }
+  }
+
+  /** Returns the number of bytes of released memory held by the pool. */
+  public synchronized long getPooledBytes() {
+    return pooledBytes;
+  }
+
+  /** Returns the number of released {@link ByteBuffer}s held by the pool. */
+  public synchronized int getPooledBufferCount() {
+    return pooledBufferCount;
+  }
+
+  /** Returns the number of {@link ByteBuffer}s allocated by {@link #acquire}. */
+  public synchronized long getBufferAllocationCount() {
+    return bufferAllocationCount;
+  }
+
+  /** Returns the number of {@link ByteBuffer}s reused by {@link #acquire}. */
+  public synchronized long getBufferReuseCount() {
+    return bufferReuseCount;
+  }
+
+  /**
+   * Returns the size in bytes of an image of {@code width} x {@code height} pixels in {@code
+   * imageFormat}, with the chroma planes of YUV formats at half resolution.
+   *
+   * @throws IllegalArgumentException if the format has no fixed size, e.g. JPEG.
+   */
+  public static int getBufferSize(int width, int height, @MPImageFormat int imageFormat) {
+    switch (imageFormat) {
+      case MPImage.IMAGE_FORMAT_RGBA:
+      case MPImage.IMAGE_FORMAT_VEC32F1:
+        return width * height * 4;
+      case MPImage.IMAGE_FORMAT_RGB:
+        return width * height * 3;
+      case MPImage.IMAGE_FORMAT_ALPHA:
+        return width * height;
+      case MPImage.IMAGE_FORMAT_VEC32F2:
+        return width * height * 8;
+      case MPImage.IMAGE_FORMAT_NV12:
+      case MPImage.IMAGE_FORMAT_NV21:
+      case MPImage.IMAGE_FORMAT_YV12:
+      case MPImage.IMAGE_FORMAT_YV21:
+      case MPImage.IMAGE_FORMAT_YUV_420_888:
+        return width * height + 2 * ((width + 1) / 2) * ((height + 1) / 2);
+      default:
+        throw new IllegalArgumentException(
+            String.format(Locale.ENGLISH, "Image format %d has no fixed size.", imageFormat));
+    }
+  }
+
+  /**
+   * Returns a direct {@link ByteBuffer} for an image of {@code width} x {@code height} pixels in
+   * {@code imageFormat}. See {@link #acquire(int)}.
+   *
+   * @throws IllegalArgumentException if the format has no fixed size, e.g. JPEG.
+   */
+  public ByteBuffer acquire(int width, int height, @MPImageFormat int imageFormat) {
+    return acquire(getBufferSize(width, height, imageFormat));
+  }
+
+  /**
+   * Returns a direct {@link ByteBuffer} of {@code capacity} bytes, with its position at 0 and its
+   * limit at its capacity. The content of a reused buffer is undefined.
+   */
+  public ByteBuffer acquire(int capacity) {
+    synchronized (this) {
+      ArrayDeque<ByteBuffer> buffers = freeBuffers.get(capacity);
+      if (buffers != null && !buffers.isEmpty()) {
+        ByteBuffer buffer = buffers.pop();
+        pooledBytes -= capacity;
+        --pooledBufferCount;
+        ++bufferReuseCount;
+        buffer.clear();
+        return buffer;
+      }
+      ++bufferAllocationCount;
+    }
+    return ByteBuffer.allocateDirect(capacity);
+  }
+
+  /**
+   * Gives back a buffer returned by {@link #acquire}. The buffer and its views must not be used
+   * afterwards.
+   */
+  public synchronized void release(ByteBuffer buffer) {
+    if (!buffer.isDirect() || pooledBytes + buffer.capacity() > maxPooledBytes) {
+      return;
+    }
+    ArrayDeque<ByteBuffer> buffers = freeBuffers.get(buffer.capacity());
+    if (buffers == null) {
+      buffers = new ArrayDeque<>();
+      freeBuffers.put(buffer.capacity(), buffers);
+    }
+    buffers.push(buffer);
+    pooledBytes += buffer.capacity();
+    ++pooledBufferCount;
+  }
+
+  /**
+   * Returns a mutable {@link Bitmap} of {@code width} x {@code height} pixels in {@code config}.
+   * The content of a reused bitmap is undefined.
+   */
+  public Bitmap acquireBitmap(int width, int height, Bitmap.Config config) {
+    synchronized (this) {
+      ArrayDeque<Bitmap> bitmaps = freeBitmaps.get(bitmapKey(width, height, config));
+      if (bitmaps != null) {
+        for (Iterator<Bitmap> it = bitmaps.iterator(); it.hasNext(); ) {
+          Bitmap bitmap = it.next();
+          it.remove();
+          pooledBytes -= bitmap.getByteCount();
+          if (!bitmap.isRecycled()) {
+            return bitmap;
+          }
+        }
+      }
+    }
+    return Bitmap.createBitmap(width, height, config);
+  }
+
+  /**
+   * Gives back a bitmap returned by {@link #acquireBitmap}. The bitmap must not be used
+   * afterwards.
+   */
+  public synchronized void releaseBitmap(Bitmap bitmap) {
+    if (bitmap.isRecycled()
+        || !bitmap.isMutable()
+        || pooledBytes + bitmap.getByteCount() > maxPooledBytes) {
+      return;
+    }
+    List<Object> key = bitmapKey(bitmap.getWidth(), bitmap.getHeight(), bitmap.getConfig());
+    ArrayDeque<Bitmap> bitmaps = freeBitmaps.get(key);
+    if (bitmaps == null) {
+      bitmaps = new ArrayDeque<>();
+      freeBitmaps.put(key, bitmaps);
+    }
+    bitmaps.push(bitmap);
+    pooledBytes += bitmap.getByteCount();
+  }
+
+  /**
+   * Builds a {@link MPImage} from a buffer returned by {@link #acquire}, which goes back to the
+   * pool when the reference count of the image drops to zero.
+   */
+  public MPImage createImage(
+      ByteBuffer buffer, int width, int height, @MPImageFormat int imageFormat) {
+    return new ByteBufferImageBuilder(buffer, width, height, imageFormat)
+        .setReleaseCallback(() -> release(buffer))
+        .build();
+  }
+
+  /**
+   * Builds a {@link MPImage} from a bitmap returned by {@link #acquireBitmap}, which goes back to
+   * the pool instead of being recycled when the reference count of the image drops to zero.
+   */
+  public MPImage createImage(Bitmap bitmap) {
+    return new BitmapImageBuilder(bitmap).setReleaseCallback(() -> releaseBitmap(bitmap)).build();
+  }
+
+  private static List<Object> bitmapKey(int width, int height, Bitmap.Config config) {
+    return Arrays.asList(width, height, config);
+  }
+}
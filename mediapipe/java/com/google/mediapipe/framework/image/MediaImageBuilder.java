@@ -17,6 +17,7 @@ package com.google.mediapipe.framework.image;
 
 import android.media.Image;
 import android.os.Build.VERSION_CODES;
+import androidx.annotation.Nullable;
 import androidx.annotation.RequiresApi;
 
 /**
@@ -35,6 +36,7 @@ public class MediaImageBuilder {
 
   // Optional fields.
   private long timestamp;
+  @Nullable private Runnable releaseCallback;
 
   /**
    * Creates the builder with a mandatory {@link android.media.Image}.
@@ -52,10 +54,19 @@ public class MediaImageBuilder {
     return this;
   }
 
+  /**
+   * Sets a callback to run once the reference count of the built {@link MPImage} drops to zero,
+   * after closing the {@link android.media.Image}, e.g. to let a camera produce the next frame.
+   */
+  public MediaImageBuilder setReleaseCallback(Runnable releaseCallback) {
+    this.releaseCallback = releaseCallback;
+    return this;
+  }
+
   /** Builds a {@link MPImage} instance. */
   public MPImage build() {
     return new MPImage(
-        new MediaImageContainer(mediaImage),
+        new MediaImageContainer(mediaImage, releaseCallback),
         timestamp,
         mediaImage.getWidth(),
         mediaImage.getHeight());
@@ -19,6 +19,7 @@ import android.media.Image;
 import android.os.Build;
 import android.os.Build.VERSION;
 import android.os.Build.VERSION_CODES;
+import androidx.annotation.Nullable;
 import androidx.annotation.RequiresApi;
 import com.google.mediapipe.framework.image.MPImage.MPImageFormat;
 
@@ -27,9 +28,16 @@ class MediaImageContainer implements MPImageContainer {
 
   private final Image mediaImage;
   private final MPImageProperties properties;
+  @Nullable private Runnable releaseCallback;
 
   public MediaImageContainer(Image mediaImage) {
+    this(mediaImage, /*releaseCallback=*/ null);
+  }
+
+  /** Creates a container that runs {@code releaseCallback} after closing the image. */
+  MediaImageContainer(Image mediaImage, @Nullable Runnable releaseCallback) {
     this.mediaImage = mediaImage;
+    this.releaseCallback = releaseCallback;
     this.properties =
         MPImageProperties.builder()
             .setStorageType(MPImage.STORAGE_TYPE_MEDIA_IMAGE)
@@ -49,6 +57,11 @@ class MediaImageContainer implements MPImageContainer {
   @Override
   public void close() {
     mediaImage.close();
+    if (releaseCallback != null) {
+      Runnable callback = releaseCallback;
+      releaseCallback = null;
+      callback.run();
+    }
   }
 
   @MPImageFormat
@@ -0,0 +1,100 @@
+// Copyright 2023 The MediaPipe Authors.
+//
+// Licensed under the Apache License, Version 2.0 (the "License");
+// you may not use this file except in compliance with the License.
+// You may obtain a copy of the License at
+//
+//      http://www.apache.org/licenses/LICENSE-2.0
+//
+// Unless required by applicable law or agreed to in writing, software
+// distributed under the License is distributed on an "AS IS" BASIS,
+// WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+// See the License for the specific language governing permissions and
+// limitations under the License.
+
+#include "mediapipe/java/com/google/mediapipe/framework/jni/android_packet_getter_jni.h"
+
+#include <android/bitmap.h>
+
+#include <cstdint>
+#include <cstring>
+
+#include "absl/status/status.h"
+#include "absl/strings/str_cat.h"
+#include "mediapipe/framework/formats/image.h"
+#include "mediapipe/framework/formats/image_format.pb.h"
+#include "mediapipe/framework/formats/image_frame.h"
+#include "mediapipe/framework/port/logging.h"
+#include "mediapipe/java/com/google/mediapipe/framework/jni/colorspace.h"
+#include "mediapipe/java/com/google/mediapipe/framework/jni/graph.h"
+#include "mediapipe/java/com/google/mediapipe/framework/jni/jni_util.h"
+
+namespace {
+using mediapipe::android::ThrowIfError;
+
+// Returns the ImageFrame held by an Image or ImageFrame packet.
+const mediapipe::ImageFrame& GetImageFrame(int64_t packet_handle) {
+  const mediapipe::Packet& packet =
+      mediapipe::android::Graph::GetPacketFromHandle(packet_handle);
+  if (packet.ValidateAsType<mediapipe::Image>().ok()) {
+    return *packet.Get<mediapipe::Image>().GetImageFrameSharedPtr();
+  }
+  return packet.Get<mediapipe::ImageFrame>();
+}
+
+}  // namespace
+
+JNIEXPORT jboolean JNICALL ANDROID_PACKET_GETTER_METHOD(nativeCopyToBitmap)(
+    JNIEnv* env, jobject thiz, jlong packet, jobject bitmap) {
+  const mediapipe::ImageFrame& image = GetImageFrame(packet);
+  if (image.Format() != mediapipe::ImageFormat::SRGB &&
+      image.Format() != mediapipe::ImageFormat::SRGBA) {
+    ThrowIfError(env, absl::InvalidArgumentError(absl::StrCat(
+                          "Unsupported image format: ", image.Format())));
+    return false;
+  }
+
+  AndroidBitmapInfo info;
+  int result = AndroidBitmap_getInfo(env, bitmap, &info);
+  if (result != ANDROID_BITMAP_RESULT_SUCCESS) {
+    LOG(ERROR) << "AndroidBitmap_getInfo() failed with result code " << result;
+    return false;
+  }
+  if (info.format != ANDROID_BITMAP_FORMAT_RGBA_8888 ||
+      static_cast<int>(info.width) != image.Width() ||
+      static_cast<int>(info.height) != image.Height()) {
+    ThrowIfError(env, absl::InvalidArgumentError(absl::StrCat(
+                          "Expected an RGBA_8888 bitmap of ", image.Width(),
+                          "x", image.Height(), ", got format ", info.format,
+                          " of ", info.width, "x", info.height)));
+    return false;
+  }
+
+  void* pixel_addr = nullptr;
+  result = AndroidBitmap_lockPixels(env, bitmap, &pixel_addr);
+  if (result != ANDROID_BITMAP_RESULT_SUCCESS) {
+    LOG(ERROR) << "AndroidBitmap_lockPixels() failed with result code "
+               << result;
+    return false;
+  }
+
+  uint8_t* rgba_data = static_cast<uint8_t*>(pixel_addr);
+  if (image.Format() == mediapipe::ImageFormat::SRGB) {
+    mediapipe::android::RgbToRgba(image.PixelData(), image.WidthStep(),
+                                  image.Width(), image.Height(), rgba_data,
+                                  info.stride, 255);
+  } else {
+    const int row_size = image.Width() * 4;
+    for (int y = 0; y < image.Height(); ++y) {
+      std::memcpy(rgba_data + y * info.stride,
+                  image.PixelData() + y * image.WidthStep(), row_size);
+    }
+  }
+
+  result = AndroidBitmap_unlockPixels(env, bitmap);
+  if (result != ANDROID_BITMAP_RESULT_SUCCESS) {
+    LOG(ERROR) << "AndroidBitmap_unlockPixels() failed with result code "
+               << result;
+  }
+  return true;
+}
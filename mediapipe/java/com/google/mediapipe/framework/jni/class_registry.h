@@ -40,6 +40,8 @@ class ClassRegistry {
       "com/google/mediapipe/framework/AndroidAssetUtil";
   static constexpr char const* kAndroidPacketCreatorClassName =
       "com/google/mediapipe/framework/AndroidPacketCreator";
+  static constexpr char const* kAndroidPacketGetterClassName =
+      "com/google/mediapipe/framework/AndroidPacketGetter";
   static constexpr char const* kCompatClassName =
       "com/google/mediapipe/framework/Compat";
   static constexpr char const* kGraphClassName =
@@ -50,6 +52,8 @@ class ClassRegistry {
       "com/google/mediapipe/framework/Packet";
   static constexpr char const* kMediaPipeExceptionClassName =
       "com/google/mediapipe/framework/MediaPipeException";
+  static constexpr char const* kPacketBatchClassName =
+      "com/google/mediapipe/framework/PacketBatch";
   static constexpr char const* kPacketCallbackClassName =
       "com/google/mediapipe/framework/PacketCallback";
   static constexpr char const* kPacketListCallbackClassName =
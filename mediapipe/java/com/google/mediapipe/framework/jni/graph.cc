@@ -16,8 +16,10 @@
 
 #include <pthread.h>
 
+#include <algorithm>
 #include <vector>
 
+#include "absl/container/inlined_vector.h"
 #include "absl/strings/str_cat.h"
 #include "absl/strings/str_format.h"
 #include "absl/synchronization/mutex.h"
@@ -71,6 +73,15 @@ class CallbackHandler {
   CallbackHandler(Graph* context, jobject callback)
       : context_(context), java_callback_(callback) {}
 
+  // Creates a handler for a Java PacketBatch, which receives the packet handles
+  // through the given Java long array.
+  CallbackHandler(Graph* context, jobject batch, jlongArray handles,
+                  jmethodID dispatch_method)
+      : context_(context),
+        java_callback_(batch),
+        java_handles_(handles),
+        dispatch_method_(dispatch_method) {}
+
   ~CallbackHandler() {
     // The jobject global reference is managed by the Graph directly.
     // So no-op here.
@@ -94,6 +105,11 @@ class CallbackHandler {
                              packets);
   }
 
+  void PacketBatchCallback(const std::vector<Packet>& packets) {
+    context_->BatchCallbackToJava(mediapipe::java::GetJNIEnv(), java_callback_,
+                                  java_handles_, dispatch_method_, packets);
+  }
+
   std::function<void(const Packet&)> CreateCallback() {
     return std::bind(&CallbackHandler::PacketCallback, this,
                      std::placeholders::_1);
@@ -104,6 +120,11 @@ class CallbackHandler {
                      std::placeholders::_1);
   }
 
+  std::function<void(const std::vector<Packet>&)> CreatePacketBatchCallback() {
+    return std::bind(&CallbackHandler::PacketBatchCallback, this,
+                     std::placeholders::_1);
+  }
+
   std::function<void(const Packet&, const Packet&)> CreateCallbackWithHeader() {
     return std::bind(&CallbackHandler::PacketWithHeaderCallback, this,
                      std::placeholders::_1, std::placeholders::_2);
@@ -115,12 +136,19 @@ class CallbackHandler {
   void ReleaseCallback(JNIEnv* env) {
     env->DeleteGlobalRef(java_callback_);
     java_callback_ = nullptr;
+    if (java_handles_) {
+      env->DeleteGlobalRef(java_handles_);
+      java_handles_ = nullptr;
+    }
   }
 
  private:
   Graph* context_;
   // java callback object
   jobject java_callback_;
+  // Handle array of a java PacketBatch, only set for batch callbacks.
+  jlongArray java_handles_ = nullptr;
+  jmethodID dispatch_method_ = nullptr;
 };
 }  // namespace internal
 
@@ -177,7 +205,26 @@ bool Graph::RemovePacket(int64_t packet_handle) {
       reinterpret_cast<internal::PacketWithContext*>(packet_handle);
   Graph* context = packet_with_context->GetContext();
   absl::MutexLock lock(&(context->all_packets_mutex_));
-  return context->all_packets_.erase(packet_with_context) != 0;
+  return context->RemovePacketLocked(packet_with_context);
+}
+
+// static
+void Graph::RemovePackets(const int64_t* packet_handles, int count) {
+  int i = 0;
+  while (i < count) {
+    Graph* context = GetContextFromHandle(packet_handles[i]);
+    absl::MutexLock lock(&(context->all_packets_mutex_));
+    for (; i < count && GetContextFromHandle(packet_handles[i]) == context;
+         ++i) {
+      context->RemovePacketLocked(
+          reinterpret_cast<internal::PacketWithContext*>(packet_handles[i]));
+    }
+  }
+}
+
+bool Graph::RemovePacketLocked(
+    internal::PacketWithContext* packet_with_context) {
+  return all_packets_.erase(packet_with_context) != 0;
 }
 
 void Graph::EnsureMinimumExecutorStackSizeForJava() {}
@@ -217,6 +264,23 @@ absl::Status Graph::AddMultiStreamCallbackHandler(
   return absl::OkStatus();
 }
 
+absl::Status Graph::AddPacketBatchCallbackHandler(
+    std::vector<std::string> output_stream_names, jobject java_batch,
+    jlongArray java_handles, jmethodID dispatch_method,
+    bool observe_timestamp_bounds) {
+  if (!graph_config()) {
+    return absl::InternalError("Graph is not loaded!");
+  }
+  auto handler = absl::make_unique<internal::CallbackHandler>(
+      this, java_batch, java_handles, dispatch_method);
+  tool::AddMultiStreamCallback(
+      output_stream_names, handler->CreatePacketBatchCallback(),
+      graph_config(), &side_packets_, observe_timestamp_bounds);
+  EnsureMinimumExecutorStackSizeForJava();
+  callback_handlers_.emplace_back(std::move(handler));
+  return absl::OkStatus();
+}
+
 int64_t Graph::AddSurfaceOutput(const std::string& output_stream_name) {
   if (!graph_config()) {
     LOG(ERROR) << "Graph is not loaded!";
@@ -396,6 +460,40 @@ void Graph::CallbackToJava(JNIEnv* env, jobject java_callback_obj,
   VLOG(2) << "Returned from java callback.";
 }
 
+void Graph::BatchCallbackToJava(JNIEnv* env, jobject java_batch_obj,
+                                jlongArray java_handles,
+                                jmethodID dispatch_method,
+                                const std::vector<Packet>& packets) {
+  absl::InlinedVector<jlong, 8> packet_handles(packets.size(), 0);
+  Timestamp timestamp = Timestamp::Unset();
+  Timestamp settled_bound = Timestamp::Max();
+  for (size_t i = 0; i < packets.size(); ++i) {
+    const Packet& packet = packets[i];
+    if (packet.IsEmpty()) {
+      // Empty packets carry the timestamp up to which the stream is settled.
+      settled_bound = std::min(settled_bound, packet.Timestamp());
+      continue;
+    }
+    timestamp = packet.Timestamp();
+    packet_handles[i] = WrapPacketIntoContext(packet);
+  }
+  if (timestamp == Timestamp::Unset()) {
+    timestamp = settled_bound;
+  }
+  env->SetLongArrayRegion(java_handles, 0, packet_handles.size(),
+                          packet_handles.data());
+  VLOG(2) << "Calling java batch callback.";
+  env->CallVoidMethod(java_batch_obj, dispatch_method,
+                      static_cast<jlong>(timestamp.Value()));
+  // release the packets after callback.
+  for (jlong packet_handle : packet_handles) {
+    if (packet_handle != 0) {
+      RemovePacket(packet_handle);
+    }
+  }
+  VLOG(2) << "Returned from java batch callback.";
+}
+
 void Graph::SetPacketJavaClass(JNIEnv* env) {
   if (global_java_packet_cls_ == nullptr) {
     auto& class_registry = ClassRegistry::GetInstance();
@@ -495,7 +593,89 @@ absl::Status Graph::SetTimestampAndMovePacketToInputStream(
   packet = std::move(packet).At(Timestamp::CreateNoErrorChecking(timestamp));
 
   // Then std::move it into the input stream.
-  return AddPacketToInputStream(stream_name, std::move(packet));
+  absl::Status status = AddPacketToInputStream(stream_name, std::move(packet));
+  if (!status.ok()) {
+    return status;
+  }
+  // The moved-from packet is no longer needed, so the Java side does not have
+  // to release it.
+  RemovePacket(packet_handle);
+  return absl::OkStatus();
+}
+
+int Graph::InternInputStreamName(const std::string& stream_name) {
+  absl::MutexLock lock(&interned_stream_names_mutex_);
+  auto it = interned_stream_ids_.find(stream_name);
+  if (it != interned_stream_ids_.end()) {
+    return it->second;
+  }
+  int stream_id = interned_stream_names_.size();
+  interned_stream_names_.push_back(stream_name);
+  interned_stream_ids_[stream_name] = stream_id;
+  return stream_id;
+}
+
+absl::Status Graph::SetTimestampAndMovePacketsToInputStreams(
+    const std::vector<int>& stream_ids, std::vector<int64_t>* packet_handles,
+    int64_t timestamp) {
+  // Looks up the names first, so that no packet is moved if an id is unknown.
+  absl::InlinedVector<const std::string*, 4> stream_names;
+  for (int stream_id : stream_ids) {
+    const std::string* stream_name = GetInternedInputStreamName(stream_id);
+    if (stream_name == nullptr) {
+      return absl::InvalidArgumentError(
+          absl::StrCat("Unknown input stream id: ", stream_id));
+    }
+    stream_names.push_back(stream_name);
+  }
+  for (size_t i = 0; i < stream_names.size(); ++i) {
+    absl::Status status = SetTimestampAndMovePacketToInputStream(
+        *stream_names[i], (*packet_handles)[i], timestamp);
+    if (!status.ok()) {
+      return status;
+    }
+    (*packet_handles)[i] = 0;
+  }
+  return absl::OkStatus();
+}
+
+const std::string* Graph::GetInternedInputStreamName(int stream_id) {
+  absl::MutexLock lock(&interned_stream_names_mutex_);
+  if (stream_id < 0 ||
+      stream_id >= static_cast<int>(interned_stream_names_.size())) {
+    return nullptr;
+  }
+  return &interned_stream_names_[stream_id];
+}
+
+absl::Status Graph::AddPacketToInputStreamById(int stream_id,
+                                               const Packet& packet) {
+  const std::string* stream_name = GetInternedInputStreamName(stream_id);
+  if (stream_name == nullptr) {
+    return absl::InvalidArgumentError(
+        absl::StrCat("Unknown input stream id: ", stream_id));
+  }
+  return AddPacketToInputStream(*stream_name, packet);
+}
+
+absl::Status Graph::SetTimestampAndMovePacketToInputStreamById(
+    int stream_id, int64_t packet_handle, int64_t timestamp) {
+  const std::string* stream_name = GetInternedInputStreamName(stream_id);
+  if (stream_name == nullptr) {
+    return absl::InvalidArgumentError(
+        absl::StrCat("Unknown input stream id: ", stream_id));
+  }
+  return SetTimestampAndMovePacketToInputStream(*stream_name, packet_handle,
+                                                timestamp);
+}
+
+absl::Status Graph::CloseInputStreamById(int stream_id) {
+  const std::string* stream_name = GetInternedInputStreamName(stream_id);
+  if (stream_name == nullptr) {
+    return absl::InvalidArgumentError(
+        absl::StrCat("Unknown input stream id: ", stream_id));
+  }
+  return CloseInputStream(*stream_name);
 }
 
 absl::Status Graph::AddPacketToInputStream(const std::string& stream_name,
@@ -17,6 +17,7 @@
 
 #include <jni.h>
 
+#include <deque>
 #include <map>
 #include <memory>
 #include <queue>
@@ -55,6 +56,14 @@ class Graph {
   absl::Status AddMultiStreamCallbackHandler(
       std::vector<std::string> output_stream_names, jobject java_callback,
       bool observe_timestamp_bounds);
+  // Adds a callback that delivers the packets of multiple output streams at one
+  // timestamp through a single call into a reused Java PacketBatch. The native
+  // packet handles are written into java_handles, which must hold one element
+  // per stream. Takes ownership of both global references.
+  absl::Status AddPacketBatchCallbackHandler(
+      std::vector<std::string> output_stream_names, jobject java_batch,
+      jlongArray java_handles, jmethodID dispatch_method,
+      bool observe_timestamp_bounds);
 
   // Loads a binary graph from a file.
   absl::Status LoadBinaryGraph(std::string path_to_graph);
@@ -103,9 +112,30 @@ class Graph {
   absl::Status AddPacketToInputStream(const std::string& stream_name,
                                       Packet&& packet);
   // Takes the MediaPipe Packet referenced by the handle, sets its timestamp,
-  // and then tries to move the Packet into the given input stream.
+  // and then tries to move the Packet into the given input stream. The handle
+  // is removed from the context if the Packet was moved.
   absl::Status SetTimestampAndMovePacketToInputStream(
       const std::string& stream_name, int64_t packet_handle, int64_t timestamp);
+  // Returns the id of an input stream name, used to refer to the input stream
+  // without passing its name.
+  int InternInputStreamName(const std::string& stream_name);
+  // Moves the Packets referenced by the handles into the input streams of the
+  // ids at the given timestamp, as SetTimestampAndMovePacketToInputStream does.
+  // The handles of the moved Packets are set to 0. Stops at the first error.
+  absl::Status SetTimestampAndMovePacketsToInputStreams(
+      const std::vector<int>& stream_ids, std::vector<int64_t>* packet_handles,
+      int64_t timestamp);
+  // Same as AddPacketToInputStream, for the input stream of an id returned by
+  // InternInputStreamName.
+  absl::Status AddPacketToInputStreamById(int stream_id, const Packet& packet);
+  // Same as SetTimestampAndMovePacketToInputStream, for the input stream of an
+  // id returned by InternInputStreamName.
+  absl::Status SetTimestampAndMovePacketToInputStreamById(int stream_id,
+                                                          int64_t packet_handle,
+                                                          int64_t timestamp);
+  // Same as CloseInputStream, for the input stream of an id returned by
+  // InternInputStreamName.
+  absl::Status CloseInputStreamById(int stream_id);
 
   // Sets the mode for adding packets to a graph input stream.
   void SetGraphInputStreamAddMode(
@@ -148,6 +178,10 @@ class Graph {
   // Returns false if not in the context.
   static bool RemovePacket(int64_t packet_handle);
 
+  // Removes the packets of several handles, locking the context once for each
+  // run of consecutive handles in the same context.
+  static void RemovePackets(const int64_t* packet_handles, int count);
+
   // Returns the mediapipe Packet that is referenced by the handle.
   static Packet GetPacketFromHandle(int64_t packet_handle);
 
@@ -166,6 +200,12 @@ class Graph {
   void CallbackToJava(JNIEnv* env, jobject java_callback_obj,
                       const std::vector<Packet>& packets);
 
+  // Invokes a Java PacketBatch with the given packets, passing the handles
+  // through java_handles. Empty packets are passed as 0 handles.
+  void BatchCallbackToJava(JNIEnv* env, jobject java_batch_obj,
+                           jlongArray java_handles, jmethodID dispatch_method,
+                           const std::vector<Packet>& packets);
+
   ProfilingContext* GetProfilingContext();
 
  private:
@@ -176,6 +216,12 @@ class Graph {
   // small for Java's class loader. See bug 72414047.
   void EnsureMinimumExecutorStackSizeForJava();
   void SetPacketJavaClass(JNIEnv* env);
+  // Removes a packet from all_packets_. Returns false if not in the context.
+  // Requires all_packets_mutex_ to be held.
+  bool RemovePacketLocked(internal::PacketWithContext* packet_with_context);
+  // Returns the name of an input stream id returned by InternInputStreamName,
+  // or nullptr if the id is unknown.
+  const std::string* GetInternedInputStreamName(int stream_id);
   std::map<std::string, Packet> CreateCombinedSidePackets();
   // Returns the top-level CalculatorGraphConfig, or nullptr if the top-level
   // CalculatorGraphConfig is not yet defined.
@@ -211,6 +257,11 @@ class Graph {
   absl::Mutex all_packets_mutex_;
   // All callback handlers managed by the context.
   std::vector<std::unique_ptr<internal::CallbackHandler>> callback_handlers_;
+  // Input stream names by id, see InternInputStreamName. A deque keeps the
+  // names in place as ids are added.
+  std::deque<std::string> interned_stream_names_;
+  std::unordered_map<std::string, int> interned_stream_ids_;
+  absl::Mutex interned_stream_names_mutex_;
 
 #if !MEDIAPIPE_DISABLE_GPU
   // mediapipe::GpuResources used by the graph.
@@ -16,6 +16,7 @@
 
 #include <memory>
 #include <string>
+#include <vector>
 
 #include "mediapipe/framework/calculator_framework.h"
 #include "mediapipe/framework/port/canonical_errors.h"
@@ -218,6 +219,62 @@ JNIEXPORT void JNICALL GRAPH_METHOD(nativeAddMultiStreamCallback)(
                         observe_timestamp_bounds));
 }
 
+JNIEXPORT void JNICALL GRAPH_METHOD(nativeAddPacketBatchCallback)(
+    JNIEnv* env, jobject thiz, jlong context, jobject stream_names,
+    jobject batch, jlongArray handles, jboolean observe_timestamp_bounds) {
+  mediapipe::android::Graph* mediapipe_graph =
+      reinterpret_cast<mediapipe::android::Graph*>(context);
+  std::vector<std::string> output_stream_names =
+      JavaListToStdStringVector(env, stream_names);
+  for (const std::string& s : output_stream_names) {
+    if (s.empty()) {
+      ThrowIfError(env,
+                   absl::InternalError("streamNames is not correctly parsed or "
+                                       "it contains empty string."));
+      return;
+    }
+  }
+  if (static_cast<size_t>(env->GetArrayLength(handles)) !=
+      output_stream_names.size()) {
+    ThrowIfError(env, absl::InvalidArgumentError(
+                          "Number of streams and handles doesn't match!"));
+    return;
+  }
+
+  // The dispatch method is looked up once here rather than on every callback.
+  auto& class_registry = mediapipe::android::ClassRegistry::GetInstance();
+  jclass batch_cls = env->GetObjectClass(batch);
+  jmethodID dispatch_method = env->GetMethodID(
+      batch_cls,
+      class_registry
+          .GetMethodName(
+              mediapipe::android::ClassRegistry::kPacketBatchClassName,
+              "dispatch")
+          .c_str(),
+      "(J)V");
+  env->DeleteLocalRef(batch_cls);
+  if (!dispatch_method) {
+    ThrowIfError(env,
+                 absl::InternalError("Failed to find PacketBatch dispatch"));
+    return;
+  }
+
+  // Create global references to the batch and its handle array, so that they
+  // can be accessed later.
+  jobject global_batch_ref = env->NewGlobalRef(batch);
+  jlongArray global_handles_ref =
+      reinterpret_cast<jlongArray>(env->NewGlobalRef(handles));
+  if (!global_batch_ref || !global_handles_ref) {
+    ThrowIfError(env,
+                 absl::InternalError("Failed to allocate packet batch callback"));
+    return;
+  }
+  ThrowIfError(env, mediapipe_graph->AddPacketBatchCallbackHandler(
+                        output_stream_names, global_batch_ref,
+                        global_handles_ref, dispatch_method,
+                        observe_timestamp_bounds));
+}
+
 JNIEXPORT jlong JNICALL GRAPH_METHOD(nativeAddSurfaceOutput)(
     JNIEnv* env, jobject thiz, jlong context, jstring stream_name) {
   mediapipe::android::Graph* mediapipe_graph =
@@ -283,6 +340,64 @@ JNIEXPORT void JNICALL GRAPH_METHOD(nativeMovePacketToInputStream)(
                static_cast<int64_t>(packet), static_cast<int64_t>(timestamp)));
 }
 
+JNIEXPORT jint JNICALL GRAPH_METHOD(nativeInternInputStreamName)(
+    JNIEnv* env, jobject thiz, jlong context, jstring stream_name) {
+  mediapipe::android::Graph* mediapipe_graph =
+      reinterpret_cast<mediapipe::android::Graph*>(context);
+  return mediapipe_graph->InternInputStreamName(
+      JStringToStdString(env, stream_name));
+}
+
+JNIEXPORT void JNICALL GRAPH_METHOD(nativeMovePacketsToInputStreams)(
+    JNIEnv* env, jobject thiz, jlong context, jintArray stream_ids,
+    jlongArray packets, jint count, jlong timestamp) {
+  mediapipe::android::Graph* mediapipe_graph =
+      reinterpret_cast<mediapipe::android::Graph*>(context);
+  std::vector<int> ids(count);
+  jint* stream_ids_array_ref = env->GetIntArrayElements(stream_ids, nullptr);
+  for (jint i = 0; i < count; ++i) {
+    ids[i] = stream_ids_array_ref[i];
+  }
+  env->ReleaseIntArrayElements(stream_ids, stream_ids_array_ref, JNI_ABORT);
+  std::vector<int64_t> handles(count);
+  jlong* packets_array_ref = env->GetLongArrayElements(packets, nullptr);
+  for (jint i = 0; i < count; ++i) {
+    handles[i] = packets_array_ref[i];
+  }
+  absl::Status status =
+      mediapipe_graph->SetTimestampAndMovePacketsToInputStreams(ids, &handles,
+                                                                timestamp);
+  // Writes back the handles, set to 0 for the moved packets.
+  for (jint i = 0; i < count; ++i) {
+    packets_array_ref[i] = handles[i];
+  }
+  env->ReleaseLongArrayElements(packets, packets_array_ref, 0);
+  ThrowIfError(env, status);
+}
+
+JNIEXPORT void JNICALL GRAPH_METHOD(nativeAddPacketToInputStreamByHandle)(
+    JNIEnv* env, jobject thiz, jlong context, jint stream_handle, jlong packet,
+    jlong timestamp) {
+  mediapipe::android::Graph* mediapipe_graph =
+      reinterpret_cast<mediapipe::android::Graph*>(context);
+  // We push in a copy of the current packet at the given timestamp.
+  ThrowIfError(
+      env, mediapipe_graph->AddPacketToInputStreamById(
+               stream_handle,
+               mediapipe::android::Graph::GetPacketFromHandle(packet).At(
+                   mediapipe::Timestamp::CreateNoErrorChecking(timestamp))));
+}
+
+JNIEXPORT void JNICALL GRAPH_METHOD(nativeMovePacketToInputStreamByHandle)(
+    JNIEnv* env, jobject thiz, jlong context, jint stream_handle, jlong packet,
+    jlong timestamp) {
+  mediapipe::android::Graph* mediapipe_graph =
+      reinterpret_cast<mediapipe::android::Graph*>(context);
+  ThrowIfError(env, mediapipe_graph->SetTimestampAndMovePacketToInputStreamById(
+                        stream_handle, static_cast<int64_t>(packet),
+                        static_cast<int64_t>(timestamp)));
+}
+
 JNIEXPORT void JNICALL GRAPH_METHOD(nativeSetGraphInputStreamBlockingMode)(
     JNIEnv* env, jobject thiz, jlong context, jboolean mode) {
   mediapipe::android::Graph* mediapipe_graph =
@@ -305,6 +420,13 @@ JNIEXPORT void JNICALL GRAPH_METHOD(nativeCloseInputStream)(
                         JStringToStdString(env, stream_name)));
 }
 
+JNIEXPORT void JNICALL GRAPH_METHOD(nativeCloseInputStreamByHandle)(
+    JNIEnv* env, jobject thiz, jlong context, jint stream_handle) {
+  mediapipe::android::Graph* mediapipe_graph =
+      reinterpret_cast<mediapipe::android::Graph*>(context);
+  ThrowIfError(env, mediapipe_graph->CloseInputStreamById(stream_handle));
+}
+
 JNIEXPORT void JNICALL GRAPH_METHOD(nativeCloseAllInputStreams)(JNIEnv* env,
                                                                 jobject thiz,
                                                                 jlong context) {
@@ -66,6 +66,10 @@ JNIEXPORT void JNICALL GRAPH_METHOD(nativeAddMultiStreamCallback)(
     JNIEnv* env, jobject thiz, jlong context, jobject stream_names,
     jobject callback, jboolean observe_timestamp_bounds);
 
+JNIEXPORT void JNICALL GRAPH_METHOD(nativeAddPacketBatchCallback)(
+    JNIEnv* env, jobject thiz, jlong context, jobject stream_names,
+    jobject batch, jlongArray handles, jboolean observe_timestamp_bounds);
+
 JNIEXPORT jlong JNICALL GRAPH_METHOD(nativeAddSurfaceOutput)(
     JNIEnv* env, jobject thiz, jlong context, jstring stream_name);
 
@@ -86,12 +90,30 @@ JNIEXPORT void JNICALL GRAPH_METHOD(nativeMovePacketToInputStream)(
     JNIEnv* env, jobject thiz, jlong context, jstring stream_name, jlong packet,
     jlong timestamp);
 
+JNIEXPORT jint JNICALL GRAPH_METHOD(nativeInternInputStreamName)(
+    JNIEnv* env, jobject thiz, jlong context, jstring stream_name);
+
+JNIEXPORT void JNICALL GRAPH_METHOD(nativeMovePacketsToInputStreams)(
+    JNIEnv* env, jobject thiz, jlong context, jintArray stream_ids,
+    jlongArray packets, jint count, jlong timestamp);
+
+JNIEXPORT void JNICALL GRAPH_METHOD(nativeAddPacketToInputStreamByHandle)(
+    JNIEnv* env, jobject thiz, jlong context, jint stream_handle, jlong packet,
+    jlong timestamp);
+
+JNIEXPORT void JNICALL GRAPH_METHOD(nativeMovePacketToInputStreamByHandle)(
+    JNIEnv* env, jobject thiz, jlong context, jint stream_handle, jlong packet,
+    jlong timestamp);
+
 JNIEXPORT void JNICALL GRAPH_METHOD(nativeSetGraphInputStreamBlockingMode)(
     JNIEnv* env, jobject thiz, jlong context, jboolean mode);
 
 JNIEXPORT void JNICALL GRAPH_METHOD(nativeCloseInputStream)(
     JNIEnv* env, jobject thiz, jlong context, jstring stream_name);
 
+JNIEXPORT void JNICALL GRAPH_METHOD(nativeCloseInputStreamByHandle)(
+    JNIEnv* env, jobject thiz, jlong context, jint stream_handle);
+
 JNIEXPORT void JNICALL GRAPH_METHOD(nativeCloseAllInputStreams)(JNIEnv* env,
                                                                 jobject thiz,
                                                                 jlong context);
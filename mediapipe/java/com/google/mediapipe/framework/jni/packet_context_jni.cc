@@ -14,6 +14,9 @@
 
 #include "mediapipe/java/com/google/mediapipe/framework/jni/packet_context_jni.h"
 
+#include <string>
+#include <vector>
+
 #include "absl/strings/str_format.h"
 #include "mediapipe/java/com/google/mediapipe/framework/jni/class_registry.h"
 #include "mediapipe/java/com/google/mediapipe/framework/jni/graph.h"
@@ -26,6 +29,19 @@ JNIEXPORT void JNICALL PACKET_METHOD(nativeReleasePacket)(JNIEnv* env,
   mediapipe::android::Graph::RemovePacket(packet);
 }
 
+JNIEXPORT void JNICALL PACKET_METHOD(nativeReleasePackets)(JNIEnv* env,
+                                                           jclass clazz,
+                                                           jlongArray packets,
+                                                           jint count) {
+  std::vector<int64_t> packet_handles(count);
+  jlong* packets_array_ref = env->GetLongArrayElements(packets, nullptr);
+  for (jint i = 0; i < count; ++i) {
+    packet_handles[i] = packets_array_ref[i];
+  }
+  env->ReleaseLongArrayElements(packets, packets_array_ref, JNI_ABORT);
+  mediapipe::android::Graph::RemovePackets(packet_handles.data(), count);
+}
+
 JNIEXPORT jlong JNICALL PACKET_METHOD(nativeGetTimestamp)(JNIEnv* env,
                                                           jobject thiz,
                                                           jlong packet) {
@@ -50,6 +66,21 @@ JNIEXPORT jlong JNICALL PACKET_METHOD(nativeCopyPacket)(JNIEnv* env,
   return mediapipe_graph->WrapPacketIntoContext(mediapipe_packet);
 }
 
+JNIEXPORT jstring JNICALL PACKET_METHOD(nativeGetTypeName)(JNIEnv* env,
+                                                           jobject thiz,
+                                                           jlong packet) {
+  std::string type_name =
+      mediapipe::android::Graph::GetPacketFromHandle(packet).DebugTypeName();
+  return env->NewStringUTF(type_name.c_str());
+}
+
+JNIEXPORT jlong JNICALL PACKET_METHOD(nativeGetGraphHandle)(JNIEnv* env,
+                                                            jobject thiz,
+                                                            jlong packet) {
+  return reinterpret_cast<int64_t>(
+      mediapipe::android::Graph::GetContextFromHandle(packet));
+}
+
 jobject CreateJavaPacket(JNIEnv* env, jclass packet_cls, jlong packet) {
   auto& class_registry = mediapipe::android::ClassRegistry::GetInstance();
 
@@ -29,6 +29,12 @@ JNIEXPORT void JNICALL PACKET_METHOD(nativeReleasePacket)(JNIEnv* env,
                                                           jobject thiz,
                                                           jlong packet);
 
+// Releases the native mediapipe packets of the first count handles.
+JNIEXPORT void JNICALL PACKET_METHOD(nativeReleasePackets)(JNIEnv* env,
+                                                           jclass clazz,
+                                                           jlongArray packets,
+                                                           jint count);
+
 // Returns the timestamp of the packet.
 JNIEXPORT jlong JNICALL PACKET_METHOD(nativeGetTimestamp)(JNIEnv* env,
                                                           jobject thiz,
@@ -44,6 +50,16 @@ JNIEXPORT jlong JNICALL PACKET_METHOD(nativeCopyPacket)(JNIEnv* env,
                                                         jobject thiz,
                                                         jlong packet);
 
+// Returns the type name of the content of a mediapipe packet.
+JNIEXPORT jstring JNICALL PACKET_METHOD(nativeGetTypeName)(JNIEnv* env,
+                                                           jobject thiz,
+                                                           jlong packet);
+
+// Returns the handle of the graph whose context holds the packet.
+JNIEXPORT jlong JNICALL PACKET_METHOD(nativeGetGraphHandle)(JNIEnv* env,
+                                                            jobject thiz,
+                                                            jlong packet);
+
 #ifdef __cplusplus
 }  // extern "C"
 #endif  // __cplusplus
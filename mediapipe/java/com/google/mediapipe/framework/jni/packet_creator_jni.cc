@@ -241,17 +241,19 @@ static mediapipe::Packet createAudioPacket(const uint8_t* audio_sample,
   // Preparing and normalize the audio data.
   // kMultiplier is same as what used in av_sync_media_decoder.cc.
   static const float kMultiplier = 1.f / (1 << 15);
-  for (int sample = 0; sample < num_samples; ++sample) {
-    for (int channel = 0; channel < num_channels; ++channel) {
-      // MediaPipe createAudioPacket can currently only handle
-      // AudioFormat.ENCODING_PCM_16BIT data, so here we are reading 2 bytes per
-      // sample, using ByteOrder.LITTLE_ENDIAN byte order, which is
-      // ByteOrder.nativeOrder() on Android
-      // (https://developer.android.com/ndk/guides/abis.html).
-      int16_t value = (audio_sample[1] & 0xff) << 8 | audio_sample[0];
-      (*matrix)(channel, sample) = kMultiplier * value;
-      audio_sample += 2;
-    }
+  // MediaPipe createAudioPacket can currently only handle
+  // AudioFormat.ENCODING_PCM_16BIT data, so here we are reading 2 bytes per
+  // sample, using ByteOrder.LITTLE_ENDIAN byte order, which is
+  // ByteOrder.nativeOrder() on Android
+  // (https://developer.android.com/ndk/guides/abis.html). The interleaved
+  // samples are in the column major order of the matrix, so they are converted
+  // in a single pass.
+  float* matrix_data = matrix->data();
+  const int num_values = num_samples * num_channels;
+  for (int i = 0; i < num_values; ++i) {
+    int16_t value;
+    std::memcpy(&value, audio_sample + 2 * i, sizeof(value));
+    matrix_data[i] = kMultiplier * value;
   }
   return mediapipe::Adopt(matrix.release());
 }
@@ -271,8 +273,8 @@ JNIEXPORT jlong JNICALL PACKET_CREATOR_METHOD(nativeCreateAudioPacket)(
 }
 
 JNIEXPORT jlong JNICALL PACKET_CREATOR_METHOD(nativeCreateAudioPacketDirect)(
-    JNIEnv* env, jobject thiz, jlong context, jobject data, jint num_channels,
-    jint num_samples) {
+    JNIEnv* env, jobject thiz, jlong context, jobject data, jint offset,
+    jint num_channels, jint num_samples) {
   const uint8_t* audio_sample =
       reinterpret_cast<uint8_t*>(env->GetDirectBufferAddress(data));
   if (!audio_sample) {
@@ -282,7 +284,7 @@ JNIEXPORT jlong JNICALL PACKET_CREATOR_METHOD(nativeCreateAudioPacketDirect)(
     return 0L;
   }
   mediapipe::Packet packet =
-      createAudioPacket(audio_sample, num_samples, num_channels);
+      createAudioPacket(audio_sample + offset, num_samples, num_channels);
   return CreatePacketWithContext(context, packet);
 }
 
@@ -369,6 +371,27 @@ JNIEXPORT jlong JNICALL PACKET_CREATOR_METHOD(nativeCreateMatrix)(
   return CreatePacketWithContext(context, packet);
 }
 
+JNIEXPORT jlong JNICALL PACKET_CREATOR_METHOD(nativeCreateMatrixFromBuffer)(
+    JNIEnv* env, jobject thiz, jlong context, jint rows, jint cols,
+    jobject data, jint offset) {
+  const float* buffer_data =
+      static_cast<const float*>(env->GetDirectBufferAddress(data));
+  if (buffer_data == nullptr ||
+      env->GetDirectBufferCapacity(data) < offset + rows * cols) {
+    ThrowIfError(
+        env, absl::InvalidArgumentError(absl::StrCat(
+                 "Please check the matrix data, has to be a direct buffer of "
+                 "at least offset + rows * cols = ",
+                 offset + rows * cols, " floats")));
+    return 0L;
+  }
+  std::unique_ptr<mediapipe::Matrix> matrix(new mediapipe::Matrix(rows, cols));
+  std::memcpy(matrix->data(), buffer_data + offset,
+              sizeof(float) * rows * cols);
+  mediapipe::Packet packet = mediapipe::Adopt(matrix.release());
+  return CreatePacketWithContext(context, packet);
+}
+
 JNIEXPORT jlong JNICALL PACKET_CREATOR_METHOD(nativeCreateCpuImage)(
     JNIEnv* env, jobject thiz, jlong context, jobject byte_buffer, jint width,
     jint height, jint width_step, jint num_channels) {
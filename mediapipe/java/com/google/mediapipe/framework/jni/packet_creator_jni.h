@@ -48,8 +48,8 @@ JNIEXPORT jlong JNICALL PACKET_CREATOR_METHOD(nativeCreateGrayscaleImage)(
     jint height);
 
 JNIEXPORT jlong JNICALL PACKET_CREATOR_METHOD(nativeCreateAudioPacketDirect)(
-    JNIEnv* env, jobject thiz, jlong context, jobject data, jint num_channels,
-    jint num_samples);
+    JNIEnv* env, jobject thiz, jlong context, jobject data, jint offset,
+    jint num_channels, jint num_samples);
 
 JNIEXPORT jlong JNICALL PACKET_CREATOR_METHOD(nativeCreateAudioPacket)(
     JNIEnv* env, jobject thiz, jlong context, jbyteArray data, jint offset,
@@ -97,6 +97,12 @@ JNIEXPORT jlong JNICALL PACKET_CREATOR_METHOD(nativeCreateMatrix)(
     JNIEnv* env, jobject thiz, jlong context, jint rows, jint cols,
     jfloatArray data);
 
+// Creates a MediaPipe::Matrix packet from the floats of a direct buffer
+// starting at offset. The data must in column major order.
+JNIEXPORT jlong JNICALL PACKET_CREATOR_METHOD(nativeCreateMatrixFromBuffer)(
+    JNIEnv* env, jobject thiz, jlong context, jint rows, jint cols,
+    jobject data, jint offset);
+
 JNIEXPORT jlong JNICALL PACKET_CREATOR_METHOD(nativeCreateCpuImage)(
     JNIEnv* env, jobject thiz, jlong context, jobject byte_buffer, jint width,
     jint height, jint width_step, jint num_channels);
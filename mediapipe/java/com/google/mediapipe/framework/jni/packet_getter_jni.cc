@@ -14,11 +14,18 @@
 
 #include "mediapipe/java/com/google/mediapipe/framework/jni/packet_getter_jni.h"
 
+#include <string>
+#include <unordered_map>
+
+#include "absl/container/inlined_vector.h"
 #include "absl/status/status.h"
 #include "absl/strings/str_cat.h"
+#include "absl/synchronization/mutex.h"
 #include "mediapipe/framework/calculator.pb.h"
+#include "mediapipe/framework/formats/classification.pb.h"
 #include "mediapipe/framework/formats/image.h"
 #include "mediapipe/framework/formats/image_frame.h"
+#include "mediapipe/framework/formats/landmark.pb.h"
 #include "mediapipe/framework/formats/matrix.h"
 #include "mediapipe/framework/formats/time_series_header.pb.h"
 #include "mediapipe/framework/formats/video_stream_header.h"
@@ -86,6 +93,127 @@ bool CopyImageDataToByteBuffer(JNIEnv* env, const mediapipe::ImageFrame& image,
   return true;
 }
 
+// Number of floats written per landmark by nativeGetLandmarks.
+constexpr int kLandmarkComponents = 5;
+
+template <typename T>
+using ListPointers = absl::InlinedVector<const T*, 4>;
+
+// Collects the lists held by a packet of either a single list or a
+// std::vector of lists. Returns false if the packet holds neither.
+template <typename ListT>
+bool GetLists(const mediapipe::Packet& packet, ListPointers<ListT>* lists) {
+  if (packet.ValidateAsType<ListT>().ok()) {
+    lists->push_back(&packet.Get<ListT>());
+    return true;
+  }
+  if (packet.ValidateAsType<std::vector<ListT>>().ok()) {
+    for (const ListT& list : packet.Get<std::vector<ListT>>()) {
+      lists->push_back(&list);
+    }
+    return true;
+  }
+  return false;
+}
+
+jlong PackCounts(size_t num_lists, int64_t num_items) {
+  return (static_cast<jlong>(num_lists) << 32) |
+         static_cast<jlong>(static_cast<uint32_t>(num_items));
+}
+
+// Returns the direct buffer address, or nullptr with a pending exception.
+template <typename T>
+T* GetDirectBuffer(JNIEnv* env, jobject buffer, int64_t* capacity) {
+  void* data = env->GetDirectBufferAddress(buffer);
+  *capacity = env->GetDirectBufferCapacity(buffer);
+  if (data == nullptr || *capacity < 0) {
+    ThrowIfError(env, absl::InvalidArgumentError(
+                          "output buffer does not support direct access"));
+    return nullptr;
+  }
+  return static_cast<T*>(data);
+}
+
+template <typename LandmarkListT>
+jlong FlattenLandmarkLists(JNIEnv* env,
+                           const ListPointers<LandmarkListT>& lists,
+                           jobject float_buffer, jintArray offsets) {
+  int64_t num_landmarks = 0;
+  for (const LandmarkListT* list : lists) {
+    num_landmarks += list->landmark_size();
+  }
+  const jlong counts = PackCounts(lists.size(), num_landmarks);
+  if (env->GetArrayLength(offsets) <= static_cast<jsize>(lists.size())) {
+    return counts;
+  }
+  int64_t capacity;
+  float* data = GetDirectBuffer<float>(env, float_buffer, &capacity);
+  if (data == nullptr) {
+    return 0;
+  }
+  if (capacity < num_landmarks * kLandmarkComponents) {
+    return counts;
+  }
+  absl::InlinedVector<jint, 5> list_offsets;
+  jint offset = 0;
+  for (const LandmarkListT* list : lists) {
+    list_offsets.push_back(offset);
+    for (const auto& landmark : list->landmark()) {
+      *data++ = landmark.x();
+      *data++ = landmark.y();
+      *data++ = landmark.z();
+      *data++ = landmark.visibility();
+      *data++ = landmark.presence();
+    }
+    offset += list->landmark_size();
+  }
+  list_offsets.push_back(offset);
+  env->SetIntArrayRegion(offsets, 0, list_offsets.size(), list_offsets.data());
+  return counts;
+}
+
+// Labels and display names by id, see InternString. The table only grows, so
+// it is capped; strings past the cap get id 0, which never matches a slot.
+constexpr int kMaxInternedStrings = 4096;
+ABSL_CONST_INIT absl::Mutex g_interned_strings_mutex(absl::kConstInit);
+
+std::unordered_map<std::string, jint>& InternedStringIds()
+    ABSL_EXCLUSIVE_LOCKS_REQUIRED(g_interned_strings_mutex) {
+  static auto* ids = new std::unordered_map<std::string, jint>();
+  return *ids;
+}
+
+// Returns the id of value, starting at 1, or 0 if the table is full.
+jint InternString(const std::string& value) {
+  absl::MutexLock lock(&g_interned_strings_mutex);
+  std::unordered_map<std::string, jint>& ids = InternedStringIds();
+  auto it = ids.find(value);
+  if (it != ids.end()) {
+    return it->second;
+  }
+  if (static_cast<int>(ids.size()) >= kMaxInternedStrings) {
+    return 0;
+  }
+  const jint id = static_cast<jint>(ids.size()) + 1;
+  ids.emplace(value, id);
+  return id;
+}
+
+// Stores value at array[index] unless string_ids[index] shows that the element
+// already holds it, so that repeated labels neither allocate new Java strings
+// nor read the current ones. string_ids is 0 for slots never set natively.
+void SetStringIfChanged(JNIEnv* env, jobjectArray array, jint* string_ids,
+                        int index, const std::string& value) {
+  const jint id = InternString(value);
+  if (id != 0 && string_ids[index] == id) {
+    return;
+  }
+  jstring j_value = env->NewStringUTF(value.c_str());
+  env->SetObjectArrayElement(array, index, j_value);
+  env->DeleteLocalRef(j_value);
+  string_ids[index] = id;
+}
+
 }  // namespace
 
 JNIEXPORT jlong JNICALL PACKET_GETTER_METHOD(nativeGetPacketFromReference)(
@@ -305,6 +433,95 @@ JNIEXPORT jdoubleArray JNICALL PACKET_GETTER_METHOD(nativeGetFloat64Vector)(
   return result;
 }
 
+JNIEXPORT jlong JNICALL PACKET_GETTER_METHOD(nativeGetLandmarks)(
+    JNIEnv* env, jobject thiz, jlong packet, jobject float_buffer,
+    jintArray offsets) {
+  mediapipe::Packet mediapipe_packet =
+      mediapipe::android::Graph::GetPacketFromHandle(packet);
+  ListPointers<mediapipe::NormalizedLandmarkList> normalized_lists;
+  if (GetLists(mediapipe_packet, &normalized_lists)) {
+    return FlattenLandmarkLists(env, normalized_lists, float_buffer, offsets);
+  }
+  ListPointers<mediapipe::LandmarkList> lists;
+  if (GetLists(mediapipe_packet, &lists)) {
+    return FlattenLandmarkLists(env, lists, float_buffer, offsets);
+  }
+  ThrowIfError(env, absl::InvalidArgumentError(absl::StrCat(
+                        "Packet does not hold landmark lists but ",
+                        mediapipe_packet.DebugTypeName())));
+  return 0;
+}
+
+JNIEXPORT jlong JNICALL PACKET_GETTER_METHOD(nativeGetClassifications)(
+    JNIEnv* env, jobject thiz, jlong packet, jobject score_buffer,
+    jobject index_buffer, jobjectArray labels, jobjectArray display_names,
+    jobject label_id_buffer, jobject display_name_id_buffer,
+    jintArray offsets) {
+  mediapipe::Packet mediapipe_packet =
+      mediapipe::android::Graph::GetPacketFromHandle(packet);
+  ListPointers<mediapipe::ClassificationList> lists;
+  if (!GetLists(mediapipe_packet, &lists)) {
+    ThrowIfError(env, absl::InvalidArgumentError(absl::StrCat(
+                          "Packet does not hold classification lists but ",
+                          mediapipe_packet.DebugTypeName())));
+    return 0;
+  }
+  int64_t num_classifications = 0;
+  for (const mediapipe::ClassificationList* list : lists) {
+    num_classifications += list->classification_size();
+  }
+  const jlong counts = PackCounts(lists.size(), num_classifications);
+  if (env->GetArrayLength(offsets) <= static_cast<jsize>(lists.size()) ||
+      env->GetArrayLength(labels) < num_classifications ||
+      env->GetArrayLength(display_names) < num_classifications) {
+    return counts;
+  }
+  int64_t score_capacity;
+  int64_t index_capacity;
+  float* scores = GetDirectBuffer<float>(env, score_buffer, &score_capacity);
+  if (scores == nullptr) {
+    return 0;
+  }
+  jint* indices = GetDirectBuffer<jint>(env, index_buffer, &index_capacity);
+  if (indices == nullptr) {
+    return 0;
+  }
+  int64_t label_id_capacity;
+  int64_t display_name_id_capacity;
+  jint* label_ids =
+      GetDirectBuffer<jint>(env, label_id_buffer, &label_id_capacity);
+  if (label_ids == nullptr) {
+    return 0;
+  }
+  jint* display_name_ids = GetDirectBuffer<jint>(env, display_name_id_buffer,
+                                                 &display_name_id_capacity);
+  if (display_name_ids == nullptr) {
+    return 0;
+  }
+  if (score_capacity < num_classifications ||
+      index_capacity < num_classifications ||
+      label_id_capacity < num_classifications ||
+      display_name_id_capacity < num_classifications) {
+    return counts;
+  }
+  absl::InlinedVector<jint, 5> list_offsets;
+  jint slot = 0;
+  for (const mediapipe::ClassificationList* list : lists) {
+    list_offsets.push_back(slot);
+    for (const auto& classification : list->classification()) {
+      scores[slot] = classification.score();
+      indices[slot] = classification.index();
+      SetStringIfChanged(env, labels, label_ids, slot, classification.label());
+      SetStringIfChanged(env, display_names, display_name_ids, slot,
+                         classification.display_name());
+      ++slot;
+    }
+  }
+  list_offsets.push_back(slot);
+  env->SetIntArrayRegion(offsets, 0, list_offsets.size(), list_offsets.data());
+  return counts;
+}
+
 JNIEXPORT jint JNICALL PACKET_GETTER_METHOD(nativeGetImageWidth)(JNIEnv* env,
                                                                  jobject thiz,
                                                                  jlong packet) {
@@ -92,6 +92,25 @@ JNIEXPORT jfloatArray JNICALL PACKET_GETTER_METHOD(nativeGetFloat32Vector)(
 JNIEXPORT jdoubleArray JNICALL PACKET_GETTER_METHOD(nativeGetFloat64Vector)(
     JNIEnv* env, jobject thiz, jlong packet);
 
+// Flattens a packet of NormalizedLandmarkList, LandmarkList or a std::vector
+// of either into float_buffer, 5 floats per landmark (x, y, z, visibility,
+// presence), and writes the index of the first landmark of each list followed
+// by the total into offsets. Returns the number of lists in the upper and the
+// number of landmarks in the lower 32 bits; nothing is written if the buffers
+// are too small for them.
+JNIEXPORT jlong JNICALL PACKET_GETTER_METHOD(nativeGetLandmarks)(
+    JNIEnv* env, jobject thiz, jlong packet, jobject float_buffer,
+    jintArray offsets);
+
+// Flattens a packet of ClassificationList or std::vector<ClassificationList>
+// into the given buffers and arrays, like nativeGetLandmarks. Label strings
+// that equal the existing array elements are not replaced.
+JNIEXPORT jlong JNICALL PACKET_GETTER_METHOD(nativeGetClassifications)(
+    JNIEnv* env, jobject thiz, jlong packet, jobject score_buffer,
+    jobject index_buffer, jobjectArray labels, jobjectArray display_names,
+    jobject label_id_buffer, jobject display_name_id_buffer,
+    jintArray offsets);
+
 // ImageFrame jni functions.
 JNIEXPORT jint JNICALL PACKET_GETTER_METHOD(nativeGetImageWidth)(JNIEnv* env,
                                                                  jobject thiz,
@@ -21,6 +21,7 @@
 #if defined(__ANDROID__)
 #include "mediapipe/java/com/google/mediapipe/framework/jni/android_asset_util_jni.h"
 #include "mediapipe/java/com/google/mediapipe/framework/jni/android_packet_creator_jni.h"
+#include "mediapipe/java/com/google/mediapipe/framework/jni/android_packet_getter_jni.h"
 #endif
 #include "mediapipe/java/com/google/mediapipe/framework/jni/compat_jni.h"
 #include "mediapipe/java/com/google/mediapipe/framework/jni/graph_jni.h"
@@ -119,9 +120,25 @@ void RegisterGraphNatives(JNIEnv *env) {
   AddJNINativeMethod(&graph_methods, graph, "nativeAddMultiStreamCallback",
                      native_add_multi_stream_callback_signature.c_str(),
                      (void *)&GRAPH_METHOD(nativeAddMultiStreamCallback));
+  std::string packet_batch_name = class_registry.GetClassName(
+      mediapipe::android::ClassRegistry::kPacketBatchClassName);
+  std::string native_add_packet_batch_callback_signature =
+      absl::StrFormat("(JLjava/util/List;L%s;[JZ)V", packet_batch_name);
+  AddJNINativeMethod(&graph_methods, graph, "nativeAddPacketBatchCallback",
+                     native_add_packet_batch_callback_signature.c_str(),
+                     (void *)&GRAPH_METHOD(nativeAddPacketBatchCallback));
   AddJNINativeMethod(&graph_methods, graph, "nativeMovePacketToInputStream",
                      "(JLjava/lang/String;JJ)V",
                      (void *)&GRAPH_METHOD(nativeMovePacketToInputStream));
+  AddJNINativeMethod(&graph_methods, graph, "nativeInternInputStreamName",
+                     "(JLjava/lang/String;)I",
+                     (void *)&GRAPH_METHOD(nativeInternInputStreamName));
+  AddJNINativeMethod(&graph_methods, graph, "nativeMovePacketsToInputStreams",
+                     "(J[I[JIJ)V",
+                     (void *)&GRAPH_METHOD(nativeMovePacketsToInputStreams));
+  AddJNINativeMethod(
+      &graph_methods, graph, "nativeMovePacketToInputStreamByHandle",
+      "(JIJJ)V", (void *)&GRAPH_METHOD(nativeMovePacketToInputStreamByHandle));
   AddJNINativeMethod(&graph_methods, graph, "nativeStartRunningGraph",
                      "(J[Ljava/lang/String;[J[Ljava/lang/String;[J)V",
                      (void *)&GRAPH_METHOD(nativeStartRunningGraph));
@@ -141,6 +158,12 @@ void RegisterGraphNatives(JNIEnv *env) {
   AddJNINativeMethod(&graph_methods, graph, "nativeAddPacketToInputStream",
                      "(JLjava/lang/String;JJ)V",
                      (void *)&GRAPH_METHOD(nativeAddPacketToInputStream));
+  AddJNINativeMethod(
+      &graph_methods, graph, "nativeAddPacketToInputStreamByHandle", "(JIJJ)V",
+      (void *)&GRAPH_METHOD(nativeAddPacketToInputStreamByHandle));
+  AddJNINativeMethod(&graph_methods, graph, "nativeCloseInputStreamByHandle",
+                     "(JI)V",
+                     (void *)&GRAPH_METHOD(nativeCloseInputStreamByHandle));
   RegisterNativesVector(env, graph_class, graph_methods);
   env->DeleteLocalRef(graph_class);
 }
@@ -203,6 +226,27 @@ void RegisterAndroidPacketCreatorNatives(JNIEnv *env) {
 #endif
 }
 
+void RegisterAndroidPacketGetterNatives(JNIEnv *env) {
+#if defined(__ANDROID__)
+  auto &class_registry = mediapipe::android::ClassRegistry::GetInstance();
+  std::string android_packet_getter(
+      mediapipe::android::ClassRegistry::kAndroidPacketGetterClassName);
+  std::string android_packet_getter_name =
+      class_registry.GetClassName(android_packet_getter);
+  jclass android_packet_getter_class =
+      env->FindClass(android_packet_getter_name.c_str());
+
+  std::vector<JNINativeMethodStrings> android_packet_getter_methods;
+  AddJNINativeMethod(
+      &android_packet_getter_methods, android_packet_getter,
+      "nativeCopyToBitmap", "(JLandroid/graphics/Bitmap;)Z",
+      (void *)&ANDROID_PACKET_GETTER_METHOD(nativeCopyToBitmap));
+  RegisterNativesVector(env, android_packet_getter_class,
+                        android_packet_getter_methods);
+  env->DeleteLocalRef(android_packet_getter_class);
+#endif
+}
+
 void RegisterPacketCreatorNatives(JNIEnv *env) {
   auto &class_registry = mediapipe::android::ClassRegistry::GetInstance();
   std::string packet_creator(
@@ -220,7 +264,7 @@ void RegisterPacketCreatorNatives(JNIEnv *env) {
       (void *)&PACKET_CREATOR_METHOD(nativeCreateRgbaImageFrame));
   AddJNINativeMethod(
       &packet_creator_methods, packet_creator, "nativeCreateFloatImageFrame",
-      "(JLjava/nio/ByteBuffer;II)J",
+      "(JLjava/nio/FloatBuffer;II)J",
       (void *)&PACKET_CREATOR_METHOD(nativeCreateFloatImageFrame));
   AddJNINativeMethod(&packet_creator_methods, packet_creator,
                      "nativeCreateInt32", "(JI)J",
@@ -280,6 +324,14 @@ void RegisterPacketGetterNatives(JNIEnv *env) {
   AddJNINativeMethod(&packet_getter_methods, packet_getter,
                      "nativeGetProtoVector", "(J)[[B",
                      (void *)&PACKET_GETTER_METHOD(nativeGetProtoVector));
+  AddJNINativeMethod(&packet_getter_methods, packet_getter,
+                     "nativeGetLandmarks", "(JLjava/nio/FloatBuffer;[I)J",
+                     (void *)&PACKET_GETTER_METHOD(nativeGetLandmarks));
+  AddJNINativeMethod(
+      &packet_getter_methods, packet_getter, "nativeGetClassifications",
+      "(JLjava/nio/FloatBuffer;Ljava/nio/IntBuffer;[Ljava/lang/String;"
+      "[Ljava/lang/String;Ljava/nio/IntBuffer;Ljava/nio/IntBuffer;[I)J",
+      (void *)&PACKET_GETTER_METHOD(nativeGetClassifications));
   AddJNINativeMethod(&packet_getter_methods, packet_getter,
                      "nativeGetRgbaFromRgb", "(JLjava/nio/ByteBuffer;)Z",
                      (void *)&PACKET_GETTER_METHOD(nativeGetRgbaFromRgb));
@@ -296,12 +348,19 @@ void RegisterPacketNatives(JNIEnv *env) {
   std::vector<JNINativeMethodStrings> packet_methods;
   AddJNINativeMethod(&packet_methods, packet, "nativeReleasePacket", "(J)V",
                      (void *)&PACKET_METHOD(nativeReleasePacket));
+  AddJNINativeMethod(&packet_methods, packet, "nativeReleasePackets", "([JI)V",
+                     (void *)&PACKET_METHOD(nativeReleasePackets));
   AddJNINativeMethod(&packet_methods, packet, "nativeCopyPacket", "(J)J",
                      (void *)&PACKET_METHOD(nativeCopyPacket));
   AddJNINativeMethod(&packet_methods, packet, "nativeGetTimestamp", "(J)J",
                      (void *)&PACKET_METHOD(nativeGetTimestamp));
   AddJNINativeMethod(&packet_methods, packet, "nativeIsEmpty", "(J)Z",
                      (void *)&PACKET_METHOD(nativeIsEmpty));
+  AddJNINativeMethod(&packet_methods, packet, "nativeGetTypeName",
+                     "(J)Ljava/lang/String;",
+                     (void *)&PACKET_METHOD(nativeGetTypeName));
+  AddJNINativeMethod(&packet_methods, packet, "nativeGetGraphHandle", "(J)J",
+                     (void *)&PACKET_METHOD(nativeGetGraphHandle));
   RegisterNativesVector(env, packet_class, packet_methods);
   env->DeleteLocalRef(packet_class);
 }
@@ -329,6 +388,7 @@ void RegisterAllNatives(JNIEnv *env) {
   RegisterGraphProfilerNatives(env);
   RegisterAndroidAssetUtilNatives(env);
   RegisterAndroidPacketCreatorNatives(env);
+  RegisterAndroidPacketGetterNatives(env);
   RegisterPacketCreatorNatives(env);
   RegisterPacketGetterNatives(env);
   RegisterPacketNatives(env);
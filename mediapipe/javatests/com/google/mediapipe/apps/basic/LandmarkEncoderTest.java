@@ -0,0 +1,146 @@
+// Copyright 2023 Hiroaki Yaguchi, 947D-Tech.
+//
+// Licensed under the Apache License, Version 2.0 (the "License");
+// you may not use this file except in compliance with the License.
+// You may obtain a copy of the License at
+//
+//      http://www.apache.org/licenses/LICENSE-2.0
+//
+// Unless required by applicable law or agreed to in writing, software
+// distributed under the License is distributed on an "AS IS" BASIS,
+// WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+// See the License for the specific language governing permissions and
+// limitations under the License.
+
+package com.google.mediapipe.apps.basic;
+
+import static com.google.common.truth.Truth.assertThat;
+
+import androidx.test.ext.junit.runners.AndroidJUnit4;
+import java.nio.ByteBuffer;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+
+/** Round-trip tests of {@link LandmarkEncoder} and {@link LandmarkDecoder}. */
+@RunWith(AndroidJUnit4.class)
+public final class LandmarkEncoderTest {
+  private static final float FOCAL_LENGTH = 500.5f;
+  private static final int FRAME_WIDTH = 640;
+  private static final int FRAME_HEIGHT = 480;
+  private static final int NUM_LANDMARKS = 33;
+  // Quantized values are rounded to the nearest multiple of the scale.
+  private static final float QUANTIZATION_TOLERANCE =
+      LandmarkWireFormat.DEFAULT_QUANTIZATION_SCALE / 2 + 1e-6f;
+
+  private final LandmarkEncoder encoder = new LandmarkEncoder();
+  private final LandmarkDecoder decoder = new LandmarkDecoder();
+  private final LandmarkStream pose =
+      new LandmarkStream(
+          LandmarkWireFormat.STREAM_POSE,
+          LandmarkWireFormat.STREAM_FLAG_VISIBILITY | LandmarkWireFormat.STREAM_FLAG_PRESENCE,
+          NUM_LANDMARKS);
+  private final LandmarkStream poseWorld =
+      new LandmarkStream(LandmarkWireFormat.STREAM_POSE_WORLD, 0, NUM_LANDMARKS);
+
+  @Test
+  public void keyframe_roundTripsFloatAndQuantizedStreams() {
+    fill(pose, /* frame= */ 0);
+    fill(poseWorld, /* frame= */ 0);
+
+    assertThat(decoder.decode(encode(/* quantizePose= */ true))).isTrue();
+
+    assertThat(decoder.isKeyframe()).isTrue();
+    assertThat(decoder.sequence()).isEqualTo(0);
+    assertThat(decoder.focalLength()).isEqualTo(FOCAL_LENGTH);
+    assertThat(decoder.frameWidth()).isEqualTo(FRAME_WIDTH);
+    assertThat(decoder.frameHeight()).isEqualTo(FRAME_HEIGHT);
+    assertThat(decoder.streamCount()).isEqualTo(2);
+    assertDecoded(pose, QUANTIZATION_TOLERANCE);
+    assertDecoded(poseWorld, 0);
+  }
+
+  @Test
+  public void deltaFrames_roundTripBetweenKeyframes() {
+    encoder.setKeyframeInterval(3);
+    for (int frame = 0; frame < 7; ++frame) {
+      fill(pose, frame);
+      fill(poseWorld, frame);
+
+      assertThat(decoder.decode(encode(/* quantizePose= */ true))).isTrue();
+
+      assertThat(decoder.isKeyframe()).isEqualTo(frame % 3 == 0);
+      assertThat(decoder.sequence()).isEqualTo(frame);
+      assertDecoded(pose, QUANTIZATION_TOLERANCE);
+      assertDecoded(poseWorld, 0);
+    }
+    assertThat(decoder.getLostFrameCount()).isEqualTo(0);
+    assertThat(decoder.getUndecodableFrameCount()).isEqualTo(0);
+  }
+
+  @Test
+  public void deltaFrame_isRejectedWhenItsKeyframeWasLost() {
+    encoder.setKeyframeInterval(3);
+    fill(pose, /* frame= */ 0);
+    // The keyframe is encoded but never decoded.
+    encode(/* quantizePose= */ true);
+
+    for (int frame = 1; frame < 3; ++frame) {
+      fill(pose, frame);
+      assertThat(decoder.decode(encode(/* quantizePose= */ true))).isFalse();
+      assertThat(decoder.streamCount()).isEqualTo(0);
+    }
+    assertThat(decoder.getUndecodableFrameCount()).isEqualTo(2);
+
+    // The next keyframe recovers.
+    fill(pose, /* frame= */ 3);
+    assertThat(decoder.decode(encode(/* quantizePose= */ true))).isTrue();
+    assertThat(decoder.isKeyframe()).isTrue();
+    assertDecoded(pose, QUANTIZATION_TOLERANCE);
+  }
+
+  @Test
+  public void deltaFrame_isRejectedWhenThePreviousDeltaWasLost() {
+    encoder.setKeyframeInterval(4);
+    fill(pose, /* frame= */ 0);
+    assertThat(decoder.decode(encode(/* quantizePose= */ true))).isTrue();
+    fill(pose, /* frame= */ 1);
+    // The first delta frame is lost.
+    encode(/* quantizePose= */ true);
+
+    fill(pose, /* frame= */ 2);
+    assertThat(decoder.decode(encode(/* quantizePose= */ true))).isFalse();
+
+    assertThat(decoder.getLostFrameCount()).isEqualTo(1);
+    assertThat(decoder.getUndecodableFrameCount()).isEqualTo(1);
+  }
+
+  private ByteBuffer encode(boolean quantizePose) {
+    encoder.begin(FOCAL_LENGTH, FRAME_WIDTH, FRAME_HEIGHT);
+    encoder.addStream(pose, quantizePose);
+    if (poseWorld.count > 0) {
+      encoder.addStream(poseWorld, /* quantize= */ false);
+    }
+    return encoder.finish();
+  }
+
+  /** Fills the stream with values that move a little from one frame to the next. */
+  private static void fill(LandmarkStream stream, int frame) {
+    stream.count = NUM_LANDMARKS;
+    stream.timestamp = 1000000L + frame * 33333L;
+    int numValues = stream.count * stream.components();
+    for (int i = 0; i < numValues; ++i) {
+      stream.values[i] = (float) Math.sin(i * 0.37 + frame * 0.05);
+    }
+  }
+
+  private void assertDecoded(LandmarkStream expected, float tolerance) {
+    LandmarkStream actual = decoder.findStream(expected.id);
+    assertThat(actual).isNotNull();
+    assertThat(actual.flags).isEqualTo(expected.flags);
+    assertThat(actual.count).isEqualTo(expected.count);
+    assertThat(actual.timestamp).isEqualTo(expected.timestamp);
+    for (int i = 0; i < expected.count * expected.components(); ++i) {
+      assertThat(actual.values[i]).isWithin(tolerance).of(expected.values[i]);
+    }
+  }
+}
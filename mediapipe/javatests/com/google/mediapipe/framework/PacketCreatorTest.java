@@ -0,0 +1,63 @@
+// Copyright 2023 The MediaPipe Authors.
+//
+// Licensed under the Apache License, Version 2.0 (the "License");
+// you may not use this file except in compliance with the License.
+// You may obtain a copy of the License at
+//
+//      http://www.apache.org/licenses/LICENSE-2.0
+//
+// Unless required by applicable law or agreed to in writing, software
+// distributed under the License is distributed on an "AS IS" BASIS,
+// WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+// See the License for the specific language governing permissions and
+// limitations under the License.
+
+package com.google.mediapipe.framework;
+
+import static com.google.common.truth.Truth.assertThat;
+import static org.junit.Assert.assertThrows;
+
+import androidx.test.ext.junit.runners.AndroidJUnit4;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.FloatBuffer;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+
+/** Test for {@link PacketCreator}. */
+@RunWith(AndroidJUnit4.class)
+public final class PacketCreatorTest {
+
+  // The buffer checks fail before the graph is used, so no graph is needed.
+  private final PacketCreator packetCreator = new PacketCreator(null);
+
+  @Test
+  public void createMatrix_failsWithNonDirectBuffer() {
+    IllegalArgumentException exception =
+        assertThrows(
+            IllegalArgumentException.class,
+            () -> packetCreator.createMatrix(2, 2, FloatBuffer.allocate(4)));
+    assertThat(exception).hasMessageThat().contains("direct buffer");
+  }
+
+  @Test
+  public void createMatrix_failsWithNonNativeByteOrder() {
+    ByteOrder otherOrder =
+        ByteOrder.nativeOrder() == ByteOrder.LITTLE_ENDIAN
+            ? ByteOrder.BIG_ENDIAN
+            : ByteOrder.LITTLE_ENDIAN;
+    FloatBuffer data = ByteBuffer.allocateDirect(4 * 4).order(otherOrder).asFloatBuffer();
+    IllegalArgumentException exception =
+        assertThrows(IllegalArgumentException.class, () -> packetCreator.createMatrix(2, 2, data));
+    assertThat(exception).hasMessageThat().contains("native byte order");
+  }
+
+  @Test
+  public void createMatrix_failsWithTooFewFloats() {
+    FloatBuffer data =
+        ByteBuffer.allocateDirect(3 * 4).order(ByteOrder.nativeOrder()).asFloatBuffer();
+    IllegalArgumentException exception =
+        assertThrows(IllegalArgumentException.class, () -> packetCreator.createMatrix(2, 2, data));
+    assertThat(exception).hasMessageThat().contains("at least 4 floats");
+  }
+}
@@ -0,0 +1,141 @@
+// Copyright 2023 The MediaPipe Authors.
+//
+// Licensed under the Apache License, Version 2.0 (the "License");
+// you may not use this file except in compliance with the License.
+// You may obtain a copy of the License at
+//
+//      http://www.apache.org/licenses/LICENSE-2.0
+//
+// Unless required by applicable law or agreed to in writing, software
+// distributed under the License is distributed on an "AS IS" BASIS,
+// WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+// See the License for the specific language governing permissions and
+// limitations under the License.
+
+package com.google.mediapipe.framework;
+
+import static com.google.common.truth.Truth.assertThat;
+import static com.google.common.truth.Truth.assertWithMessage;
+
+import androidx.test.ext.junit.runners.AndroidJUnit4;
+import java.io.File;
+import java.lang.reflect.Method;
+import java.lang.reflect.Modifier;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+
+/**
+ * Checks that the JNI signatures registered by jni/register_natives.cc match the native methods
+ * declared in Java. A mismatch makes {@code RegisterNatives} fail, which is fatal when the library
+ * is loaded.
+ */
+@RunWith(AndroidJUnit4.class)
+public final class RegisterNativesTest {
+  private static final String JNI_DIR = "mediapipe/java/com/google/mediapipe/framework/jni/";
+
+  // std::string packet_getter(mediapipe::android::ClassRegistry::kPacketGetterClassName);
+  private static final Pattern CLASS_VARIABLE =
+      Pattern.compile("std::string (\\w+)\\(\\s*mediapipe::android::ClassRegistry::(k\\w+)\\)");
+  // static constexpr char const* kPacketGetterClassName = "com/google/.../PacketGetter";
+  private static final Pattern CLASS_NAME = Pattern.compile("(k\\w+ClassName) =\\s*\"([^\"]+)\"");
+  // AddJNINativeMethod(&methods, packet_getter, "nativeGetLandmarks", "(J...)" "...J", ...);
+  // Signatures built at runtime are not string literals and are skipped.
+  private static final Pattern REGISTRATION =
+      Pattern.compile(
+          "AddJNINativeMethod\\(\\s*&\\w+,\\s*(\\w+),\\s*\"(\\w+)\",\\s*((?:\"[^\"]*\"\\s*)+),");
+  private static final Pattern STRING_LITERAL = Pattern.compile("\"([^\"]*)\"");
+
+  @Test
+  public void registeredSignaturesMatchJavaDeclarations() throws Exception {
+    Map<String, String> classNames = new HashMap<>();
+    Matcher matcher = CLASS_NAME.matcher(readSource("class_registry.h"));
+    while (matcher.find()) {
+      classNames.put(matcher.group(1), matcher.group(2));
+    }
+    String registrations = readSource("register_natives.cc");
+    Map<String, String> classOfVariable = new HashMap<>();
+    matcher = CLASS_VARIABLE.matcher(registrations);
+    while (matcher.find()) {
+      classOfVariable.put(matcher.group(1), classNames.get(matcher.group(2)));
+    }
+
+    int checked = 0;
+    matcher = REGISTRATION.matcher(registrations);
+    while (matcher.find()) {
+      String className = classOfVariable.get(matcher.group(1));
+      assertWithMessage("Class of %s", matcher.group(1)).that(className).isNotNull();
+      String methodName = matcher.group(2);
+      StringBuilder signature = new StringBuilder();
+      Matcher literal = STRING_LITERAL.matcher(matcher.group(3));
+      while (literal.find()) {
+        signature.append(literal.group(1));
+      }
+      assertWithMessage("Signature of %s.%s", className, methodName)
+          .that(nativeSignatures(className, methodName))
+          .contains(signature.toString());
+      ++checked;
+    }
+    assertThat(checked).isGreaterThan(0);
+  }
+
+  private static String readSource(String fileName) throws Exception {
+    String path = System.getenv("TEST_WORKSPACE") + "/" + JNI_DIR + fileName;
+    File file = new File(System.getenv("TEST_SRCDIR"), path);
+    return new String(Files.readAllBytes(file.toPath()), StandardCharsets.UTF_8);
+  }
+
+  private static List<String> nativeSignatures(String className, String methodName)
+      throws Exception {
+    // Not initialized, so that the native library is not loaded.
+    Class<?> cls =
+        Class.forName(
+            className.replace('/', '.'),
+            /* initialize= */ false,
+            RegisterNativesTest.class.getClassLoader());
+    List<String> signatures = new ArrayList<>();
+    for (Method method : cls.getDeclaredMethods()) {
+      if (method.getName().equals(methodName) && Modifier.isNative(method.getModifiers())) {
+        StringBuilder signature = new StringBuilder("(");
+        for (Class<?> parameterType : method.getParameterTypes()) {
+          signature.append(descriptor(parameterType));
+        }
+        signatures.add(signature.append(')').append(descriptor(method.getReturnType())).toString());
+      }
+    }
+    return signatures;
+  }
+
+  private static String descriptor(Class<?> type) {
+    if (type.isArray()) {
+      return "[" + descriptor(type.getComponentType());
+    }
+    if (type == void.class) {
+      return "V";
+    } else if (type == boolean.class) {
+      return "Z";
+    } else if (type == byte.class) {
+      return "B";
+    } else if (type == char.class) {
+      return "C";
+    } else if (type == short.class) {
+      return "S";
+    } else if (type == int.class) {
+      return "I";
+    } else if (type == long.class) {
+      return "J";
+    } else if (type == float.class) {
+      return "F";
+    } else if (type == double.class) {
+      return "D";
+    }
+    return "L" + type.getName().replace('.', '/') + ";";
+  }
+}
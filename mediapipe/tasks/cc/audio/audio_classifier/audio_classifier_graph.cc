@@ -15,11 +15,13 @@ limitations under the License.
 
 #include <stdint.h>
 
+#include <cmath>
 #include <utility>
 #include <vector>
 
 #include "absl/status/status.h"
 #include "absl/status/statusor.h"
+#include "absl/strings/str_cat.h"
 #include "absl/types/optional.h"
 #include "flatbuffers/flatbuffers.h"
 #include "mediapipe/calculators/core/constant_side_packet_calculator.pb.h"
@@ -97,14 +99,58 @@ absl::StatusOr<AudioTensorSpecs> BuildPreprocessingSpecs(
   return BuildInputAudioTensorSpecs(*input_tensor, audio_tensor_metadata);
 }
 
-// Fills in the AudioToTensorCalculatorOptions based on the AudioTensorSpecs.
-void ConfigureAudioToTensorCalculator(
-    const AudioTensorSpecs& audio_tensor_specs, bool use_stream_mode,
+// Fills in the AudioToTensorCalculatorOptions based on the AudioTensorSpecs
+// and the stream window of the task options, if any. The stream window length
+// must match the model input length, and consecutive windows overlap by the
+// window length minus the hop length.
+absl::Status ConfigureAudioToTensorCalculator(
+    const AudioTensorSpecs& audio_tensor_specs,
+    const proto::AudioClassifierGraphOptions& task_options,
     AudioToTensorCalculatorOptions* options) {
+  const bool use_stream_mode = task_options.base_options().use_stream_mode();
   options->set_num_channels(audio_tensor_specs.num_channels);
   options->set_num_samples(audio_tensor_specs.num_samples);
   options->set_target_sample_rate(audio_tensor_specs.sample_rate);
   options->set_stream_mode(use_stream_mode);
+  if (!task_options.has_stream_window_length_ms() &&
+      !task_options.has_stream_hop_length_ms()) {
+    return absl::OkStatus();
+  }
+  if (!use_stream_mode || !task_options.has_stream_window_length_ms() ||
+      !task_options.has_stream_hop_length_ms()) {
+    return CreateStatusWithPayload(
+        absl::StatusCode::kInvalidArgument,
+        "Stream window length and hop length must be set together, and only "
+        "in the audio stream mode.",
+        MediaPipeTasksStatus::kInvalidArgumentError);
+  }
+  const double model_window_ms = audio_tensor_specs.num_samples * 1000.0 /
+                                 audio_tensor_specs.sample_rate;
+  if (std::abs(task_options.stream_window_length_ms() - model_window_ms) >=
+      1.0) {
+    return CreateStatusWithPayload(
+        absl::StatusCode::kInvalidArgument,
+        absl::StrCat("Stream window length (",
+                     task_options.stream_window_length_ms(),
+                     " ms) must match the model input length (",
+                     model_window_ms, " ms)."),
+        MediaPipeTasksStatus::kInvalidArgumentError);
+  }
+  const int hop_samples =
+      std::round(task_options.stream_hop_length_ms() *
+                 audio_tensor_specs.sample_rate / 1000.0);
+  if (hop_samples <= 0 || hop_samples > audio_tensor_specs.num_samples) {
+    return CreateStatusWithPayload(
+        absl::StatusCode::kInvalidArgument,
+        absl::StrCat("Stream hop length (",
+                     task_options.stream_hop_length_ms(),
+                     " ms) must be > 0 and <= the model input length (",
+                     model_window_ms, " ms)."),
+        MediaPipeTasksStatus::kInvalidArgumentError);
+  }
+  options->set_num_overlapping_samples(audio_tensor_specs.num_samples -
+                                       hop_samples);
+  return absl::OkStatus();
 }
 
 }  // namespace
@@ -205,9 +251,9 @@ class AudioClassifierGraph : public core::ModelTaskGraph {
     ASSIGN_OR_RETURN(auto audio_tensor_specs,
                      BuildPreprocessingSpecs(model_resources));
     auto& audio_to_tensor = graph.AddNode("AudioToTensorCalculator");
-    ConfigureAudioToTensorCalculator(
-        audio_tensor_specs, use_stream_mode,
-        &audio_to_tensor.GetOptions<AudioToTensorCalculatorOptions>());
+    MP_RETURN_IF_ERROR(ConfigureAudioToTensorCalculator(
+        audio_tensor_specs, task_options,
+        &audio_to_tensor.GetOptions<AudioToTensorCalculatorOptions>()));
     audio_in >> audio_to_tensor.In(kAudioTag);
     if (sample_rate_in.has_value()) {
       sample_rate_in.value() >> audio_to_tensor.In(kSampleRateTag);
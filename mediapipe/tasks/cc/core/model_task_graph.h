@@ -82,7 +82,9 @@ class ModelTaskGraph : public Subgraph {
   // available, a tag is generated internally asscoiated with the created model
   // resource. If more than one model resources are created in a graph, the
   // model resources graph service add the tag_suffix to support multiple
-  // resources.
+  // resources. If the graph service already holds model resources with the
+  // same tag, e.g. created by another graph sharing the service object, they
+  // are returned instead.
   absl::StatusOr<const ModelResources*> CreateModelResources(
       SubgraphContext* sc, std::unique_ptr<proto::ExternalFile> external_file,
       std::string tag_suffix = "");
@@ -115,7 +117,9 @@ class ModelTaskGraph : public Subgraph {
   // model resources graph service is available, a tag is generated internally
   // asscoiated with the created model asset bundle resource. If more than one
   // model asset bundle resources are created in a graph, the model resources
-  // graph service add the tag_suffix to support multiple resources.
+  // graph service add the tag_suffix to support multiple resources. If the
+  // graph service already holds model asset bundle resources with the same
+  // tag, they are returned instead.
   absl::StatusOr<const ModelAssetBundleResources*>
   CreateModelAssetBundleResources(
       SubgraphContext* sc, std::unique_ptr<proto::ExternalFile> external_file,
@@ -15,6 +15,7 @@
 package com.google.mediapipe.tasks.audio.audioclassifier;
 
 import android.content.Context;
+import android.media.AudioRecord;
 import android.os.ParcelFileDescriptor;
 import com.google.auto.value.AutoValue;
 import com.google.mediapipe.proto.CalculatorOptionsProto.CalculatorOptions;
@@ -23,6 +24,7 @@ import com.google.mediapipe.framework.Packet;
 import com.google.mediapipe.framework.PacketGetter;
 import com.google.mediapipe.framework.ProtoUtil;
 import com.google.mediapipe.tasks.audio.audioclassifier.proto.AudioClassifierGraphOptionsProto;
+import com.google.mediapipe.tasks.audio.core.AudioStreamWindow;
 import com.google.mediapipe.tasks.audio.core.BaseAudioTaskApi;
 import com.google.mediapipe.tasks.audio.core.RunningMode;
 import com.google.mediapipe.tasks.components.containers.AudioData;
@@ -33,6 +35,7 @@ import com.google.mediapipe.tasks.core.ErrorListener;
 import com.google.mediapipe.tasks.core.OutputHandler;
 import com.google.mediapipe.tasks.core.OutputHandler.PureResultListener;
 import com.google.mediapipe.tasks.core.OutputHandler.ResultListener;
+import com.google.mediapipe.tasks.core.ResultDispatchOptions;
 import com.google.mediapipe.tasks.core.TaskInfo;
 import com.google.mediapipe.tasks.core.TaskOptions;
 import com.google.mediapipe.tasks.core.TaskRunner;
@@ -91,6 +94,8 @@ public final class AudioClassifier extends BaseAudioTaskApi {
       "mediapipe.tasks.audio.audio_classifier.AudioClassifierGraph";
   private static final long MICROSECONDS_PER_MILLISECOND = 1000;
 
+  private final Optional<AudioStreamWindow> streamWindow;
+
   static {
     ProtoUtil.registerTypeName(
         ClassificationsProto.ClassificationResult.class,
@@ -186,17 +191,26 @@ public final class AudioClassifier extends BaseAudioTaskApi {
             return null;
           }
         });
+    Optional<AudioStreamWindow> streamWindow =
+        options.streamWindowLengthMs().isPresent()
+            ? Optional.of(
+                AudioStreamWindow.create(
+                    options.streamWindowLengthMs().get(), options.streamHopLengthMs().get()))
+            : Optional.empty();
     if (options.resultListener().isPresent()) {
       ResultListener<AudioClassifierResult, Void> resultListener =
           new ResultListener<AudioClassifierResult, Void>() {
             @Override
             public void run(AudioClassifierResult audioClassifierResult, Void input) {
+              streamWindow.ifPresent(
+                  window -> window.recordResult(audioClassifierResult.timestampMs()));
               options.resultListener().get().run(audioClassifierResult);
             }
           };
       handler.setResultListener(resultListener);
     }
     options.errorListener().ifPresent(handler::setErrorListener);
+    options.resultDispatchOptions().ifPresent(handler::setResultDispatchOptions);
     // Audio tasks should not drop input audio due to flow limiting, which may cause data
     // inconsistency.
     TaskRunner runner =
@@ -209,10 +223,11 @@ public final class AudioClassifier extends BaseAudioTaskApi {
                 .setInputStreams(INPUT_STREAMS)
                 .setOutputStreams(OUTPUT_STREAMS)
                 .setTaskOptions(options)
+                .setModelBaseOptions(options.baseOptions())
                 .setEnableFlowLimiting(false)
                 .build(),
             handler);
-    return new AudioClassifier(runner, options.runningMode());
+    return new AudioClassifier(runner, options.runningMode(), streamWindow);
   }
 
   /**
@@ -221,9 +236,13 @@ public final class AudioClassifier extends BaseAudioTaskApi {
    *
    * @param taskRunner a {@link TaskRunner}.
    * @param runningMode a mediapipe audio task {@link RunningMode}.
+   * @param streamWindow the optional sliding window of the {@link AudioRecord} stream.
    */
-  private AudioClassifier(TaskRunner taskRunner, RunningMode runningMode) {
-    super(taskRunner, runningMode, AUDIO_IN_STREAM_NAME, SAMPLE_RATE_IN_STREAM_NAME);
+  private AudioClassifier(
+      TaskRunner taskRunner, RunningMode runningMode, Optional<AudioStreamWindow> streamWindow) {
+    super(
+        taskRunner, runningMode, AUDIO_IN_STREAM_NAME, SAMPLE_RATE_IN_STREAM_NAME, streamWindow);
+    this.streamWindow = streamWindow;
   }
 
   /*
@@ -295,6 +314,45 @@ public final class AudioClassifier extends BaseAudioTaskApi {
     sendAudioStreamData(audioBlock, timestampMs);
   }
 
+  /**
+   * Reads the audio available in an {@link AudioRecord} without blocking, and sends it for
+   * classification. Only use this method when the AudioClassifier is created with the audio stream
+   * mode and a stream window.
+   *
+   * <p>The AudioClassifier sends the audio read every {@code streamHopLengthMs}, timestamped with
+   * its start in the stream, so each sample is read, converted and sent once. The graph accumulates
+   * the audio and classifies a window of {@code streamWindowLengthMs} every {@code
+   * streamHopLengthMs}, overlapping the previous window, and the result of each window is delivered
+   * to the `resultListener` provided in the `AudioClassifierOptions`. Call this method
+   * periodically, e.g. every hop, with the same recording {@link AudioRecord}.
+   *
+   * @param audioRecord an {@link AudioRecord} that is recording, in {@link
+   *     android.media.AudioFormat#ENCODING_PCM_16BIT} or {@link
+   *     android.media.AudioFormat#ENCODING_PCM_FLOAT}.
+   * @return the number of hops sent for classification.
+   * @throws MediaPipeException if the AudioClassifier has no stream window or there is an internal
+   *     error.
+   * @throws IllegalArgumentException for an unsupported or changing audio format.
+   * @throws IllegalStateException if reading from the AudioRecord failed.
+   */
+  public int classifyAsync(AudioRecord audioRecord) {
+    return sendAudioRecord(audioRecord);
+  }
+
+  /**
+   * Returns the number of windows completed by the hops sent by {@link
+   * #classifyAsync(AudioRecord)} and of results, and the latency of the results, from sending the
+   * hop completing a window to the delivery of its result.
+   *
+   * @throws IllegalStateException if the AudioClassifier has no stream window.
+   */
+  public AudioStreamWindow.Stats getStreamWindowStats() {
+    if (!streamWindow.isPresent()) {
+      throw new IllegalStateException("The audio classifier has no stream window.");
+    }
+    return streamWindow.get().getStats();
+  }
+
   /** Options for setting up and {@link AudioClassifier}. */
   @AutoValue
   public abstract static class AudioClassifierOptions extends TaskOptions {
@@ -369,6 +427,26 @@ public final class AudioClassifier extends BaseAudioTaskApi {
       /** Sets an optional {@link ErrorListener}. */
       public abstract Builder setErrorListener(ErrorListener errorListener);
 
+      /**
+       * Sets the options to convert and deliver results to the result listener on an executor
+       * instead of the MediaPipe graph thread in the audio stream mode.
+       */
+      public abstract Builder setResultDispatchOptions(ResultDispatchOptions value);
+
+      /**
+       * Sets the optional length of the windows classified in the audio stream mode, used by {@code
+       * classifyAsync(AudioRecord)}. Must match the input length of the model, otherwise creating
+       * the AudioClassifier fails. Must be set along with the hop length.
+       */
+      public abstract Builder setStreamWindowLengthMs(Integer streamWindowLengthMs);
+
+      /**
+       * Sets the optional interval between the starts of consecutive windows classified in the
+       * audio stream mode, i.e. between consecutive results. Consecutive windows overlap by the
+       * window length minus the hop length. Must be > 0 and <= the window length.
+       */
+      public abstract Builder setStreamHopLengthMs(Integer streamHopLengthMs);
+
       abstract AudioClassifierOptions autoBuild();
 
       /**
@@ -396,6 +474,24 @@ public final class AudioClassifier extends BaseAudioTaskApi {
           throw new IllegalArgumentException(
               "Category allowlist and denylist are mutually exclusive.");
         }
+        if (options.streamWindowLengthMs().isPresent()
+            != options.streamHopLengthMs().isPresent()) {
+          throw new IllegalArgumentException(
+              "Stream window length and hop length must be set together.");
+        }
+        if (options.streamWindowLengthMs().isPresent()) {
+          if (options.runningMode() != RunningMode.AUDIO_STREAM) {
+            throw new IllegalArgumentException(
+                "A stream window can only be set in the audio stream mode.");
+          }
+          if (options.streamWindowLengthMs().get() <= 0 || options.streamHopLengthMs().get() <= 0) {
+            throw new IllegalArgumentException("Stream window and hop lengths must be > 0.");
+          }
+          if (options.streamHopLengthMs().get() > options.streamWindowLengthMs().get()) {
+            throw new IllegalArgumentException(
+                "Stream hop length must be <= stream window length.");
+          }
+        }
         return options;
       }
     }
@@ -418,6 +514,12 @@ public final class AudioClassifier extends BaseAudioTaskApi {
 
     abstract Optional<ErrorListener> errorListener();
 
+    abstract Optional<ResultDispatchOptions> resultDispatchOptions();
+
+    abstract Optional<Integer> streamWindowLengthMs();
+
+    abstract Optional<Integer> streamHopLengthMs();
+
     public static Builder builder() {
       return new AutoValue_AudioClassifier_AudioClassifierOptions.Builder()
           .setRunningMode(RunningMode.AUDIO_CLIPS)
@@ -449,6 +551,8 @@ public final class AudioClassifier extends BaseAudioTaskApi {
           AudioClassifierGraphOptionsProto.AudioClassifierGraphOptions.newBuilder()
               .setBaseOptions(baseOptionsBuilder)
               .setClassifierOptions(classifierOptionsBuilder);
+      streamWindowLengthMs().ifPresent(taskOptionsBuilder::setStreamWindowLengthMs);
+      streamHopLengthMs().ifPresent(taskOptionsBuilder::setStreamHopLengthMs);
       return CalculatorOptions.newBuilder()
           .setExtension(
               AudioClassifierGraphOptionsProto.AudioClassifierGraphOptions.ext,
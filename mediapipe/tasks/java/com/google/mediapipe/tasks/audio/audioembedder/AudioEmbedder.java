@@ -33,6 +33,7 @@ import com.google.mediapipe.tasks.core.ErrorListener;
 import com.google.mediapipe.tasks.core.OutputHandler;
 import com.google.mediapipe.tasks.core.OutputHandler.PureResultListener;
 import com.google.mediapipe.tasks.core.OutputHandler.ResultListener;
+import com.google.mediapipe.tasks.core.ResultDispatchOptions;
 import com.google.mediapipe.tasks.core.TaskInfo;
 import com.google.mediapipe.tasks.core.TaskOptions;
 import com.google.mediapipe.tasks.core.TaskRunner;
@@ -192,6 +193,7 @@ public final class AudioEmbedder extends BaseAudioTaskApi {
       handler.setResultListener(resultListener);
     }
     options.errorListener().ifPresent(handler::setErrorListener);
+    options.resultDispatchOptions().ifPresent(handler::setResultDispatchOptions);
     // Audio tasks should not drop input audio due to flow limiting, which may cause data
     // inconsistency.
     TaskRunner runner =
@@ -204,6 +206,7 @@ public final class AudioEmbedder extends BaseAudioTaskApi {
                 .setInputStreams(INPUT_STREAMS)
                 .setOutputStreams(OUTPUT_STREAMS)
                 .setTaskOptions(options)
+                .setModelBaseOptions(options.baseOptions())
                 .setEnableFlowLimiting(false)
                 .build(),
             handler);
@@ -327,6 +330,12 @@ public final class AudioEmbedder extends BaseAudioTaskApi {
       /** Sets an optional {@link ErrorListener}. */
       public abstract Builder setErrorListener(ErrorListener errorListener);
 
+      /**
+       * Sets the options to convert and deliver results to the result listener on an executor
+       * instead of the MediaPipe graph thread in the audio stream mode.
+       */
+      public abstract Builder setResultDispatchOptions(ResultDispatchOptions value);
+
       abstract AudioEmbedderOptions autoBuild();
 
       /**
@@ -365,6 +374,8 @@ public final class AudioEmbedder extends BaseAudioTaskApi {
 
     abstract Optional<ErrorListener> errorListener();
 
+    abstract Optional<ResultDispatchOptions> resultDispatchOptions();
+
     public static Builder builder() {
       return new AutoValue_AudioEmbedder_AudioEmbedderOptions.Builder()
           .setRunningMode(RunningMode.AUDIO_CLIPS)
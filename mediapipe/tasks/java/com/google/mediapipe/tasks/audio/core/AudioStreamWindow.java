@@ -0,0 +1,268 @@
+// Copyright 2023 The MediaPipe Authors.
+//
+// Licensed under the Apache License, Version 2.0 (the "License");
+// you may not use this file except in compliance with the License.
+// You may obtain a copy of the License at
+//
+//      http://www.apache.org/licenses/LICENSE-2.0
+//
+// Unless required by applicable law or agreed to in writing, software
+// distributed under the License is distributed on an "AS IS" BASIS,
+// WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+// See the License for the specific language governing permissions and
+// limitations under the License.
+
+package com.google.mediapipe.tasks.audio.core;
+
+import android.media.AudioFormat;
+import android.media.AudioRecord;
+import com.google.auto.value.AutoValue;
+import com.google.mediapipe.tasks.components.containers.AudioData;
+import com.google.mediapipe.tasks.components.containers.AudioData.AudioDataFormat;
+
+/**
+ * Sliding window over the audio read from an {@link AudioRecord}, sent to an audio task in the
+ * audio stream mode by {@link BaseAudioTaskApi#sendAudioRecord}.
+ *
+ * <p>The stream graph accumulates the audio it receives and frames it itself into windows of the
+ * model input length, overlapping by the window length minus the hop length, as configured by the
+ * task options. So only the audio read since the last send is sent, every {@code hopLengthMs},
+ * timestamped with its start in the stream, and each hop completes one window. Sending the whole
+ * window would make the graph see the overlapping samples twice. The new audio is held in an
+ * {@link AudioData} ring buffer of one hop, sent as a view of the ring buffer, copied once into the
+ * input packet.
+ *
+ * <p>The window length is the length of audio classified by a result, and must match the model
+ * input length. The latency of a result is measured from the moment the hop completing its window
+ * was sent to the moment the result is delivered.
+ */
+public final class AudioStreamWindow {
+
+  private static final long NANOS_PER_MICROSECOND = 1000;
+  private static final int MAX_PENDING_HOPS = 64;
+
+  private final int windowLengthMs;
+  private final int hopLengthMs;
+
+  // Created from the format of the first AudioRecord.
+  private AudioData hop;
+  private float sampleRate;
+  private int hopFrames;
+  private int windowFrames;
+  private float[] floatData;
+  private short[] shortData;
+  // Frames read since the first AudioRecord, and frame count at which the next hop is sent.
+  private long totalFrames = 0;
+  private long nextHopEndFrame;
+
+  // End timestamps and send times of the hops not known to have completed a result yet, in a
+  // circular queue.
+  private final long[] pendingEndMs = new long[MAX_PENDING_HOPS];
+  private final long[] pendingSendNanos = new long[MAX_PENDING_HOPS];
+  private int pendingStart = 0;
+  private int pendingCount = 0;
+  private long windowCount = 0;
+  private long resultCount = 0;
+  private long lastLatencyNanos = 0;
+  private long totalLatencyNanos = 0;
+  private long maxLatencyNanos = 0;
+
+  /**
+   * Creates a window of {@code windowLengthMs} moved forward every {@code hopLengthMs}.
+   *
+   * @throws IllegalArgumentException if the lengths are not positive or the hop is longer than the
+   *     window.
+   */
+  public static AudioStreamWindow create(int windowLengthMs, int hopLengthMs) {
+    if (windowLengthMs <= 0 || hopLengthMs <= 0) {
+      throw new IllegalArgumentException("Window and hop lengths must be > 0.");
+    }
+    if (hopLengthMs > windowLengthMs) {
+      throw new IllegalArgumentException("Hop length must be <= window length.");
+    }
+    return new AudioStreamWindow(windowLengthMs, hopLengthMs);
+  }
+
+  /** Statistics of the audio sent by an {@link AudioStreamWindow} and of its results. */
+  @AutoValue
+  public abstract static class Stats {
+
+    static Stats create(
+        long windowCount,
+        long resultCount,
+        long lastLatencyMicros,
+        long averageLatencyMicros,
+        long maxLatencyMicros) {
+      return new AutoValue_AudioStreamWindow_Stats(
+          windowCount, resultCount, lastLatencyMicros, averageLatencyMicros, maxLatencyMicros);
+    }
+
+    /**
+     * The number of windows completed by the hops sent, i.e. the number of hops sent once the first
+     * window is full. The graph classifies each completed window once.
+     */
+    public abstract long windowCount();
+
+    /** The number of results delivered. */
+    public abstract long resultCount();
+
+    /** The latency of the latest result, in microseconds. */
+    public abstract long lastLatencyMicros();
+
+    /** The average latency of the results, in microseconds. */
+    public abstract long averageLatencyMicros();
+
+    /** The highest latency of the results, in microseconds. */
+    public abstract long maxLatencyMicros();
+  }
+
+  /** Returns the window length in milliseconds. */
+  public int getWindowLengthMs() {
+    return windowLengthMs;
+  }
+
+  /** Returns the hop length in milliseconds. */
+  public int getHopLengthMs() {
+    return hopLengthMs;
+  }
+
+  /** Returns the statistics of the windows completed and results delivered so far. */
+  public synchronized Stats getStats() {
+    return Stats.create(
+        windowCount,
+        resultCount,
+        lastLatencyNanos / NANOS_PER_MICROSECOND,
+        resultCount == 0 ? 0 : totalLatencyNanos / resultCount / NANOS_PER_MICROSECOND,
+        maxLatencyNanos / NANOS_PER_MICROSECOND);
+  }
+
+  /**
+   * Records the delivery of the result of the window starting at {@code timestampMs}, attributed to
+   * the first hop sent that reaches the end of the window. Called by the audio task when it
+   * delivers a result to the result listener.
+   */
+  public synchronized void recordResult(long timestampMs) {
+    long windowEndMs = timestampMs + windowLengthMs;
+    // The hops ending before the window ends can't complete this result nor a later one.
+    while (pendingCount > 0 && pendingEndMs[pendingStart] < windowEndMs) {
+      pendingStart = (pendingStart + 1) % MAX_PENDING_HOPS;
+      --pendingCount;
+    }
+    if (pendingCount == 0) {
+      return;
+    }
+    // The hop is kept, since it may complete the next window as well.
+    long latencyNanos = System.nanoTime() - pendingSendNanos[pendingStart];
+    ++resultCount;
+    lastLatencyNanos = latencyNanos;
+    totalLatencyNanos += latencyNanos;
+    maxLatencyNanos = Math.max(maxLatencyNanos, latencyNanos);
+  }
+
+  /**
+   * Reads the audio available in {@code record} without blocking, stopping at the end of the next
+   * hop.
+   *
+   * @return true if the hop is ready to be sent, false if {@code record} has no more audio.
+   * @throws IllegalArgumentException for an unsupported or changing audio format.
+   * @throws IllegalStateException if reading from AudioRecord failed.
+   */
+  boolean read(AudioRecord record) {
+    if (hop == null) {
+      initialize(record);
+    } else if (!hop.getFormat().equals(AudioDataFormat.create(record.getFormat()))) {
+      throw new IllegalArgumentException("Incompatible audio format.");
+    }
+    int channels = hop.getFormat().getNumOfChannels();
+    while (totalFrames < nextHopEndFrame) {
+      int size = (int) (nextHopEndFrame - totalFrames) * channels;
+      int readValues;
+      if (floatData != null) {
+        readValues = record.read(floatData, 0, size, AudioRecord.READ_NON_BLOCKING);
+        checkReadResult(readValues);
+        hop.load(floatData, 0, readValues);
+      } else {
+        readValues = record.read(shortData, 0, size, AudioRecord.READ_NON_BLOCKING);
+        checkReadResult(readValues);
+        hop.load(shortData, 0, readValues);
+      }
+      totalFrames += readValues / channels;
+      if (readValues < size) {
+        break;
+      }
+    }
+    return totalFrames == nextHopEndFrame;
+  }
+
+  /** Returns the ring buffer holding the audio of the hop, oldest first. */
+  AudioData getHop() {
+    return hop;
+  }
+
+  /** Returns the timestamp of the start of the hop in milliseconds. */
+  long getHopStartMs() {
+    return framesToMs(totalFrames - hopFrames);
+  }
+
+  /** Records that the hop was sent, and moves on to the next one. */
+  synchronized void recordHopSent() {
+    nextHopEndFrame += hopFrames;
+    if (totalFrames < windowFrames) {
+      // The first window isn't full yet, the graph has nothing to classify.
+      return;
+    }
+    if (pendingCount == MAX_PENDING_HOPS) {
+      // Results stopped coming back, forget the oldest hop.
+      pendingStart = (pendingStart + 1) % MAX_PENDING_HOPS;
+      --pendingCount;
+    }
+    int index = (pendingStart + pendingCount) % MAX_PENDING_HOPS;
+    pendingEndMs[index] = framesToMs(totalFrames);
+    pendingSendNanos[index] = System.nanoTime();
+    ++pendingCount;
+    ++windowCount;
+  }
+
+  private long framesToMs(long frames) {
+    return (long) (frames * 1000 / sampleRate);
+  }
+
+  private void initialize(AudioRecord record) {
+    AudioDataFormat format = AudioDataFormat.create(record.getFormat());
+    sampleRate = format.getSampleRate();
+    // Rounded up so that the hops start at least one millisecond apart.
+    hopFrames = (int) Math.ceil(hopLengthMs * sampleRate / 1000);
+    nextHopEndFrame = hopFrames;
+    windowFrames = (int) Math.ceil(windowLengthMs * sampleRate / 1000);
+    int size = hopFrames * format.getNumOfChannels();
+    if (record.getAudioFormat() == AudioFormat.ENCODING_PCM_FLOAT) {
+      floatData = new float[size];
+    } else if (record.getAudioFormat() == AudioFormat.ENCODING_PCM_16BIT) {
+      shortData = new short[size];
+    } else {
+      throw new IllegalArgumentException(
+          "Unsupported encoding. Requires ENCODING_PCM_16BIT or ENCODING_PCM_FLOAT.");
+    }
+    hop = AudioData.create(format, hopFrames);
+  }
+
+  private static void checkReadResult(int readValues) {
+    switch (readValues) {
+      case AudioRecord.ERROR_INVALID_OPERATION:
+        throw new IllegalStateException("AudioRecord.ERROR_INVALID_OPERATION");
+      case AudioRecord.ERROR_BAD_VALUE:
+        throw new IllegalStateException("AudioRecord.ERROR_BAD_VALUE");
+      case AudioRecord.ERROR_DEAD_OBJECT:
+        throw new IllegalStateException("AudioRecord.ERROR_DEAD_OBJECT");
+      case AudioRecord.ERROR:
+        throw new IllegalStateException("AudioRecord.ERROR");
+      default:
+        return;
+    }
+  }
+
+  private AudioStreamWindow(int windowLengthMs, int hopLengthMs) {
+    this.windowLengthMs = windowLengthMs;
+    this.hopLengthMs = hopLengthMs;
+  }
+}
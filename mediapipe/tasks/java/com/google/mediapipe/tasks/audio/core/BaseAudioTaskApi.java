@@ -20,10 +20,12 @@ import android.media.MediaRecorder;
 import com.google.mediapipe.framework.MediaPipeException;
 import com.google.mediapipe.framework.Packet;
 import com.google.mediapipe.tasks.components.containers.AudioData;
+import com.google.mediapipe.tasks.core.ResultDispatchOptions;
 import com.google.mediapipe.tasks.core.TaskResult;
 import com.google.mediapipe.tasks.core.TaskRunner;
 import java.util.HashMap;
 import java.util.Map;
+import java.util.Optional;
 
 /** The base class of MediaPipe audio tasks. */
 public class BaseAudioTaskApi implements AutoCloseable {
@@ -34,6 +36,7 @@ public class BaseAudioTaskApi implements AutoCloseable {
   private final RunningMode runningMode;
   private final String audioStreamName;
   private final String sampleRateStreamName;
+  private final Optional<AudioStreamWindow> streamWindow;
   private double defaultSampleRate;
 
   static {
@@ -53,10 +56,30 @@ public class BaseAudioTaskApi implements AutoCloseable {
       RunningMode runningMode,
       String audioStreamName,
       String sampleRateStreamName) {
+    this(runner, runningMode, audioStreamName, sampleRateStreamName, Optional.empty());
+  }
+
+  /**
+   * Constructor to initialize a {@link BaseAudioTaskApi} that reads audio streams from {@link
+   * AudioRecord}s through a sliding window.
+   *
+   * @param runner a {@link TaskRunner}.
+   * @param runningMode a mediapipe audio task {@link RunningMode}.
+   * @param audioStreamName the name of the input audio stream.
+   * @param sampleRateStreamName the name of the audio sample rate stream.
+   * @param streamWindow the optional {@link AudioStreamWindow} used by {@link #sendAudioRecord}.
+   */
+  public BaseAudioTaskApi(
+      TaskRunner runner,
+      RunningMode runningMode,
+      String audioStreamName,
+      String sampleRateStreamName,
+      Optional<AudioStreamWindow> streamWindow) {
     this.runner = runner;
     this.runningMode = runningMode;
     this.audioStreamName = audioStreamName;
     this.sampleRateStreamName = sampleRateStreamName;
+    this.streamWindow = streamWindow;
     this.defaultSampleRate = -1.0;
   }
 
@@ -75,14 +98,7 @@ public class BaseAudioTaskApi implements AutoCloseable {
               + runningMode.name());
     }
     Map<String, Packet> inputPackets = new HashMap<>();
-    inputPackets.put(
-        audioStreamName,
-        runner
-            .getPacketCreator()
-            .createMatrix(
-                audioClip.getFormat().getNumOfChannels(),
-                audioClip.getBufferLength(),
-                audioClip.getBuffer()));
+    inputPackets.put(audioStreamName, createAudioMatrix(audioClip));
     inputPackets.put(
         sampleRateStreamName,
         runner.getPacketCreator().createFloat64(audioClip.getFormat().getSampleRate()));
@@ -136,17 +152,68 @@ public class BaseAudioTaskApi implements AutoCloseable {
               + runningMode.name());
     }
     Map<String, Packet> inputPackets = new HashMap<>();
-    inputPackets.put(
-        audioStreamName,
-        runner
-            .getPacketCreator()
-            .createMatrix(
-                audioClip.getFormat().getNumOfChannels(),
-                audioClip.getBufferLength(),
-                audioClip.getBuffer()));
+    inputPackets.put(audioStreamName, createAudioMatrix(audioClip));
     runner.send(inputPackets, timestampMs * MICROSECONDS_PER_MILLISECOND);
   }
 
+  /**
+   * Reads the audio available in {@code record} without blocking and sends every hop of the {@link
+   * AudioStreamWindow} completed by it to the {@link TaskRunner}, timestamped with the start of the
+   * hop in the stream. The hops are contiguous, and framed into windows by the graph.
+   *
+   * @param record an {@link AudioRecord} that is recording.
+   * @return the number of hops sent.
+   * @throws MediaPipeException if the task is not in the audio stream mode or has no stream window.
+   * @throws IllegalArgumentException for an unsupported or changing audio format.
+   * @throws IllegalStateException if reading from AudioRecord failed.
+   */
+  protected int sendAudioRecord(AudioRecord record) {
+    if (!streamWindow.isPresent()) {
+      throw new MediaPipeException(
+          MediaPipeException.StatusCode.FAILED_PRECONDITION.ordinal(),
+          "Task is not initialized with an audio stream window.");
+    }
+    AudioStreamWindow slidingWindow = streamWindow.get();
+    int hopCount = 0;
+    while (slidingWindow.read(record)) {
+      AudioData hop = slidingWindow.getHop();
+      checkOrSetSampleRate(hop.getFormat().getSampleRate());
+      sendAudioStreamData(hop, slidingWindow.getHopStartMs());
+      slidingWindow.recordHopSent();
+      ++hopCount;
+    }
+    return hopCount;
+  }
+
+  /**
+   * Creates the matrix packet of the audio samples, copied once from the ring buffer view of {@code
+   * audioClip} into the native matrix.
+   */
+  private Packet createAudioMatrix(AudioData audioClip) {
+    return runner
+        .getPacketCreator()
+        .createMatrix(
+            audioClip.getFormat().getNumOfChannels(),
+            audioClip.getBufferLength(),
+            audioClip.getFloatBuffer());
+  }
+
+  /**
+   * Returns the number of results waiting to be delivered to the result listener when the task is
+   * configured with {@link ResultDispatchOptions}.
+   */
+  public int getPendingResultCount() {
+    return runner.getPendingResultCount();
+  }
+
+  /**
+   * Returns the number of results dropped by the queue policy of the {@link
+   * ResultDispatchOptions} the task is configured with.
+   */
+  public long getDroppedResultCount() {
+    return runner.getDroppedResultCount();
+  }
+
   /** Closes and cleans up the MediaPipe audio task. */
   @Override
   public void close() {
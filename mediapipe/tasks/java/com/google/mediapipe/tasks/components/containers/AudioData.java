@@ -14,8 +14,6 @@
 
 package com.google.mediapipe.tasks.components.containers;
 
-import static java.lang.System.arraycopy;
-
 import android.media.AudioFormat;
 import android.media.AudioRecord;
 import com.google.auto.value.AutoValue;
@@ -28,7 +26,7 @@ import java.nio.FloatBuffer;
  *
  * <p>It maintains a <a href="https://en.wikipedia.org/wiki/Circular_buffer">Ring Buffer</a> to hold
  * input audio data. Clients could feed input audio data via `load` methods and access the
- * aggregated audio samples via `getTensorBuffer` method.
+ * aggregated audio samples via `getBuffer` or, without copying them, `getFloatBuffer` method.
  *
  * <p>Note that this class can only handle input audio in Float (in {@link
  * android.media.AudioFormat#ENCODING_PCM_16BIT}) or Short (in {@link
@@ -56,6 +54,9 @@ public class AudioData {
   private static final String TAG = AudioData.class.getSimpleName();
   private final FloatRingBuffer buffer;
   private final AudioDataFormat format;
+  // Reused across the AudioRecord reads.
+  private float[] floatRecordData;
+  private short[] shortRecordData;
 
   /**
    * Creates a {@link android.media.AudioRecord} instance with a ring buffer whose size is {@code
@@ -186,12 +187,13 @@ public class AudioData {
               "Index out of range. offset (%d) + size (%d) should <= newData.length (%d)",
               offsetInShort, sizeInShort, src.length));
     }
-    float[] floatData = new float[sizeInShort];
-    for (int i = 0; i < sizeInShort; i++) {
-      // Convert the data to PCM Float encoding i.e. values between -1 and 1
-      floatData[i] = src[i + offsetInShort] * 1.f / Short.MAX_VALUE;
+    if (sizeInShort % format.getNumOfChannels() != 0) {
+      throw new IllegalArgumentException(
+          String.format(
+              "Size (%d) needs to be a multiplier of the number of channels (%d)",
+              sizeInShort, format.getNumOfChannels()));
     }
-    load(floatData);
+    buffer.load(src, offsetInShort, sizeInShort);
   }
 
   /**
@@ -209,15 +211,22 @@ public class AudioData {
       throw new IllegalArgumentException("Incompatible audio format.");
     }
     int loadedValues = 0;
+    int recordSize = record.getChannelCount() * record.getBufferSizeInFrames();
     if (record.getAudioFormat() == AudioFormat.ENCODING_PCM_FLOAT) {
-      float[] newData = new float[record.getChannelCount() * record.getBufferSizeInFrames()];
+      if (floatRecordData == null || floatRecordData.length != recordSize) {
+        floatRecordData = new float[recordSize];
+      }
+      float[] newData = floatRecordData;
       loadedValues = record.read(newData, 0, newData.length, AudioRecord.READ_NON_BLOCKING);
       if (loadedValues > 0) {
         load(newData, 0, loadedValues);
         return loadedValues;
       }
     } else if (record.getAudioFormat() == AudioFormat.ENCODING_PCM_16BIT) {
-      short[] newData = new short[record.getChannelCount() * record.getBufferSizeInFrames()];
+      if (shortRecordData == null || shortRecordData.length != recordSize) {
+        shortRecordData = new short[recordSize];
+      }
+      short[] newData = shortRecordData;
       loadedValues = record.read(newData, 0, newData.length, AudioRecord.READ_NON_BLOCKING);
       if (loadedValues > 0) {
         load(newData, 0, loadedValues);
@@ -252,11 +261,21 @@ public class AudioData {
    */
   public float[] getBuffer() {
     float[] bufferData = new float[buffer.getCapacity()];
-    ByteBuffer byteBuffer = buffer.getBuffer();
-    byteBuffer.asFloatBuffer().get(bufferData);
+    buffer.getBuffer().get(bufferData);
     return bufferData;
   }
 
+  /**
+   * Returns a read-only direct view of all the available audio samples in {@link
+   * android.media.AudioFormat#ENCODING_PCM_FLOAT}, oldest first, without copying them.
+   *
+   * <p>The same view is returned by every call, with its position and limit framing the samples.
+   * Its content is only valid until the next {@code load} call.
+   */
+  public FloatBuffer getFloatBuffer() {
+    return buffer.getBuffer();
+  }
+
   /* Returns the {@link AudioDataFormat} associated with the tensor. */
   public AudioDataFormat getFormat() {
     return format;
@@ -272,14 +291,27 @@ public class AudioData {
     this.buffer = new FloatRingBuffer(sampleCounts * format.getNumOfChannels());
   }
 
-  /** Actual implementation of the ring buffer. */
+  /**
+   * Actual implementation of the ring buffer.
+   *
+   * <p>Every sample is stored twice, at index {@code i} and {@code i + capacity} of a direct buffer
+   * of twice the capacity, so that the samples in the ring, oldest first, are always the contiguous
+   * range {@code [nextIndex, nextIndex + capacity)} and can be handed out without copying.
+   */
   private static class FloatRingBuffer {
 
-    private final float[] buffer;
+    private final int capacity;
+    private final FloatBuffer buffer;
+    private final FloatBuffer view;
     private int nextIndex = 0;
 
     public FloatRingBuffer(int flatSize) {
-      buffer = new float[flatSize];
+      capacity = flatSize;
+      buffer =
+          ByteBuffer.allocateDirect(2 * Float.BYTES * flatSize)
+              .order(ByteOrder.nativeOrder())
+              .asFloatBuffer();
+      view = buffer.asReadOnlyBuffer();
     }
 
     /**
@@ -287,48 +319,70 @@ public class AudioData {
      * buffer's capacity, samples with lower indices in the array will be ignored.
      */
     public void load(float[] newData, int offset, int size) {
-      if (offset + size > newData.length) {
-        throw new IllegalArgumentException(
-            String.format(
-                "Index out of range. offset (%d) + size (%d) should <= newData.length (%d)",
-                offset, size, newData.length));
+      checkRange(offset, size, newData.length);
+      // If buffer can't hold all the data, only keep the most recent data of size capacity.
+      if (size > capacity) {
+        offset += (size - capacity);
+        size = capacity;
       }
-      // If buffer can't hold all the data, only keep the most recent data of size buffer.length
-      if (size > buffer.length) {
-        offset += (size - buffer.length);
-        size = buffer.length;
+      // Copy newData[offset:offset + size] to buffer[nextIndex:nextIndex + size] in at most two
+      // chunks, wrapping nextIndex, and to the mirror of those chunks.
+      int firstChunkSize = Math.min(size, capacity - nextIndex);
+      put(newData, offset, nextIndex, firstChunkSize);
+      put(newData, offset + firstChunkSize, 0, size - firstChunkSize);
+      nextIndex = (nextIndex + size) % capacity;
+    }
+
+    /**
+     * Converts a slice of the short array to PCM Float encoding, i.e. values between -1 and 1,
+     * directly into the ring buffer. Same as {@link #load(float[], int, int)} otherwise.
+     */
+    public void load(short[] newData, int offset, int size) {
+      checkRange(offset, size, newData.length);
+      if (size > capacity) {
+        offset += (size - capacity);
+        size = capacity;
       }
-      if (nextIndex + size < buffer.length) {
-        // No need to wrap nextIndex, just copy newData[offset:offset + size]
-        // to buffer[nextIndex:nextIndex+size]
-        arraycopy(newData, offset, buffer, nextIndex, size);
-      } else {
-        // Need to wrap nextIndex, perform copy in two chunks.
-        int firstChunkSize = buffer.length - nextIndex;
-        // First copy newData[offset:offset+firstChunkSize] to buffer[nextIndex:buffer.length]
-        arraycopy(newData, offset, buffer, nextIndex, firstChunkSize);
-        // Then copy newData[offset+firstChunkSize:offset+size] to buffer[0:size-firstChunkSize]
-        arraycopy(newData, offset + firstChunkSize, buffer, 0, size - firstChunkSize);
+      int index = nextIndex;
+      for (int i = offset; i < offset + size; ++i) {
+        float value = newData[i] * 1.f / Short.MAX_VALUE;
+        buffer.put(index, value);
+        buffer.put(index + capacity, value);
+        if (++index == capacity) {
+          index = 0;
+        }
       }
-
-      nextIndex = (nextIndex + size) % buffer.length;
+      nextIndex = index;
     }
 
-    public ByteBuffer getBuffer() {
-      // Create non-direct buffers. On Pixel 4, creating direct buffer costs around 0.1 ms, which
-      // can be 5x ~ 10x longer compared to non-direct buffer backed by arrays (around 0.01ms), so
-      // generally we don't create direct buffer for every invocation.
-      ByteBuffer byteBuffer = ByteBuffer.allocate(Float.SIZE / 8 * buffer.length);
-      byteBuffer.order(ByteOrder.nativeOrder());
-      FloatBuffer result = byteBuffer.asFloatBuffer();
-      result.put(buffer, nextIndex, buffer.length - nextIndex);
-      result.put(buffer, 0, nextIndex);
-      byteBuffer.rewind();
-      return byteBuffer;
+    /** Returns the read-only view of the samples, oldest first. */
+    public FloatBuffer getBuffer() {
+      view.limit(nextIndex + capacity);
+      view.position(nextIndex);
+      return view;
     }
 
     public int getCapacity() {
-      return buffer.length;
+      return capacity;
+    }
+
+    private void put(float[] src, int offset, int index, int size) {
+      if (size == 0) {
+        return;
+      }
+      buffer.position(index);
+      buffer.put(src, offset, size);
+      buffer.position(index + capacity);
+      buffer.put(src, offset, size);
+    }
+
+    private static void checkRange(int offset, int size, int length) {
+      if (offset + size > length) {
+        throw new IllegalArgumentException(
+            String.format(
+                "Index out of range. offset (%d) + size (%d) should <= newData.length (%d)",
+                offset, size, length));
+      }
     }
   }
 }
@@ -15,10 +15,19 @@
 package com.google.mediapipe.tasks.components.utils;
 
 import com.google.mediapipe.tasks.components.containers.Embedding;
+import java.util.Collections;
+import java.util.List;
 
 /** Utility class for computing cosine similarity between {@link Embedding} objects. */
 public class CosineSimilarity {
 
+  // The number of embeddings scored against all the queries of a batch before moving on, so that
+  // they are still in the cache for the later queries.
+  private static final int BLOCK_SIZE = 64;
+  // Products of int8 values are at most 2^14 in magnitude, so int sums of up to 2^16 of them cannot
+  // overflow.
+  private static final int MAX_INT_DOT_LENGTH = 1 << 16;
+
   // Non-instantiable class.
   private CosineSimilarity() {}
 
@@ -71,18 +80,223 @@ public class CosineSimilarity {
                   + " %d).",
               u.length, v.length));
     }
-    double dotProduct = 0.0;
-    double normU = 0.0;
-    double normV = 0.0;
-    for (int i = 0; i < u.length; i++) {
-      dotProduct += u[i] * v[i];
-      normU += u[i] * u[i];
-      normV += v[i] * v[i];
-    }
+    double dotProduct = dot(u, 0, v, 0, u.length);
+    double normU = dot(u, 0, u, 0, u.length);
+    double normV = dot(v, 0, v, 0, v.length);
     if (normU <= 0 || normV <= 0) {
       throw new IllegalArgumentException(
           "Cannot compute cosine similarity on embedding with 0 norm.");
     }
     return dotProduct / Math.sqrt(normU * normV);
   }
+
+  /**
+   * Computes the cosine similarities between {@code query} and each of the {@code embeddings}. The
+   * norm of each embedding is computed once, and the dot products are accumulated in floats for
+   * float embeddings and in integers for quantized embeddings, so the results may differ from
+   * {@link #compute(Embedding, Embedding)} by float rounding.
+   *
+   * @return the similarities, in the order of {@code embeddings}.
+   * @throws IllegalArgumentException if the embeddings are of different types (float vs.
+   *     quantized), have different sizes, or have an L2-norm of 0.
+   */
+  public static double[] compute(Embedding query, List<Embedding> embeddings) {
+    return compute(Collections.singletonList(query), embeddings)[0];
+  }
+
+  /**
+   * Computes the cosine similarities between each of the {@code queries} and each of the {@code
+   * embeddings}, in a single pass over the embeddings. The norm of each embedding is computed once,
+   * and the dot products are accumulated in floats for float embeddings and in integers for
+   * quantized embeddings, so the results may differ from {@link #compute(Embedding, Embedding)} by
+   * float rounding.
+   *
+   * @return the similarities, with one row per query and one column per embedding.
+   * @throws IllegalArgumentException if the embeddings are of different types (float vs.
+   *     quantized), have different sizes, or have an L2-norm of 0.
+   */
+  public static double[][] compute(List<Embedding> queries, List<Embedding> embeddings) {
+    double[][] similarities = new double[queries.size()][embeddings.size()];
+    if (queries.isEmpty() || embeddings.isEmpty()) {
+      return similarities;
+    }
+    boolean quantized = queries.get(0).floatEmbedding().length == 0;
+    int length =
+        quantized
+            ? queries.get(0).quantizedEmbedding().length
+            : queries.get(0).floatEmbedding().length;
+    if (quantized) {
+      byte[][] queryValues = quantizedValues(queries, length);
+      byte[][] values = quantizedValues(embeddings, length);
+      float[] queryInverseNorms = inverseNorms(queryValues);
+      float[] inverseNorms = inverseNorms(values);
+      for (int blockBegin = 0; blockBegin < values.length; blockBegin += BLOCK_SIZE) {
+        int blockEnd = Math.min(blockBegin + BLOCK_SIZE, values.length);
+        for (int q = 0; q < queryValues.length; ++q) {
+          for (int i = blockBegin; i < blockEnd; ++i) {
+            similarities[q][i] =
+                dot(queryValues[q], 0, values[i], 0, length)
+                    * queryInverseNorms[q]
+                    * inverseNorms[i];
+          }
+        }
+      }
+    } else {
+      float[][] queryValues = floatValues(queries, length);
+      float[][] values = floatValues(embeddings, length);
+      float[] queryInverseNorms = inverseNorms(queryValues);
+      float[] inverseNorms = inverseNorms(values);
+      for (int blockBegin = 0; blockBegin < values.length; blockBegin += BLOCK_SIZE) {
+        int blockEnd = Math.min(blockBegin + BLOCK_SIZE, values.length);
+        for (int q = 0; q < queryValues.length; ++q) {
+          for (int i = blockBegin; i < blockEnd; ++i) {
+            similarities[q][i] =
+                dot(queryValues[q], 0, values[i], 0, length)
+                    * queryInverseNorms[q]
+                    * inverseNorms[i];
+          }
+        }
+      }
+    }
+    return similarities;
+  }
+
+  /**
+   * Returns the dot product of {@code length} floats of {@code u} and {@code v}, accumulated in
+   * floats.
+   */
+  static float dot(float[] u, int uOffset, float[] v, int vOffset, int length) {
+    // Eight independent sums let the products overlap in the pipeline.
+    float sum0 = 0;
+    float sum1 = 0;
+    float sum2 = 0;
+    float sum3 = 0;
+    float sum4 = 0;
+    float sum5 = 0;
+    float sum6 = 0;
+    float sum7 = 0;
+    int i = 0;
+    for (; i + 7 < length; i += 8) {
+      sum0 += u[uOffset + i] * v[vOffset + i];
+      sum1 += u[uOffset + i + 1] * v[vOffset + i + 1];
+      sum2 += u[uOffset + i + 2] * v[vOffset + i + 2];
+      sum3 += u[uOffset + i + 3] * v[vOffset + i + 3];
+      sum4 += u[uOffset + i + 4] * v[vOffset + i + 4];
+      sum5 += u[uOffset + i + 5] * v[vOffset + i + 5];
+      sum6 += u[uOffset + i + 6] * v[vOffset + i + 6];
+      sum7 += u[uOffset + i + 7] * v[vOffset + i + 7];
+    }
+    for (; i < length; ++i) {
+      sum0 += u[uOffset + i] * v[vOffset + i];
+    }
+    return ((sum0 + sum1) + (sum2 + sum3)) + ((sum4 + sum5) + (sum6 + sum7));
+  }
+
+  /**
+   * Returns the dot product of {@code length} bytes of {@code u} and {@code v}, accumulated in
+   * ints.
+   */
+  static long dot(byte[] u, int uOffset, byte[] v, int vOffset, int length) {
+    long sum = 0;
+    for (int begin = 0; begin < length; begin += MAX_INT_DOT_LENGTH) {
+      int end = Math.min(begin + MAX_INT_DOT_LENGTH, length);
+      // A plain int reduction, which the JIT compiles to vector instructions where available.
+      int partialSum = 0;
+      for (int i = begin; i < end; ++i) {
+        partialSum += u[uOffset + i] * v[vOffset + i];
+      }
+      sum += partialSum;
+    }
+    return sum;
+  }
+
+  private static float[][] floatValues(List<Embedding> embeddings, int length) {
+    float[][] values = new float[embeddings.size()][];
+    for (int i = 0; i < values.length; ++i) {
+      Embedding embedding = embeddings.get(i);
+      if (embedding.floatEmbedding().length == 0) {
+        throw new IllegalArgumentException(
+            "Cannot compute cosine similarity between quantized and float embeddings.");
+      }
+      checkLength(length, embedding.floatEmbedding().length);
+      values[i] = embedding.floatEmbedding();
+    }
+    return values;
+  }
+
+  private static byte[][] quantizedValues(List<Embedding> embeddings, int length) {
+    byte[][] values = new byte[embeddings.size()][];
+    for (int i = 0; i < values.length; ++i) {
+      Embedding embedding = embeddings.get(i);
+      if (embedding.quantizedEmbedding().length == 0) {
+        throw new IllegalArgumentException(
+            "Cannot compute cosine similarity between quantized and float embeddings.");
+      }
+      checkLength(length, embedding.quantizedEmbedding().length);
+      values[i] = embedding.quantizedEmbedding();
+    }
+    return values;
+  }
+
+  /**
+   * Checks that an embedding of {@code length} values can be compared with embeddings of {@code
+   * expected} values.
+   *
+   * @throws IllegalArgumentException if the lengths differ.
+   */
+  static void checkLength(int expected, int length) {
+    if (length != expected) {
+      throw new IllegalArgumentException(
+          String.format(
+              "Cannot compute cosine similarity between embeddings of different sizes (%d vs."
+                  + " %d).",
+              expected, length));
+    }
+  }
+
+  private static float[] inverseNorms(float[][] values) {
+    float[] inverseNorms = new float[values.length];
+    for (int i = 0; i < values.length; ++i) {
+      inverseNorms[i] = inverseNorm(values[i]);
+    }
+    return inverseNorms;
+  }
+
+  private static float[] inverseNorms(byte[][] values) {
+    float[] inverseNorms = new float[values.length];
+    for (int i = 0; i < values.length; ++i) {
+      inverseNorms[i] = inverseNorm(values[i]);
+    }
+    return inverseNorms;
+  }
+
+  /**
+   * Returns the inverse of the L2-norm of {@code values}.
+   *
+   * @throws IllegalArgumentException if the L2-norm is 0.
+   */
+  static float inverseNorm(float[] values) {
+    double norm = 0.0;
+    for (float value : values) {
+      norm += value * value;
+    }
+    return checkedInverseNorm(norm);
+  }
+
+  /**
+   * Returns the inverse of the L2-norm of {@code values}.
+   *
+   * @throws IllegalArgumentException if the L2-norm is 0.
+   */
+  static float inverseNorm(byte[] values) {
+    return checkedInverseNorm(dot(values, 0, values, 0, values.length));
+  }
+
+  private static float checkedInverseNorm(double norm) {
+    if (norm <= 0) {
+      throw new IllegalArgumentException(
+          "Cannot compute cosine similarity on embedding with 0 norm.");
+    }
+    return (float) (1.0 / Math.sqrt(norm));
+  }
 }
@@ -0,0 +1,520 @@
+// Copyright 2023 The MediaPipe Authors.
+//
+// Licensed under the Apache License, Version 2.0 (the "License");
+// you may not use this file except in compliance with the License.
+// You may obtain a copy of the License at
+//
+//      http://www.apache.org/licenses/LICENSE-2.0
+//
+// Unless required by applicable law or agreed to in writing, software
+// distributed under the License is distributed on an "AS IS" BASIS,
+// WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+// See the License for the specific language governing permissions and
+// limitations under the License.
+
+package com.google.mediapipe.tasks.components.utils;
+
+import com.google.auto.value.AutoValue;
+import com.google.mediapipe.tasks.components.containers.Embedding;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.Optional;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.Executor;
+import java.util.function.IntToLongFunction;
+
+/**
+ * In-memory index of {@link Embedding} objects for finding the nearest neighbors of queries by <a
+ * href="https://en.wikipedia.org/wiki/Cosine_similarity">cosine similarity</a>.
+ *
+ * <p>Float embeddings are normalized once when they are added and stored back to back in a single
+ * array, so scoring a stored embedding is a plain dot product. Quantized embeddings are stored back
+ * to back as bytes with their inverse norms, and their dot products are accumulated in integers.
+ * The scores are the same as {@link CosineSimilarity#compute}, up to float rounding.
+ *
+ * <p>Searches keep the best results of a scan in a bounded heap, can score several queries in a
+ * single pass over the stored embeddings, and can split the scan into partitions that run on an
+ * {@link Executor}. Searches may run concurrently with each other, but not with {@link #add}.
+ *
+ * <p>Results with equal scores are ordered by ascending id, like in {@link IvfEmbeddingIndex} and
+ * {@link EmbeddingStore}.
+ */
+public final class EmbeddingIndex {
+
+  /** A search result: the id of a stored embedding and its cosine similarity with the query. */
+  @AutoValue
+  public abstract static class Neighbor {
+    public static Neighbor create(long id, float score) {
+      return new AutoValue_EmbeddingIndex_Neighbor(id, score);
+    }
+
+    /** The id the embedding was added with. */
+    public abstract long id();
+
+    /** The cosine similarity between the embedding and the query. */
+    public abstract float score();
+  }
+
+  private static final int INITIAL_CAPACITY = 16;
+  // The number of stored embeddings scored against all the queries of a batch before moving on,
+  // so that they are still in the cache for the later queries.
+  private static final int BLOCK_SIZE = 64;
+
+  private final int dimension;
+  private final boolean quantized;
+  private long[] ids = new long[INITIAL_CAPACITY];
+  // The normalized float embeddings, or the quantized embeddings, back to back.
+  private float[] floatVectors;
+  private byte[] quantizedVectors;
+  private float[] inverseNorms;
+  private int size = 0;
+
+  /**
+   * Creates an empty index of float embeddings.
+   *
+   * @param dimension the size of the embeddings.
+   * @throws IllegalArgumentException if {@code dimension} is not positive.
+   */
+  public static EmbeddingIndex createForFloatEmbeddings(int dimension) {
+    return new EmbeddingIndex(dimension, /* quantized= */ false);
+  }
+
+  /**
+   * Creates an empty index of quantized embeddings.
+   *
+   * @param dimension the size of the embeddings.
+   * @throws IllegalArgumentException if {@code dimension} is not positive.
+   */
+  public static EmbeddingIndex createForQuantizedEmbeddings(int dimension) {
+    return new EmbeddingIndex(dimension, /* quantized= */ true);
+  }
+
+  private EmbeddingIndex(int dimension, boolean quantized) {
+    if (dimension <= 0) {
+      throw new IllegalArgumentException("The dimension of the embeddings must be positive.");
+    }
+    this.dimension = dimension;
+    this.quantized = quantized;
+    if (quantized) {
+      quantizedVectors = new byte[INITIAL_CAPACITY * dimension];
+      inverseNorms = new float[INITIAL_CAPACITY];
+    } else {
+      floatVectors = new float[INITIAL_CAPACITY * dimension];
+    }
+  }
+
+  /** Returns the size of the embeddings. */
+  public int dimension() {
+    return dimension;
+  }
+
+  /** Returns true if the index stores quantized embeddings. */
+  public boolean isQuantized() {
+    return quantized;
+  }
+
+  /** Returns the number of stored embeddings. */
+  public int size() {
+    return size;
+  }
+
+  /**
+   * Adds an embedding to the index.
+   *
+   * @param id the id returned in the search results for this embedding.
+   * @param embedding the {@link Embedding} to add.
+   * @throws IllegalArgumentException if the embedding is of the wrong type (float vs. quantized),
+   *     has the wrong size, or has an L2-norm of 0.
+   */
+  public void add(long id, Embedding embedding) {
+    if (size == ids.length) {
+      int capacity = ids.length * 2;
+      ids = Arrays.copyOf(ids, capacity);
+      if (quantized) {
+        quantizedVectors = Arrays.copyOf(quantizedVectors, capacity * dimension);
+        inverseNorms = Arrays.copyOf(inverseNorms, capacity);
+      } else {
+        floatVectors = Arrays.copyOf(floatVectors, capacity * dimension);
+      }
+    }
+    int offset = size * dimension;
+    if (quantized) {
+      byte[] values = checkQuantized(embedding);
+      System.arraycopy(values, 0, quantizedVectors, offset, dimension);
+      inverseNorms[size] = inverseNorm(values);
+    } else {
+      float[] values = checkFloat(embedding);
+      float inverseNorm = inverseNorm(values);
+      for (int i = 0; i < dimension; ++i) {
+        floatVectors[offset + i] = values[i] * inverseNorm;
+      }
+    }
+    ids[size] = id;
+    ++size;
+  }
+
+  /**
+   * Removes the embedding added with {@code id}, moving the last embedding into its place. Takes
+   * time linear in the size of the index.
+   *
+   * @return true if an embedding was removed.
+   */
+  public boolean remove(long id) {
+    for (int index = 0; index < size; ++index) {
+      if (ids[index] == id) {
+        int last = size - 1;
+        ids[index] = ids[last];
+        if (quantized) {
+          System.arraycopy(
+              quantizedVectors, last * dimension, quantizedVectors, index * dimension, dimension);
+          inverseNorms[index] = inverseNorms[last];
+        } else {
+          System.arraycopy(
+              floatVectors, last * dimension, floatVectors, index * dimension, dimension);
+        }
+        size = last;
+        return true;
+      }
+    }
+    return false;
+  }
+
+  /** Returns the id of the embedding at {@code index}, in [0, size). */
+  long idAt(int index) {
+    return ids[index];
+  }
+
+  /**
+   * Returns the embedding at {@code index}, in [0, size): float embeddings are returned normalized,
+   * and quantized embeddings as added.
+   */
+  Embedding embeddingAt(int index) {
+    int offset = index * dimension;
+    if (quantized) {
+      return Embedding.create(
+          new float[0],
+          Arrays.copyOfRange(quantizedVectors, offset, offset + dimension),
+          /* headIndex= */ 0,
+          /* headName= */ Optional.empty());
+    }
+    return Embedding.create(
+        Arrays.copyOfRange(floatVectors, offset, offset + dimension),
+        new byte[0],
+        /* headIndex= */ 0,
+        /* headName= */ Optional.empty());
+  }
+
+  /**
+   * Returns the {@code k} stored embeddings most similar to {@code query}, most similar first.
+   *
+   * @throws IllegalArgumentException if {@code k} is not positive, or if the query is of the wrong
+   *     type (float vs. quantized), has the wrong size, or has an L2-norm of 0.
+   */
+  public List<Neighbor> search(Embedding query, int k) {
+    return search(Collections.singletonList(query), k).get(0);
+  }
+
+  /**
+   * Returns the {@code k} stored embeddings most similar to each of the {@code queries}, most
+   * similar first, scoring all the queries in a single pass over the index.
+   *
+   * @throws IllegalArgumentException if {@code k} is not positive, or if a query is of the wrong
+   *     type (float vs. quantized), has the wrong size, or has an L2-norm of 0.
+   */
+  public List<List<Neighbor>> search(List<Embedding> queries, int k) {
+    Queries prepared = prepare(queries, k);
+    return prepared.results(scan(prepared, 0, size));
+  }
+
+  /**
+   * Returns the {@code k} stored embeddings most similar to each of the {@code queries}, most
+   * similar first. The index is split into {@code partitions} ranges that are scanned in parallel
+   * on {@code executor}.
+   *
+   * @throws IllegalArgumentException if {@code k} or {@code partitions} is not positive, or if a
+   *     query is of the wrong type (float vs. quantized), has the wrong size, or has an L2-norm of
+   *     0.
+   */
+  public List<List<Neighbor>> search(
+      List<Embedding> queries, int k, Executor executor, int partitions) {
+    if (partitions <= 0) {
+      throw new IllegalArgumentException("The number of partitions must be positive.");
+    }
+    Queries prepared = prepare(queries, k);
+    int end = size;
+    List<CompletableFuture<TopK[]>> scans = new ArrayList<>(partitions);
+    for (int p = 0; p < partitions; ++p) {
+      int partitionBegin = (int) ((long) end * p / partitions);
+      int partitionEnd = (int) ((long) end * (p + 1) / partitions);
+      scans.add(
+          CompletableFuture.supplyAsync(
+              () -> scan(prepared, partitionBegin, partitionEnd), executor));
+    }
+    TopK[] merged = null;
+    for (CompletableFuture<TopK[]> scan : scans) {
+      TopK[] partial;
+      try {
+        partial = scan.join();
+      } catch (CompletionException e) {
+        if (e.getCause() instanceof RuntimeException) {
+          throw (RuntimeException) e.getCause();
+        }
+        throw e;
+      }
+      if (merged == null) {
+        merged = partial;
+      } else {
+        for (int q = 0; q < merged.length; ++q) {
+          merged[q].addAll(partial[q]);
+        }
+      }
+    }
+    return prepared.results(merged);
+  }
+
+  /** The queries of a search, normalized like the stored embeddings. */
+  private final class Queries {
+    final int count;
+    final int k;
+    final float[] floatValues;
+    final byte[] quantizedValues;
+    final float[] inverseNorms;
+
+    Queries(int count, int k) {
+      this.count = count;
+      this.k = k;
+      if (quantized) {
+        floatValues = null;
+        quantizedValues = new byte[count * dimension];
+        inverseNorms = new float[count];
+      } else {
+        floatValues = new float[count * dimension];
+        quantizedValues = null;
+        inverseNorms = null;
+      }
+    }
+
+    List<List<Neighbor>> results(TopK[] topKs) {
+      List<List<Neighbor>> results = new ArrayList<>(count);
+      for (TopK topK : topKs) {
+        results.add(topK.toNeighbors());
+      }
+      return results;
+    }
+  }
+
+  private Queries prepare(List<Embedding> queries, int k) {
+    if (k <= 0) {
+      throw new IllegalArgumentException("The number of results must be positive.");
+    }
+    Queries prepared = new Queries(queries.size(), k);
+    for (int q = 0; q < queries.size(); ++q) {
+      int offset = q * dimension;
+      if (quantized) {
+        byte[] values = checkQuantized(queries.get(q));
+        System.arraycopy(values, 0, prepared.quantizedValues, offset, dimension);
+        prepared.inverseNorms[q] = inverseNorm(values);
+      } else {
+        float[] values = checkFloat(queries.get(q));
+        float inverseNorm = inverseNorm(values);
+        for (int i = 0; i < dimension; ++i) {
+          prepared.floatValues[offset + i] = values[i] * inverseNorm;
+        }
+      }
+    }
+    return prepared;
+  }
+
+  /** Scores the stored embeddings in [begin, end) against all the queries. */
+  private TopK[] scan(Queries queries, int begin, int end) {
+    TopK[] topKs = new TopK[queries.count];
+    for (int q = 0; q < queries.count; ++q) {
+      topKs[q] = new TopK(queries.k, index -> ids[index]);
+    }
+    for (int blockBegin = begin; blockBegin < end; blockBegin += BLOCK_SIZE) {
+      int blockEnd = Math.min(blockBegin + BLOCK_SIZE, end);
+      for (int q = 0; q < queries.count; ++q) {
+        TopK topK = topKs[q];
+        int queryOffset = q * dimension;
+        for (int index = blockBegin; index < blockEnd; ++index) {
+          float score;
+          if (quantized) {
+            score =
+                CosineSimilarity.dot(
+                        queries.quantizedValues,
+                        queryOffset,
+                        quantizedVectors,
+                        index * dimension,
+                        dimension)
+                    * queries.inverseNorms[q]
+                    * inverseNorms[index];
+          } else {
+            score =
+                CosineSimilarity.dot(
+                    queries.floatValues, queryOffset, floatVectors, index * dimension, dimension);
+          }
+          topK.offer(score, index);
+        }
+      }
+    }
+    return topKs;
+  }
+
+  private float[] checkFloat(Embedding embedding) {
+    if (embedding.floatEmbedding().length == 0) {
+      throw new IllegalArgumentException(
+          "Cannot use a quantized embedding with an index of float embeddings.");
+    }
+    checkDimension(embedding.floatEmbedding().length);
+    return embedding.floatEmbedding();
+  }
+
+  private byte[] checkQuantized(Embedding embedding) {
+    if (embedding.quantizedEmbedding().length == 0) {
+      throw new IllegalArgumentException(
+          "Cannot use a float embedding with an index of quantized embeddings.");
+    }
+    checkDimension(embedding.quantizedEmbedding().length);
+    return embedding.quantizedEmbedding();
+  }
+
+  private void checkDimension(int length) {
+    if (length != dimension) {
+      throw new IllegalArgumentException(
+          String.format(
+              "Cannot use an embedding of size %d with an index of embeddings of size %d.",
+              length, dimension));
+    }
+  }
+
+  private static float inverseNorm(float[] values) {
+    double norm = 0.0;
+    for (float value : values) {
+      norm += value * value;
+    }
+    return checkedInverseNorm(norm);
+  }
+
+  private static float inverseNorm(byte[] values) {
+    long norm = 0;
+    for (byte value : values) {
+      norm += value * value;
+    }
+    return checkedInverseNorm(norm);
+  }
+
+  private static float checkedInverseNorm(double norm) {
+    if (norm <= 0) {
+      throw new IllegalArgumentException(
+          "Cannot compute cosine similarity on embedding with 0 norm.");
+    }
+    return (float) (1.0 / Math.sqrt(norm));
+  }
+
+  /**
+   * The {@code k} best scores seen so far, in a min-heap of primitives so that the worst of them is
+   * replaced in O(log k) without allocating. Also used by {@link EmbeddingStore}.
+   */
+  static final class TopK {
+    final float[] scores;
+    final int[] indices;
+    // Maps the indices to ids, to order equal scores.
+    private final IntToLongFunction ids;
+    int size = 0;
+
+    TopK(int k, IntToLongFunction ids) {
+      scores = new float[k];
+      indices = new int[k];
+      this.ids = ids;
+    }
+
+    void offer(float score, int index) {
+      if (size < scores.length) {
+        int i = size++;
+        scores[i] = score;
+        indices[i] = index;
+        siftUp(i);
+      } else if (isBetter(score, index, scores[0], indices[0])) {
+        scores[0] = score;
+        indices[0] = index;
+        siftDown(0);
+      }
+    }
+
+    void addAll(TopK other) {
+      for (int i = 0; i < other.size; ++i) {
+        offer(other.scores[i], other.indices[i]);
+      }
+    }
+
+    List<Neighbor> toNeighbors() {
+      Integer[] order = new Integer[size];
+      for (int i = 0; i < size; ++i) {
+        order[i] = i;
+      }
+      Arrays.sort(
+          order,
+          (a, b) -> {
+            if (isBetter(scores[a], indices[a], scores[b], indices[b])) {
+              return -1;
+            }
+            return isBetter(scores[b], indices[b], scores[a], indices[a]) ? 1 : 0;
+          });
+      List<Neighbor> neighbors = new ArrayList<>(size);
+      for (int i : order) {
+        neighbors.add(Neighbor.create(ids.applyAsLong(indices[i]), scores[i]));
+      }
+      return neighbors;
+    }
+
+    // Higher scores are better, then lower ids, so that results are deterministic and don't depend
+    // on where an embedding is stored.
+    private boolean isBetter(float score, int index, float otherScore, int otherIndex) {
+      return score > otherScore
+          || (score == otherScore && ids.applyAsLong(index) < ids.applyAsLong(otherIndex));
+    }
+
+    private void siftUp(int i) {
+      while (i > 0) {
+        int parent = (i - 1) / 2;
+        if (!isBetter(scores[parent], indices[parent], scores[i], indices[i])) {
+          return;
+        }
+        swap(i, parent);
+        i = parent;
+      }
+    }
+
+    private void siftDown(int i) {
+      while (true) {
+        int worst = i;
+        int left = 2 * i + 1;
+        int right = left + 1;
+        if (left < size && isBetter(scores[worst], indices[worst], scores[left], indices[left])) {
+          worst = left;
+        }
+        if (right < size
+            && isBetter(scores[worst], indices[worst], scores[right], indices[right])) {
+          worst = right;
+        }
+        if (worst == i) {
+          return;
+        }
+        swap(i, worst);
+        i = worst;
+      }
+    }
+
+    private void swap(int i, int j) {
+      float score = scores[i];
+      scores[i] = scores[j];
+      scores[j] = score;
+      int index = indices[i];
+      indices[i] = indices[j];
+      indices[j] = index;
+    }
+  }
+}
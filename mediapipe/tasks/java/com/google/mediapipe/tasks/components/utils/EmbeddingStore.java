@@ -0,0 +1,590 @@
+// Copyright 2023 The MediaPipe Authors.
+//
+// Licensed under the Apache License, Version 2.0 (the "License");
+// you may not use this file except in compliance with the License.
+// You may obtain a copy of the License at
+//
+//      http://www.apache.org/licenses/LICENSE-2.0
+//
+// Unless required by applicable law or agreed to in writing, software
+// distributed under the License is distributed on an "AS IS" BASIS,
+// WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+// See the License for the specific language governing permissions and
+// limitations under the License.
+
+package com.google.mediapipe.tasks.components.utils;
+
+import com.google.mediapipe.tasks.components.containers.Embedding;
+import com.google.mediapipe.tasks.components.utils.EmbeddingIndex.Neighbor;
+import com.google.mediapipe.tasks.components.utils.EmbeddingIndex.TopK;
+import java.io.Closeable;
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.FloatBuffer;
+import java.nio.LongBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.Optional;
+
+/**
+ * Append-only file of {@link Embedding} objects, memory-mapped so that it is searched by <a
+ * href="https://en.wikipedia.org/wiki/Cosine_similarity">cosine similarity</a> in place, without
+ * deserialization.
+ *
+ * <p>The file starts with a header holding the dimension, the type (float vs. quantized) and the
+ * head of the embeddings, followed by fixed-size pages. Each page holds a fixed number of
+ * embeddings as three columns: their ids, their inverse L2-norms, and their values back to back.
+ * Opening a store only maps its pages, so it takes milliseconds even for millions of embeddings.
+ * The id to index table used by {@link #get} and {@link #append} is built from the id columns the
+ * first time it is needed.
+ *
+ * <p>The scores of {@link #search} are the same as {@link CosineSimilarity#compute}, up to float
+ * rounding. Results with equal scores are ordered by ascending id, like in {@link EmbeddingIndex}.
+ * Searches may run concurrently with each other, but not with {@link #append}.
+ */
+public final class EmbeddingStore implements Closeable {
+
+  private static final byte[] MAGIC = "MPEMBST\0".getBytes(StandardCharsets.US_ASCII);
+  private static final int VERSION = 1;
+  private static final int HEADER_SIZE = 4096;
+  private static final int VERSION_OFFSET = 8;
+  private static final int QUANTIZED_OFFSET = 12;
+  private static final int DIMENSION_OFFSET = 16;
+  private static final int HEAD_INDEX_OFFSET = 20;
+  private static final int PAGE_CAPACITY_OFFSET = 24;
+  private static final int SIZE_OFFSET = 32;
+  private static final int HEAD_NAME_OFFSET = 40;
+  private static final int MAX_HEAD_NAME_LENGTH = HEADER_SIZE - HEAD_NAME_OFFSET - 4;
+  // The approximate size of the pages, which are mapped one by one.
+  private static final int PAGE_SIZE = 1 << 22;
+  private static final int MIN_PAGE_CAPACITY = 64;
+  // The number of embeddings copied out of a page at a time by a search, and scored against all
+  // the queries before moving on.
+  private static final int BLOCK_SIZE = 64;
+
+  private final RandomAccessFile file;
+  private final boolean writable;
+  private final MappedByteBuffer header;
+  private final int dimension;
+  private final boolean quantized;
+  private final int headIndex;
+  private final Optional<String> headName;
+  private final int pageCapacity;
+  private final int inverseNormsOffset;
+  private final int vectorsOffset;
+  private final int pageSize;
+  private final List<Page> pages = new ArrayList<>();
+  private int size;
+  private IdTable idTable;
+
+  /**
+   * Creates a store of float embeddings in {@code file}, replacing any existing file, and opens it
+   * for appending.
+   *
+   * @param dimension the size of the embeddings.
+   * @param headIndex the head index of the embeddings.
+   * @param headName the head name of the embeddings.
+   * @throws IllegalArgumentException if {@code dimension} is not positive or the head name is too
+   *     long.
+   * @throws IOException if the file cannot be written.
+   */
+  public static EmbeddingStore createForFloatEmbeddings(
+      File file, int dimension, int headIndex, Optional<String> headName) throws IOException {
+    return create(file, dimension, /* quantized= */ false, headIndex, headName);
+  }
+
+  /**
+   * Creates a store of quantized embeddings in {@code file}, replacing any existing file, and opens
+   * it for appending.
+   *
+   * @param dimension the size of the embeddings.
+   * @param headIndex the head index of the embeddings.
+   * @param headName the head name of the embeddings.
+   * @throws IllegalArgumentException if {@code dimension} is not positive or the head name is too
+   *     long.
+   * @throws IOException if the file cannot be written.
+   */
+  public static EmbeddingStore createForQuantizedEmbeddings(
+      File file, int dimension, int headIndex, Optional<String> headName) throws IOException {
+    return create(file, dimension, /* quantized= */ true, headIndex, headName);
+  }
+
+  /**
+   * Opens an existing store for searching only. Embeddings appended to the file afterwards are not
+   * visible.
+   *
+   * @throws IOException if the file cannot be read or is not a valid store.
+   */
+  public static EmbeddingStore open(File file) throws IOException {
+    return new EmbeddingStore(new RandomAccessFile(file, "r"), /* writable= */ false);
+  }
+
+  /**
+   * Opens an existing store for searching and appending.
+   *
+   * @throws IOException if the file cannot be read and written or is not a valid store.
+   */
+  public static EmbeddingStore openForAppend(File file) throws IOException {
+    return new EmbeddingStore(new RandomAccessFile(file, "rw"), /* writable= */ true);
+  }
+
+  private static EmbeddingStore create(
+      File file, int dimension, boolean quantized, int headIndex, Optional<String> headName)
+      throws IOException {
+    if (dimension <= 0) {
+      throw new IllegalArgumentException("The dimension of the embeddings must be positive.");
+    }
+    byte[] name = headName.orElse("").getBytes(StandardCharsets.UTF_8);
+    if (name.length > MAX_HEAD_NAME_LENGTH) {
+      throw new IllegalArgumentException(
+          String.format("The head name must be at most %d bytes long.", MAX_HEAD_NAME_LENGTH));
+    }
+    int embeddingSize = 12 + (quantized ? dimension : dimension * 4);
+    int pageCapacity = Math.max(MIN_PAGE_CAPACITY, PAGE_SIZE / embeddingSize);
+    ByteBuffer buffer = ByteBuffer.allocate(HEADER_SIZE).order(ByteOrder.LITTLE_ENDIAN);
+    buffer.put(MAGIC);
+    buffer.putInt(VERSION_OFFSET, VERSION);
+    buffer.putInt(QUANTIZED_OFFSET, quantized ? 1 : 0);
+    buffer.putInt(DIMENSION_OFFSET, dimension);
+    buffer.putInt(HEAD_INDEX_OFFSET, headIndex);
+    buffer.putInt(PAGE_CAPACITY_OFFSET, pageCapacity);
+    buffer.putLong(SIZE_OFFSET, 0);
+    buffer.putInt(HEAD_NAME_OFFSET, headName.isPresent() ? name.length : -1);
+    buffer.position(HEAD_NAME_OFFSET + 4);
+    buffer.put(name);
+    buffer.rewind();
+
+    RandomAccessFile randomAccessFile = new RandomAccessFile(file, "rw");
+    try {
+      randomAccessFile.setLength(0);
+      randomAccessFile.getChannel().write(buffer, 0);
+      return new EmbeddingStore(randomAccessFile, /* writable= */ true);
+    } catch (IOException | RuntimeException e) {
+      randomAccessFile.close();
+      throw e;
+    }
+  }
+
+  private EmbeddingStore(RandomAccessFile file, boolean writable) throws IOException {
+    this.file = file;
+    this.writable = writable;
+    try {
+      FileChannel channel = file.getChannel();
+      if (channel.size() < HEADER_SIZE) {
+        throw new IOException("The file is too short to be an embedding store.");
+      }
+      header = channel.map(mapMode(), 0, HEADER_SIZE);
+      header.order(ByteOrder.LITTLE_ENDIAN);
+      byte[] magic = new byte[MAGIC.length];
+      header.get(magic);
+      if (!Arrays.equals(magic, MAGIC)) {
+        throw new IOException("The file is not an embedding store.");
+      }
+      if (header.getInt(VERSION_OFFSET) != VERSION) {
+        throw new IOException(
+            String.format(
+                "Unsupported embedding store version %d.", header.getInt(VERSION_OFFSET)));
+      }
+      quantized = header.getInt(QUANTIZED_OFFSET) != 0;
+      dimension = header.getInt(DIMENSION_OFFSET);
+      headIndex = header.getInt(HEAD_INDEX_OFFSET);
+      pageCapacity = header.getInt(PAGE_CAPACITY_OFFSET);
+      long storedSize = header.getLong(SIZE_OFFSET);
+      int headNameLength = header.getInt(HEAD_NAME_OFFSET);
+      if (dimension <= 0
+          || pageCapacity <= 0
+          || storedSize < 0
+          || storedSize > Integer.MAX_VALUE
+          || headNameLength > MAX_HEAD_NAME_LENGTH) {
+        throw new IOException("The embedding store header is corrupted.");
+      }
+      if (headNameLength < 0) {
+        headName = Optional.empty();
+      } else {
+        byte[] name = new byte[headNameLength];
+        header.position(HEAD_NAME_OFFSET + 4);
+        header.get(name);
+        headName = Optional.of(new String(name, StandardCharsets.UTF_8));
+      }
+
+      // The inverse norms are 8-byte aligned so that the vectors are aligned for any dimension.
+      inverseNormsOffset = pageCapacity * 8;
+      vectorsOffset = inverseNormsOffset + (pageCapacity * 4 + 7) / 8 * 8;
+      long vectorsSize = (long) pageCapacity * dimension * (quantized ? 1 : 4);
+      if (vectorsOffset + vectorsSize > Integer.MAX_VALUE) {
+        throw new IOException("The embedding store header is corrupted.");
+      }
+      pageSize = (int) (vectorsOffset + vectorsSize);
+      size = (int) storedSize;
+      int pageCount = (size + pageCapacity - 1) / pageCapacity;
+      if (channel.size() < HEADER_SIZE + (long) pageCount * pageSize) {
+        throw new IOException("The embedding store is truncated.");
+      }
+      for (int p = 0; p < pageCount; ++p) {
+        mapPage();
+      }
+    } catch (IOException | RuntimeException e) {
+      file.close();
+      throw e;
+    }
+  }
+
+  /** Returns the size of the embeddings. */
+  public int dimension() {
+    return dimension;
+  }
+
+  /** Returns true if the store holds quantized embeddings. */
+  public boolean isQuantized() {
+    return quantized;
+  }
+
+  /** Returns the head index of the embeddings. */
+  public int headIndex() {
+    return headIndex;
+  }
+
+  /** Returns the head name of the embeddings. */
+  public Optional<String> headName() {
+    return headName;
+  }
+
+  /** Returns the number of stored embeddings. */
+  public int size() {
+    return size;
+  }
+
+  /**
+   * Appends an embedding to the store. It is visible to readers that open the file afterwards once
+   * the store is flushed or closed.
+   *
+   * @param id the id returned in the search results for this embedding.
+   * @param embedding the {@link Embedding} to append.
+   * @throws IllegalStateException if the store is read-only.
+   * @throws IllegalArgumentException if the id is already in the store, or if the embedding is of
+   *     the wrong type (float vs. quantized) or head, has the wrong size, or has an L2-norm of 0.
+   * @throws IOException if the file cannot be extended.
+   */
+  public void append(long id, Embedding embedding) throws IOException {
+    if (!writable) {
+      throw new IllegalStateException("Cannot append to a read-only embedding store.");
+    }
+    if (embedding.headIndex() != headIndex) {
+      throw new IllegalArgumentException(
+          String.format(
+              "Cannot append an embedding of head %d to a store of embeddings of head %d.",
+              embedding.headIndex(), headIndex));
+    }
+    float inverseNorm;
+    if (quantized) {
+      inverseNorm = CosineSimilarity.inverseNorm(checkQuantized(embedding));
+    } else {
+      inverseNorm = CosineSimilarity.inverseNorm(checkFloat(embedding));
+    }
+    IdTable table = idTable();
+    if (table.get(id) >= 0) {
+      throw new IllegalArgumentException(
+          String.format("The id %d is already in the store.", id));
+    }
+    if (size == pages.size() * pageCapacity) {
+      mapPage();
+    }
+    Page page = pages.get(size / pageCapacity);
+    int index = size % pageCapacity;
+    if (quantized) {
+      page.quantizedVectors.position(index * dimension);
+      page.quantizedVectors.put(embedding.quantizedEmbedding());
+    } else {
+      page.floatVectors.position(index * dimension);
+      page.floatVectors.put(embedding.floatEmbedding());
+    }
+    page.inverseNorms.put(index, inverseNorm);
+    page.ids.put(index, id);
+    table.put(id, size);
+    ++size;
+    header.putLong(SIZE_OFFSET, size);
+  }
+
+  /**
+   * Writes the appended embeddings and the header to the storage device.
+   *
+   * @throws IOException if the file cannot be written.
+   */
+  public void flush() throws IOException {
+    if (!writable) {
+      return;
+    }
+    for (Page page : pages) {
+      page.buffer.force();
+    }
+    header.force();
+  }
+
+  /**
+   * Flushes the store and closes the file. The mapped pages are released once they are garbage
+   * collected.
+   */
+  @Override
+  public void close() throws IOException {
+    try {
+      flush();
+    } finally {
+      file.close();
+    }
+  }
+
+  /** Returns the id of the embedding at {@code index}, in [0, size), in append order. */
+  public long idAt(int index) {
+    checkIndex(index);
+    return pages.get(index / pageCapacity).ids.get(index % pageCapacity);
+  }
+
+  /**
+   * Returns the embedding at {@code index}, in [0, size), in append order, e.g. to add it to an
+   * {@link EmbeddingIndex} or {@link IvfEmbeddingIndex}.
+   */
+  public Embedding embeddingAt(int index) {
+    checkIndex(index);
+    Page page = pages.get(index / pageCapacity);
+    int offset = index % pageCapacity * dimension;
+    if (quantized) {
+      byte[] values = new byte[dimension];
+      for (int i = 0; i < dimension; ++i) {
+        values[i] = page.quantizedVectors.get(offset + i);
+      }
+      return Embedding.create(new float[0], values, headIndex, headName);
+    }
+    float[] values = new float[dimension];
+    for (int i = 0; i < dimension; ++i) {
+      values[i] = page.floatVectors.get(offset + i);
+    }
+    return Embedding.create(values, new byte[0], headIndex, headName);
+  }
+
+  /** Returns the embedding appended with {@code id}, if any. */
+  public Optional<Embedding> get(long id) {
+    int index = idTable().get(id);
+    return index < 0 ? Optional.empty() : Optional.of(embeddingAt(index));
+  }
+
+  /**
+   * Returns the {@code k} stored embeddings most similar to {@code query}, most similar first.
+   *
+   * @throws IllegalArgumentException if {@code k} is not positive, or if the query is of the wrong
+   *     type (float vs. quantized), has the wrong size, or has an L2-norm of 0.
+   */
+  public List<Neighbor> search(Embedding query, int k) {
+    return search(Collections.singletonList(query), k).get(0);
+  }
+
+  /**
+   * Returns the {@code k} stored embeddings most similar to each of the {@code queries}, most
+   * similar first, scoring all the queries in a single pass over the pages.
+   *
+   * @throws IllegalArgumentException if {@code k} is not positive, or if a query is of the wrong
+   *     type (float vs. quantized), has the wrong size, or has an L2-norm of 0.
+   */
+  public List<List<Neighbor>> search(List<Embedding> queries, int k) {
+    if (k <= 0) {
+      throw new IllegalArgumentException("The number of results must be positive.");
+    }
+    int count = queries.size();
+    float[][] floatQueries = new float[count][];
+    byte[][] quantizedQueries = new byte[count][];
+    float[] queryInverseNorms = new float[count];
+    TopK[] topKs = new TopK[count];
+    for (int q = 0; q < count; ++q) {
+      if (quantized) {
+        quantizedQueries[q] = checkQuantized(queries.get(q));
+        queryInverseNorms[q] = CosineSimilarity.inverseNorm(quantizedQueries[q]);
+      } else {
+        floatQueries[q] = checkFloat(queries.get(q));
+        queryInverseNorms[q] = CosineSimilarity.inverseNorm(floatQueries[q]);
+      }
+      topKs[q] = new TopK(k, this::idAt);
+    }
+
+    // The embeddings are copied out of the mapped pages in bulk, so that they are scored by the
+    // array kernels of CosineSimilarity.
+    float[] floatBlock = quantized ? null : new float[BLOCK_SIZE * dimension];
+    byte[] quantizedBlock = quantized ? new byte[BLOCK_SIZE * dimension] : null;
+    int end = size;
+    for (int begin = 0; begin < end; begin += pageCapacity) {
+      Page page = pages.get(begin / pageCapacity);
+      int pageEnd = Math.min(pageCapacity, end - begin);
+      // Duplicated so that concurrent searches don't share the positions of the views.
+      FloatBuffer floatVectors = quantized ? null : page.floatVectors.duplicate();
+      ByteBuffer quantizedVectors = quantized ? page.quantizedVectors.duplicate() : null;
+      for (int blockBegin = 0; blockBegin < pageEnd; blockBegin += BLOCK_SIZE) {
+        int blockSize = Math.min(BLOCK_SIZE, pageEnd - blockBegin);
+        if (quantized) {
+          quantizedVectors.position(blockBegin * dimension);
+          quantizedVectors.get(quantizedBlock, 0, blockSize * dimension);
+        } else {
+          floatVectors.position(blockBegin * dimension);
+          floatVectors.get(floatBlock, 0, blockSize * dimension);
+        }
+        for (int row = 0; row < blockSize; ++row) {
+          int index = blockBegin + row;
+          float inverseNorm = page.inverseNorms.get(index);
+          for (int q = 0; q < count; ++q) {
+            float dot =
+                quantized
+                    ? CosineSimilarity.dot(
+                        quantizedQueries[q], 0, quantizedBlock, row * dimension, dimension)
+                    : CosineSimilarity.dot(
+                        floatQueries[q], 0, floatBlock, row * dimension, dimension);
+            topKs[q].offer(dot * queryInverseNorms[q] * inverseNorm, begin + index);
+          }
+        }
+      }
+    }
+
+    List<List<Neighbor>> results = new ArrayList<>(count);
+    for (TopK topK : topKs) {
+      results.add(topK.toNeighbors());
+    }
+    return results;
+  }
+
+  /** A mapped page, with views of its columns. */
+  private static final class Page {
+    final MappedByteBuffer buffer;
+    final LongBuffer ids;
+    final FloatBuffer inverseNorms;
+    final FloatBuffer floatVectors;
+    final ByteBuffer quantizedVectors;
+
+    Page(MappedByteBuffer buffer, LongBuffer ids, FloatBuffer inverseNorms, ByteBuffer vectors) {
+      this.buffer = buffer;
+      this.ids = ids;
+      this.inverseNorms = inverseNorms;
+      this.floatVectors = vectors.order(ByteOrder.LITTLE_ENDIAN).asFloatBuffer();
+      this.quantizedVectors = vectors;
+    }
+  }
+
+  private void mapPage() throws IOException {
+    long position = HEADER_SIZE + (long) pages.size() * pageSize;
+    MappedByteBuffer buffer = file.getChannel().map(mapMode(), position, pageSize);
+    pages.add(
+        new Page(
+            buffer,
+            slice(buffer, 0, inverseNormsOffset).asLongBuffer(),
+            slice(buffer, inverseNormsOffset, vectorsOffset).asFloatBuffer(),
+            slice(buffer, vectorsOffset, pageSize)));
+  }
+
+  private static ByteBuffer slice(ByteBuffer buffer, int begin, int end) {
+    ByteBuffer view = buffer.duplicate();
+    view.limit(end);
+    view.position(begin);
+    return view.slice().order(ByteOrder.LITTLE_ENDIAN);
+  }
+
+  private FileChannel.MapMode mapMode() {
+    return writable ? FileChannel.MapMode.READ_WRITE : FileChannel.MapMode.READ_ONLY;
+  }
+
+  private synchronized IdTable idTable() {
+    if (idTable == null) {
+      IdTable table = new IdTable(size);
+      for (int index = 0; index < size; ++index) {
+        table.put(idAt(index), index);
+      }
+      idTable = table;
+    }
+    return idTable;
+  }
+
+  private void checkIndex(int index) {
+    if (index < 0 || index >= size) {
+      throw new IndexOutOfBoundsException(
+          String.format("Index %d is out of bounds for a store of size %d.", index, size));
+    }
+  }
+
+  private float[] checkFloat(Embedding embedding) {
+    if (embedding.floatEmbedding().length == 0) {
+      throw new IllegalArgumentException(
+          "Cannot use a quantized embedding with a store of float embeddings.");
+    }
+    CosineSimilarity.checkLength(dimension, embedding.floatEmbedding().length);
+    return embedding.floatEmbedding();
+  }
+
+  private byte[] checkQuantized(Embedding embedding) {
+    if (embedding.quantizedEmbedding().length == 0) {
+      throw new IllegalArgumentException(
+          "Cannot use a float embedding with a store of quantized embeddings.");
+    }
+    CosineSimilarity.checkLength(dimension, embedding.quantizedEmbedding().length);
+    return embedding.quantizedEmbedding();
+  }
+
+  private static final class IdTable {
+    private long[] keys;
+    private int[] values;
+    private int count = 0;
+
+    IdTable(int expectedSize) {
+      int capacity = 16;
+      while (capacity < expectedSize * 2) {
+        capacity *= 2;
+      }
+      keys = new long[capacity];
+      values = new int[capacity];
+      Arrays.fill(values, -1);
+    }
+
+    /** Returns the index of {@code id}, or -1. */
+    int get(long id) {
+      int mask = keys.length - 1;
+      for (int slot = hash(id) & mask; values[slot] >= 0; slot = (slot + 1) & mask) {
+        if (keys[slot] == id) {
+          return values[slot];
+        }
+      }
+      return -1;
+    }
+
+    void put(long id, int index) {
+      if ((count + 1) * 2 > keys.length) {
+        long[] oldKeys = keys;
+        int[] oldValues = values;
+        keys = new long[oldKeys.length * 2];
+        values = new int[oldKeys.length * 2];
+        Arrays.fill(values, -1);
+        count = 0;
+        for (int slot = 0; slot < oldKeys.length; ++slot) {
+          if (oldValues[slot] >= 0) {
+            put(oldKeys[slot], oldValues[slot]);
+          }
+        }
+      }
+      int mask = keys.length - 1;
+      int slot = hash(id) & mask;
+      while (values[slot] >= 0 && keys[slot] != id) {
+        slot = (slot + 1) & mask;
+      }
+      if (values[slot] < 0) {
+        ++count;
+      }
+      keys[slot] = id;
+      values[slot] = index;
+    }
+
+    private static int hash(long id) {
+      long h = id * 0x9E3779B97F4A7C15L;
+      return (int) (h ^ (h >>> 32));
+    }
+  }
+}
@@ -0,0 +1,430 @@
+// Copyright 2023 The MediaPipe Authors.
+//
+// Licensed under the Apache License, Version 2.0 (the "License");
+// you may not use this file except in compliance with the License.
+// You may obtain a copy of the License at
+//
+//      http://www.apache.org/licenses/LICENSE-2.0
+//
+// Unless required by applicable law or agreed to in writing, software
+// distributed under the License is distributed on an "AS IS" BASIS,
+// WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+// See the License for the specific language governing permissions and
+// limitations under the License.
+
+package com.google.mediapipe.tasks.components.utils;
+
+import com.google.auto.value.AutoValue;
+import com.google.mediapipe.tasks.components.containers.Embedding;
+import com.google.mediapipe.tasks.components.utils.EmbeddingIndex.Neighbor;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Optional;
+import java.util.Random;
+
+/**
+ * Approximate nearest neighbor index of {@link Embedding} objects by <a
+ * href="https://en.wikipedia.org/wiki/Cosine_similarity">cosine similarity</a>, using an inverted
+ * file (IVF).
+ *
+ * <p>The embeddings are clustered around {@link Options#listCount} centroids learned by spherical
+ * k-means, and each cluster is stored in its own {@link EmbeddingIndex}. A search only scans the
+ * {@code probeCount} clusters whose centroids are the most similar to the query, which trades
+ * recall for latency: probing more clusters finds more of the exact nearest neighbors.
+ *
+ * <p>Until {@link Options#trainingSize} embeddings have been added, or {@link #train} is called,
+ * the index is a single exact {@link EmbeddingIndex}. Embeddings added after training go to the
+ * cluster of their nearest centroid; the centroids are not updated, so an index whose data drifts
+ * far from the training set should be rebuilt. Quantized embeddings are stored and scored as
+ * bytes, and only converted to floats to be compared with the centroids.
+ *
+ * <p>Results with equal scores are ordered by ascending id, like in {@link EmbeddingIndex}, so
+ * that merging the results of the probed clusters does not depend on the clusters. Searches may run
+ * concurrently with each other, but not with {@link #add}, {@link #remove} or {@link #train}.
+ */
+public final class IvfEmbeddingIndex {
+
+  /** Options for an {@link IvfEmbeddingIndex}. */
+  @AutoValue
+  public abstract static class Options {
+
+    /** Builder for {@link Options}. */
+    @AutoValue.Builder
+    public abstract static class Builder {
+      /**
+       * Sets the number of clusters. Default to 64. A good value is around the square root of the
+       * expected number of embeddings.
+       */
+      public abstract Builder setListCount(Integer value);
+
+      /** Sets the number of clusters scanned by a search. Default to 4. */
+      public abstract Builder setProbeCount(Integer value);
+
+      /**
+       * Sets the number of embeddings after which the index is trained automatically. Default to 32
+       * times the number of clusters.
+       */
+      public abstract Builder setTrainingSize(Integer value);
+
+      /** Sets the number of k-means iterations when training. Default to 10. */
+      public abstract Builder setKMeansIterations(Integer value);
+
+      /** Sets the seed of the k-means initialization. Default to 0. */
+      public abstract Builder setSeed(Long value);
+
+      abstract Options autoBuild();
+
+      /**
+       * Validates and builds the {@link Options} instance.
+       *
+       * @throws IllegalArgumentException if a count or size is not positive.
+       */
+      public final Options build() {
+        Options options = autoBuild();
+        if (options.listCount() <= 0
+            || options.probeCount() <= 0
+            || options.kMeansIterations() <= 0
+            || (options.trainingSize().isPresent() && options.trainingSize().get() <= 0)) {
+          throw new IllegalArgumentException(
+              "The list count, probe count, training size and k-means iterations must be"
+                  + " positive.");
+        }
+        return options;
+      }
+    }
+
+    public abstract int listCount();
+
+    public abstract int probeCount();
+
+    public abstract Optional<Integer> trainingSize();
+
+    public abstract int kMeansIterations();
+
+    public abstract long seed();
+
+    int effectiveTrainingSize() {
+      return trainingSize().orElse(listCount() * 32);
+    }
+
+    public static Builder builder() {
+      return new AutoValue_IvfEmbeddingIndex_Options.Builder()
+          .setListCount(64)
+          .setProbeCount(4)
+          .setKMeansIterations(10)
+          .setSeed(0L);
+    }
+  }
+
+  private static final int UNTRAINED_LIST = -1;
+
+  private final int dimension;
+  private final boolean quantized;
+  private final Options options;
+  private int probeCount;
+  // Holds all the embeddings until the index is trained.
+  private EmbeddingIndex untrained;
+  private EmbeddingIndex[] lists;
+  // The normalized centroids of the lists, back to back.
+  private float[] centroids;
+  private final HashMap<Long, Integer> listOfId = new HashMap<>();
+
+  /**
+   * Creates an empty index of float embeddings.
+   *
+   * @param dimension the size of the embeddings.
+   * @param options the {@link Options} of the index.
+   * @throws IllegalArgumentException if {@code dimension} is not positive.
+   */
+  public static IvfEmbeddingIndex createForFloatEmbeddings(int dimension, Options options) {
+    return new IvfEmbeddingIndex(dimension, /* quantized= */ false, options);
+  }
+
+  /**
+   * Creates an empty index of quantized embeddings.
+   *
+   * @param dimension the size of the embeddings.
+   * @param options the {@link Options} of the index.
+   * @throws IllegalArgumentException if {@code dimension} is not positive.
+   */
+  public static IvfEmbeddingIndex createForQuantizedEmbeddings(int dimension, Options options) {
+    return new IvfEmbeddingIndex(dimension, /* quantized= */ true, options);
+  }
+
+  private IvfEmbeddingIndex(int dimension, boolean quantized, Options options) {
+    this.dimension = dimension;
+    this.quantized = quantized;
+    this.options = options;
+    this.probeCount = options.probeCount();
+    this.untrained = newList();
+  }
+
+  /** Returns the size of the embeddings. */
+  public int dimension() {
+    return dimension;
+  }
+
+  /** Returns true if the index stores quantized embeddings. */
+  public boolean isQuantized() {
+    return quantized;
+  }
+
+  /** Returns the number of stored embeddings. */
+  public int size() {
+    return listOfId.size();
+  }
+
+  /** Returns true if the index has been clustered. */
+  public boolean isTrained() {
+    return lists != null;
+  }
+
+  /**
+   * Sets the number of clusters scanned by the following searches, overriding {@link
+   * Options#probeCount}.
+   *
+   * @throws IllegalArgumentException if {@code probeCount} is not positive.
+   */
+  public void setProbeCount(int probeCount) {
+    if (probeCount <= 0) {
+      throw new IllegalArgumentException("The probe count must be positive.");
+    }
+    this.probeCount = probeCount;
+  }
+
+  /**
+   * Adds an embedding to the index, training the index once it holds {@link
+   * Options#trainingSize} embeddings.
+   *
+   * @param id the id returned in the search results for this embedding.
+   * @param embedding the {@link Embedding} to add.
+   * @throws IllegalArgumentException if {@code id} is already in the index, or if the embedding is
+   *     of the wrong type (float vs. quantized), has the wrong size, or has an L2-norm of 0.
+   */
+  public void add(long id, Embedding embedding) {
+    if (listOfId.containsKey(id)) {
+      throw new IllegalArgumentException(String.format("The id %d is already in the index.", id));
+    }
+    if (!isTrained()) {
+      untrained.add(id, embedding);
+      listOfId.put(id, UNTRAINED_LIST);
+      if (untrained.size() >= options.effectiveTrainingSize()) {
+        train();
+      }
+      return;
+    }
+    int list = nearestLists(normalize(embedding), /* count= */ 1)[0];
+    lists[list].add(id, embedding);
+    listOfId.put(id, list);
+  }
+
+  /**
+   * Removes the embedding added with {@code id}.
+   *
+   * @return true if an embedding was removed.
+   */
+  public boolean remove(long id) {
+    Integer list = listOfId.remove(id);
+    if (list == null) {
+      return false;
+    }
+    return (list == UNTRAINED_LIST ? untrained : lists[list]).remove(id);
+  }
+
+  /**
+   * Returns approximately the {@code k} stored embeddings most similar to {@code query}, most
+   * similar first.
+   *
+   * @throws IllegalArgumentException if {@code k} is not positive, or if the query is of the wrong
+   *     type (float vs. quantized), has the wrong size, or has an L2-norm of 0.
+   */
+  public List<Neighbor> search(Embedding query, int k) {
+    if (!isTrained()) {
+      return untrained.search(query, k);
+    }
+    List<Neighbor> candidates = new ArrayList<>();
+    for (int list : nearestLists(normalize(query), Math.min(probeCount, lists.length))) {
+      if (lists[list].size() > 0) {
+        candidates.addAll(lists[list].search(query, k));
+      }
+    }
+    // Ordered like the results of EmbeddingIndex: higher scores first, then lower ids.
+    Collections.sort(
+        candidates,
+        (a, b) -> {
+          int order = Float.compare(b.score(), a.score());
+          return order != 0 ? order : Long.compare(a.id(), b.id());
+        });
+    return candidates.size() > k ? new ArrayList<>(candidates.subList(0, k)) : candidates;
+  }
+
+  /**
+   * Clusters the embeddings added so far with spherical k-means and distributes them to the
+   * clusters. Called automatically once {@link Options#trainingSize} embeddings have been added.
+   *
+   * @throws IllegalStateException if the index is already trained or holds no embeddings.
+   */
+  public void train() {
+    if (isTrained()) {
+      throw new IllegalStateException("The index is already trained.");
+    }
+    int count = untrained.size();
+    if (count == 0) {
+      throw new IllegalStateException("Cannot train an index without embeddings.");
+    }
+    int listCount = Math.min(options.listCount(), count);
+    float[] points = new float[count * dimension];
+    for (int i = 0; i < count; ++i) {
+      System.arraycopy(normalize(untrained.embeddingAt(i)), 0, points, i * dimension, dimension);
+    }
+    Random random = new Random(options.seed());
+    // Starts from distinct random points.
+    List<Integer> order = new ArrayList<>(count);
+    for (int i = 0; i < count; ++i) {
+      order.add(i);
+    }
+    Collections.shuffle(order, random);
+    centroids = new float[listCount * dimension];
+    for (int c = 0; c < listCount; ++c) {
+      System.arraycopy(points, order.get(c) * dimension, centroids, c * dimension, dimension);
+    }
+    int[] assignments = new int[count];
+    for (int iteration = 0; iteration < options.kMeansIterations(); ++iteration) {
+      for (int i = 0; i < count; ++i) {
+        assignments[i] = nearestCentroid(points, i * dimension, listCount);
+      }
+      double[] sums = new double[listCount * dimension];
+      int[] sizes = new int[listCount];
+      for (int i = 0; i < count; ++i) {
+        int offset = assignments[i] * dimension;
+        for (int d = 0; d < dimension; ++d) {
+          sums[offset + d] += points[i * dimension + d];
+        }
+        ++sizes[assignments[i]];
+      }
+      for (int c = 0; c < listCount; ++c) {
+        if (sizes[c] == 0) {
+          // Restarts an empty cluster from a random point.
+          int point = random.nextInt(count);
+          System.arraycopy(points, point * dimension, centroids, c * dimension, dimension);
+          continue;
+        }
+        double norm = 0.0;
+        for (int d = 0; d < dimension; ++d) {
+          norm += sums[c * dimension + d] * sums[c * dimension + d];
+        }
+        double inverseNorm = norm > 0 ? 1.0 / Math.sqrt(norm) : 0.0;
+        for (int d = 0; d < dimension; ++d) {
+          centroids[c * dimension + d] = (float) (sums[c * dimension + d] * inverseNorm);
+        }
+      }
+    }
+    lists = new EmbeddingIndex[listCount];
+    for (int c = 0; c < listCount; ++c) {
+      lists[c] = newList();
+    }
+    for (int i = 0; i < count; ++i) {
+      int list = nearestCentroid(points, i * dimension, listCount);
+      long id = untrained.idAt(i);
+      lists[list].add(id, untrained.embeddingAt(i));
+      listOfId.put(id, list);
+    }
+    untrained = null;
+  }
+
+  private EmbeddingIndex newList() {
+    return quantized
+        ? EmbeddingIndex.createForQuantizedEmbeddings(dimension)
+        : EmbeddingIndex.createForFloatEmbeddings(dimension);
+  }
+
+  /** Returns the indices of the {@code count} centroids most similar to {@code point}. */
+  private int[] nearestLists(float[] point, int count) {
+    int listCount = lists.length;
+    float[] scores = new float[listCount];
+    for (int c = 0; c < listCount; ++c) {
+      scores[c] = dot(point, 0, centroids, c * dimension);
+    }
+    // The probe count is small, so a partial selection sort is enough.
+    int[] nearest = new int[count];
+    boolean[] taken = new boolean[listCount];
+    for (int n = 0; n < count; ++n) {
+      int best = -1;
+      for (int c = 0; c < listCount; ++c) {
+        if (!taken[c] && (best < 0 || scores[c] > scores[best])) {
+          best = c;
+        }
+      }
+      taken[best] = true;
+      nearest[n] = best;
+    }
+    return nearest;
+  }
+
+  private int nearestCentroid(float[] points, int offset, int listCount) {
+    int best = 0;
+    float bestScore = Float.NEGATIVE_INFINITY;
+    for (int c = 0; c < listCount; ++c) {
+      float score = dot(points, offset, centroids, c * dimension);
+      if (score > bestScore) {
+        bestScore = score;
+        best = c;
+      }
+    }
+    return best;
+  }
+
+  private float dot(float[] u, int uOffset, float[] v, int vOffset) {
+    float sum = 0;
+    for (int d = 0; d < dimension; ++d) {
+      sum += u[uOffset + d] * v[vOffset + d];
+    }
+    return sum;
+  }
+
+  /** Returns the embedding as a normalized float vector, to be compared with the centroids. */
+  private float[] normalize(Embedding embedding) {
+    float[] values = new float[dimension];
+    int length;
+    if (quantized) {
+      byte[] bytes = embedding.quantizedEmbedding();
+      if (bytes.length == 0) {
+        throw new IllegalArgumentException(
+            "Cannot use a float embedding with an index of quantized embeddings.");
+      }
+      length = bytes.length;
+      for (int d = 0; d < Math.min(length, dimension); ++d) {
+        values[d] = bytes[d];
+      }
+    } else {
+      float[] floats = embedding.floatEmbedding();
+      if (floats.length == 0) {
+        throw new IllegalArgumentException(
+            "Cannot use a quantized embedding with an index of float embeddings.");
+      }
+      length = floats.length;
+      System.arraycopy(floats, 0, values, 0, Math.min(length, dimension));
+    }
+    if (length != dimension) {
+      throw new IllegalArgumentException(
+          String.format(
+              "Cannot use an embedding of size %d with an index of embeddings of size %d.",
+              length, dimension));
+    }
+    double norm = 0.0;
+    for (float value : values) {
+      norm += value * value;
+    }
+    if (norm <= 0) {
+      throw new IllegalArgumentException(
+          "Cannot compute cosine similarity on embedding with 0 norm.");
+    }
+    float inverseNorm = (float) (1.0 / Math.sqrt(norm));
+    for (int d = 0; d < dimension; ++d) {
+      values[d] *= inverseNorm;
+    }
+    return values;
+  }
+}
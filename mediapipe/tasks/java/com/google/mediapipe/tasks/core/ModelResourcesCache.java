@@ -15,11 +15,19 @@
 package com.google.mediapipe.tasks.core;
 
 import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
 
-/** Facilitates creation and destruction of the native ModelResourcesCache. */
+/**
+ * Facilitates creation and destruction of the native ModelResourcesCache.
+ *
+ * <p>The cache is reference counted so that several task runners can share it, see {@link
+ * ModelResourcesCacheRegistry}: {@link #acquire} adds a reference, and the native cache is
+ * destroyed when {@link #release} drops the last one.
+ */
 class ModelResourcesCache {
   private final long nativeHandle;
   private final AtomicBoolean isHandleValid;
+  private final AtomicInteger refCount = new AtomicInteger(1);
 
   public ModelResourcesCache() {
     nativeHandle = nativeCreateModelResourcesCache();
@@ -37,8 +45,27 @@ class ModelResourcesCache {
     return 0;
   }
 
+  /** Adds a reference to the cache. Returns false if the cache has already been destroyed. */
+  public boolean acquire() {
+    while (true) {
+      int count = refCount.get();
+      if (count <= 0) {
+        return false;
+      }
+      if (refCount.compareAndSet(count, count + 1)) {
+        return true;
+      }
+    }
+  }
+
+  /** Returns the number of references to the cache. */
+  int getRefCount() {
+    return refCount.get();
+  }
+
+  /** Drops a reference to the cache, destroying the native cache with the last one. */
   public void release() {
-    if (isHandleValid.compareAndSet(true, false)) {
+    if (refCount.decrementAndGet() == 0 && isHandleValid.compareAndSet(true, false)) {
       nativeReleaseModelResourcesCache(nativeHandle);
     }
   }
@@ -0,0 +1,293 @@
+// Copyright 2023 The MediaPipe Authors.
+//
+// Licensed under the Apache License, Version 2.0 (the "License");
+// you may not use this file except in compliance with the License.
+// You may obtain a copy of the License at
+//
+//      http://www.apache.org/licenses/LICENSE-2.0
+//
+// Unless required by applicable law or agreed to in writing, software
+// distributed under the License is distributed on an "AS IS" BASIS,
+// WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+// See the License for the specific language governing permissions and
+// limitations under the License.
+
+package com.google.mediapipe.tasks.core;
+
+import com.google.auto.value.AutoValue;
+import java.io.File;
+import java.nio.ByteBuffer;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+
+/**
+ * Process-wide cache of the model resources of MediaPipe tasks.
+ *
+ * <p>Task instances created with the same task graph, model and delegate share the native model
+ * resources cache of their graphs, so the model is parsed and mapped once, and creating further
+ * instances is nearly free. The model is identified by its asset path, by the SHA-256 digest of
+ * its buffer, or by its file descriptor.
+ *
+ * <p>Entries are reference counted by the task instances using them. When the last instance is
+ * closed, the entry is kept idle for later instances, and idle entries are evicted in least
+ * recently used order once there are more than {@link #setMaxIdleEntries} of them or the cached
+ * models take more than {@link #setMemoryBudgetBytes}. Entries keyed by a file descriptor are
+ * evicted as soon as they become idle, since the descriptor may be reused for another file.
+ */
+public final class ModelResourcesCacheRegistry {
+
+  /** Metrics of the {@link ModelResourcesCacheRegistry}. */
+  @AutoValue
+  public abstract static class Stats {
+    /** Returns the number of task instances that reused cached model resources. */
+    public abstract long hitCount();
+
+    /** Returns the number of task instances that created new model resources. */
+    public abstract long missCount();
+
+    /** Returns the number of entries evicted from the cache. */
+    public abstract long evictionCount();
+
+    /** Returns the number of cached entries, including the idle ones. */
+    public abstract int entryCount();
+
+    /** Returns the number of cached entries that no task instance uses. */
+    public abstract int idleEntryCount();
+
+    /**
+     * Returns the estimated size of the cached models in bytes. Models loaded from the app assets
+     * or from a file descriptor are not counted.
+     */
+    public abstract long cachedBytes();
+
+    static Stats create(
+        long hitCount,
+        long missCount,
+        long evictionCount,
+        int entryCount,
+        int idleEntryCount,
+        long cachedBytes) {
+      return new AutoValue_ModelResourcesCacheRegistry_Stats(
+          hitCount, missCount, evictionCount, entryCount, idleEntryCount, cachedBytes);
+    }
+  }
+
+  private static final int DEFAULT_MAX_IDLE_ENTRIES = 2;
+
+  private static final class Entry {
+    final ModelResourcesCache cache;
+    final long bytes;
+    final boolean retainWhenIdle;
+
+    Entry(ModelResourcesCache cache, long bytes, boolean retainWhenIdle) {
+      this.cache = cache;
+      this.bytes = bytes;
+      this.retainWhenIdle = retainWhenIdle;
+    }
+
+    boolean isIdle() {
+      // The registry holds one reference of its own.
+      return cache.getRefCount() == 1;
+    }
+  }
+
+  private static final Object lock = new Object();
+  // In access order, so that the eldest entries are the least recently used.
+  private static final LinkedHashMap<String, Entry> entries =
+      new LinkedHashMap<>(16, 0.75f, /* accessOrder= */ true);
+  private static int maxIdleEntries = DEFAULT_MAX_IDLE_ENTRIES;
+  private static long memoryBudgetBytes = Long.MAX_VALUE;
+  private static long cachedBytes;
+  private static long hitCount;
+  private static long missCount;
+  private static long evictionCount;
+
+  /**
+   * Sets the maximum number of entries kept when no task instance uses them. Default to 2. Setting
+   * it to 0 releases the model resources as soon as the last instance using them is closed.
+   *
+   * @throws IllegalArgumentException if {@code maxIdleEntries} is negative.
+   */
+  public static void setMaxIdleEntries(int maxIdleEntries) {
+    if (maxIdleEntries < 0) {
+      throw new IllegalArgumentException(
+          "The maximum number of idle entries must not be negative.");
+    }
+    List<ModelResourcesCache> evicted;
+    synchronized (lock) {
+      ModelResourcesCacheRegistry.maxIdleEntries = maxIdleEntries;
+      evicted = evictIdleEntries();
+    }
+    releaseAll(evicted);
+  }
+
+  /**
+   * Sets the size in bytes above which idle entries are evicted. Entries in use are never evicted.
+   * Unlimited by default.
+   *
+   * @throws IllegalArgumentException if {@code memoryBudgetBytes} is negative.
+   */
+  public static void setMemoryBudgetBytes(long memoryBudgetBytes) {
+    if (memoryBudgetBytes < 0) {
+      throw new IllegalArgumentException("The memory budget must not be negative.");
+    }
+    List<ModelResourcesCache> evicted;
+    synchronized (lock) {
+      ModelResourcesCacheRegistry.memoryBudgetBytes = memoryBudgetBytes;
+      evicted = evictIdleEntries();
+    }
+    releaseAll(evicted);
+  }
+
+  /** Evicts all the idle entries. */
+  public static void evictAll() {
+    List<ModelResourcesCache> evicted = new ArrayList<>();
+    synchronized (lock) {
+      Iterator<Entry> it = entries.values().iterator();
+      while (it.hasNext()) {
+        Entry entry = it.next();
+        if (entry.isIdle()) {
+          it.remove();
+          evict(entry, evicted);
+        }
+      }
+    }
+    releaseAll(evicted);
+  }
+
+  /** Returns the current {@link Stats}. */
+  public static Stats getStats() {
+    synchronized (lock) {
+      int idleEntryCount = 0;
+      for (Entry entry : entries.values()) {
+        if (entry.isIdle()) {
+          ++idleEntryCount;
+        }
+      }
+      return Stats.create(
+          hitCount, missCount, evictionCount, entries.size(), idleEntryCount, cachedBytes);
+    }
+  }
+
+  /**
+   * Returns a reference to the model resources cache for a task graph with the given options,
+   * which the caller must give back with {@link #release}. The options are the model base options
+   * of the {@link TaskInfo}; without them, the cache is not shared.
+   */
+  static ModelResourcesCache acquire(String taskGraphName, BaseOptions options) {
+    if (options == null) {
+      return new ModelResourcesCache();
+    }
+    String key = taskGraphName + "|" + options.delegate().name() + "|" + modelKey(options);
+    synchronized (lock) {
+      Entry entry = entries.get(key);
+      if (entry != null) {
+        // Cannot fail, since the registry holds a reference.
+        entry.cache.acquire();
+        ++hitCount;
+        return entry.cache;
+      }
+      ++missCount;
+      ModelResourcesCache cache = new ModelResourcesCache();
+      cache.acquire();
+      boolean retainWhenIdle = !options.modelAssetFileDescriptor().isPresent();
+      entry = new Entry(cache, modelBytes(options), retainWhenIdle);
+      entries.put(key, entry);
+      cachedBytes += entry.bytes;
+      return cache;
+    }
+  }
+
+  /** Gives back a reference returned by {@link #acquire}, evicting idle entries as needed. */
+  static void release(ModelResourcesCache cache) {
+    List<ModelResourcesCache> evicted;
+    synchronized (lock) {
+      cache.release();
+      evicted = evictIdleEntries();
+    }
+    releaseAll(evicted);
+  }
+
+  /** Removes the idle entries over the limits. Must be called with the lock held. */
+  private static List<ModelResourcesCache> evictIdleEntries() {
+    List<ModelResourcesCache> evicted = new ArrayList<>();
+    int retainedEntryCount = 0;
+    Iterator<Entry> it = entries.values().iterator();
+    while (it.hasNext()) {
+      Entry entry = it.next();
+      if (!entry.isIdle()) {
+        continue;
+      }
+      if (entry.retainWhenIdle) {
+        ++retainedEntryCount;
+      } else {
+        it.remove();
+        evict(entry, evicted);
+      }
+    }
+    it = entries.values().iterator();
+    while (it.hasNext()
+        && (retainedEntryCount > maxIdleEntries || cachedBytes > memoryBudgetBytes)) {
+      Entry entry = it.next();
+      if (entry.isIdle()) {
+        it.remove();
+        evict(entry, evicted);
+        --retainedEntryCount;
+      }
+    }
+    return evicted;
+  }
+
+  private static void evict(Entry entry, List<ModelResourcesCache> evicted) {
+    cachedBytes -= entry.bytes;
+    ++evictionCount;
+    evicted.add(entry.cache);
+  }
+
+  private static void releaseAll(List<ModelResourcesCache> caches) {
+    // Destroying the native caches outside the lock keeps other tasks from waiting on it.
+    for (ModelResourcesCache cache : caches) {
+      cache.release();
+    }
+  }
+
+  private static String modelKey(BaseOptions options) {
+    if (options.modelAssetPath().isPresent()) {
+      return "path:" + options.modelAssetPath().get();
+    }
+    if (options.modelAssetFileDescriptor().isPresent()) {
+      return "fd:" + options.modelAssetFileDescriptor().get();
+    }
+    ByteBuffer buffer = options.modelAssetBuffer().get().duplicate();
+    buffer.rewind();
+    try {
+      MessageDigest digest = MessageDigest.getInstance("SHA-256");
+      digest.update(buffer);
+      StringBuilder key = new StringBuilder("buffer:");
+      for (byte b : digest.digest()) {
+        key.append(String.format("%02x", b));
+      }
+      return key.toString();
+    } catch (NoSuchAlgorithmException e) {
+      throw new IllegalStateException("SHA-256 is not available.", e);
+    }
+  }
+
+  private static long modelBytes(BaseOptions options) {
+    if (options.modelAssetBuffer().isPresent()) {
+      return options.modelAssetBuffer().get().capacity();
+    }
+    if (options.modelAssetPath().isPresent()) {
+      // Models in the app assets are not files, so they are not counted.
+      File file = new File(options.modelAssetPath().get());
+      return file.isAbsolute() ? file.length() : 0;
+    }
+    return 0;
+  }
+
+  private ModelResourcesCacheRegistry() {}
+}
@@ -17,7 +17,14 @@ package com.google.mediapipe.tasks.core;
 import android.util.Log;
 import com.google.mediapipe.framework.MediaPipeException;
 import com.google.mediapipe.framework.Packet;
+import com.google.mediapipe.tasks.core.ResultDispatchOptions.QueuePolicy;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
 import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.RejectedExecutionException;
 
 /** Base class for handling MediaPipe task graph outputs. */
 public class OutputHandler<OutputT extends TaskResult, InputT> {
@@ -60,6 +67,23 @@ public class OutputHandler<OutputT extends TaskResult, InputT> {
   protected long latestOutputTimestamp = -1;
   // Whether the output handler should react to timestamp-bound changes by outputting empty packets.
   private boolean handleTimestampBoundChanges = false;
+  // Whether results delivered to the result listener are released once the listener returns.
+  private boolean releaseResultsAfterListener = false;
+  // Set to deliver results to the result listener on an executor instead of the graph thread.
+  private ResultDispatchOptions resultDispatchOptions;
+  // Copies of the output packets waiting to be converted and delivered, oldest first. All the
+  // dispatch state below is guarded by this queue.
+  private final ArrayDeque<List<Packet>> pendingPackets = new ArrayDeque<>();
+  // Whether a dispatch task has been submitted to the executor and has not finished yet.
+  private boolean dispatching = false;
+  private boolean dispatchStopped = false;
+  // The thread of the dispatch task while it delivers results, null before it starts.
+  private Thread dispatchThread;
+  private List<Packet> dispatchedPackets;
+  private long droppedResultCount;
+  private long deliveredResultCount;
+  // Futures of the requests submitted by TaskRunner#processAsync, keyed by input timestamp.
+  private final TreeMap<Long, CompletableFuture<TaskResult>> pendingRequests = new TreeMap<>();
 
   /**
    * Sets a callback to be invoked to convert a {@link Packet} list to a task result object and a
@@ -99,9 +123,48 @@ public class OutputHandler<OutputT extends TaskResult, InputT> {
     this.handleTimestampBoundChanges = handleTimestampBoundChanges;
   }
 
-  /** Returns true if the task graph is set to handle timestamp bound changes. */
-  boolean handleTimestampBoundChanges() {
-    return handleTimestampBoundChanges;
+  /**
+   * Sets whether {@link ReusableTaskResult}s passed to the result listener are released, and thus
+   * recycled, as soon as the listener returns.
+   *
+   * @param releaseResultsAfterListener A boolean value.
+   */
+  public void setReleaseResultsAfterListener(boolean releaseResultsAfterListener) {
+    this.releaseResultsAfterListener = releaseResultsAfterListener;
+  }
+
+  /**
+   * Sets the {@link ResultDispatchOptions} to convert and deliver results to the result listener on
+   * an executor instead of the graph thread. Has no effect if no result listener is set.
+   *
+   * @param options the {@link ResultDispatchOptions}.
+   */
+  public void setResultDispatchOptions(ResultDispatchOptions options) {
+    this.resultDispatchOptions = options;
+  }
+
+  /** Returns the number of results waiting to be delivered on the dispatch executor. */
+  public int getPendingResultCount() {
+    synchronized (pendingPackets) {
+      return pendingPackets.size();
+    }
+  }
+
+  /** Returns the number of results dropped by the queue policy of the dispatch executor. */
+  public long getDroppedResultCount() {
+    synchronized (pendingPackets) {
+      return droppedResultCount;
+    }
+  }
+
+  /**
+   * Returns the number of results delivered on the dispatch executor, i.e. for which the result
+   * listener returned normally.
+   */
+  public long getDeliveredResultCount() {
+    synchronized (pendingPackets) {
+      return deliveredResultCount;
+    }
   }
 
   /* Returns the cached task result object. */
@@ -117,11 +180,234 @@ public class OutputHandler<OutputT extends TaskResult, InputT> {
   }
 
   /**
-   * Handles a list of output {@link Packet}s. Invoked when a packet list become available.
+   * Handles a list of output {@link Packet}s. Invoked when a packet list become available, or when
+   * the timestamp bound of the outputs changes, with empty {@link Packet}s. Unless the output
+   * handler is set to handle timestamp bound changes, these only complete the request submitted at
+   * their timestamp, if any.
    *
    * @param packets A list of output {@link Packet}s.
    */
   void run(List<Packet> packets) {
+    CompletableFuture<TaskResult> request = takePendingRequest(packets.get(0).getTimestamp());
+    if (!handleTimestampBoundChanges && isTimestampBoundChange(packets)) {
+      // The graph produced no output at this timestamp, which only matters to its request.
+      if (request != null) {
+        request.complete(null);
+      }
+      return;
+    }
+    if (request != null) {
+      complete(request, packets);
+      return;
+    }
+    if (resultListener != null && resultDispatchOptions != null) {
+      enqueue(packets);
+      return;
+    }
+    handle(packets);
+  }
+
+  /**
+   * Registers a request whose result is delivered through {@code future} instead of the result
+   * listener or the cached task result, once the outputs at {@code timestamp} become available.
+   */
+  void addPendingRequest(long timestamp, CompletableFuture<TaskResult> future) {
+    synchronized (pendingRequests) {
+      pendingRequests.put(timestamp, future);
+    }
+  }
+
+  /** Unregisters the request at {@code timestamp}, e.g. when its inputs could not be added. */
+  void removePendingRequest(long timestamp) {
+    synchronized (pendingRequests) {
+      pendingRequests.remove(timestamp);
+    }
+  }
+
+  /** Completes all the registered requests exceptionally with {@code error}. */
+  void failPendingRequests(Throwable error) {
+    List<CompletableFuture<TaskResult>> failed;
+    synchronized (pendingRequests) {
+      failed = new ArrayList<>(pendingRequests.values());
+      pendingRequests.clear();
+    }
+    for (CompletableFuture<TaskResult> future : failed) {
+      future.completeExceptionally(error);
+    }
+  }
+
+  private CompletableFuture<TaskResult> takePendingRequest(long timestamp) {
+    List<CompletableFuture<TaskResult>> skipped = new ArrayList<>();
+    CompletableFuture<TaskResult> request;
+    synchronized (pendingRequests) {
+      if (pendingRequests.isEmpty()) {
+        return null;
+      }
+      // Outputs arrive in timestamp order, so the graph produced nothing for earlier requests.
+      Map<Long, CompletableFuture<TaskResult>> earlier = pendingRequests.headMap(timestamp);
+      skipped.addAll(earlier.values());
+      earlier.clear();
+      request = pendingRequests.remove(timestamp);
+    }
+    for (CompletableFuture<TaskResult> future : skipped) {
+      future.complete(null);
+    }
+    return request;
+  }
+
+  private static boolean isTimestampBoundChange(List<Packet> packets) {
+    for (Packet packet : packets) {
+      if (!packet.isEmpty()) {
+        return false;
+      }
+    }
+    return true;
+  }
+
+  private void complete(CompletableFuture<TaskResult> request, List<Packet> packets) {
+    try {
+      request.complete(outputPacketConverter.convertToTaskResult(packets));
+    } catch (RuntimeException e) {
+      request.completeExceptionally(e);
+    }
+  }
+
+  /**
+   * Discards the results that are waiting to be delivered and waits until the result being
+   * delivered, if any, is done. Must be called before the graph is torn down, since the pending
+   * packets belong to it. Results produced afterwards are dropped.
+   *
+   * <p>A dispatch task accepted by the executor but not started yet is not waited for: it finds no
+   * result left once it runs. Waiting for it would never return if it is queued on the calling
+   * thread, e.g. on the main looper, or on an executor that was shut down.
+   */
+  void stopDispatching() {
+    List<List<Packet>> discarded = new ArrayList<>();
+    synchronized (pendingPackets) {
+      dispatchStopped = true;
+      droppedResultCount += pendingPackets.size();
+      discarded.addAll(pendingPackets);
+      pendingPackets.clear();
+      if (dispatchThread == Thread.currentThread()) {
+        // Called from the result listener: the result has already been converted, so its packets
+        // can be released before the graph goes away.
+        discarded.add(dispatchedPackets);
+        dispatchedPackets = null;
+      } else {
+        boolean interrupted = false;
+        while (dispatchThread != null) {
+          try {
+            pendingPackets.wait();
+          } catch (InterruptedException e) {
+            interrupted = true;
+          }
+        }
+        if (interrupted) {
+          Thread.currentThread().interrupt();
+        }
+      }
+    }
+    for (List<Packet> packets : discarded) {
+      releasePackets(packets);
+    }
+  }
+
+  private void enqueue(List<Packet> packets) {
+    // The packets are only valid during the graph callback, so the queue holds shared copies.
+    List<Packet> copies = new ArrayList<>(packets.size());
+    for (Packet packet : packets) {
+      copies.add(packet.copy());
+    }
+    List<Packet> dropped = null;
+    boolean submit = false;
+    synchronized (pendingPackets) {
+      if (dispatchStopped) {
+        dropped = copies;
+        ++droppedResultCount;
+      } else {
+        if (pendingPackets.size() >= resultDispatchOptions.effectiveQueueCapacity()) {
+          ++droppedResultCount;
+          if (resultDispatchOptions.queuePolicy() == QueuePolicy.BOUNDED_FIFO) {
+            dropped = copies;
+            copies = null;
+          } else {
+            dropped = pendingPackets.pollFirst();
+          }
+        }
+        if (copies != null) {
+          pendingPackets.addLast(copies);
+        }
+        if (!dispatching && !pendingPackets.isEmpty()) {
+          dispatching = true;
+          submit = true;
+        }
+      }
+    }
+    if (dropped != null) {
+      releasePackets(dropped);
+    }
+    if (submit) {
+      try {
+        resultDispatchOptions.executor().execute(this::dispatchPendingResults);
+      } catch (RejectedExecutionException e) {
+        Log.e(TAG, "The result dispatch executor rejected the task. " + e);
+        synchronized (pendingPackets) {
+          dispatching = false;
+        }
+        stopDispatching();
+      }
+    }
+  }
+
+  private void dispatchPendingResults() {
+    while (true) {
+      List<Packet> packets;
+      synchronized (pendingPackets) {
+        packets = pendingPackets.pollFirst();
+        if (packets == null) {
+          dispatching = false;
+          dispatchThread = null;
+          pendingPackets.notifyAll();
+          return;
+        }
+        dispatchThread = Thread.currentThread();
+        dispatchedPackets = packets;
+      }
+      boolean delivered = false;
+      try {
+        delivered = handle(packets);
+      } catch (RuntimeException e) {
+        // Keeps delivering the following results, as the graph thread would.
+        Log.e(TAG, "Error occurs when delivering MediaPipe task result. " + e);
+      } finally {
+        synchronized (pendingPackets) {
+          if (delivered) {
+            ++deliveredResultCount;
+          }
+          // Cleared if stopDispatching was called by the listener and released the packets.
+          packets = dispatchedPackets;
+          dispatchedPackets = null;
+        }
+        if (packets != null) {
+          releasePackets(packets);
+        }
+      }
+    }
+  }
+
+  private static void releasePackets(List<Packet> packets) {
+    for (Packet packet : packets) {
+      packet.release();
+    }
+  }
+
+  /**
+   * Converts the packets to a task result and passes it to the result listener, or caches it.
+   *
+   * @return true if the result listener returned normally or the result was cached, false if the
+   *     conversion failed with a {@link MediaPipeException}.
+   */
+  private boolean handle(List<Packet> packets) {
     OutputT taskResult = null;
     try {
       taskResult = outputPacketConverter.convertToTaskResult(packets);
@@ -130,7 +416,13 @@ public class OutputHandler<OutputT extends TaskResult, InputT> {
         latestOutputTimestamp = packets.get(0).getTimestamp();
       } else {
         InputT taskInput = outputPacketConverter.convertToTaskInput(packets);
-        resultListener.run(taskResult, taskInput);
+        try {
+          resultListener.run(taskResult, taskInput);
+        } finally {
+          if (releaseResultsAfterListener && taskResult instanceof ReusableTaskResult) {
+            ((ReusableTaskResult) taskResult).release();
+          }
+        }
       }
     } catch (MediaPipeException e) {
       if (errorListener != null) {
@@ -138,6 +430,8 @@ public class OutputHandler<OutputT extends TaskResult, InputT> {
       } else {
         Log.e(TAG, "Error occurs when getting MediaPipe task result. " + e);
       }
+      return false;
     }
+    return true;
   }
 }
@@ -0,0 +1,93 @@
+// Copyright 2023 The MediaPipe Authors.
+//
+// Licensed under the Apache License, Version 2.0 (the "License");
+// you may not use this file except in compliance with the License.
+// You may obtain a copy of the License at
+//
+//      http://www.apache.org/licenses/LICENSE-2.0
+//
+// Unless required by applicable law or agreed to in writing, software
+// distributed under the License is distributed on an "AS IS" BASIS,
+// WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+// See the License for the specific language governing permissions and
+// limitations under the License.
+
+package com.google.mediapipe.tasks.core;
+
+import com.google.auto.value.AutoValue;
+import java.util.concurrent.Executor;
+
+/**
+ * Options to deliver the results of a task in the live stream mode on an {@link Executor} instead
+ * of the MediaPipe graph thread.
+ *
+ * <p>By default, output packets are converted and passed to the result listener on the graph
+ * thread, so a slow listener holds back the whole graph. With these options, the output packets
+ * are queued and converted and delivered by a task running on the given executor, one result at a
+ * time and in timestamp order. When the queue is full, results are dropped according to the {@link
+ * QueuePolicy}.
+ */
+@AutoValue
+public abstract class ResultDispatchOptions {
+
+  /** What to do with a new result when the queue of pending results is full. */
+  public enum QueuePolicy {
+    /** Keeps only the newest pending result, dropping the one it replaces. */
+    LATEST_ONLY,
+    /** Keeps pending results in order and drops the new result when the queue is full. */
+    BOUNDED_FIFO,
+    /** Keeps pending results in order and drops the oldest one when the queue is full. */
+    DROP_OLDEST,
+  }
+
+  /** Builder for {@link ResultDispatchOptions}. */
+  @AutoValue.Builder
+  public abstract static class Builder {
+    /**
+     * Sets the executor that converts and delivers results. It must run every submitted task
+     * eventually; closing the task waits for the result being delivered.
+     */
+    public abstract Builder setExecutor(Executor value);
+
+    /** Sets the queue policy. Default to {@link QueuePolicy#LATEST_ONLY}. */
+    public abstract Builder setQueuePolicy(QueuePolicy value);
+
+    /**
+     * Sets the maximum number of pending results. Default to 1. Ignored for {@link
+     * QueuePolicy#LATEST_ONLY}, which always keeps a single result.
+     */
+    public abstract Builder setQueueCapacity(Integer value);
+
+    abstract ResultDispatchOptions autoBuild();
+
+    /**
+     * Validates and builds the {@link ResultDispatchOptions} instance.
+     *
+     * @throws IllegalArgumentException if the queue capacity is not positive.
+     */
+    public final ResultDispatchOptions build() {
+      ResultDispatchOptions options = autoBuild();
+      if (options.queueCapacity() <= 0) {
+        throw new IllegalArgumentException("The queue capacity must be positive.");
+      }
+      return options;
+    }
+  }
+
+  public abstract Executor executor();
+
+  public abstract QueuePolicy queuePolicy();
+
+  public abstract int queueCapacity();
+
+  /** Returns the effective number of pending results that are kept. */
+  int effectiveQueueCapacity() {
+    return queuePolicy() == QueuePolicy.LATEST_ONLY ? 1 : queueCapacity();
+  }
+
+  public static Builder builder() {
+    return new AutoValue_ResultDispatchOptions.Builder()
+        .setQueuePolicy(QueuePolicy.LATEST_ONLY)
+        .setQueueCapacity(1);
+  }
+}
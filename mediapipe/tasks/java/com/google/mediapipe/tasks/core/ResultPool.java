@@ -0,0 +1,80 @@
+// Copyright 2023 The MediaPipe Authors.
+//
+// Licensed under the Apache License, Version 2.0 (the "License");
+// you may not use this file except in compliance with the License.
+// You may obtain a copy of the License at
+//
+//      http://www.apache.org/licenses/LICENSE-2.0
+//
+// Unless required by applicable law or agreed to in writing, software
+// distributed under the License is distributed on an "AS IS" BASIS,
+// WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+// See the License for the specific language governing permissions and
+// limitations under the License.
+
+package com.google.mediapipe.tasks.core;
+
+import java.util.ArrayDeque;
+
+/**
+ * Bounded pool of reusable task result objects.
+ *
+ * <p>{@link #acquire} hands out a pooled object, or creates a new one if the pool is empty, so a
+ * caller that holds on to results never blocks the task. {@link #release} returns an object to the
+ * pool unless the pool is already full, in which case the object is left to the garbage collector.
+ * Objects may be released from any thread.
+ */
+public final class ResultPool<T> {
+  /** Creates new objects for the pool. */
+  public interface Factory<T> {
+    T create(ResultPool<T> pool);
+  }
+
+  private final int capacity;
+  private final Factory<T> factory;
+  private final ArrayDeque<T> available;
+  private long createdCount;
+
+  /**
+   * Creates a pool that keeps at most {@code capacity} released objects.
+   *
+   * @throws IllegalArgumentException if {@code capacity} is not positive.
+   */
+  public ResultPool(int capacity, Factory<T> factory) {
+    if (capacity <= 0) {
+      throw new IllegalArgumentException("Result pool capacity must be positive.");
+    }
+    this.capacity = capacity;
+    this.factory = factory;
+    this.available = new ArrayDeque<>(capacity);
+  }
+
+  /** Returns a pooled object, or a newly created one if none is available. */
+  public T acquire() {
+    synchronized (this) {
+      T object = available.pollLast();
+      if (object != null) {
+        return object;
+      }
+      ++createdCount;
+    }
+    return factory.create(this);
+  }
+
+  /** Returns {@code object} to the pool. It must not be used by the caller afterwards. */
+  public synchronized void release(T object) {
+    if (available.size() < capacity) {
+      available.addLast(object);
+    }
+  }
+
+  /** Returns the number of objects created so far, i.e. the number of times the pool was empty. */
+  public synchronized long getCreatedCount() {
+    return createdCount;
+  }
+
+  /** Returns the number of objects currently available in the pool. */
+  public synchronized int getAvailableCount() {
+    return available.size();
+  }
+}
@@ -0,0 +1,29 @@
+// Copyright 2023 The MediaPipe Authors.
+//
+// Licensed under the Apache License, Version 2.0 (the "License");
+// you may not use this file except in compliance with the License.
+// You may obtain a copy of the License at
+//
+//      http://www.apache.org/licenses/LICENSE-2.0
+//
+// Unless required by applicable law or agreed to in writing, software
+// distributed under the License is distributed on an "AS IS" BASIS,
+// WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+// See the License for the specific language governing permissions and
+// limitations under the License.
+
+package com.google.mediapipe.tasks.core;
+
+/**
+ * Interface for MediaPipe Task results that can be recycled by the task when results are reused.
+ *
+ * <p>When a task is configured to reuse results, results delivered to a result listener are
+ * recycled as soon as the listener returns, and results returned by synchronous calls are recycled
+ * when {@link #release} is called. A recycled result is overwritten by a later result; copy the
+ * values that need to outlive it. For tasks that do not reuse results, {@link #release} does
+ * nothing.
+ */
+public interface ReusableTaskResult extends TaskResult {
+  /** Returns the result to the task for reuse. The result must not be accessed afterwards. */
+  void release();
+}
@@ -22,6 +22,7 @@ import com.google.mediapipe.proto.CalculatorProto.InputStreamInfo;
 import com.google.mediapipe.calculator.proto.FlowLimiterCalculatorProto.FlowLimiterCalculatorOptions;
 import java.util.ArrayList;
 import java.util.List;
+import java.util.Optional;
 
 /**
  * {@link TaskInfo} contains all needed informaton to initialize a MediaPipe Task {@link
@@ -57,6 +58,13 @@ public abstract class TaskInfo<T extends TaskOptions> {
      */
     public abstract Builder<T> setTaskOptions(T value);
 
+    /**
+     * Sets the {@link BaseOptions} identifying the model of the task, so that task instances of the
+     * same model share its resources, see {@link ModelResourcesCacheRegistry}. Tasks without them
+     * don't share their model resources.
+     */
+    public abstract Builder<T> setModelBaseOptions(BaseOptions value);
+
     public abstract TaskInfo<T> autoBuild();
 
     /**
@@ -91,6 +99,8 @@ public abstract class TaskInfo<T extends TaskOptions> {
 
   abstract Boolean enableFlowLimiting();
 
+  abstract Optional<BaseOptions> modelBaseOptions();
+
   public static <T extends TaskOptions> Builder<T> builder() {
     return new AutoValue_TaskInfo.Builder<T>().setTaskName("").setTaskRunningModeName("");
   }
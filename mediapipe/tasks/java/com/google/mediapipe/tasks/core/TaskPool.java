@@ -0,0 +1,284 @@
+// Copyright 2023 The MediaPipe Authors.
+//
+// Licensed under the Apache License, Version 2.0 (the "License");
+// you may not use this file except in compliance with the License.
+// You may obtain a copy of the License at
+//
+//      http://www.apache.org/licenses/LICENSE-2.0
+//
+// Unless required by applicable law or agreed to in writing, software
+// distributed under the License is distributed on an "AS IS" BASIS,
+// WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+// See the License for the specific language governing permissions and
+// limitations under the License.
+
+package com.google.mediapipe.tasks.core;
+
+import android.content.Context;
+import com.google.mediapipe.framework.MediaPipeException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentLinkedDeque;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * A pool of instances of the same MediaPipe task for processing large batches of inputs, e.g.
+ * classifying or embedding millions of images in the image mode, on several cores.
+ *
+ * <p>The instances are created from the same {@link TaskOptions}, so they share the model
+ * resources through {@link ModelResourcesCacheRegistry} and the model is loaded once. Each
+ * instance is confined to its own worker thread, which keeps a queue of calls. A worker whose queue
+ * is empty steals calls from the back of the queues of the other workers, so the instances stay
+ * busy even when the inputs take uneven time.
+ *
+ * <p>Example:
+ *
+ * <pre>{@code
+ * try (TaskPool<ImageClassifier> pool =
+ *     TaskPool.create(context, options, ImageClassifier::createFromOptions, 4)) {
+ *   List<ImageClassifierResult> results = pool.invokeAll(images, ImageClassifier::classify);
+ * }
+ * }</pre>
+ */
+public final class TaskPool<TaskT extends AutoCloseable> implements AutoCloseable {
+
+  /** Creates a task instance, e.g. {@code ImageClassifier::createFromOptions}. */
+  public interface TaskFactory<TaskT, OptionsT extends TaskOptions> {
+    TaskT create(Context context, OptionsT options);
+  }
+
+  /** Runs a task instance on an input, e.g. {@code ImageClassifier::classify}. */
+  public interface TaskFunction<TaskT, InputT, ResultT> {
+    ResultT apply(TaskT task, InputT input);
+  }
+
+  private interface Call<TaskT> {
+    void run(TaskT task);
+  }
+
+  private final List<Worker> workers = new ArrayList<>();
+  // One permit per queued call, plus one per worker once the pool is closed.
+  private final Semaphore queuedCalls = new Semaphore(0);
+  private final AtomicInteger nextWorker = new AtomicInteger();
+  private volatile boolean closed = false;
+
+  /**
+   * Creates a {@link TaskPool} of {@code size} task instances.
+   *
+   * @param context an Android {@link Context}.
+   * @param options the {@link TaskOptions} of every instance.
+   * @param factory the {@link TaskFactory} that creates an instance from the options.
+   * @param size the number of instances and worker threads.
+   * @throws IllegalArgumentException if {@code size} is not positive.
+   * @throws MediaPipeException if there is an error during the creation of an instance.
+   */
+  public static <TaskT extends AutoCloseable, OptionsT extends TaskOptions> TaskPool<TaskT> create(
+      Context context, OptionsT options, TaskFactory<TaskT, OptionsT> factory, int size) {
+    if (size <= 0) {
+      throw new IllegalArgumentException("The size of the task pool must be positive.");
+    }
+    List<TaskT> tasks = new ArrayList<>();
+    try {
+      for (int i = 0; i < size; ++i) {
+        tasks.add(factory.create(context, options));
+      }
+    } catch (RuntimeException e) {
+      for (TaskT task : tasks) {
+        closeQuietly(task);
+      }
+      throw e;
+    }
+    return new TaskPool<>(tasks);
+  }
+
+  private TaskPool(List<TaskT> tasks) {
+    for (int i = 0; i < tasks.size(); ++i) {
+      Worker worker = new Worker(tasks.get(i));
+      worker.thread.setName("TaskPool-" + i);
+      workers.add(worker);
+    }
+    for (Worker worker : workers) {
+      worker.thread.start();
+    }
+  }
+
+  /** Returns the number of task instances. */
+  public int size() {
+    return workers.size();
+  }
+
+  /**
+   * Runs {@code function} on one of the instances with {@code input}.
+   *
+   * @return a future completed with the result, or exceptionally with the exception or error
+   *     thrown by {@code function}.
+   * @throws IllegalStateException if the pool is closed.
+   */
+  public <InputT, ResultT> CompletableFuture<ResultT> submit(
+      InputT input, TaskFunction<? super TaskT, ? super InputT, ResultT> function) {
+    CompletableFuture<ResultT> future = new CompletableFuture<>();
+    synchronized (this) {
+      checkNotClosed();
+      Worker worker = workers.get(Math.floorMod(nextWorker.getAndIncrement(), workers.size()));
+      worker.calls.addLast(task -> run(function, task, input, future));
+      queuedCalls.release();
+    }
+    return future;
+  }
+
+  /**
+   * Runs {@code function} on every input, spreading the inputs across the instances, and waits for
+   * all the results.
+   *
+   * @return the results, in the order of the inputs.
+   * @throws IllegalStateException if the pool is closed.
+   * @throws RuntimeException the first exception thrown by {@code function}, after all the inputs
+   *     have been processed.
+   */
+  public <InputT, ResultT> List<ResultT> invokeAll(
+      List<? extends InputT> inputs,
+      TaskFunction<? super TaskT, ? super InputT, ResultT> function) {
+    List<CompletableFuture<ResultT>> futures = new ArrayList<>(inputs.size());
+    for (int i = 0; i < inputs.size(); ++i) {
+      futures.add(new CompletableFuture<>());
+    }
+    synchronized (this) {
+      checkNotClosed();
+      // Each worker gets a contiguous range and works from its front, while thieves take from the
+      // back, so a steal moves the work that the owner would have reached last.
+      int workerCount = workers.size();
+      for (int w = 0; w < workerCount; ++w) {
+        int begin = (int) ((long) inputs.size() * w / workerCount);
+        int end = (int) ((long) inputs.size() * (w + 1) / workerCount);
+        Worker worker = workers.get(w);
+        for (int i = begin; i < end; ++i) {
+          InputT input = inputs.get(i);
+          CompletableFuture<ResultT> future = futures.get(i);
+          worker.calls.addLast(task -> run(function, task, input, future));
+        }
+        queuedCalls.release(end - begin);
+      }
+    }
+    List<ResultT> results = new ArrayList<>(inputs.size());
+    RuntimeException error = null;
+    for (CompletableFuture<ResultT> future : futures) {
+      try {
+        results.add(future.join());
+      } catch (CompletionException e) {
+        if (error == null) {
+          error =
+              e.getCause() instanceof RuntimeException ? (RuntimeException) e.getCause() : e;
+        }
+        results.add(null);
+      }
+    }
+    if (error != null) {
+      throw error;
+    }
+    return results;
+  }
+
+  /**
+   * Waits for the submitted calls to complete, then stops the worker threads and closes the task
+   * instances.
+   */
+  @Override
+  public void close() {
+    synchronized (this) {
+      if (closed) {
+        return;
+      }
+      closed = true;
+    }
+    queuedCalls.release(workers.size());
+    boolean interrupted = false;
+    for (Worker worker : workers) {
+      while (worker.thread.isAlive()) {
+        try {
+          worker.thread.join();
+        } catch (InterruptedException e) {
+          interrupted = true;
+        }
+      }
+      closeQuietly(worker.task);
+    }
+    if (interrupted) {
+      Thread.currentThread().interrupt();
+    }
+  }
+
+  private void checkNotClosed() {
+    if (closed) {
+      throw new IllegalStateException("The task pool is closed.");
+    }
+  }
+
+  private static <TaskT, InputT, ResultT> void run(
+      TaskFunction<? super TaskT, ? super InputT, ResultT> function,
+      TaskT task,
+      InputT input,
+      CompletableFuture<ResultT> future) {
+    try {
+      future.complete(function.apply(task, input));
+    } catch (Throwable e) {
+      // Also catches errors, which would otherwise end the worker and leave the future incomplete.
+      future.completeExceptionally(e);
+    }
+  }
+
+  private static void closeQuietly(AutoCloseable task) {
+    try {
+      task.close();
+    } catch (Exception e) {
+      // Closing the other instances matters more than reporting this one.
+    }
+  }
+
+  private final class Worker implements Runnable {
+    final TaskT task;
+    final ConcurrentLinkedDeque<Call<TaskT>> calls = new ConcurrentLinkedDeque<>();
+    final Thread thread = new Thread(this);
+
+    Worker(TaskT task) {
+      this.task = task;
+    }
+
+    @Override
+    public void run() {
+      while (true) {
+        queuedCalls.acquireUninterruptibly();
+        Call<TaskT> call = take();
+        if (call == null) {
+          // Without a queued call, the permit is one of those released by close.
+          return;
+        }
+        call.run(task);
+      }
+    }
+
+    /** Takes the next call of this worker, or steals one from another worker. */
+    private Call<TaskT> take() {
+      while (true) {
+        Call<TaskT> call = calls.pollFirst();
+        if (call != null) {
+          return call;
+        }
+        for (Worker victim : workers) {
+          call = victim.calls.pollLast();
+          if (call != null) {
+            return call;
+          }
+        }
+        if (closed) {
+          return null;
+        }
+        // Another worker took the call this scan saw, while a newer one went to a queue that was
+        // already scanned.
+        Thread.yield();
+      }
+    }
+  }
+}
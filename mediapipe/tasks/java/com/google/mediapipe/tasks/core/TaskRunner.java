@@ -21,24 +21,35 @@ import com.google.mediapipe.framework.AndroidPacketCreator;
 import com.google.mediapipe.framework.Graph;
 import com.google.mediapipe.framework.MediaPipeException;
 import com.google.mediapipe.framework.Packet;
+import com.google.mediapipe.framework.PacketArena;
 import com.google.mediapipe.tasks.core.logging.TasksStatsLogger;
 import com.google.mediapipe.tasks.core.logging.TasksStatsDummyLogger;
 import java.util.Map;
+import java.util.concurrent.CompletableFuture;
 import java.util.concurrent.atomic.AtomicBoolean;
 
 /** The runner of MediaPipe task graphs. */
 public class TaskRunner implements AutoCloseable {
   private static final String TAG = TaskRunner.class.getSimpleName();
   private static final long TIMESATMP_UNITS_PER_SECOND = 1000000;
+  private static final int DEFAULT_MAX_IN_FLIGHT_REQUESTS = 4;
 
   private final OutputHandler<? extends TaskResult, ?> outputHandler;
   private final AtomicBoolean graphStarted = new AtomicBoolean(false);
+  // Set by the first call to close, which releases the graph whether or not it is running.
+  private final AtomicBoolean closed = new AtomicBoolean(false);
   private final Graph graph;
   private final ModelResourcesCache modelResourcesCache;
   private final AndroidPacketCreator packetCreator;
+  // Releases the input packets not consumed by the graph, reused across calls to addPackets.
+  private final PacketArena inputArena = new PacketArena();
   private final TasksStatsLogger statsLogger;
   private long lastSeenTimestamp = Long.MIN_VALUE;
   private ErrorListener errorListener;
+  // Guards the number of requests submitted by processAsync that are not completed yet.
+  private final Object inFlightLock = new Object();
+  private int inFlightRequests = 0;
+  private int maxInFlightRequests = DEFAULT_MAX_IN_FLIGHT_REQUESTS;
 
   /**
    * Create a {@link TaskRunner} instance.
@@ -59,18 +70,30 @@ public class TaskRunner implements AutoCloseable {
     AndroidAssetUtil.initializeNativeAssetManager(context);
     Graph mediapipeGraph = new Graph();
     mediapipeGraph.loadBinaryGraph(taskInfo.generateGraphConfig());
-    ModelResourcesCache graphModelResourcesCache = new ModelResourcesCache();
-    mediapipeGraph.setServiceObject(new ModelResourcesCacheService(), graphModelResourcesCache);
-    mediapipeGraph.addMultiStreamCallback(
-        taskInfo.outputStreamNames(),
-        packets -> {
-          outputHandler.run(packets);
-          statsLogger.recordInvocationEnd(packets.get(0).getTimestamp());
-        },
-        /* observeTimestampBounds= */ outputHandler.handleTimestampBoundChanges());
-    mediapipeGraph.startRunningGraph();
-    // Waits until all calculators are opened and the graph is fully started.
-    mediapipeGraph.waitUntilGraphIdle();
+    ModelResourcesCache graphModelResourcesCache =
+        ModelResourcesCacheRegistry.acquire(
+            taskInfo.taskGraphName(), taskInfo.modelBaseOptions().orElse(null));
+    try {
+      mediapipeGraph.setServiceObject(new ModelResourcesCacheService(), graphModelResourcesCache);
+      mediapipeGraph.addMultiStreamCallback(
+          taskInfo.outputStreamNames(),
+          packets -> {
+            outputHandler.run(packets);
+            statsLogger.recordInvocationEnd(packets.get(0).getTimestamp());
+          },
+          // Also completes the requests of processAsync for which the graph produces no output.
+          /* observeTimestampBounds= */ true);
+      // Graphs sharing the cache fill it while starting, and the native cache is not thread-safe.
+      synchronized (graphModelResourcesCache) {
+        mediapipeGraph.startRunningGraph();
+        // Waits until all calculators are opened and the graph is fully started.
+        mediapipeGraph.waitUntilGraphIdle();
+      }
+    } catch (RuntimeException e) {
+      mediapipeGraph.tearDown();
+      ModelResourcesCacheRegistry.release(graphModelResourcesCache);
+      throw e;
+    }
     return new TaskRunner(mediapipeGraph, graphModelResourcesCache, outputHandler, statsLogger);
   }
 
@@ -88,6 +111,47 @@ public class TaskRunner implements AutoCloseable {
     return packetCreator;
   }
 
+  /**
+   * Sets the maximum number of requests submitted by {@link #processAsync} that can be in the graph
+   * at the same time. Default to 4.
+   *
+   * @param maxInFlightRequests a positive number of requests.
+   * @throws IllegalArgumentException if {@code maxInFlightRequests} is not positive.
+   */
+  public void setMaxInFlightRequests(int maxInFlightRequests) {
+    if (maxInFlightRequests <= 0) {
+      throw new IllegalArgumentException(
+          "The maximum number of in-flight requests must be positive.");
+    }
+    synchronized (inFlightLock) {
+      this.maxInFlightRequests = maxInFlightRequests;
+      inFlightLock.notifyAll();
+    }
+  }
+
+  /** Returns the number of requests submitted by {@link #processAsync} that are not completed. */
+  public int getInFlightRequestCount() {
+    synchronized (inFlightLock) {
+      return inFlightRequests;
+    }
+  }
+
+  /**
+   * Returns the number of results waiting to be delivered when results are dispatched on an
+   * executor, see {@link ResultDispatchOptions}.
+   */
+  public int getPendingResultCount() {
+    return outputHandler.getPendingResultCount();
+  }
+
+  /**
+   * Returns the number of results dropped by the queue policy when results are dispatched on an
+   * executor, see {@link ResultDispatchOptions}.
+   */
+  public long getDroppedResultCount() {
+    return outputHandler.getDroppedResultCount();
+  }
+
   /**
    * A synchronous method for processing batch data.
    *
@@ -129,6 +193,107 @@ public class TaskRunner implements AutoCloseable {
     return outputHandler.retrieveCachedTaskResult();
   }
 
+  /**
+   * A pipelined method for processing batch data.
+   *
+   * <p>Note: Unlike {@link #process(Map)}, this method does not wait for the graph to become idle,
+   * so the graph can work on several inputs at the same time. An internal timestamp will be
+   * assigned per invocation, and the returned future is completed with the result produced at that
+   * timestamp, or with null if the graph produced no output for it. The call only blocks while the
+   * maximum number of requests set by {@link #setMaxInFlightRequests} are in flight. This method is
+   * thread-safe.
+   *
+   * <p>The futures are completed on the MediaPipe graph thread, so dependent actions that take
+   * long should be run on another executor, e.g. with {@link CompletableFuture#thenApplyAsync}.
+   *
+   * @param inputs a map contains (input stream {@link String}, data {@link Packet}) pairs.
+   */
+  public CompletableFuture<TaskResult> processAsync(Map<String, Packet> inputs) {
+    return submitRequest(inputs, /* inputTimestamp= */ null);
+  }
+
+  /**
+   * A pipelined method for processing offline streaming data.
+   *
+   * <p>Note: Unlike {@link #process(Map, long)}, this method does not wait for the graph to become
+   * idle, so the graph can work on several inputs at the same time. The returned future is
+   * completed with the result produced at {@code inputTimestamp}, or with null if the graph
+   * produced no output for it. The call only blocks while the maximum number of requests set by
+   * {@link #setMaxInFlightRequests} are in flight. The caller must ensure that the input timestamp
+   * is greater than the timestamps of previous invocations.
+   *
+   * <p>The futures are completed on the MediaPipe graph thread, so dependent actions that take
+   * long should be run on another executor, e.g. with {@link CompletableFuture#thenApplyAsync}.
+   *
+   * @param inputs a map contains (input stream {@link String}, data {@link Packet}) pairs.
+   * @param inputTimestamp the timestamp of the input packets.
+   */
+  public CompletableFuture<TaskResult> processAsync(
+      Map<String, Packet> inputs, long inputTimestamp) {
+    return submitRequest(inputs, inputTimestamp);
+  }
+
+  /** Submits a request at {@code inputTimestamp}, or at a synthetic timestamp if it is null. */
+  private CompletableFuture<TaskResult> submitRequest(
+      Map<String, Packet> inputs, Long inputTimestamp) {
+    acquireInFlightSlot();
+    CompletableFuture<TaskResult> future = new CompletableFuture<>();
+    future.whenComplete((result, error) -> releaseInFlightSlot());
+    synchronized (this) {
+      long timestamp;
+      try {
+        if (inputTimestamp == null) {
+          timestamp = generateSyntheticTimestamp();
+        } else {
+          validateInputTimstamp(inputTimestamp);
+          timestamp = inputTimestamp;
+        }
+      } catch (MediaPipeException e) {
+        for (Packet packet : inputs.values()) {
+          packet.release();
+        }
+        future.completeExceptionally(e);
+        throw e;
+      }
+      statsLogger.recordCpuInputArrival(timestamp);
+      outputHandler.addPendingRequest(timestamp, future);
+      try {
+        // The error must reach the future even without an error listener, or the request would
+        // never complete nor release its in-flight slot.
+        addPacketsOrThrow(inputs, timestamp);
+      } catch (MediaPipeException e) {
+        outputHandler.removePendingRequest(timestamp);
+        future.completeExceptionally(e);
+        throw e;
+      }
+    }
+    return future;
+  }
+
+  private void acquireInFlightSlot() {
+    boolean interrupted = false;
+    synchronized (inFlightLock) {
+      while (inFlightRequests >= maxInFlightRequests) {
+        try {
+          inFlightLock.wait();
+        } catch (InterruptedException e) {
+          interrupted = true;
+        }
+      }
+      ++inFlightRequests;
+    }
+    if (interrupted) {
+      Thread.currentThread().interrupt();
+    }
+  }
+
+  private void releaseInFlightSlot() {
+    synchronized (inFlightLock) {
+      --inFlightRequests;
+      inFlightLock.notifyAll();
+    }
+  }
+
   /**
    * An asynchronous method for handling live streaming data.
    *
@@ -164,9 +329,12 @@ public class TaskRunner implements AutoCloseable {
       }
     }
     try {
-      graph.startRunningGraph();
-      // Waits until all calculators are opened and the graph is fully restarted.
-      graph.waitUntilGraphIdle();
+      // The restarted graph fills the shared model resources cache like a new one.
+      synchronized (modelResourcesCache) {
+        graph.startRunningGraph();
+        // Waits until all calculators are opened and the graph is fully restarted.
+        graph.waitUntilGraphIdle();
+      }
       graphStarted.set(true);
       statsLogger.logSessionStart();
     } catch (MediaPipeException e) {
@@ -177,46 +345,51 @@ public class TaskRunner implements AutoCloseable {
   /** Closes and cleans up the {@link TaskRunner} instance. */
   @Override
   public void close() {
-    if (!graphStarted.get()) {
+    if (closed.getAndSet(true)) {
       return;
     }
     try {
-      graphStarted.set(false);
-      graph.closeAllPacketSources();
-      graph.waitUntilGraphDone();
-      statsLogger.logSessionEnd();
-      if (modelResourcesCache != null) {
-        modelResourcesCache.release();
+      // The graph isn't running if it failed to restart, but must still be released.
+      if (graphStarted.getAndSet(false)) {
+        graph.closeAllPacketSources();
+        graph.waitUntilGraphDone();
+        statsLogger.logSessionEnd();
       }
     } catch (MediaPipeException e) {
       // Note: errors during Process are reported at the earliest opportunity,
       // which may be addPacket or waitUntilDone, depending on timing. For consistency,
       // we want to always report them using the same async handler if installed.
       reportError(e);
+    } finally {
+      // Also runs when reportError rethrows the error without an error listener.
+      releaseGraph();
     }
+  }
+
+  /** Tears down the graph and drops the reference to the model resources cache. */
+  private void releaseGraph() {
     try {
-      graph.tearDown();
-    } catch (MediaPipeException e) {
-      reportError(e);
+      // Pending results hold packets of the graph, so they must be gone before it is torn down.
+      outputHandler.stopDispatching();
+      outputHandler.failPendingRequests(
+          new MediaPipeException(
+              MediaPipeException.StatusCode.CANCELLED.ordinal(),
+              "The task runner was closed before the request completed."));
+      try {
+        graph.tearDown();
+      } catch (MediaPipeException e) {
+        reportError(e);
+      }
+    } finally {
+      // The graph holds its own reference to the native cache, so this one can be dropped whether
+      // or not the graph was torn down.
+      ModelResourcesCacheRegistry.release(modelResourcesCache);
     }
   }
 
   private synchronized void addPackets(Map<String, Packet> inputs, long inputTimestamp) {
-    if (!graphStarted.get()) {
-      reportError(
-          new MediaPipeException(
-              MediaPipeException.StatusCode.FAILED_PRECONDITION.ordinal(),
-              "The task graph hasn't been successfully started or error occurs during graph"
-                  + " initializaton."));
-    }
     try {
-      for (Map.Entry<String, Packet> entry : inputs.entrySet()) {
-        // addConsumablePacketToInputStream allows the graph to take exclusive ownership of the
-        // packet, which may allow for more memory optimizations.
-        graph.addConsumablePacketToInputStream(entry.getKey(), entry.getValue(), inputTimestamp);
-        // If addConsumablePacket succeeded, we don't need to release the packet ourselves.
-        entry.setValue(null);
-      }
+      addPacketsOrThrow(inputs, inputTimestamp);
     } catch (MediaPipeException e) {
       // TODO: do not suppress exceptions here!
       if (errorListener == null) {
@@ -224,14 +397,32 @@ public class TaskRunner implements AutoCloseable {
       } else {
         throw e;
       }
-    } finally {
-      for (Packet packet : inputs.values()) {
-        // In case of error, addConsumablePacketToInputStream will not release the packet, so we
-        // have to release it ourselves.
-        if (packet != null) {
-          packet.release();
-        }
+    }
+  }
+
+  /** Adds the input packets to the graph, throwing the errors of the graph to the caller. */
+  private synchronized void addPacketsOrThrow(Map<String, Packet> inputs, long inputTimestamp) {
+    if (!graphStarted.get()) {
+      reportError(
+          new MediaPipeException(
+              MediaPipeException.StatusCode.FAILED_PRECONDITION.ordinal(),
+              "The task graph hasn't been successfully started or error occurs during graph"
+                  + " initializaton."));
+    }
+    // In case of error, addPacketsToInputStreams will not release the packets that were not moved,
+    // so the arena releases the packets left over, all in one native call.
+    try (PacketArena arena = inputArena) {
+      String[] streamNames = new String[inputs.size()];
+      Packet[] packets = new Packet[inputs.size()];
+      int i = 0;
+      for (Map.Entry<String, Packet> entry : inputs.entrySet()) {
+        streamNames[i] = entry.getKey();
+        packets[i] = arena.add(entry.getValue());
+        ++i;
       }
+      // addPacketsToInputStreams allows the graph to take exclusive ownership of the packets, which
+      // may allow for more memory optimizations, and moves all of them in a single native call.
+      graph.addPacketsToInputStreams(streamNames, packets, inputTimestamp);
     }
   }
 
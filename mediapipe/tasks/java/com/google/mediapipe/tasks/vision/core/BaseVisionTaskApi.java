@@ -20,10 +20,12 @@ import com.google.mediapipe.framework.MediaPipeException;
 import com.google.mediapipe.framework.Packet;
 import com.google.mediapipe.framework.ProtoUtil;
 import com.google.mediapipe.framework.image.MPImage;
+import com.google.mediapipe.tasks.core.ResultDispatchOptions;
 import com.google.mediapipe.tasks.core.TaskResult;
 import com.google.mediapipe.tasks.core.TaskRunner;
 import java.util.HashMap;
 import java.util.Map;
+import java.util.concurrent.CompletableFuture;
 
 /** The base class of MediaPipe vision tasks. */
 public class BaseVisionTaskApi implements AutoCloseable {
@@ -83,6 +85,32 @@ public class BaseVisionTaskApi implements AutoCloseable {
     return runner.process(inputPackets);
   }
 
+  /**
+   * A pipelined method to process single image inputs. The call returns once the image is sent to
+   * the graph, unless the maximum number of in-flight requests is reached, and the returned future
+   * is completed with the result.
+   *
+   * @param image a MediaPipe {@link MPImage} object for processing.
+   * @param imageProcessingOptions the {@link ImageProcessingOptions} specifying how to process the
+   *     input image before running inference.
+   * @throws MediaPipeException if the task is not in the image mode.
+   */
+  protected CompletableFuture<TaskResult> processImageDataAsync(
+      MPImage image, ImageProcessingOptions imageProcessingOptions) {
+    if (runningMode != RunningMode.IMAGE) {
+      throw new MediaPipeException(
+          MediaPipeException.StatusCode.FAILED_PRECONDITION.ordinal(),
+          "Task is not initialized with the image mode. Current running mode:"
+              + runningMode.name());
+    }
+    Map<String, Packet> inputPackets = new HashMap<>();
+    inputPackets.put(imageStreamName, runner.getPacketCreator().createImage(image));
+    inputPackets.put(
+        normRectStreamName,
+        runner.getPacketCreator().createProto(convertToNormalizedRect(imageProcessingOptions)));
+    return runner.processAsync(inputPackets);
+  }
+
   /**
    * A synchronous method to process continuous video frames. The call blocks the current thread
    * until a failure status or a successful result is returned.
@@ -109,6 +137,33 @@ public class BaseVisionTaskApi implements AutoCloseable {
     return runner.process(inputPackets, timestampMs * MICROSECONDS_PER_MILLISECOND);
   }
 
+  /**
+   * A pipelined method to process continuous video frames. The call returns once the frame is sent
+   * to the graph, unless the maximum number of in-flight requests is reached, and the returned
+   * future is completed with the result.
+   *
+   * @param image a MediaPipe {@link MPImage} object for processing.
+   * @param imageProcessingOptions the {@link ImageProcessingOptions} specifying how to process the
+   *     input image before running inference.
+   * @param timestampMs the corresponding timestamp of the input image in milliseconds.
+   * @throws MediaPipeException if the task is not in the video mode.
+   */
+  protected CompletableFuture<TaskResult> processVideoDataAsync(
+      MPImage image, ImageProcessingOptions imageProcessingOptions, long timestampMs) {
+    if (runningMode != RunningMode.VIDEO) {
+      throw new MediaPipeException(
+          MediaPipeException.StatusCode.FAILED_PRECONDITION.ordinal(),
+          "Task is not initialized with the video mode. Current running mode:"
+              + runningMode.name());
+    }
+    Map<String, Packet> inputPackets = new HashMap<>();
+    inputPackets.put(imageStreamName, runner.getPacketCreator().createImage(image));
+    inputPackets.put(
+        normRectStreamName,
+        runner.getPacketCreator().createProto(convertToNormalizedRect(imageProcessingOptions)));
+    return runner.processAsync(inputPackets, timestampMs * MICROSECONDS_PER_MILLISECOND);
+  }
+
   /**
    * An asynchronous method to send live stream data to the {@link TaskRunner}. The results will be
    * available in the user-defined result listener.
@@ -135,6 +190,22 @@ public class BaseVisionTaskApi implements AutoCloseable {
     runner.send(inputPackets, timestampMs * MICROSECONDS_PER_MILLISECOND);
   }
 
+  /**
+   * Returns the number of results waiting to be delivered to the result listener when the task is
+   * configured with {@link ResultDispatchOptions}.
+   */
+  public int getPendingResultCount() {
+    return runner.getPendingResultCount();
+  }
+
+  /**
+   * Returns the number of results dropped by the queue policy of the {@link
+   * ResultDispatchOptions} the task is configured with.
+   */
+  public long getDroppedResultCount() {
+    return runner.getDroppedResultCount();
+  }
+
   /** Closes and cleans up the MediaPipe vision task. */
   @Override
   public void close() {
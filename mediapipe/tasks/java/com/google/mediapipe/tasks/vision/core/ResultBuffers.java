@@ -0,0 +1,93 @@
+// Copyright 2023 The MediaPipe Authors.
+//
+// Licensed under the Apache License, Version 2.0 (the "License");
+// you may not use this file except in compliance with the License.
+// You may obtain a copy of the License at
+//
+//      http://www.apache.org/licenses/LICENSE-2.0
+//
+// Unless required by applicable law or agreed to in writing, software
+// distributed under the License is distributed on an "AS IS" BASIS,
+// WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+// See the License for the specific language governing permissions and
+// limitations under the License.
+
+package com.google.mediapipe.tasks.vision.core;
+
+import com.google.mediapipe.framework.ClassificationBuffer;
+import com.google.mediapipe.framework.LandmarkBuffer;
+import com.google.mediapipe.tasks.components.containers.Category;
+import com.google.mediapipe.tasks.components.containers.Landmark;
+import com.google.mediapipe.tasks.components.containers.NormalizedLandmark;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * Converts the landmarks and classifications flattened by {@link
+ * com.google.mediapipe.framework.PacketGetter} into the unmodifiable nested lists of the vision
+ * task results. For use by the vision tasks that read their outputs into buffers; see {@link
+ * ReusableResultLists} for the lists of reused results.
+ */
+public final class ResultBuffers {
+
+  /** Returns the landmarks of {@code buffer} as new {@link NormalizedLandmark}s. */
+  public static List<List<NormalizedLandmark>> toNormalizedLandmarks(LandmarkBuffer buffer) {
+    List<List<NormalizedLandmark>> result = new ArrayList<>(buffer.listCount());
+    for (int list = 0; list < buffer.listCount(); ++list) {
+      List<NormalizedLandmark> landmarks = new ArrayList<>(buffer.size(list));
+      for (int i = 0; i < buffer.size(list); ++i) {
+        landmarks.add(
+            NormalizedLandmark.create(buffer.x(list, i), buffer.y(list, i), buffer.z(list, i)));
+      }
+      result.add(landmarks);
+    }
+    return Collections.unmodifiableList(result);
+  }
+
+  /** Returns the landmarks of {@code buffer} as new {@link Landmark}s. */
+  public static List<List<Landmark>> toLandmarks(LandmarkBuffer buffer) {
+    List<List<Landmark>> result = new ArrayList<>(buffer.listCount());
+    for (int list = 0; list < buffer.listCount(); ++list) {
+      List<Landmark> landmarks = new ArrayList<>(buffer.size(list));
+      for (int i = 0; i < buffer.size(list); ++i) {
+        landmarks.add(Landmark.create(buffer.x(list, i), buffer.y(list, i), buffer.z(list, i)));
+      }
+      result.add(landmarks);
+    }
+    return Collections.unmodifiableList(result);
+  }
+
+  /** Returns the classifications of {@code buffer} as new {@link Category}s. */
+  public static List<List<Category>> toCategories(ClassificationBuffer buffer) {
+    return toCategories(buffer, /* useDefaultIndex= */ false, 0);
+  }
+
+  /**
+   * Returns the classifications of {@code buffer} as new {@link Category}s, all with {@code index}
+   * instead of the index of their classification.
+   */
+  public static List<List<Category>> toCategories(ClassificationBuffer buffer, int index) {
+    return toCategories(buffer, /* useDefaultIndex= */ true, index);
+  }
+
+  private static List<List<Category>> toCategories(
+      ClassificationBuffer buffer, boolean useDefaultIndex, int defaultIndex) {
+    List<List<Category>> result = new ArrayList<>(buffer.listCount());
+    for (int list = 0; list < buffer.listCount(); ++list) {
+      List<Category> categories = new ArrayList<>(buffer.size(list));
+      for (int i = 0; i < buffer.size(list); ++i) {
+        categories.add(
+            Category.create(
+                buffer.score(list, i),
+                useDefaultIndex ? defaultIndex : buffer.index(list, i),
+                buffer.label(list, i),
+                buffer.displayName(list, i)));
+      }
+      result.add(categories);
+    }
+    return Collections.unmodifiableList(result);
+  }
+
+  private ResultBuffers() {}
+}
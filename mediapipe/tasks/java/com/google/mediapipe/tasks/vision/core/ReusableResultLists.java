@@ -0,0 +1,251 @@
+// Copyright 2023 The MediaPipe Authors.
+//
+// Licensed under the Apache License, Version 2.0 (the "License");
+// you may not use this file except in compliance with the License.
+// You may obtain a copy of the License at
+//
+//      http://www.apache.org/licenses/LICENSE-2.0
+//
+// Unless required by applicable law or agreed to in writing, software
+// distributed under the License is distributed on an "AS IS" BASIS,
+// WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+// See the License for the specific language governing permissions and
+// limitations under the License.
+
+package com.google.mediapipe.tasks.vision.core;
+
+import com.google.mediapipe.framework.ClassificationBuffer;
+import com.google.mediapipe.framework.LandmarkBuffer;
+import com.google.mediapipe.tasks.components.containers.Category;
+import com.google.mediapipe.tasks.components.containers.Landmark;
+import com.google.mediapipe.tasks.components.containers.NormalizedLandmark;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * Nested lists of landmarks and categories for vision task results that are reused instead of
+ * reallocated for every frame.
+ *
+ * <p>The lists are unmodifiable views over storage that is refilled in place by {@code set}, and
+ * their elements are mutable instances of the containers that are overwritten as well. Once the
+ * storage has grown to the largest result seen, filling allocates nothing. For use by the vision
+ * tasks that support reusing results.
+ */
+public final class ReusableResultLists {
+
+  /** Reusable {@code List<List<NormalizedLandmark>>}. */
+  public static final class NormalizedLandmarks extends NestedList<MutableNormalizedLandmark> {
+    /** Fills the lists from {@code buffer}. */
+    public void set(LandmarkBuffer buffer) {
+      resize(buffer.listCount());
+      for (int list = 0; list < buffer.listCount(); ++list) {
+        int size = buffer.size(list);
+        resize(list, size);
+        for (int i = 0; i < size; ++i) {
+          MutableNormalizedLandmark landmark = element(list, i);
+          landmark.x = buffer.x(list, i);
+          landmark.y = buffer.y(list, i);
+          landmark.z = buffer.z(list, i);
+        }
+      }
+    }
+
+    @SuppressWarnings("unchecked") // The views are unmodifiable, so widening is safe.
+    public List<List<NormalizedLandmark>> get() {
+      return (List<List<NormalizedLandmark>>) (List<?>) view();
+    }
+
+    @Override
+    MutableNormalizedLandmark newElement() {
+      return new MutableNormalizedLandmark();
+    }
+  }
+
+  /** Reusable {@code List<List<Landmark>>}. */
+  public static final class Landmarks extends NestedList<MutableLandmark> {
+    /** Fills the lists from {@code buffer}. */
+    public void set(LandmarkBuffer buffer) {
+      resize(buffer.listCount());
+      for (int list = 0; list < buffer.listCount(); ++list) {
+        int size = buffer.size(list);
+        resize(list, size);
+        for (int i = 0; i < size; ++i) {
+          MutableLandmark landmark = element(list, i);
+          landmark.x = buffer.x(list, i);
+          landmark.y = buffer.y(list, i);
+          landmark.z = buffer.z(list, i);
+        }
+      }
+    }
+
+    @SuppressWarnings("unchecked") // The views are unmodifiable, so widening is safe.
+    public List<List<Landmark>> get() {
+      return (List<List<Landmark>>) (List<?>) view();
+    }
+
+    @Override
+    MutableLandmark newElement() {
+      return new MutableLandmark();
+    }
+  }
+
+  /** Reusable {@code List<List<Category>>}. */
+  public static final class Categories extends NestedList<MutableCategory> {
+    /** Fills the lists from {@code buffer}, keeping the indices of the classifications. */
+    public void set(ClassificationBuffer buffer) {
+      set(buffer, /* useIndex= */ true, /* defaultIndex= */ 0);
+    }
+
+    /** Fills the lists from {@code buffer}, with {@code index} as the index of every category. */
+    public void set(ClassificationBuffer buffer, int index) {
+      set(buffer, /* useIndex= */ false, index);
+    }
+
+    private void set(ClassificationBuffer buffer, boolean useIndex, int defaultIndex) {
+      resize(buffer.listCount());
+      for (int list = 0; list < buffer.listCount(); ++list) {
+        int size = buffer.size(list);
+        resize(list, size);
+        for (int i = 0; i < size; ++i) {
+          MutableCategory category = element(list, i);
+          category.score = buffer.score(list, i);
+          category.index = useIndex ? buffer.index(list, i) : defaultIndex;
+          category.categoryName = buffer.label(list, i);
+          category.displayName = buffer.displayName(list, i);
+        }
+      }
+    }
+
+    @SuppressWarnings("unchecked") // The views are unmodifiable, so widening is safe.
+    public List<List<Category>> get() {
+      return (List<List<Category>>) (List<?>) view();
+    }
+
+    @Override
+    MutableCategory newElement() {
+      return new MutableCategory();
+    }
+  }
+
+  /** Nested list whose inner lists and elements are kept across fills. */
+  abstract static class NestedList<E> {
+    // All elements ever created for the i-th inner list, of which the first ones are visible.
+    private final List<List<E>> elements = new ArrayList<>();
+    private final List<List<E>> innerLists = new ArrayList<>();
+    private final List<List<E>> innerViews = new ArrayList<>();
+    private final List<List<E>> outerList = new ArrayList<>();
+    private final List<List<E>> outerView = Collections.unmodifiableList(outerList);
+
+    abstract E newElement();
+
+    /** Removes all inner lists. */
+    public void clear() {
+      outerList.clear();
+    }
+
+    final List<List<E>> view() {
+      return outerView;
+    }
+
+    final void resize(int listCount) {
+      while (innerLists.size() < listCount) {
+        List<E> innerList = new ArrayList<>();
+        elements.add(new ArrayList<>());
+        innerLists.add(innerList);
+        innerViews.add(Collections.unmodifiableList(innerList));
+      }
+      outerList.clear();
+      for (int i = 0; i < listCount; ++i) {
+        outerList.add(innerViews.get(i));
+      }
+    }
+
+    final void resize(int list, int size) {
+      List<E> listElements = elements.get(list);
+      while (listElements.size() < size) {
+        listElements.add(newElement());
+      }
+      List<E> innerList = innerLists.get(list);
+      innerList.clear();
+      for (int i = 0; i < size; ++i) {
+        innerList.add(listElements.get(i));
+      }
+    }
+
+    final E element(int list, int index) {
+      return elements.get(list).get(index);
+    }
+  }
+
+  static final class MutableNormalizedLandmark extends NormalizedLandmark {
+    float x;
+    float y;
+    float z;
+
+    @Override
+    public float x() {
+      return x;
+    }
+
+    @Override
+    public float y() {
+      return y;
+    }
+
+    @Override
+    public float z() {
+      return z;
+    }
+  }
+
+  static final class MutableLandmark extends Landmark {
+    float x;
+    float y;
+    float z;
+
+    @Override
+    public float x() {
+      return x;
+    }
+
+    @Override
+    public float y() {
+      return y;
+    }
+
+    @Override
+    public float z() {
+      return z;
+    }
+  }
+
+  static final class MutableCategory extends Category {
+    float score;
+    int index;
+    String categoryName = "";
+    String displayName = "";
+
+    @Override
+    public float score() {
+      return score;
+    }
+
+    @Override
+    public int index() {
+      return index;
+    }
+
+    @Override
+    public String categoryName() {
+      return categoryName;
+    }
+
+    @Override
+    public String displayName() {
+      return displayName;
+    }
+  }
+
+  private ReusableResultLists() {}
+}
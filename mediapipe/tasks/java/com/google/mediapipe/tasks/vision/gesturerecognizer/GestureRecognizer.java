@@ -17,11 +17,10 @@ package com.google.mediapipe.tasks.vision.gesturerecognizer;
 import android.content.Context;
 import android.os.ParcelFileDescriptor;
 import com.google.auto.value.AutoValue;
-import com.google.mediapipe.formats.proto.LandmarkProto.LandmarkList;
-import com.google.mediapipe.formats.proto.LandmarkProto.NormalizedLandmarkList;
 import com.google.mediapipe.proto.CalculatorOptionsProto.CalculatorOptions;
-import com.google.mediapipe.formats.proto.ClassificationProto.ClassificationList;
 import com.google.mediapipe.framework.AndroidPacketGetter;
+import com.google.mediapipe.framework.ClassificationBuffer;
+import com.google.mediapipe.framework.LandmarkBuffer;
 import com.google.mediapipe.framework.Packet;
 import com.google.mediapipe.framework.PacketGetter;
 import com.google.mediapipe.framework.image.BitmapImageBuilder;
@@ -31,6 +30,8 @@ import com.google.mediapipe.tasks.core.BaseOptions;
 import com.google.mediapipe.tasks.core.ErrorListener;
 import com.google.mediapipe.tasks.core.OutputHandler;
 import com.google.mediapipe.tasks.core.OutputHandler.ResultListener;
+import com.google.mediapipe.tasks.core.ResultDispatchOptions;
+import com.google.mediapipe.tasks.core.ResultPool;
 import com.google.mediapipe.tasks.core.TaskInfo;
 import com.google.mediapipe.tasks.core.TaskOptions;
 import com.google.mediapipe.tasks.core.TaskRunner;
@@ -92,6 +93,8 @@ public final class GestureRecognizer extends BaseVisionTaskApi {
   private static final int IMAGE_OUT_STREAM_INDEX = 4;
   private static final String TASK_GRAPH_NAME =
       "mediapipe.tasks.vision.gesture_recognizer.GestureRecognizerGraph";
+  // Pooled results when results are reused: one being filled, one in use and one spare.
+  private static final int RESULT_POOL_SIZE = 3;
 
   /**
    * Creates a {@link GestureRecognizer} instance from a model file and the default {@link
@@ -155,8 +158,22 @@ public final class GestureRecognizer extends BaseVisionTaskApi {
     OutputHandler<GestureRecognizerResult, MPImage> handler = new OutputHandler<>();
     handler.setOutputPacketConverter(
         new OutputHandler.OutputPacketConverter<GestureRecognizerResult, MPImage>() {
+          // Used to build non-reused results only, which copy their contents out of the buffers.
+          // The converter is never invoked concurrently.
+          private final LandmarkBuffer landmarks = new LandmarkBuffer();
+          private final LandmarkBuffer worldLandmarks = new LandmarkBuffer();
+          private final ClassificationBuffer handednesses = new ClassificationBuffer();
+          private final ClassificationBuffer gestures = new ClassificationBuffer();
+          private final ResultPool<ReusableGestureRecognizerResult> resultPool =
+              recognizerOptions.reuseResults()
+                  ? new ResultPool<>(RESULT_POOL_SIZE, ReusableGestureRecognizerResult::new)
+                  : null;
+
           @Override
           public GestureRecognizerResult convertToTaskResult(List<Packet> packets) {
+            if (resultPool != null) {
+              return convertToReusableResult(packets);
+            }
             // If there is no hands detected in the image, just returns empty lists.
             if (packets.get(HAND_GESTURES_OUT_STREAM_INDEX).isEmpty()) {
               return GestureRecognizerResult.create(
@@ -168,19 +185,39 @@ public final class GestureRecognizer extends BaseVisionTaskApi {
                       recognizerOptions.runningMode(),
                       packets.get(HAND_GESTURES_OUT_STREAM_INDEX)));
             }
+            PacketGetter.getLandmarks(packets.get(LANDMARKS_OUT_STREAM_INDEX), landmarks);
+            PacketGetter.getLandmarks(
+                packets.get(WORLD_LANDMARKS_OUT_STREAM_INDEX), worldLandmarks);
+            PacketGetter.getClassifications(
+                packets.get(HANDEDNESS_OUT_STREAM_INDEX), handednesses);
+            PacketGetter.getClassifications(packets.get(HAND_GESTURES_OUT_STREAM_INDEX), gestures);
             return GestureRecognizerResult.create(
-                PacketGetter.getProtoVector(
-                    packets.get(LANDMARKS_OUT_STREAM_INDEX), NormalizedLandmarkList.parser()),
-                PacketGetter.getProtoVector(
-                    packets.get(WORLD_LANDMARKS_OUT_STREAM_INDEX), LandmarkList.parser()),
-                PacketGetter.getProtoVector(
-                    packets.get(HANDEDNESS_OUT_STREAM_INDEX), ClassificationList.parser()),
-                PacketGetter.getProtoVector(
-                    packets.get(HAND_GESTURES_OUT_STREAM_INDEX), ClassificationList.parser()),
+                landmarks,
+                worldLandmarks,
+                handednesses,
+                gestures,
                 BaseVisionTaskApi.generateResultTimestampMs(
                     recognizerOptions.runningMode(), packets.get(HAND_GESTURES_OUT_STREAM_INDEX)));
           }
 
+          private GestureRecognizerResult convertToReusableResult(List<Packet> packets) {
+            ReusableGestureRecognizerResult result = resultPool.acquire();
+            long timestampMs =
+                BaseVisionTaskApi.generateResultTimestampMs(
+                    recognizerOptions.runningMode(), packets.get(HAND_GESTURES_OUT_STREAM_INDEX));
+            if (packets.get(HAND_GESTURES_OUT_STREAM_INDEX).isEmpty()) {
+              result.setEmpty(timestampMs);
+              return result;
+            }
+            result.set(
+                packets.get(LANDMARKS_OUT_STREAM_INDEX),
+                packets.get(WORLD_LANDMARKS_OUT_STREAM_INDEX),
+                packets.get(HANDEDNESS_OUT_STREAM_INDEX),
+                packets.get(HAND_GESTURES_OUT_STREAM_INDEX),
+                timestampMs);
+            return result;
+          }
+
           @Override
           public MPImage convertToTaskInput(List<Packet> packets) {
             return new BitmapImageBuilder(
@@ -190,6 +227,8 @@ public final class GestureRecognizer extends BaseVisionTaskApi {
         });
     recognizerOptions.resultListener().ifPresent(handler::setResultListener);
     recognizerOptions.errorListener().ifPresent(handler::setErrorListener);
+    recognizerOptions.resultDispatchOptions().ifPresent(handler::setResultDispatchOptions);
+    handler.setReleaseResultsAfterListener(recognizerOptions.reuseResults());
     TaskRunner runner =
         TaskRunner.create(
             context,
@@ -200,6 +239,7 @@ public final class GestureRecognizer extends BaseVisionTaskApi {
                 .setInputStreams(INPUT_STREAMS)
                 .setOutputStreams(OUTPUT_STREAMS)
                 .setTaskOptions(recognizerOptions)
+                .setModelBaseOptions(recognizerOptions.baseOptions())
                 .setEnableFlowLimiting(recognizerOptions.runningMode() == RunningMode.LIVE_STREAM)
                 .build(),
             handler);
@@ -434,6 +474,24 @@ public final class GestureRecognizer extends BaseVisionTaskApi {
       /** Sets an optional error listener. */
       public abstract Builder setErrorListener(ErrorListener value);
 
+      /**
+       * Sets the options to convert and deliver results to the result listener on an executor
+       * instead of the MediaPipe graph thread in the live stream mode.
+       */
+      public abstract Builder setResultDispatchOptions(ResultDispatchOptions value);
+
+      /**
+       * Sets whether result objects are reused instead of allocated for every frame. Default to
+       * false.
+       *
+       * <p>When enabled, results are taken from a small pool and refilled in place. Results passed
+       * to the result listener are recycled once the listener returns, so they must not be kept
+       * beyond it. Results returned by {@code recognize} and {@code recognizeForVideo} are recycled
+       * when {@link GestureRecognizerResult#release} is called; results that are never released
+       * are left to the garbage collector.
+       */
+      public abstract Builder setReuseResults(Boolean value);
+
       abstract GestureRecognizerOptions autoBuild();
 
       /**
@@ -480,9 +538,14 @@ public final class GestureRecognizer extends BaseVisionTaskApi {
 
     abstract Optional<ErrorListener> errorListener();
 
+    abstract Optional<ResultDispatchOptions> resultDispatchOptions();
+
+    abstract Boolean reuseResults();
+
     public static Builder builder() {
       return new AutoValue_GestureRecognizer_GestureRecognizerOptions.Builder()
           .setRunningMode(RunningMode.IMAGE)
+          .setReuseResults(false)
           .setNumHands(1)
           .setMinHandDetectionConfidence(0.5f)
           .setMinHandPresenceConfidence(0.5f)
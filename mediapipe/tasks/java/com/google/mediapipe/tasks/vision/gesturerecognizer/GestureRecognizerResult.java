@@ -18,19 +18,22 @@ import com.google.auto.value.AutoValue;
 import com.google.mediapipe.formats.proto.LandmarkProto;
 import com.google.mediapipe.formats.proto.ClassificationProto.Classification;
 import com.google.mediapipe.formats.proto.ClassificationProto.ClassificationList;
+import com.google.mediapipe.framework.ClassificationBuffer;
+import com.google.mediapipe.framework.LandmarkBuffer;
 import com.google.mediapipe.tasks.components.containers.Category;
 import com.google.mediapipe.tasks.components.containers.Landmark;
 import com.google.mediapipe.tasks.components.containers.NormalizedLandmark;
-import com.google.mediapipe.tasks.core.TaskResult;
+import com.google.mediapipe.tasks.core.ReusableTaskResult;
+import com.google.mediapipe.tasks.vision.core.ResultBuffers;
 import java.util.ArrayList;
 import java.util.Collections;
 import java.util.List;
 
 /** Represents the gesture recognition results generated by {@link GestureRecognizer}. */
 @AutoValue
-public abstract class GestureRecognizerResult implements TaskResult {
+public abstract class GestureRecognizerResult implements ReusableTaskResult {
 
-  private static final int kGestureDefaultIndex = -1;
+  static final int kGestureDefaultIndex = -1;
 
   /**
    * Creates a {@link GestureRecognizerResult} instance from the lists of landmarks, handedness, and
@@ -108,6 +111,28 @@ public abstract class GestureRecognizerResult implements TaskResult {
         Collections.unmodifiableList(multiHandGestures));
   }
 
+  /**
+   * Creates a {@link GestureRecognizerResult} instance from landmarks, handedness and gestures
+   * flattened by {@link com.google.mediapipe.framework.PacketGetter#getLandmarks} and {@link
+   * com.google.mediapipe.framework.PacketGetter#getClassifications}, which avoids parsing the
+   * protobuf messages in Java.
+   */
+  static GestureRecognizerResult create(
+      LandmarkBuffer landmarks,
+      LandmarkBuffer worldLandmarks,
+      ClassificationBuffer handednesses,
+      ClassificationBuffer gestures,
+      long timestampMs) {
+    return new AutoValue_GestureRecognizerResult(
+        timestampMs,
+        ResultBuffers.toNormalizedLandmarks(landmarks),
+        ResultBuffers.toLandmarks(worldLandmarks),
+        ResultBuffers.toCategories(handednesses),
+        // Gesture index is not used, because the final gesture result comes from multiple
+        // classifiers.
+        ResultBuffers.toCategories(gestures, kGestureDefaultIndex));
+  }
+
   @Override
   public abstract long timestampMs();
 
@@ -126,4 +151,11 @@ public abstract class GestureRecognizerResult implements TaskResult {
    * index.
    */
   public abstract List<List<Category>> gestures();
+
+  /**
+   * Returns the result to the {@link GestureRecognizer} for reuse if it was created with {@code
+   * setReuseResults(true)}; does nothing otherwise.
+   */
+  @Override
+  public void release() {}
 }
@@ -18,17 +18,20 @@ import com.google.auto.value.AutoValue;
 import com.google.mediapipe.formats.proto.LandmarkProto;
 import com.google.mediapipe.formats.proto.ClassificationProto.Classification;
 import com.google.mediapipe.formats.proto.ClassificationProto.ClassificationList;
+import com.google.mediapipe.framework.ClassificationBuffer;
+import com.google.mediapipe.framework.LandmarkBuffer;
 import com.google.mediapipe.tasks.components.containers.Category;
 import com.google.mediapipe.tasks.components.containers.Landmark;
 import com.google.mediapipe.tasks.components.containers.NormalizedLandmark;
-import com.google.mediapipe.tasks.core.TaskResult;
+import com.google.mediapipe.tasks.core.ReusableTaskResult;
+import com.google.mediapipe.tasks.vision.core.ResultBuffers;
 import java.util.ArrayList;
 import java.util.Collections;
 import java.util.List;
 
 /** Represents the hand landmarks deection results generated by {@link HandLandmarker}. */
 @AutoValue
-public abstract class HandLandmarkerResult implements TaskResult {
+public abstract class HandLandmarkerResult implements ReusableTaskResult {
 
   /**
    * Creates a {@link HandLandmarkerResult} instance from the lists of landmarks and handedness
@@ -87,6 +90,24 @@ public abstract class HandLandmarkerResult implements TaskResult {
         Collections.unmodifiableList(multiHandHandednesses));
   }
 
+  /**
+   * Creates a {@link HandLandmarkerResult} instance from landmarks and handedness flattened by
+   * {@link com.google.mediapipe.framework.PacketGetter#getLandmarks} and {@link
+   * com.google.mediapipe.framework.PacketGetter#getClassifications}, which avoids parsing the
+   * protobuf messages in Java.
+   */
+  static HandLandmarkerResult create(
+      LandmarkBuffer landmarks,
+      LandmarkBuffer worldLandmarks,
+      ClassificationBuffer handednesses,
+      long timestampMs) {
+    return new AutoValue_HandLandmarkerResult(
+        timestampMs,
+        ResultBuffers.toNormalizedLandmarks(landmarks),
+        ResultBuffers.toLandmarks(worldLandmarks),
+        ResultBuffers.toCategories(handednesses));
+  }
+
   @Override
   public abstract long timestampMs();
 
@@ -98,4 +119,11 @@ public abstract class HandLandmarkerResult implements TaskResult {
 
   /** Handedness of detected hands. */
   public abstract List<List<Category>> handednesses();
+
+  /**
+   * Returns the result to the {@link HandLandmarker} for reuse if it was created with {@code
+   * setReuseResults(true)}; does nothing otherwise.
+   */
+  @Override
+  public void release() {}
 }
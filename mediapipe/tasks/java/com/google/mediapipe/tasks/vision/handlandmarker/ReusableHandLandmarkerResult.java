@@ -0,0 +1,135 @@
+// Copyright 2023 The MediaPipe Authors.
+//
+// Licensed under the Apache License, Version 2.0 (the "License");
+// you may not use this file except in compliance with the License.
+// You may obtain a copy of the License at
+//
+//      http://www.apache.org/licenses/LICENSE-2.0
+//
+// Unless required by applicable law or agreed to in writing, software
+// distributed under the License is distributed on an "AS IS" BASIS,
+// WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+// See the License for the specific language governing permissions and
+// limitations under the License.
+
+package com.google.mediapipe.tasks.vision.handlandmarker;
+
+import com.google.mediapipe.framework.ClassificationBuffer;
+import com.google.mediapipe.framework.LandmarkBuffer;
+import com.google.mediapipe.framework.Packet;
+import com.google.mediapipe.framework.PacketGetter;
+import com.google.mediapipe.tasks.components.containers.Category;
+import com.google.mediapipe.tasks.components.containers.Landmark;
+import com.google.mediapipe.tasks.components.containers.NormalizedLandmark;
+import com.google.mediapipe.tasks.core.ResultPool;
+import com.google.mediapipe.tasks.vision.core.ReusableResultLists;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * A {@link HandLandmarkerResult} that is refilled in place and recycled through a pool.
+ *
+ * <p>Each result owns the buffers it is filled from, so filling a new result never touches a result
+ * that is still being read, e.g. by a listener on the result dispatch executor. Results are
+ * equal to the {@link HandLandmarkerResult} values with the same contents.
+ */
+final class ReusableHandLandmarkerResult extends HandLandmarkerResult {
+  private final ResultPool<ReusableHandLandmarkerResult> pool;
+  private final LandmarkBuffer landmarksBuffer = new LandmarkBuffer();
+  private final LandmarkBuffer worldLandmarksBuffer = new LandmarkBuffer();
+  private final ClassificationBuffer handednessesBuffer = new ClassificationBuffer();
+  private final ReusableResultLists.NormalizedLandmarks landmarks =
+      new ReusableResultLists.NormalizedLandmarks();
+  private final ReusableResultLists.Landmarks worldLandmarks =
+      new ReusableResultLists.Landmarks();
+  private final ReusableResultLists.Categories handednesses = new ReusableResultLists.Categories();
+  private final AtomicBoolean released = new AtomicBoolean();
+  private long timestampMs;
+
+  ReusableHandLandmarkerResult(ResultPool<ReusableHandLandmarkerResult> pool) {
+    this.pool = pool;
+  }
+
+  /** Fills the result from the output packets of the graph. */
+  void set(
+      Packet landmarksPacket,
+      Packet worldLandmarksPacket,
+      Packet handednessesPacket,
+      long timestampMs) {
+    PacketGetter.getLandmarks(landmarksPacket, landmarksBuffer);
+    PacketGetter.getLandmarks(worldLandmarksPacket, worldLandmarksBuffer);
+    PacketGetter.getClassifications(handednessesPacket, handednessesBuffer);
+    landmarks.set(landmarksBuffer);
+    worldLandmarks.set(worldLandmarksBuffer);
+    handednesses.set(handednessesBuffer);
+    this.timestampMs = timestampMs;
+    released.set(false);
+  }
+
+  /** Fills the result with no detected hands. */
+  void setEmpty(long timestampMs) {
+    landmarks.clear();
+    worldLandmarks.clear();
+    handednesses.clear();
+    this.timestampMs = timestampMs;
+    released.set(false);
+  }
+
+  @Override
+  public long timestampMs() {
+    return timestampMs;
+  }
+
+  @Override
+  public List<List<NormalizedLandmark>> landmarks() {
+    return landmarks.get();
+  }
+
+  @Override
+  public List<List<Landmark>> worldLandmarks() {
+    return worldLandmarks.get();
+  }
+
+  @Override
+  public List<List<Category>> handednesses() {
+    return handednesses.get();
+  }
+
+  @Override
+  public boolean equals(Object o) {
+    if (o == this) {
+      return true;
+    }
+    if (!(o instanceof HandLandmarkerResult)) {
+      return false;
+    }
+    HandLandmarkerResult that = (HandLandmarkerResult) o;
+    return timestampMs() == that.timestampMs()
+        && landmarks().equals(that.landmarks())
+        && worldLandmarks().equals(that.worldLandmarks())
+        && handednesses().equals(that.handednesses());
+  }
+
+  @Override
+  public int hashCode() {
+    // Same as the AutoValue implementation, so that equal results have the same hash code.
+    int h = 1;
+    h *= 1000003;
+    h ^= (int) ((timestampMs() >>> 32) ^ timestampMs());
+    h *= 1000003;
+    h ^= landmarks().hashCode();
+    h *= 1000003;
+    h ^= worldLandmarks().hashCode();
+    h *= 1000003;
+    h ^= handednesses().hashCode();
+    return h;
+  }
+
+  @Override
+  public void release() {
+    // Releasing twice, e.g. from a listener and after it returned, must not pool the result twice.
+    if (released.compareAndSet(false, true)) {
+      pool.release(this);
+    }
+  }
+}
@@ -32,6 +32,7 @@ import com.google.mediapipe.tasks.core.BaseOptions;
 import com.google.mediapipe.tasks.core.ErrorListener;
 import com.google.mediapipe.tasks.core.OutputHandler;
 import com.google.mediapipe.tasks.core.OutputHandler.ResultListener;
+import com.google.mediapipe.tasks.core.ResultDispatchOptions;
 import com.google.mediapipe.tasks.core.TaskInfo;
 import com.google.mediapipe.tasks.core.TaskOptions;
 import com.google.mediapipe.tasks.core.TaskRunner;
@@ -193,6 +194,7 @@ public final class ImageClassifier extends BaseVisionTaskApi {
         });
     options.resultListener().ifPresent(handler::setResultListener);
     options.errorListener().ifPresent(handler::setErrorListener);
+    options.resultDispatchOptions().ifPresent(handler::setResultDispatchOptions);
     TaskRunner runner =
         TaskRunner.create(
             context,
@@ -203,6 +205,7 @@ public final class ImageClassifier extends BaseVisionTaskApi {
                 .setInputStreams(INPUT_STREAMS)
                 .setOutputStreams(OUTPUT_STREAMS)
                 .setTaskOptions(options)
+                .setModelBaseOptions(options.baseOptions())
                 .setEnableFlowLimiting(options.runningMode() == RunningMode.LIVE_STREAM)
                 .build(),
             handler);
@@ -425,6 +428,12 @@ public final class ImageClassifier extends BaseVisionTaskApi {
       /** Sets an optional {@link ErrorListener}. */
       public abstract Builder setErrorListener(ErrorListener errorListener);
 
+      /**
+       * Sets the options to convert and deliver results to the result listener on an executor
+       * instead of the MediaPipe graph thread in the live stream mode.
+       */
+      public abstract Builder setResultDispatchOptions(ResultDispatchOptions value);
+
       abstract ImageClassifierOptions autoBuild();
 
       /**
@@ -474,6 +483,8 @@ public final class ImageClassifier extends BaseVisionTaskApi {
 
     abstract Optional<ErrorListener> errorListener();
 
+    abstract Optional<ResultDispatchOptions> resultDispatchOptions();
+
     public static Builder builder() {
       return new AutoValue_ImageClassifier_ImageClassifierOptions.Builder()
           .setRunningMode(RunningMode.IMAGE)
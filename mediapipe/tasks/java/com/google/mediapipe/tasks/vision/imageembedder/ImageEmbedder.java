@@ -34,6 +34,7 @@ import com.google.mediapipe.tasks.core.BaseOptions;
 import com.google.mediapipe.tasks.core.ErrorListener;
 import com.google.mediapipe.tasks.core.OutputHandler;
 import com.google.mediapipe.tasks.core.OutputHandler.ResultListener;
+import com.google.mediapipe.tasks.core.ResultDispatchOptions;
 import com.google.mediapipe.tasks.core.TaskInfo;
 import com.google.mediapipe.tasks.core.TaskOptions;
 import com.google.mediapipe.tasks.core.TaskRunner;
@@ -49,6 +50,7 @@ import java.util.Arrays;
 import java.util.Collections;
 import java.util.List;
 import java.util.Optional;
+import java.util.concurrent.CompletableFuture;
 
 /**
  * Performs embedding extraction on images.
@@ -176,6 +178,7 @@ public final class ImageEmbedder extends BaseVisionTaskApi {
         });
     options.resultListener().ifPresent(handler::setResultListener);
     options.errorListener().ifPresent(handler::setErrorListener);
+    options.resultDispatchOptions().ifPresent(handler::setResultDispatchOptions);
     TaskRunner runner =
         TaskRunner.create(
             context,
@@ -186,9 +189,11 @@ public final class ImageEmbedder extends BaseVisionTaskApi {
                 .setInputStreams(INPUT_STREAMS)
                 .setOutputStreams(OUTPUT_STREAMS)
                 .setTaskOptions(options)
+                .setModelBaseOptions(options.baseOptions())
                 .setEnableFlowLimiting(options.runningMode() == RunningMode.LIVE_STREAM)
                 .build(),
             handler);
+    options.maxInFlightRequests().ifPresent(runner::setMaxInFlightRequests);
     return new ImageEmbedder(runner, options.runningMode());
   }
 
@@ -240,6 +245,48 @@ public final class ImageEmbedder extends BaseVisionTaskApi {
     return (ImageEmbedderResult) processImageData(image, imageProcessingOptions);
   }
 
+  /**
+   * Starts embedding extraction on the provided single image with default image processing options,
+   * i.e. using the whole image as region-of-interest and without any rotation applied, without
+   * waiting for the previous images to be processed. Only use this method when the {@link
+   * ImageEmbedder} is created with {@link RunningMode.IMAGE}.
+   *
+   * <p>See {@link #embedPipelined(MPImage, ImageProcessingOptions)}.
+   *
+   * @param image a MediaPipe {@link MPImage} object for processing.
+   * @throws MediaPipeException if there is an internal error.
+   */
+  public CompletableFuture<ImageEmbedderResult> embedPipelined(MPImage image) {
+    return embedPipelined(image, ImageProcessingOptions.builder().build());
+  }
+
+  /**
+   * Starts embedding extraction on the provided single image without waiting for the previous
+   * images to be processed. Only use this method when the {@link ImageEmbedder} is created with
+   * {@link RunningMode.IMAGE}.
+   *
+   * <p>Up to {@link ImageEmbedderOptions.Builder#setMaxInFlightRequests} images are processed
+   * concurrently by the graph, which keeps the inference delegate busy when embedding many images,
+   * e.g. to index a gallery. The call blocks only while that many images are in flight. The
+   * returned future is completed on the MediaPipe graph thread.
+   *
+   * <p>{@link ImageEmbedder} supports the following color space types:
+   *
+   * <ul>
+   *   <li>{@link Bitmap.Config.ARGB_8888}
+   * </ul>
+   *
+   * @param image a MediaPipe {@link MPImage} object for processing.
+   * @param imageProcessingOptions the {@link ImageProcessingOptions} specifying how to process the
+   *     input image before running inference.
+   * @throws MediaPipeException if there is an internal error.
+   */
+  public CompletableFuture<ImageEmbedderResult> embedPipelined(
+      MPImage image, ImageProcessingOptions imageProcessingOptions) {
+    return processImageDataAsync(image, imageProcessingOptions)
+        .thenApply(result -> (ImageEmbedderResult) result);
+  }
+
   /**
    * Performs embedding extraction on the provided video frame with default image processing
    * options, i.e. using the whole image as region-of-interest and without any rotation applied.
@@ -400,6 +447,18 @@ public final class ImageEmbedder extends BaseVisionTaskApi {
       /** Sets an optional {@link ErrorListener}. */
       public abstract Builder setErrorListener(ErrorListener errorListener);
 
+      /**
+       * Sets the options to convert and deliver results to the result listener on an executor
+       * instead of the MediaPipe graph thread in the live stream mode.
+       */
+      public abstract Builder setResultDispatchOptions(ResultDispatchOptions value);
+
+      /**
+       * Sets the maximum number of images processed concurrently by {@code embedPipelined}. Default
+       * to 4.
+       */
+      public abstract Builder setMaxInFlightRequests(Integer value);
+
       abstract ImageEmbedderOptions autoBuild();
 
       /**
@@ -422,6 +481,10 @@ public final class ImageEmbedder extends BaseVisionTaskApi {
               "The image embedder is in the image or video mode, a user-defined result listener"
                   + " shouldn't be provided in ImageEmbedderOptions.");
         }
+        if (options.maxInFlightRequests().isPresent() && options.maxInFlightRequests().get() <= 0) {
+          throw new IllegalArgumentException(
+              "The maximum number of in-flight requests must be positive.");
+        }
         return options;
       }
     }
@@ -438,6 +501,10 @@ public final class ImageEmbedder extends BaseVisionTaskApi {
 
     abstract Optional<ErrorListener> errorListener();
 
+    abstract Optional<ResultDispatchOptions> resultDispatchOptions();
+
+    abstract Optional<Integer> maxInFlightRequests();
+
     public static Builder builder() {
       return new AutoValue_ImageEmbedder_ImageEmbedderOptions.Builder()
           .setRunningMode(RunningMode.IMAGE)
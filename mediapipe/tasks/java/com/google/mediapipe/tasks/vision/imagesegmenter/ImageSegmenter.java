@@ -28,6 +28,7 @@ import com.google.mediapipe.tasks.core.BaseOptions;
 import com.google.mediapipe.tasks.core.ErrorListener;
 import com.google.mediapipe.tasks.core.OutputHandler;
 import com.google.mediapipe.tasks.core.OutputHandler.ResultListener;
+import com.google.mediapipe.tasks.core.ResultDispatchOptions;
 import com.google.mediapipe.tasks.core.TaskInfo;
 import com.google.mediapipe.tasks.core.TaskOptions;
 import com.google.mediapipe.tasks.core.TaskRunner;
@@ -90,6 +91,7 @@ public final class ImageSegmenter extends BaseVisionTaskApi {
       "mediapipe.tasks.vision.image_segmenter.ImageSegmenterGraph";
 
   private boolean hasResultListener = false;
+  private final MaskBufferPool maskBufferPool;
 
   /**
    * Creates an {@link ImageSegmenter} instance from an {@link ImageSegmenterOptions}.
@@ -100,6 +102,7 @@ public final class ImageSegmenter extends BaseVisionTaskApi {
    */
   public static ImageSegmenter createFromOptions(
       Context context, ImageSegmenterOptions segmenterOptions) {
+    MaskBufferPool maskBufferPool = new MaskBufferPool(segmenterOptions.maxPooledMaskBuffers());
     // TODO: Consolidate OutputHandler and TaskRunner.
     OutputHandler<ImageSegmenterResult, MPImage> handler = new OutputHandler<>();
     handler.setOutputPacketConverter(
@@ -123,18 +126,21 @@ public final class ImageSegmenter extends BaseVisionTaskApi {
                 PacketGetter.getImageListSize(packets.get(GROUPED_SEGMENTATION_OUT_STREAM_INDEX));
             ByteBuffer[] buffersArray = new ByteBuffer[imageListSize];
             // If resultListener is not provided, the resulted MPImage is deep copied from mediapipe
-            // graph. If provided, the result MPImage is wrapping the mediapipe packet memory.
-            if (!segmenterOptions.resultListener().isPresent()) {
+            // graph into pooled buffers, which go back to the pool when the MPImage is closed. If
+            // provided, the result MPImage is wrapping the mediapipe packet memory.
+            boolean copyMasks = !segmenterOptions.resultListener().isPresent();
+            if (copyMasks) {
               for (int i = 0; i < imageListSize; i++) {
-                buffersArray[i] =
-                    ByteBuffer.allocateDirect(
-                        width * height * (imageFormat == MPImage.IMAGE_FORMAT_VEC32F1 ? 4 : 1));
+                buffersArray[i] = maskBufferPool.acquire(width, height, imageFormat);
               }
             }
             if (!PacketGetter.getImageList(
-                packets.get(GROUPED_SEGMENTATION_OUT_STREAM_INDEX),
-                buffersArray,
-                !segmenterOptions.resultListener().isPresent())) {
+                packets.get(GROUPED_SEGMENTATION_OUT_STREAM_INDEX), buffersArray, copyMasks)) {
+              if (copyMasks) {
+                for (ByteBuffer buffer : buffersArray) {
+                  maskBufferPool.release(buffer);
+                }
+              }
               throw new MediaPipeException(
                   MediaPipeException.StatusCode.INTERNAL.ordinal(),
                   "There is an error getting segmented masks. It usually results from incorrect"
@@ -143,6 +149,9 @@ public final class ImageSegmenter extends BaseVisionTaskApi {
             for (ByteBuffer buffer : buffersArray) {
               ByteBufferImageBuilder builder =
                   new ByteBufferImageBuilder(buffer, width, height, imageFormat);
+              if (copyMasks) {
+                builder.setReleaseCallback(() -> maskBufferPool.release(buffer));
+              }
               segmentedMasks.add(builder.build());
             }
 
@@ -162,6 +171,7 @@ public final class ImageSegmenter extends BaseVisionTaskApi {
         });
     segmenterOptions.resultListener().ifPresent(handler::setResultListener);
     segmenterOptions.errorListener().ifPresent(handler::setErrorListener);
+    segmenterOptions.resultDispatchOptions().ifPresent(handler::setResultDispatchOptions);
     TaskRunner runner =
         TaskRunner.create(
             context,
@@ -172,11 +182,15 @@ public final class ImageSegmenter extends BaseVisionTaskApi {
                 .setInputStreams(INPUT_STREAMS)
                 .setOutputStreams(OUTPUT_STREAMS)
                 .setTaskOptions(segmenterOptions)
+                .setModelBaseOptions(segmenterOptions.baseOptions())
                 .setEnableFlowLimiting(segmenterOptions.runningMode() == RunningMode.LIVE_STREAM)
                 .build(),
             handler);
     return new ImageSegmenter(
-        runner, segmenterOptions.runningMode(), segmenterOptions.resultListener().isPresent());
+        runner,
+        segmenterOptions.runningMode(),
+        segmenterOptions.resultListener().isPresent(),
+        maskBufferPool);
   }
 
   /**
@@ -187,9 +201,60 @@ public final class ImageSegmenter extends BaseVisionTaskApi {
    * @param runningMode a mediapipe vision task {@link RunningMode}.
    */
   private ImageSegmenter(
-      TaskRunner taskRunner, RunningMode runningMode, boolean hasResultListener) {
+      TaskRunner taskRunner,
+      RunningMode runningMode,
+      boolean hasResultListener,
+      MaskBufferPool maskBufferPool) {
     super(taskRunner, runningMode, IMAGE_IN_STREAM_NAME, NORM_RECT_IN_STREAM_NAME);
     this.hasResultListener = hasResultListener;
+    this.maskBufferPool = maskBufferPool;
+  }
+
+  /** Statistics of the pool of mask buffers of an {@link ImageSegmenter}. */
+  @AutoValue
+  public abstract static class MaskBufferStats {
+
+    static MaskBufferStats create(
+        int pooledBufferCount,
+        long pooledBytes,
+        int inUseBufferCount,
+        int inUseBufferHighWaterMark,
+        long allocationCount,
+        long reuseCount) {
+      return new AutoValue_ImageSegmenter_MaskBufferStats(
+          pooledBufferCount,
+          pooledBytes,
+          inUseBufferCount,
+          inUseBufferHighWaterMark,
+          allocationCount,
+          reuseCount);
+    }
+
+    /** The number of released buffers kept for the next results. */
+    public abstract int pooledBufferCount();
+
+    /** The total size of the released buffers kept for the next results. */
+    public abstract long pooledBytes();
+
+    /** The number of buffers held by masks that are not closed yet. */
+    public abstract int inUseBufferCount();
+
+    /** The highest number of buffers held by masks at the same time. */
+    public abstract int inUseBufferHighWaterMark();
+
+    /** The number of buffers allocated because none of the right size was pooled. */
+    public abstract long allocationCount();
+
+    /** The number of buffers reused from the pool. */
+    public abstract long reuseCount();
+  }
+
+  /**
+   * Returns the statistics of the pool of mask buffers. The masks returned by {@link #segment} and
+   * {@link #segmentForVideo} give their buffers back to the pool when they are closed.
+   */
+  public MaskBufferStats getMaskBufferStats() {
+    return maskBufferPool.getStats();
   }
 
   /**
@@ -516,6 +581,18 @@ public final class ImageSegmenter extends BaseVisionTaskApi {
       /** Sets an optional {@link ErrorListener}}. */
       public abstract Builder setErrorListener(ErrorListener value);
 
+      /**
+       * Sets the options to convert and deliver results to the result listener on an executor
+       * instead of the MediaPipe graph thread in the live stream mode.
+       */
+      public abstract Builder setResultDispatchOptions(ResultDispatchOptions value);
+
+      /**
+       * Sets the maximum number of mask buffers kept for reuse once the masks returned without a
+       * result listener are closed. 0 disables the reuse. Defaults to 16.
+       */
+      public abstract Builder setMaxPooledMaskBuffers(Integer value);
+
       abstract ImageSegmenterOptions autoBuild();
 
       /**
@@ -523,10 +600,14 @@ public final class ImageSegmenter extends BaseVisionTaskApi {
        *
        * @throws IllegalArgumentException if the result listener and the running mode are not
        *     properly configured. The result listener must be set when the image segmenter is in the
-       *     live stream mode.
+       *     live stream mode. Or if the maximum number of pooled mask buffers is negative.
        */
       public final ImageSegmenterOptions build() {
         ImageSegmenterOptions options = autoBuild();
+        if (options.maxPooledMaskBuffers() < 0) {
+          throw new IllegalArgumentException(
+              "The maximum number of pooled mask buffers must not be negative.");
+        }
         if (options.runningMode() == RunningMode.LIVE_STREAM) {
           if (!options.resultListener().isPresent()) {
             throw new IllegalArgumentException(
@@ -550,6 +631,10 @@ public final class ImageSegmenter extends BaseVisionTaskApi {
 
     abstract Optional<ErrorListener> errorListener();
 
+    abstract Optional<ResultDispatchOptions> resultDispatchOptions();
+
+    abstract int maxPooledMaskBuffers();
+
     /** The output type of segmentation results. */
     public enum OutputType {
       // Gives a single output mask where each pixel represents the class which
@@ -564,7 +649,8 @@ public final class ImageSegmenter extends BaseVisionTaskApi {
       return new AutoValue_ImageSegmenter_ImageSegmenterOptions.Builder()
           .setRunningMode(RunningMode.IMAGE)
           .setDisplayNamesLocale("en")
-          .setOutputType(OutputType.CATEGORY_MASK);
+          .setOutputType(OutputType.CATEGORY_MASK)
+          .setMaxPooledMaskBuffers(16);
     }
 
     /**
@@ -0,0 +1,62 @@
+// Copyright 2023 The MediaPipe Authors.
+//
+// Licensed under the Apache License, Version 2.0 (the "License");
+// you may not use this file except in compliance with the License.
+// You may obtain a copy of the License at
+//
+//      http://www.apache.org/licenses/LICENSE-2.0
+//
+// Unless required by applicable law or agreed to in writing, software
+// distributed under the License is distributed on an "AS IS" BASIS,
+// WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+// See the License for the specific language governing permissions and
+// limitations under the License.
+
+package com.google.mediapipe.tasks.vision.imagesegmenter;
+
+import com.google.mediapipe.framework.image.MPImage;
+import com.google.mediapipe.framework.image.MPImageBufferPool;
+import com.google.mediapipe.tasks.vision.imagesegmenter.ImageSegmenter.MaskBufferStats;
+import java.nio.ByteBuffer;
+
+/**
+ * Pool of the direct buffers of the masks returned by {@link ImageSegmenter}, backed by a {@link
+ * MPImageBufferPool} of its own. The buffers of a mask go back to the pool when the mask {@link
+ * MPImage} is closed, and the pool keeps up to a fixed number of them for the next results.
+ */
+final class MaskBufferPool {
+
+  private final int maxPooledBuffers;
+  private final MPImageBufferPool pool = new MPImageBufferPool(Long.MAX_VALUE);
+  private int inUseBufferCount = 0;
+  private int inUseBufferHighWaterMark = 0;
+
+  MaskBufferPool(int maxPooledBuffers) {
+    this.maxPooledBuffers = maxPooledBuffers;
+  }
+
+  /** Returns a direct buffer for a mask, reusing a released one of the same size if possible. */
+  synchronized ByteBuffer acquire(int width, int height, int imageFormat) {
+    ++inUseBufferCount;
+    inUseBufferHighWaterMark = Math.max(inUseBufferHighWaterMark, inUseBufferCount);
+    return pool.acquire(width * height * (imageFormat == MPImage.IMAGE_FORMAT_VEC32F1 ? 4 : 1));
+  }
+
+  /** Gives back a buffer returned by {@link #acquire}. */
+  synchronized void release(ByteBuffer buffer) {
+    --inUseBufferCount;
+    if (pool.getPooledBufferCount() < maxPooledBuffers) {
+      pool.release(buffer);
+    }
+  }
+
+  synchronized MaskBufferStats getStats() {
+    return MaskBufferStats.create(
+        pool.getPooledBufferCount(),
+        pool.getPooledBytes(),
+        inUseBufferCount,
+        inUseBufferHighWaterMark,
+        pool.getBufferAllocationCount(),
+        pool.getBufferReuseCount());
+  }
+}
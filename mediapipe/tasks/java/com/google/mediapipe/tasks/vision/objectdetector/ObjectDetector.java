@@ -27,6 +27,7 @@ import com.google.mediapipe.tasks.core.BaseOptions;
 import com.google.mediapipe.tasks.core.ErrorListener;
 import com.google.mediapipe.tasks.core.OutputHandler;
 import com.google.mediapipe.tasks.core.OutputHandler.ResultListener;
+import com.google.mediapipe.tasks.core.ResultDispatchOptions;
 import com.google.mediapipe.tasks.core.TaskInfo;
 import com.google.mediapipe.tasks.core.TaskOptions;
 import com.google.mediapipe.tasks.core.TaskRunner;
@@ -186,6 +187,7 @@ public final class ObjectDetector extends BaseVisionTaskApi {
         });
     detectorOptions.resultListener().ifPresent(handler::setResultListener);
     detectorOptions.errorListener().ifPresent(handler::setErrorListener);
+    detectorOptions.resultDispatchOptions().ifPresent(handler::setResultDispatchOptions);
     TaskRunner runner =
         TaskRunner.create(
             context,
@@ -196,6 +198,7 @@ public final class ObjectDetector extends BaseVisionTaskApi {
                 .setInputStreams(INPUT_STREAMS)
                 .setOutputStreams(OUTPUT_STREAMS)
                 .setTaskOptions(detectorOptions)
+                .setModelBaseOptions(detectorOptions.baseOptions())
                 .setEnableFlowLimiting(detectorOptions.runningMode() == RunningMode.LIVE_STREAM)
                 .build(),
             handler);
@@ -432,6 +435,12 @@ public final class ObjectDetector extends BaseVisionTaskApi {
       /** Sets an optional {@link ErrorListener}}. */
       public abstract Builder setErrorListener(ErrorListener value);
 
+      /**
+       * Sets the options to convert and deliver results to the result listener on an executor
+       * instead of the MediaPipe graph thread in the live stream mode.
+       */
+      public abstract Builder setResultDispatchOptions(ResultDispatchOptions value);
+
       abstract ObjectDetectorOptions autoBuild();
 
       /**
@@ -476,6 +485,8 @@ public final class ObjectDetector extends BaseVisionTaskApi {
 
     abstract Optional<ErrorListener> errorListener();
 
+    abstract Optional<ResultDispatchOptions> resultDispatchOptions();
+
     public static Builder builder() {
       return new AutoValue_ObjectDetector_ObjectDetectorOptions.Builder()
           .setRunningMode(RunningMode.IMAGE)
@@ -0,0 +1,114 @@
+// Copyright 2023 The MediaPipe Authors.
+//
+// Licensed under the Apache License, Version 2.0 (the "License");
+// you may not use this file except in compliance with the License.
+// You may obtain a copy of the License at
+//
+//      http://www.apache.org/licenses/LICENSE-2.0
+//
+// Unless required by applicable law or agreed to in writing, software
+// distributed under the License is distributed on an "AS IS" BASIS,
+// WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+// See the License for the specific language governing permissions and
+// limitations under the License.
+
+package com.google.mediapipe.tasks.components.utils;
+
+import com.google.mediapipe.tasks.components.containers.Embedding;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Optional;
+import java.util.Random;
+
+/**
+ * Compares the nanoseconds per similarity of {@link CosineSimilarity#compute(Embedding, Embedding)}
+ * in a loop with the batched {@link CosineSimilarity#compute(Embedding, List)} and {@link
+ * CosineSimilarity#compute(List, List)}, for float and quantized embeddings of size 128, 512 and
+ * 1024.
+ *
+ * <p>Usage: {@code CosineSimilarityBenchmark [embeddings] [queries]}, by default 10000 embeddings
+ * and 16 queries.
+ */
+public final class CosineSimilarityBenchmark {
+
+  private static final int[] DIMENSIONS = {128, 512, 1024};
+  private static final int WARMUP_ROUNDS = 5;
+  private static final int ROUNDS = 10;
+
+  // Keeps the results alive so that the JIT cannot drop the computations.
+  private static double sink;
+
+  public static void main(String[] args) {
+    int embeddingCount = args.length > 0 ? Integer.parseInt(args[0]) : 10000;
+    int queryCount = args.length > 1 ? Integer.parseInt(args[1]) : 16;
+    Random random = new Random(0);
+    for (boolean quantized : new boolean[] {false, true}) {
+      for (int dimension : DIMENSIONS) {
+        List<Embedding> embeddings = new ArrayList<>(embeddingCount);
+        for (int i = 0; i < embeddingCount; ++i) {
+          embeddings.add(randomEmbedding(random, dimension, quantized));
+        }
+        List<Embedding> queries = new ArrayList<>(queryCount);
+        for (int i = 0; i < queryCount; ++i) {
+          queries.add(randomEmbedding(random, dimension, quantized));
+        }
+        System.out.printf(
+            "%s embeddings of size %d:%n", quantized ? "Quantized" : "Float", dimension);
+        long pairs = (long) queryCount * embeddingCount;
+        report("pairwise", pairs, () -> pairwise(queries, embeddings));
+        report("query against embeddings", pairs, () -> queryBatches(queries, embeddings));
+        report("queries against embeddings", pairs, () -> matrix(queries, embeddings));
+      }
+    }
+    System.out.println(sink == 0 ? "" : " ");
+  }
+
+  private static void pairwise(List<Embedding> queries, List<Embedding> embeddings) {
+    for (Embedding query : queries) {
+      for (Embedding embedding : embeddings) {
+        sink += CosineSimilarity.compute(query, embedding);
+      }
+    }
+  }
+
+  private static void queryBatches(List<Embedding> queries, List<Embedding> embeddings) {
+    for (Embedding query : queries) {
+      sink += CosineSimilarity.compute(query, embeddings)[0];
+    }
+  }
+
+  private static void matrix(List<Embedding> queries, List<Embedding> embeddings) {
+    sink += CosineSimilarity.compute(queries, embeddings)[0][0];
+  }
+
+  private static void report(String name, long pairs, Runnable benchmark) {
+    for (int round = 0; round < WARMUP_ROUNDS; ++round) {
+      benchmark.run();
+    }
+    long best = Long.MAX_VALUE;
+    for (int round = 0; round < ROUNDS; ++round) {
+      long start = System.nanoTime();
+      benchmark.run();
+      best = Math.min(best, System.nanoTime() - start);
+    }
+    System.out.printf("  %-28s %8.2f ns per similarity%n", name, (double) best / pairs);
+  }
+
+  private static Embedding randomEmbedding(Random random, int dimension, boolean quantized) {
+    if (quantized) {
+      byte[] values = new byte[dimension];
+      random.nextBytes(values);
+      values[0] = 1;
+      return Embedding.create(
+          new float[0], values, /*headIndex=*/ 0, /*headName=*/ Optional.empty());
+    }
+    float[] values = new float[dimension];
+    for (int i = 0; i < dimension; ++i) {
+      values[i] = random.nextFloat() * 2 - 1;
+    }
+    return Embedding.create(
+        values, new byte[0], /*headIndex=*/ 0, /*headName=*/ Optional.empty());
+  }
+
+  private CosineSimilarityBenchmark() {}
+}
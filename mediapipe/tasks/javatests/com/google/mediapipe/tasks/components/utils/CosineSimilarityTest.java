@@ -19,7 +19,11 @@ import static org.junit.Assert.assertThrows;
 
 import androidx.test.ext.junit.runners.AndroidJUnit4;
 import com.google.mediapipe.tasks.components.containers.Embedding;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
 import java.util.Optional;
+import java.util.Random;
 import org.junit.Test;
 import org.junit.runner.RunWith;
 
@@ -113,4 +117,83 @@ public final class CosineSimilarityTest {
 
     assertThat(CosineSimilarity.compute(u, v)).isEqualTo(-1.0);
   }
+
+  @Test
+  public void batchFailsWithQuantizedAndFloatEmbeddings() {
+    Embedding u =
+        Embedding.create(
+            new float[] {1.0f}, new byte[0], /*headIndex=*/ 0, /*headName=*/ Optional.empty());
+    Embedding v =
+        Embedding.create(
+            new float[0], new byte[] {1}, /*headIndex=*/ 0, /*headName=*/ Optional.empty());
+
+    IllegalArgumentException exception =
+        assertThrows(
+            IllegalArgumentException.class,
+            () -> CosineSimilarity.compute(u, Arrays.asList(u, v)));
+    assertThat(exception)
+        .hasMessageThat()
+        .contains("Cannot compute cosine similarity between quantized and float embeddings");
+  }
+
+  @Test
+  public void batchMatchesPairwiseWithFloatEmbeddings() {
+    Random random = new Random(0);
+    List<Embedding> queries = new ArrayList<>();
+    List<Embedding> embeddings = new ArrayList<>();
+    for (int i = 0; i < 3; ++i) {
+      queries.add(randomFloats(random, 100));
+    }
+    for (int i = 0; i < 150; ++i) {
+      embeddings.add(randomFloats(random, 100));
+    }
+
+    double[][] similarities = CosineSimilarity.compute(queries, embeddings);
+
+    assertThat(similarities).hasLength(3);
+    for (int q = 0; q < queries.size(); ++q) {
+      assertThat(similarities[q]).hasLength(150);
+      for (int i = 0; i < embeddings.size(); ++i) {
+        assertThat(similarities[q][i])
+            .isWithin(1e-5)
+            .of(CosineSimilarity.compute(queries.get(q), embeddings.get(i)));
+      }
+    }
+  }
+
+  @Test
+  public void batchMatchesPairwiseWithQuantizedEmbeddings() {
+    Random random = new Random(0);
+    Embedding query = randomQuantized(random, 100);
+    List<Embedding> embeddings = new ArrayList<>();
+    for (int i = 0; i < 150; ++i) {
+      embeddings.add(randomQuantized(random, 100));
+    }
+
+    double[] similarities = CosineSimilarity.compute(query, embeddings);
+
+    assertThat(similarities).hasLength(150);
+    for (int i = 0; i < embeddings.size(); ++i) {
+      assertThat(similarities[i])
+          .isWithin(1e-5)
+          .of(CosineSimilarity.compute(query, embeddings.get(i)));
+    }
+  }
+
+  private static Embedding randomFloats(Random random, int dimension) {
+    float[] values = new float[dimension];
+    for (int i = 0; i < dimension; ++i) {
+      values[i] = random.nextFloat() * 2 - 1;
+    }
+    return Embedding.create(
+        values, new byte[0], /*headIndex=*/ 0, /*headName=*/ Optional.empty());
+  }
+
+  private static Embedding randomQuantized(Random random, int dimension) {
+    byte[] values = new byte[dimension];
+    random.nextBytes(values);
+    values[0] = 1;
+    return Embedding.create(
+        new float[0], values, /*headIndex=*/ 0, /*headName=*/ Optional.empty());
+  }
 }
@@ -0,0 +1,172 @@
+// Copyright 2023 The MediaPipe Authors.
+//
+// Licensed under the Apache License, Version 2.0 (the "License");
+// you may not use this file except in compliance with the License.
+// You may obtain a copy of the License at
+//
+//      http://www.apache.org/licenses/LICENSE-2.0
+//
+// Unless required by applicable law or agreed to in writing, software
+// distributed under the License is distributed on an "AS IS" BASIS,
+// WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+// See the License for the specific language governing permissions and
+// limitations under the License.
+
+package com.google.mediapipe.tasks.components.utils;
+
+import static com.google.common.truth.Truth.assertThat;
+import static org.junit.Assert.assertThrows;
+
+import androidx.test.ext.junit.runners.AndroidJUnit4;
+import com.google.mediapipe.tasks.components.containers.Embedding;
+import com.google.mediapipe.tasks.components.utils.EmbeddingIndex.Neighbor;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Optional;
+import java.util.Random;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+
+/** Tests for {@link EmbeddingIndex}. */
+@RunWith(AndroidJUnit4.class)
+public final class EmbeddingIndexTest {
+
+  @Test
+  public void failsWithWrongEmbeddingType() {
+    EmbeddingIndex index = EmbeddingIndex.createForFloatEmbeddings(/*dimension=*/ 1);
+
+    IllegalArgumentException exception =
+        assertThrows(
+            IllegalArgumentException.class, () -> index.add(/*id=*/ 0, quantized((byte) 1)));
+    assertThat(exception)
+        .hasMessageThat()
+        .contains("Cannot use a quantized embedding with an index of float embeddings");
+  }
+
+  @Test
+  public void failsWithWrongSize() {
+    EmbeddingIndex index = EmbeddingIndex.createForFloatEmbeddings(/*dimension=*/ 2);
+
+    IllegalArgumentException exception =
+        assertThrows(
+            IllegalArgumentException.class, () -> index.add(/*id=*/ 0, floats(1.0f, 2.0f, 3.0f)));
+    assertThat(exception)
+        .hasMessageThat()
+        .contains("Cannot use an embedding of size 3 with an index of embeddings of size 2");
+  }
+
+  @Test
+  public void failsWithZeroNorm() {
+    EmbeddingIndex index = EmbeddingIndex.createForFloatEmbeddings(/*dimension=*/ 1);
+
+    IllegalArgumentException exception =
+        assertThrows(IllegalArgumentException.class, () -> index.add(/*id=*/ 0, floats(0.0f)));
+    assertThat(exception)
+        .hasMessageThat()
+        .contains("Cannot compute cosine similarity on embedding with 0 norm");
+  }
+
+  @Test
+  public void succeedsWithFloatEmbeddings() {
+    EmbeddingIndex index = EmbeddingIndex.createForFloatEmbeddings(/*dimension=*/ 4);
+    index.add(/*id=*/ 10, floats(1.0f, 0.0f, 0.0f, 0.0f));
+    index.add(/*id=*/ 11, floats(0.5f, 0.5f, 0.5f, 0.5f));
+    index.add(/*id=*/ 12, floats(-1.0f, 0.0f, 0.0f, 0.0f));
+
+    List<Neighbor> neighbors = index.search(floats(2.0f, 0.0f, 0.0f, 0.0f), /*k=*/ 2);
+
+    assertThat(neighbors)
+        .containsExactly(Neighbor.create(10, 1.0f), Neighbor.create(11, 0.5f))
+        .inOrder();
+  }
+
+  @Test
+  public void ordersEqualScoresById() {
+    EmbeddingIndex index = EmbeddingIndex.createForFloatEmbeddings(/*dimension=*/ 2);
+    index.add(/*id=*/ 30, floats(1.0f, 0.0f));
+    index.add(/*id=*/ 10, floats(1.0f, 0.0f));
+    index.add(/*id=*/ 40, floats(1.0f, 0.0f));
+    index.add(/*id=*/ 20, floats(1.0f, 0.0f));
+    // Moves the last embedding into the slot of the removed one.
+    index.remove(30);
+
+    List<Neighbor> neighbors = index.search(floats(1.0f, 0.0f), /*k=*/ 2);
+
+    assertThat(neighbors)
+        .containsExactly(Neighbor.create(10, 1.0f), Neighbor.create(20, 1.0f))
+        .inOrder();
+  }
+
+  @Test
+  public void succeedsWithQuantizedEmbeddings() {
+    EmbeddingIndex index = EmbeddingIndex.createForQuantizedEmbeddings(/*dimension=*/ 4);
+    index.add(/*id=*/ 10, quantized((byte) 127, (byte) 0, (byte) 0, (byte) 0));
+    index.add(/*id=*/ 11, quantized((byte) -128, (byte) 0, (byte) 0, (byte) 0));
+
+    List<Neighbor> neighbors =
+        index.search(quantized((byte) -64, (byte) 0, (byte) 0, (byte) 0), /*k=*/ 5);
+
+    assertThat(neighbors)
+        .containsExactly(Neighbor.create(11, 1.0f), Neighbor.create(10, -1.0f))
+        .inOrder();
+  }
+
+  @Test
+  public void searchMatchesCosineSimilarity() throws Exception {
+    Random random = new Random(0);
+    EmbeddingIndex index = EmbeddingIndex.createForFloatEmbeddings(/*dimension=*/ 16);
+    Embedding[] stored = new Embedding[1000];
+    for (int i = 0; i < stored.length; ++i) {
+      stored[i] = randomFloats(random, 16);
+      index.add(i, stored[i]);
+    }
+    List<Embedding> queries = Arrays.asList(randomFloats(random, 16), randomFloats(random, 16));
+
+    List<List<Neighbor>> sequential = index.search(queries, /*k=*/ 10);
+    ExecutorService executor = Executors.newFixedThreadPool(4);
+    List<List<Neighbor>> parallel;
+    try {
+      parallel = index.search(queries, /*k=*/ 10, executor, /*partitions=*/ 4);
+    } finally {
+      executor.shutdown();
+    }
+
+    assertThat(parallel).isEqualTo(sequential);
+    for (int q = 0; q < queries.size(); ++q) {
+      Double[] expected = new Double[stored.length];
+      for (int i = 0; i < stored.length; ++i) {
+        expected[i] = CosineSimilarity.compute(queries.get(q), stored[i]);
+      }
+      Arrays.sort(expected, (a, b) -> Double.compare(b, a));
+      List<Neighbor> neighbors = sequential.get(q);
+      assertThat(neighbors).hasSize(10);
+      for (int i = 0; i < neighbors.size(); ++i) {
+        Neighbor neighbor = neighbors.get(i);
+        assertThat((double) neighbor.score()).isWithin(1e-5).of(expected[i]);
+        assertThat((double) neighbor.score())
+            .isWithin(1e-5)
+            .of(CosineSimilarity.compute(queries.get(q), stored[(int) neighbor.id()]));
+      }
+    }
+  }
+
+  private static Embedding floats(float... values) {
+    return Embedding.create(
+        values, new byte[0], /*headIndex=*/ 0, /*headName=*/ Optional.empty());
+  }
+
+  private static Embedding quantized(byte... values) {
+    return Embedding.create(
+        new float[0], values, /*headIndex=*/ 0, /*headName=*/ Optional.empty());
+  }
+
+  private static Embedding randomFloats(Random random, int dimension) {
+    float[] values = new float[dimension];
+    for (int i = 0; i < dimension; ++i) {
+      values[i] = random.nextFloat() * 2 - 1;
+    }
+    return floats(values);
+  }
+}
@@ -0,0 +1,196 @@
+// Copyright 2023 The MediaPipe Authors.
+//
+// Licensed under the Apache License, Version 2.0 (the "License");
+// you may not use this file except in compliance with the License.
+// You may obtain a copy of the License at
+//
+//      http://www.apache.org/licenses/LICENSE-2.0
+//
+// Unless required by applicable law or agreed to in writing, software
+// distributed under the License is distributed on an "AS IS" BASIS,
+// WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+// See the License for the specific language governing permissions and
+// limitations under the License.
+
+package com.google.mediapipe.tasks.components.utils;
+
+import static com.google.common.truth.Truth.assertThat;
+import static org.junit.Assert.assertThrows;
+
+import androidx.test.ext.junit.runners.AndroidJUnit4;
+import com.google.mediapipe.tasks.components.containers.Embedding;
+import com.google.mediapipe.tasks.components.utils.EmbeddingIndex.Neighbor;
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.util.List;
+import java.util.Optional;
+import java.util.Random;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+import org.junit.runner.RunWith;
+
+/** Tests for {@link EmbeddingStore}. */
+@RunWith(AndroidJUnit4.class)
+public final class EmbeddingStoreTest {
+
+  @Rule public final TemporaryFolder temporaryFolder = new TemporaryFolder();
+
+  @Test
+  public void reopensHeaderAndEmbeddings() throws Exception {
+    File file = temporaryFolder.newFile();
+    try (EmbeddingStore store =
+        EmbeddingStore.createForFloatEmbeddings(
+            file, /*dimension=*/ 3, /*headIndex=*/ 1, Optional.of("head"))) {
+      store.append(/*id=*/ 7, floats(1, 1.0f, 2.0f, 3.0f));
+      store.append(/*id=*/ 5, floats(1, -1.0f, 0.0f, 0.5f));
+    }
+
+    try (EmbeddingStore store = EmbeddingStore.open(file)) {
+      assertThat(store.dimension()).isEqualTo(3);
+      assertThat(store.isQuantized()).isFalse();
+      assertThat(store.headIndex()).isEqualTo(1);
+      assertThat(store.headName()).hasValue("head");
+      assertThat(store.size()).isEqualTo(2);
+      assertThat(store.idAt(1)).isEqualTo(5L);
+      assertThat(store.get(/*id=*/ 7).get().floatEmbedding())
+          .isEqualTo(new float[] {1.0f, 2.0f, 3.0f});
+      assertThat(store.get(/*id=*/ 6)).isEmpty();
+    }
+  }
+
+  @Test
+  public void appendsToExistingStoreAcrossPages() throws Exception {
+    File file = temporaryFolder.newFile();
+    Random random = new Random(0);
+    EmbeddingStore.createForQuantizedEmbeddings(
+            file, /*dimension=*/ 1 << 16, /*headIndex=*/ 0, Optional.empty())
+        .close();
+    // Embeddings of 64 KiB fill a page every 64 embeddings.
+    for (int session = 0; session < 3; ++session) {
+      try (EmbeddingStore store = EmbeddingStore.openForAppend(file)) {
+        for (int i = 0; i < 50; ++i) {
+          byte[] values = new byte[1 << 16];
+          random.nextBytes(values);
+          values[0] = 1;
+          store.append(store.size(), quantized(values));
+        }
+      }
+    }
+
+    try (EmbeddingStore store = EmbeddingStore.open(file)) {
+      assertThat(store.size()).isEqualTo(150);
+      for (int index = 0; index < store.size(); ++index) {
+        assertThat(store.idAt(index)).isEqualTo((long) index);
+      }
+      List<Neighbor> neighbors = store.search(store.embeddingAt(100), /*k=*/ 1);
+      assertThat(neighbors.get(0).id()).isEqualTo(100L);
+      assertThat((double) neighbors.get(0).score()).isWithin(1e-5).of(1.0);
+    }
+  }
+
+  @Test
+  public void searchMatchesEmbeddingIndex() throws Exception {
+    File file = temporaryFolder.newFile();
+    Random random = new Random(0);
+    EmbeddingIndex index = EmbeddingIndex.createForFloatEmbeddings(/*dimension=*/ 16);
+    try (EmbeddingStore store =
+        EmbeddingStore.createForFloatEmbeddings(
+            file, /*dimension=*/ 16, /*headIndex=*/ 0, Optional.empty())) {
+      for (int i = 0; i < 1000; ++i) {
+        Embedding embedding = randomFloats(random, 16);
+        store.append(i, embedding);
+        index.add(i, embedding);
+      }
+    }
+
+    try (EmbeddingStore store = EmbeddingStore.open(file)) {
+      for (int q = 0; q < 5; ++q) {
+        Embedding query = randomFloats(random, 16);
+        List<Neighbor> expected = index.search(query, /*k=*/ 10);
+        List<Neighbor> neighbors = store.search(query, /*k=*/ 10);
+        assertThat(neighbors).hasSize(10);
+        for (int i = 0; i < neighbors.size(); ++i) {
+          assertThat(neighbors.get(i).id()).isEqualTo(expected.get(i).id());
+          assertThat((double) neighbors.get(i).score())
+              .isWithin(1e-5)
+              .of(expected.get(i).score());
+        }
+      }
+    }
+  }
+
+  @Test
+  public void failsWithDuplicateId() throws Exception {
+    try (EmbeddingStore store =
+        EmbeddingStore.createForFloatEmbeddings(
+            temporaryFolder.newFile(), /*dimension=*/ 1, /*headIndex=*/ 0, Optional.empty())) {
+      store.append(/*id=*/ 1, floats(0, 1.0f));
+
+      IllegalArgumentException exception =
+          assertThrows(
+              IllegalArgumentException.class, () -> store.append(/*id=*/ 1, floats(0, 2.0f)));
+      assertThat(exception).hasMessageThat().contains("The id 1 is already in the store");
+    }
+  }
+
+  @Test
+  public void failsWithWrongHead() throws Exception {
+    try (EmbeddingStore store =
+        EmbeddingStore.createForFloatEmbeddings(
+            temporaryFolder.newFile(), /*dimension=*/ 1, /*headIndex=*/ 0, Optional.empty())) {
+      IllegalArgumentException exception =
+          assertThrows(
+              IllegalArgumentException.class, () -> store.append(/*id=*/ 1, floats(2, 1.0f)));
+      assertThat(exception)
+          .hasMessageThat()
+          .contains("Cannot append an embedding of head 2 to a store of embeddings of head 0");
+    }
+  }
+
+  @Test
+  public void failsToAppendToReadOnlyStore() throws Exception {
+    File file = temporaryFolder.newFile();
+    EmbeddingStore.createForFloatEmbeddings(
+            file, /*dimension=*/ 1, /*headIndex=*/ 0, Optional.empty())
+        .close();
+
+    try (EmbeddingStore store = EmbeddingStore.open(file)) {
+      IllegalStateException exception =
+          assertThrows(
+              IllegalStateException.class, () -> store.append(/*id=*/ 1, floats(0, 1.0f)));
+      assertThat(exception)
+          .hasMessageThat()
+          .contains("Cannot append to a read-only embedding store");
+    }
+  }
+
+  @Test
+  public void failsWithInvalidFile() throws Exception {
+    File file = temporaryFolder.newFile();
+    try (RandomAccessFile randomAccessFile = new RandomAccessFile(file, "rw")) {
+      randomAccessFile.setLength(8192);
+    }
+
+    IOException exception = assertThrows(IOException.class, () -> EmbeddingStore.open(file));
+    assertThat(exception).hasMessageThat().contains("The file is not an embedding store");
+  }
+
+  private static Embedding floats(int headIndex, float... values) {
+    return Embedding.create(values, new byte[0], headIndex, /*headName=*/ Optional.empty());
+  }
+
+  private static Embedding quantized(byte[] values) {
+    return Embedding.create(
+        new float[0], values, /*headIndex=*/ 0, /*headName=*/ Optional.empty());
+  }
+
+  private static Embedding randomFloats(Random random, int dimension) {
+    float[] values = new float[dimension];
+    for (int i = 0; i < dimension; ++i) {
+      values[i] = random.nextFloat() * 2 - 1;
+    }
+    return floats(0, values);
+  }
+}
@@ -0,0 +1,189 @@
+// Copyright 2023 The MediaPipe Authors.
+//
+// Licensed under the Apache License, Version 2.0 (the "License");
+// you may not use this file except in compliance with the License.
+// You may obtain a copy of the License at
+//
+//      http://www.apache.org/licenses/LICENSE-2.0
+//
+// Unless required by applicable law or agreed to in writing, software
+// distributed under the License is distributed on an "AS IS" BASIS,
+// WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+// See the License for the specific language governing permissions and
+// limitations under the License.
+
+package com.google.mediapipe.tasks.components.utils;
+
+import com.google.mediapipe.tasks.components.containers.Embedding;
+import com.google.mediapipe.tasks.components.utils.EmbeddingIndex.Neighbor;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Optional;
+import java.util.PriorityQueue;
+import java.util.Random;
+import java.util.Set;
+
+/**
+ * Compares the recall@10 and the queries per second of {@link IvfEmbeddingIndex} with exact search
+ * by {@link CosineSimilarity#compute} and by {@link EmbeddingIndex}.
+ *
+ * <p>The embeddings are drawn around random cluster centers, like the embeddings of a photo
+ * gallery, and the queries are perturbed copies of random embeddings.
+ *
+ * <p>Usage: {@code IvfEmbeddingIndexBenchmark [count] [dimension] [queries]}, by default 100000
+ * embeddings of size 128 and 200 queries.
+ */
+public final class IvfEmbeddingIndexBenchmark {
+
+  private static final int K = 10;
+
+  public static void main(String[] args) {
+    int count = args.length > 0 ? Integer.parseInt(args[0]) : 100000;
+    int dimension = args.length > 1 ? Integer.parseInt(args[1]) : 128;
+    int queryCount = args.length > 2 ? Integer.parseInt(args[2]) : 200;
+    Random random = new Random(0);
+    float[][] centers = new float[(int) Math.sqrt(count)][];
+    for (int c = 0; c < centers.length; ++c) {
+      centers[c] = gaussian(random, dimension, 1.0f, null);
+    }
+    List<float[]> vectors = new ArrayList<>(count);
+    for (int i = 0; i < count; ++i) {
+      vectors.add(gaussian(random, dimension, 0.3f, centers[random.nextInt(centers.length)]));
+    }
+    List<float[]> queries = new ArrayList<>(queryCount);
+    for (int q = 0; q < queryCount; ++q) {
+      queries.add(gaussian(random, dimension, 0.1f, vectors.get(random.nextInt(count))));
+    }
+    System.out.printf("%d embeddings of size %d, %d queries%n", count, dimension, queryCount);
+    run(vectors, queries, /*quantized=*/ false);
+    run(vectors, queries, /*quantized=*/ true);
+  }
+
+  private static void run(List<float[]> vectors, List<float[]> queries, boolean quantized) {
+    int dimension = vectors.get(0).length;
+    List<Embedding> embeddings = new ArrayList<>(vectors.size());
+    for (float[] vector : vectors) {
+      embeddings.add(toEmbedding(vector, quantized));
+    }
+    List<Embedding> queryEmbeddings = new ArrayList<>(queries.size());
+    for (float[] query : queries) {
+      queryEmbeddings.add(toEmbedding(query, quantized));
+    }
+    System.out.println(quantized ? "Quantized embeddings:" : "Float embeddings:");
+
+    List<Set<Long>> expected = new ArrayList<>();
+    long start = System.nanoTime();
+    for (Embedding query : queryEmbeddings) {
+      expected.add(exactSearch(embeddings, query));
+    }
+    report("CosineSimilarity.compute", start, queries.size(), 1.0);
+
+    EmbeddingIndex exact =
+        quantized
+            ? EmbeddingIndex.createForQuantizedEmbeddings(dimension)
+            : EmbeddingIndex.createForFloatEmbeddings(dimension);
+    for (int i = 0; i < embeddings.size(); ++i) {
+      exact.add(i, embeddings.get(i));
+    }
+    start = System.nanoTime();
+    List<List<Neighbor>> results = new ArrayList<>();
+    for (Embedding query : queryEmbeddings) {
+      results.add(exact.search(query, K));
+    }
+    report("EmbeddingIndex", start, queries.size(), recall(expected, results));
+
+    int listCount = (int) Math.sqrt(embeddings.size());
+    IvfEmbeddingIndex.Options options =
+        IvfEmbeddingIndex.Options.builder()
+            .setListCount(listCount)
+            .setTrainingSize(Math.min(embeddings.size(), listCount * 32))
+            .build();
+    IvfEmbeddingIndex ivf =
+        quantized
+            ? IvfEmbeddingIndex.createForQuantizedEmbeddings(dimension, options)
+            : IvfEmbeddingIndex.createForFloatEmbeddings(dimension, options);
+    start = System.nanoTime();
+    for (int i = 0; i < embeddings.size(); ++i) {
+      ivf.add(i, embeddings.get(i));
+    }
+    System.out.printf(
+        "  IvfEmbeddingIndex built with %d lists in %.0f ms%n",
+        listCount, (System.nanoTime() - start) / 1e6);
+    for (int probeCount : new int[] {1, 2, 4, 8, 16, 32}) {
+      ivf.setProbeCount(probeCount);
+      start = System.nanoTime();
+      results.clear();
+      for (Embedding query : queryEmbeddings) {
+        results.add(ivf.search(query, K));
+      }
+      report(
+          "IvfEmbeddingIndex, probe count " + probeCount,
+          start,
+          queries.size(),
+          recall(expected, results));
+    }
+  }
+
+  private static Set<Long> exactSearch(List<Embedding> embeddings, Embedding query) {
+    PriorityQueue<double[]> best = new PriorityQueue<>((a, b) -> Double.compare(a[0], b[0]));
+    for (int i = 0; i < embeddings.size(); ++i) {
+      best.add(new double[] {CosineSimilarity.compute(query, embeddings.get(i)), i});
+      if (best.size() > K) {
+        best.poll();
+      }
+    }
+    Set<Long> ids = new HashSet<>();
+    for (double[] entry : best) {
+      ids.add((long) entry[1]);
+    }
+    return ids;
+  }
+
+  private static double recall(List<Set<Long>> expected, List<List<Neighbor>> results) {
+    int found = 0;
+    for (int q = 0; q < expected.size(); ++q) {
+      for (Neighbor neighbor : results.get(q)) {
+        if (expected.get(q).contains(neighbor.id())) {
+          ++found;
+        }
+      }
+    }
+    return (double) found / (expected.size() * K);
+  }
+
+  private static void report(String name, long start, int queryCount, double recall) {
+    double seconds = (System.nanoTime() - start) / 1e9;
+    System.out.printf(
+        "  %-36s recall@%d %.3f, %8.1f queries/s%n", name, K, recall, queryCount / seconds);
+  }
+
+  private static float[] gaussian(Random random, int dimension, float scale, float[] mean) {
+    float[] values = new float[dimension];
+    for (int d = 0; d < dimension; ++d) {
+      values[d] = (mean == null ? 0 : mean[d]) + (float) random.nextGaussian() * scale;
+    }
+    return values;
+  }
+
+  private static Embedding toEmbedding(float[] vector, boolean quantized) {
+    if (!quantized) {
+      return Embedding.create(
+          vector, new byte[0], /*headIndex=*/ 0, /*headName=*/ Optional.empty());
+    }
+    // Scalar quantization of the normalized vector, like the embedder tasks do.
+    double norm = 0.0;
+    for (float value : vector) {
+      norm += value * value;
+    }
+    byte[] bytes = new byte[vector.length];
+    for (int d = 0; d < vector.length; ++d) {
+      double value = vector[d] / Math.sqrt(norm) * 128;
+      bytes[d] = (byte) Math.max(-128, Math.min(127, Math.round(value)));
+    }
+    return Embedding.create(
+        new float[0], bytes, /*headIndex=*/ 0, /*headName=*/ Optional.empty());
+  }
+
+  private IvfEmbeddingIndexBenchmark() {}
+}
@@ -0,0 +1,160 @@
+// Copyright 2023 The MediaPipe Authors.
+//
+// Licensed under the Apache License, Version 2.0 (the "License");
+// you may not use this file except in compliance with the License.
+// You may obtain a copy of the License at
+//
+//      http://www.apache.org/licenses/LICENSE-2.0
+//
+// Unless required by applicable law or agreed to in writing, software
+// distributed under the License is distributed on an "AS IS" BASIS,
+// WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+// See the License for the specific language governing permissions and
+// limitations under the License.
+
+package com.google.mediapipe.tasks.components.utils;
+
+import static com.google.common.truth.Truth.assertThat;
+import static org.junit.Assert.assertThrows;
+
+import androidx.test.ext.junit.runners.AndroidJUnit4;
+import com.google.mediapipe.tasks.components.containers.Embedding;
+import com.google.mediapipe.tasks.components.utils.EmbeddingIndex.Neighbor;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Optional;
+import java.util.Random;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+
+/** Tests for {@link IvfEmbeddingIndex}. */
+@RunWith(AndroidJUnit4.class)
+public final class IvfEmbeddingIndexTest {
+
+  private static final int DIMENSION = 8;
+
+  @Test
+  public void failsWithDuplicateId() {
+    IvfEmbeddingIndex index =
+        IvfEmbeddingIndex.createForFloatEmbeddings(
+            DIMENSION, IvfEmbeddingIndex.Options.builder().build());
+    index.add(/*id=*/ 1, randomFloats(new Random(0)));
+
+    IllegalArgumentException exception =
+        assertThrows(
+            IllegalArgumentException.class,
+            () -> index.add(/*id=*/ 1, randomFloats(new Random(1))));
+    assertThat(exception).hasMessageThat().contains("The id 1 is already in the index");
+  }
+
+  @Test
+  public void trainsOnceTrainingSizeIsReached() {
+    IvfEmbeddingIndex index =
+        IvfEmbeddingIndex.createForFloatEmbeddings(
+            DIMENSION,
+            IvfEmbeddingIndex.Options.builder().setListCount(4).setTrainingSize(100).build());
+    Random random = new Random(0);
+    for (int i = 0; i < 99; ++i) {
+      index.add(i, randomFloats(random));
+    }
+    assertThat(index.isTrained()).isFalse();
+
+    index.add(/*id=*/ 99, randomFloats(random));
+
+    assertThat(index.isTrained()).isTrue();
+    assertThat(index.size()).isEqualTo(100);
+  }
+
+  @Test
+  public void findsExactNeighborsWhenProbingAllLists() {
+    Random random = new Random(0);
+    IvfEmbeddingIndex index =
+        IvfEmbeddingIndex.createForFloatEmbeddings(
+            DIMENSION,
+            IvfEmbeddingIndex.Options.builder().setListCount(8).setProbeCount(8).build());
+    EmbeddingIndex exact = EmbeddingIndex.createForFloatEmbeddings(DIMENSION);
+    for (int i = 0; i < 1000; ++i) {
+      Embedding embedding = randomFloats(random);
+      index.add(i, embedding);
+      exact.add(i, embedding);
+    }
+    assertThat(index.isTrained()).isTrue();
+
+    for (int q = 0; q < 10; ++q) {
+      Embedding query = randomFloats(random);
+      assertThat(ids(index.search(query, /*k=*/ 10)))
+          .containsExactlyElementsIn(ids(exact.search(query, /*k=*/ 10)));
+    }
+  }
+
+  @Test
+  public void succeedsWithQuantizedEmbeddings() {
+    Random random = new Random(0);
+    IvfEmbeddingIndex index =
+        IvfEmbeddingIndex.createForQuantizedEmbeddings(
+            DIMENSION,
+            IvfEmbeddingIndex.Options.builder().setListCount(4).setProbeCount(4).build());
+    Embedding target = null;
+    for (int i = 0; i < 500; ++i) {
+      byte[] values = new byte[DIMENSION];
+      random.nextBytes(values);
+      values[0] = 1;
+      Embedding embedding = quantized(values);
+      index.add(i, embedding);
+      if (i == 321) {
+        target = embedding;
+      }
+    }
+
+    List<Neighbor> neighbors = index.search(target, /*k=*/ 1);
+
+    assertThat(neighbors).hasSize(1);
+    assertThat(neighbors.get(0).id()).isEqualTo(321L);
+    assertThat((double) neighbors.get(0).score()).isWithin(1e-5).of(1.0);
+  }
+
+  @Test
+  public void removesEmbeddings() {
+    Random random = new Random(0);
+    IvfEmbeddingIndex index =
+        IvfEmbeddingIndex.createForFloatEmbeddings(
+            DIMENSION,
+            IvfEmbeddingIndex.Options.builder().setListCount(4).setProbeCount(4).build());
+    Embedding target = null;
+    for (int i = 0; i < 500; ++i) {
+      Embedding embedding = randomFloats(random);
+      index.add(i, embedding);
+      if (i == 42) {
+        target = embedding;
+      }
+    }
+
+    assertThat(index.remove(/*id=*/ 42)).isTrue();
+    assertThat(index.remove(/*id=*/ 42)).isFalse();
+
+    assertThat(index.size()).isEqualTo(499);
+    assertThat(ids(index.search(target, /*k=*/ 10))).doesNotContain(42L);
+  }
+
+  private static List<Long> ids(List<Neighbor> neighbors) {
+    List<Long> ids = new ArrayList<>();
+    for (Neighbor neighbor : neighbors) {
+      ids.add(neighbor.id());
+    }
+    return ids;
+  }
+
+  private static Embedding randomFloats(Random random) {
+    float[] values = new float[DIMENSION];
+    for (int i = 0; i < DIMENSION; ++i) {
+      values[i] = random.nextFloat() * 2 - 1;
+    }
+    return Embedding.create(
+        values, new byte[0], /*headIndex=*/ 0, /*headName=*/ Optional.empty());
+  }
+
+  private static Embedding quantized(byte[] values) {
+    return Embedding.create(
+        new float[0], values, /*headIndex=*/ 0, /*headName=*/ Optional.empty());
+  }
+}
@@ -0,0 +1,142 @@
+// Copyright 2023 The MediaPipe Authors.
+//
+// Licensed under the Apache License, Version 2.0 (the "License");
+// you may not use this file except in compliance with the License.
+// You may obtain a copy of the License at
+//
+//      http://www.apache.org/licenses/LICENSE-2.0
+//
+// Unless required by applicable law or agreed to in writing, software
+// distributed under the License is distributed on an "AS IS" BASIS,
+// WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+// See the License for the specific language governing permissions and
+// limitations under the License.
+
+package com.google.mediapipe.tasks.core;
+
+import static com.google.common.truth.Truth.assertThat;
+
+import androidx.test.ext.junit.runners.AndroidJUnit4;
+import com.google.mediapipe.framework.AndroidPacketCreator;
+import com.google.mediapipe.framework.Graph;
+import com.google.mediapipe.framework.Packet;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+
+/** Test for {@link OutputHandler}. */
+@RunWith(AndroidJUnit4.class)
+public class OutputHandlerTest {
+
+  static {
+    System.loadLibrary("mediapipe_tasks_vision_jni");
+  }
+
+  private static final class FakeResult implements TaskResult {
+    @Override
+    public long timestampMs() {
+      return 0;
+    }
+  }
+
+  private final List<Runnable> queuedTasks = new ArrayList<>();
+  private final List<TaskResult> deliveredResults = new ArrayList<>();
+  private final List<Packet> createdPackets = new ArrayList<>();
+  private Graph graph;
+  private OutputHandler<FakeResult, Void> outputHandler;
+
+  @Before
+  public void setUp() {
+    graph = new Graph();
+    outputHandler = new OutputHandler<>();
+    outputHandler.setOutputPacketConverter(
+        new OutputHandler.OutputPacketConverter<FakeResult, Void>() {
+          @Override
+          public FakeResult convertToTaskResult(List<Packet> packets) {
+            return new FakeResult();
+          }
+
+          @Override
+          public Void convertToTaskInput(List<Packet> packets) {
+            return null;
+          }
+        });
+    outputHandler.setResultListener((result, input) -> deliveredResults.add(result));
+  }
+
+  @After
+  public void tearDown() {
+    for (Packet packet : createdPackets) {
+      packet.release();
+    }
+    graph.tearDown();
+  }
+
+  @Test(timeout = 10000)
+  public void stopDispatching_doesNotWaitForQueuedTaskOnCallingThread() {
+    // Runs the dispatch tasks later on the thread of the test, like the main looper.
+    outputHandler.setResultDispatchOptions(
+        ResultDispatchOptions.builder().setExecutor(queuedTasks::add).build());
+    outputHandler.run(Arrays.asList(createPacket()));
+    assertThat(queuedTasks).hasSize(1);
+    assertThat(outputHandler.getPendingResultCount()).isEqualTo(1);
+
+    outputHandler.stopDispatching();
+
+    assertThat(outputHandler.getPendingResultCount()).isEqualTo(0);
+    assertThat(outputHandler.getDroppedResultCount()).isEqualTo(1);
+    // The task finds no result left once it runs.
+    queuedTasks.get(0).run();
+    assertThat(deliveredResults).isEmpty();
+    assertThat(outputHandler.getDeliveredResultCount()).isEqualTo(0);
+  }
+
+  @Test(timeout = 10000)
+  public void stopDispatching_fromListenerOnSameThreadExecutor() {
+    outputHandler.setResultDispatchOptions(
+        ResultDispatchOptions.builder().setExecutor(Runnable::run).build());
+    outputHandler.setResultListener(
+        (result, input) -> {
+          deliveredResults.add(result);
+          outputHandler.stopDispatching();
+        });
+
+    outputHandler.run(Arrays.asList(createPacket()));
+    // Dropped once dispatching is stopped.
+    outputHandler.run(Arrays.asList(createPacket()));
+
+    assertThat(deliveredResults).hasSize(1);
+    assertThat(outputHandler.getDeliveredResultCount()).isEqualTo(1);
+    assertThat(outputHandler.getDroppedResultCount()).isEqualTo(1);
+  }
+
+  @Test(timeout = 10000)
+  public void dispatch_doesNotCountResultsWhoseListenerThrew() {
+    outputHandler.setResultDispatchOptions(
+        ResultDispatchOptions.builder().setExecutor(Runnable::run).build());
+    outputHandler.setResultListener(
+        (result, input) -> {
+          deliveredResults.add(result);
+          if (deliveredResults.size() == 1) {
+            throw new IllegalStateException("listener failed");
+          }
+        });
+
+    outputHandler.run(Arrays.asList(createPacket()));
+    outputHandler.run(Arrays.asList(createPacket()));
+
+    assertThat(deliveredResults).hasSize(2);
+    assertThat(outputHandler.getDeliveredResultCount()).isEqualTo(1);
+  }
+
+  // Stands for a packet of the graph callback, which the output handler copies when it queues it.
+  private Packet createPacket() {
+    Packet packet = new AndroidPacketCreator(graph).createInt32(1);
+    createdPackets.add(packet);
+    return packet;
+  }
+}
@@ -0,0 +1,172 @@
+// Copyright 2023 The MediaPipe Authors.
+//
+// Licensed under the Apache License, Version 2.0 (the "License");
+// you may not use this file except in compliance with the License.
+// You may obtain a copy of the License at
+//
+//      http://www.apache.org/licenses/LICENSE-2.0
+//
+// Unless required by applicable law or agreed to in writing, software
+// distributed under the License is distributed on an "AS IS" BASIS,
+// WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+// See the License for the specific language governing permissions and
+// limitations under the License.
+
+package com.google.mediapipe.tasks.core;
+
+import static com.google.common.truth.Truth.assertThat;
+import static org.junit.Assert.assertThrows;
+
+import androidx.test.core.app.ApplicationProvider;
+import androidx.test.ext.junit.runners.AndroidJUnit4;
+import com.google.mediapipe.proto.CalculatorOptionsProto.CalculatorOptions;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+
+/** Test for {@link TaskPool}. */
+@RunWith(AndroidJUnit4.class)
+public class TaskPoolTest {
+
+  private static final class FakeOptions extends TaskOptions {
+    @Override
+    public CalculatorOptions convertToCalculatorOptionsProto() {
+      return CalculatorOptions.getDefaultInstance();
+    }
+  }
+
+  private static final class FakeTask implements AutoCloseable {
+    volatile boolean closed = false;
+
+    @Override
+    public void close() {
+      closed = true;
+    }
+  }
+
+  private final List<FakeTask> createdTasks = new ArrayList<>();
+
+  @Test(timeout = 10000)
+  public void invokeAll_stealsCallsQueuedBehindABlockedCall() {
+    CountDownLatch secondInputDone = new CountDownLatch(1);
+    try (TaskPool<FakeTask> pool = createPool(2)) {
+      // The first worker gets inputs 0 and 1. Input 0 waits for input 1, which can only run if the
+      // second worker steals it once done with inputs 2 and 3.
+      List<Boolean> results =
+          pool.invokeAll(
+              Arrays.asList(0, 1, 2, 3),
+              (task, input) -> {
+                if (input == 0) {
+                  try {
+                    return secondInputDone.await(5, TimeUnit.SECONDS);
+                  } catch (InterruptedException e) {
+                    throw new IllegalStateException(e);
+                  }
+                }
+                if (input == 1) {
+                  secondInputDone.countDown();
+                }
+                return true;
+              });
+
+      assertThat(results).containsExactly(true, true, true, true);
+    }
+  }
+
+  @Test(timeout = 10000)
+  public void submit_propagatesExceptionsAndKeepsTheWorker() throws Exception {
+    try (TaskPool<FakeTask> pool = createPool(1)) {
+      CompletableFuture<Integer> failed =
+          pool.submit(
+              0,
+              (task, input) -> {
+                throw new IllegalArgumentException("bad input");
+              });
+      CompletableFuture<Integer> errored =
+          pool.submit(
+              1,
+              (task, input) -> {
+                throw new AssertionError("broken task");
+              });
+      CompletableFuture<Integer> succeeded = pool.submit(2, (task, input) -> input);
+
+      ExecutionException exception = assertThrows(ExecutionException.class, failed::get);
+      assertThat(exception).hasCauseThat().isInstanceOf(IllegalArgumentException.class);
+      exception = assertThrows(ExecutionException.class, errored::get);
+      assertThat(exception).hasCauseThat().isInstanceOf(AssertionError.class);
+      // The only worker survived both.
+      assertThat(succeeded.get()).isEqualTo(2);
+    }
+  }
+
+  @Test(timeout = 10000)
+  public void invokeAll_throwsFirstExceptionAfterAllInputs() {
+    List<Integer> processed = new ArrayList<>();
+    try (TaskPool<FakeTask> pool = createPool(1)) {
+      IllegalArgumentException exception =
+          assertThrows(
+              IllegalArgumentException.class,
+              () ->
+                  pool.invokeAll(
+                      Arrays.asList(0, 1, 2),
+                      (task, input) -> {
+                        processed.add(input);
+                        if (input == 1) {
+                          throw new IllegalArgumentException("bad input");
+                        }
+                        return input;
+                      }));
+
+      assertThat(exception).hasMessageThat().isEqualTo("bad input");
+      assertThat(processed).containsExactly(0, 1, 2);
+    }
+  }
+
+  @Test(timeout = 10000)
+  public void close_waitsForCallsAndClosesTasks() throws Exception {
+    TaskPool<FakeTask> pool = createPool(2);
+    CountDownLatch started = new CountDownLatch(1);
+    CompletableFuture<Integer> future =
+        pool.submit(
+            1,
+            (task, input) -> {
+              started.countDown();
+              try {
+                Thread.sleep(100);
+              } catch (InterruptedException e) {
+                throw new IllegalStateException(e);
+              }
+              return input;
+            });
+    started.await();
+
+    pool.close();
+
+    assertThat(future.isDone()).isTrue();
+    assertThat(future.get()).isEqualTo(1);
+    for (FakeTask task : createdTasks) {
+      assertThat(task.closed).isTrue();
+    }
+    assertThrows(IllegalStateException.class, () -> pool.submit(2, (task, input) -> input));
+    // Closing again has no effect.
+    pool.close();
+  }
+
+  private TaskPool<FakeTask> createPool(int size) {
+    return TaskPool.create(
+        ApplicationProvider.getApplicationContext(),
+        new FakeOptions(),
+        (context, options) -> {
+          FakeTask task = new FakeTask();
+          createdTasks.add(task);
+          return task;
+        },
+        size);
+  }
+}
@@ -0,0 +1,125 @@
+// Copyright 2023 The MediaPipe Authors.
+//
+// Licensed under the Apache License, Version 2.0 (the "License");
+// you may not use this file except in compliance with the License.
+// You may obtain a copy of the License at
+//
+//      http://www.apache.org/licenses/LICENSE-2.0
+//
+// Unless required by applicable law or agreed to in writing, software
+// distributed under the License is distributed on an "AS IS" BASIS,
+// WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+// See the License for the specific language governing permissions and
+// limitations under the License.
+
+package com.google.mediapipe.tasks.core;
+
+import static com.google.common.truth.Truth.assertThat;
+
+import androidx.test.core.app.ApplicationProvider;
+import androidx.test.ext.junit.runners.AndroidJUnit4;
+import com.google.mediapipe.framework.AndroidPacketCreator;
+import com.google.mediapipe.framework.Packet;
+import com.google.mediapipe.proto.CalculatorOptionsProto.CalculatorOptions;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+
+/** Test for {@link TaskRunner}. */
+@RunWith(AndroidJUnit4.class)
+public class TaskRunnerTest {
+
+  static {
+    System.loadLibrary("mediapipe_tasks_vision_jni");
+  }
+
+  private static final String ALLOW_STREAM = "allow";
+  private static final String INPUT_STREAM = "input";
+  private static final String OUTPUT_STREAM = "output";
+
+  private static final class FakeResult implements TaskResult {
+    private final long timestampMs;
+
+    FakeResult(long timestampMs) {
+      this.timestampMs = timestampMs;
+    }
+
+    @Override
+    public long timestampMs() {
+      return timestampMs;
+    }
+  }
+
+  private static final class GateOptions extends TaskOptions {
+    @Override
+    public CalculatorOptions convertToCalculatorOptionsProto() {
+      return CalculatorOptions.getDefaultInstance();
+    }
+  }
+
+  private TaskRunner runner;
+
+  @Before
+  public void setUp() {
+    OutputHandler<FakeResult, Void> outputHandler = new OutputHandler<>();
+    outputHandler.setOutputPacketConverter(
+        new OutputHandler.OutputPacketConverter<FakeResult, Void>() {
+          @Override
+          public FakeResult convertToTaskResult(List<Packet> packets) {
+            return new FakeResult(packets.get(0).getTimestamp());
+          }
+
+          @Override
+          public Void convertToTaskInput(List<Packet> packets) {
+            return null;
+          }
+        });
+    // The gate only outputs the input when allowed, otherwise it only advances the timestamp bound.
+    TaskInfo<GateOptions> taskInfo =
+        TaskInfo.<GateOptions>builder()
+            .setTaskGraphName("GateCalculator")
+            .setTaskOptions(new GateOptions())
+            .setInputStreams(Arrays.asList("ALLOW:" + ALLOW_STREAM, INPUT_STREAM))
+            .setOutputStreams(Arrays.asList(OUTPUT_STREAM))
+            .setEnableFlowLimiting(false)
+            .build();
+    runner =
+        TaskRunner.create(ApplicationProvider.getApplicationContext(), taskInfo, outputHandler);
+  }
+
+  @After
+  public void tearDown() {
+    runner.close();
+  }
+
+  @Test(timeout = 10000)
+  public void processAsync_completesWithNullWithoutOutput() throws Exception {
+    CompletableFuture<TaskResult> future = runner.processAsync(createInputs(false), 1000);
+
+    assertThat(future.get(5, TimeUnit.SECONDS)).isNull();
+  }
+
+  @Test(timeout = 10000)
+  public void processAsync_completesEachRequestWithOrWithoutOutput() throws Exception {
+    CompletableFuture<TaskResult> allowed = runner.processAsync(createInputs(true), 1000);
+    CompletableFuture<TaskResult> disallowed = runner.processAsync(createInputs(false), 2000);
+
+    assertThat(allowed.get(5, TimeUnit.SECONDS).timestampMs()).isEqualTo(1000);
+    assertThat(disallowed.get(5, TimeUnit.SECONDS)).isNull();
+  }
+
+  private Map<String, Packet> createInputs(boolean allow) {
+    AndroidPacketCreator packetCreator = runner.getPacketCreator();
+    Map<String, Packet> inputs = new HashMap<>();
+    inputs.put(ALLOW_STREAM, packetCreator.createBool(allow));
+    inputs.put(INPUT_STREAM, packetCreator.createInt32(1));
+    return inputs;
+  }
+}
@@ -30,11 +30,17 @@ import com.google.mediapipe.tasks.components.containers.Category;
 import com.google.mediapipe.tasks.components.containers.NormalizedLandmark;
 import com.google.mediapipe.tasks.components.containers.proto.LandmarksDetectionResultProto.LandmarksDetectionResult;
 import com.google.mediapipe.tasks.core.BaseOptions;
+import com.google.mediapipe.tasks.core.ResultDispatchOptions;
 import com.google.mediapipe.tasks.vision.core.ImageProcessingOptions;
 import com.google.mediapipe.tasks.vision.core.RunningMode;
 import com.google.mediapipe.tasks.vision.handlandmarker.HandLandmarker.HandLandmarkerOptions;
 import java.io.InputStream;
 import java.util.Arrays;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
 import org.junit.Test;
 import org.junit.runner.RunWith;
 import org.junit.runners.Suite;
@@ -369,6 +375,54 @@ public class HandLandmarkerTest {
     }
   }
 
+  @Test
+  public void detect_reusedResultEqualsNormalResultWithDispatchExecutor() throws Exception {
+    MPImage image = getImageFromAsset(THUMB_UP_IMAGE);
+    HandLandmarkerResult normalResult;
+    try (HandLandmarker handLandmarker =
+        HandLandmarker.createFromOptions(
+            ApplicationProvider.getApplicationContext(),
+            HandLandmarkerOptions.builder()
+                .setBaseOptions(
+                    BaseOptions.builder()
+                        .setModelAssetPath(HAND_LANDMARKER_BUNDLE_ASSET_FILE)
+                        .build())
+                .setRunningMode(RunningMode.VIDEO)
+                .build())) {
+      normalResult = handLandmarker.detectForVideo(image, /*timestampsMs=*/ 0);
+    }
+
+    ExecutorService executor = Executors.newSingleThreadExecutor();
+    CountDownLatch delivered = new CountDownLatch(1);
+    AtomicBoolean equal = new AtomicBoolean();
+    HandLandmarkerOptions options =
+        HandLandmarkerOptions.builder()
+            .setBaseOptions(
+                BaseOptions.builder().setModelAssetPath(HAND_LANDMARKER_BUNDLE_ASSET_FILE).build())
+            .setRunningMode(RunningMode.LIVE_STREAM)
+            .setReuseResults(true)
+            .setResultDispatchOptions(ResultDispatchOptions.builder().setExecutor(executor).build())
+            .setResultListener(
+                (reusedResult, inputImage) -> {
+                  // The reused result is only valid until the listener returns.
+                  equal.set(
+                      reusedResult.equals(normalResult)
+                          && normalResult.equals(reusedResult)
+                          && reusedResult.hashCode() == normalResult.hashCode());
+                  delivered.countDown();
+                })
+            .build();
+    try (HandLandmarker handLandmarker =
+        HandLandmarker.createFromOptions(ApplicationProvider.getApplicationContext(), options)) {
+      handLandmarker.detectAsync(image, /*timestampsMs=*/ 0);
+      assertThat(delivered.await(10, TimeUnit.SECONDS)).isTrue();
+    } finally {
+      executor.shutdown();
+    }
+    assertThat(normalResult.landmarks()).isNotEmpty();
+    assertThat(equal.get()).isTrue();
+  }
+
   private static MPImage getImageFromAsset(String filePath) throws Exception {
     AssetManager assetManager = ApplicationProvider.getApplicationContext().getAssets();
     InputStream istr = assetManager.open(filePath);
@@ -114,6 +114,31 @@ public class ImageSegmenterTest {
       verifyConfidenceMask(actualMaskBuffer, expectedMaskBuffer, GOLDEN_MASK_SIMILARITY);
     }
 
+    @Test
+    public void segment_reusesBuffersOfClosedMasks() throws Exception {
+      ImageSegmenterOptions options =
+          ImageSegmenterOptions.builder()
+              .setBaseOptions(BaseOptions.builder().setModelAssetPath(DEEPLAB_MODEL_FILE).build())
+              .setOutputType(ImageSegmenterOptions.OutputType.CONFIDENCE_MASK)
+              .build();
+      ImageSegmenter imageSegmenter =
+          ImageSegmenter.createFromOptions(ApplicationProvider.getApplicationContext(), options);
+      MPImage image = getImageFromAsset(CAT_IMAGE);
+      for (MPImage mask : imageSegmenter.segment(image).segmentations()) {
+        mask.close();
+      }
+      ImageSegmenterResult actualResult = imageSegmenter.segment(image);
+
+      assertThat(actualResult.segmentations()).hasSize(21);
+      ImageSegmenter.MaskBufferStats stats = imageSegmenter.getMaskBufferStats();
+      // 16 of the 21 buffers of the first masks are kept, and reused for the second masks.
+      assertThat(stats.reuseCount()).isEqualTo(16);
+      assertThat(stats.allocationCount()).isEqualTo(26);
+      assertThat(stats.inUseBufferCount()).isEqualTo(21);
+      assertThat(stats.inUseBufferHighWaterMark()).isEqualTo(21);
+      assertThat(stats.pooledBufferCount()).isEqualTo(0);
+    }
+
     // TODO: enable this unit test once activation option is supported in metadata.
     // @Test
     // public void segment_successWith144x256Segmentation() throws Exception {